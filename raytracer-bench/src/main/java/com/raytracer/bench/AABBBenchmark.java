@@ -0,0 +1,48 @@
+package com.raytracer.bench;
+
+import com.geometry.Point;
+import com.raytracer.AABB;
+import com.raytracer.Ray;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Test rayon-boite englobante (méthode des dalles) sur le cube [-1, 1]³.
+ *
+ * @author Projet Ray Tracer
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class AABBBenchmark extends RaySet {
+    private AABB box;
+
+    @Setup
+    public void setUpShape() {
+        box = new AABB(new Point(-1, -1, -1), new Point(1, 1, 1));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RAY_COUNT)
+    public int intersects() {
+        int hits = 0;
+        for (Ray ray : rays) {
+            if (box.intersects(ray, Double.POSITIVE_INFINITY)) {
+                hits++;
+            }
+        }
+        return hits;
+    }
+}
@@ -0,0 +1,108 @@
+package com.raytracer.bench;
+
+import com.geometry.Point;
+import com.geometry.Triangle;
+import com.imaging.Color;
+import com.raytracer.BVHBuilder;
+import com.raytracer.BlockKernels;
+import com.raytracer.Ray;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Noyaux d'intersection par blocs, scalaires contre vectoriels : un rayon
+ * contre un groupe de 4 ou 8 boites, et contre 4 ou 8 triangles empaquetés.
+ * <p>
+ * Les noyaux sont atteints par leur façade publique, {@link BlockKernels}.
+ * Les JVM de mesure sont lancées avec {@code --add-modules jdk.incubator.vector}.
+ * Les scores sont en nanosecondes par rayon, pour tout le groupe.
+ * </p>
+ *
+ * @author Projet Ray Tracer
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class KernelBenchmark extends RaySet {
+
+    @Param({"scalar", "vector"})
+    public String kernel;
+
+    @Param({"4", "8"})
+    public int width;
+
+    private BlockKernels kernels;
+    private double[] boxes;
+    private double[] tNear;
+    private BlockKernels.Triangles triangles;
+    private double[] distances;
+
+    @Setup
+    public void setUpKernels() {
+        kernels = kernel.equals("vector") ? BlockKernels.vector() : BlockKernels.scalar();
+        if (kernels == null) {
+            throw new IllegalStateException("Noyaux vectoriels indisponibles : module "
+                + BlockKernels.VECTOR_MODULE + " absent");
+        }
+        // Petites boites et triangles dispersés dans le carré visé par les rayons
+        Random rnd = new Random(7L);
+        boxes = new double[6 * width];
+        Triangle[] shapes = new Triangle[width];
+        for (int k = 0; k < width; k++) {
+            double x = rnd.nextDouble() * 2.4 - 1.2;
+            double y = rnd.nextDouble() * 2.4 - 1.2;
+            double z = rnd.nextDouble() * 2.0 - 1.0;
+            double r = 0.3 + rnd.nextDouble() * 0.4;
+            boxes[k] = x - r;
+            boxes[width + k] = y - r;
+            boxes[2 * width + k] = z - r;
+            boxes[3 * width + k] = x + r;
+            boxes[4 * width + k] = y + r;
+            boxes[5 * width + k] = z + r;
+            shapes[k] = new Triangle(new Point(x - r, y - r, z), new Point(x + r, y - r, z + r * 0.5),
+                new Point(x, y + r, z - r * 0.5), new Color(0, 1, 0), new Color(), 1f);
+        }
+        triangles = BlockKernels.pack(shapes, BVHBuilder.TriangleTest.MOLLER_TRUMBORE);
+        tNear = new double[width];
+        distances = new double[triangles.distanceCapacity()];
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RAY_COUNT)
+    public int boxes() {
+        int hits = 0;
+        for (Ray ray : rays) {
+            hits += Integer.bitCount(kernels.intersectBoxes(boxes, width, ray, Double.POSITIVE_INFINITY, tNear));
+        }
+        return hits;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RAY_COUNT)
+    public int triangles() {
+        int hits = 0;
+        for (Ray ray : rays) {
+            kernels.intersectTriangles(triangles, ray, distances);
+            for (int k = 0; k < width; k++) {
+                if (distances[k] != Double.POSITIVE_INFINITY) {
+                    hits++;
+                }
+            }
+        }
+        return hits;
+    }
+}
@@ -0,0 +1,50 @@
+package com.raytracer.bench;
+
+import com.geometry.Plane;
+import com.geometry.Point;
+import com.geometry.Vector;
+import com.imaging.Color;
+import com.raytracer.Ray;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Intersection rayon-plan, plan z = 0 face à la caméra.
+ *
+ * @author Projet Ray Tracer
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class PlaneBenchmark extends RaySet {
+    private Plane plane;
+
+    @Setup
+    public void setUpShape() {
+        plane = new Plane(new Point(0, 0, 0), new Vector(0, 0, -1), new Color(0.5f, 0.5f, 0.5f), new Color(), 1f);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RAY_COUNT)
+    public int hitRecord() {
+        int hits = 0;
+        for (Ray ray : rays) {
+            if (plane.intersect(ray, Double.POSITIVE_INFINITY, hit)) {
+                hits++;
+            }
+        }
+        return hits;
+    }
+}
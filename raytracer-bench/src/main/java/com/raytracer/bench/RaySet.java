@@ -0,0 +1,80 @@
+package com.raytracer.bench;
+
+import com.geometry.Point;
+import com.geometry.Vector;
+import com.raytracer.HitRecord;
+import com.raytracer.Ray;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+
+/**
+ * Jeu de rayons commun aux bancs d'essai des noyaux d'intersection.
+ * <p>
+ * Deux distributions, choisies par le paramètre {@code distribution} :
+ * </p>
+ * <ul>
+ *   <li>{@code coherent} : rayons primaires d'une caméra placée en
+ *   (0, 0, -5), regardant l'origine à travers une grille de 32x32 pixels
+ *   couvrant le carré [-1.5, 1.5]² : rayons voisins, branches prévisibles ;</li>
+ *   <li>{@code random} : origines uniformes dans le cube [-5, 5]³ et visées
+ *   uniformes dans [-1.5, 1.5]³, comme des rayons secondaires : environ
+ *   la moitié des rayons manquent les formes, dans un ordre imprévisible.</li>
+ * </ul>
+ * <p>
+ * Les rayons sont construits une fois par essai : chaque banc ne mesure
+ * que le noyau. Les méthodes parcourent tout le jeu et déclarent
+ * {@value #RAY_COUNT} opérations par invocation : les résultats sont donc
+ * en nanosecondes par rayon, et l'allocation mesurée par {@code -prof gc}
+ * en octets par rayon.
+ * </p>
+ *
+ * @author Projet Ray Tracer
+ * @version 1.0
+ */
+@State(Scope.Thread)
+public abstract class RaySet {
+    /** Nombre de rayons d'un jeu (grille coherent de 32x32). */
+    public static final int RAY_COUNT = 1024;
+
+    @Param({"coherent", "random"})
+    public String distribution;
+
+    protected Ray[] rays;
+    protected HitRecord hit;
+
+    @Setup
+    public void setUpRays() {
+        rays = new Ray[RAY_COUNT];
+        hit = new HitRecord();
+        switch (distribution) {
+            case "coherent":
+                Point eye = new Point(0, 0, -5);
+                for (int j = 0; j < 32; j++) {
+                    for (int i = 0; i < 32; i++) {
+                        double x = -1.5 + 3.0 * (i + 0.5) / 32;
+                        double y = 1.5 - 3.0 * (j + 0.5) / 32;
+                        rays[j * 32 + i] = new Ray(eye, new Vector(x, y, 5));
+                    }
+                }
+                break;
+            case "random":
+                Random rnd = new Random(42L);
+                for (int r = 0; r < RAY_COUNT; r++) {
+                    Point origin = new Point(uniform(rnd, 5), uniform(rnd, 5), uniform(rnd, 5));
+                    Point target = new Point(uniform(rnd, 1.5), uniform(rnd, 1.5), uniform(rnd, 1.5));
+                    rays[r] = new Ray(origin, target.subtract(origin));
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Distribution de rayons inconnue : " + distribution);
+        }
+    }
+
+    private static double uniform(Random rnd, double halfWidth) {
+        return (2 * rnd.nextDouble() - 1) * halfWidth;
+    }
+}
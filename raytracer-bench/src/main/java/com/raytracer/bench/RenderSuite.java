@@ -0,0 +1,350 @@
+package com.raytracer.bench;
+
+import com.parsing.SceneFileParser;
+import com.raytracer.BVHBuilder;
+import com.raytracer.RayTracer;
+import com.raytracer.Scene;
+import com.raytracer.TileRenderer;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+/**
+ * Banc d'essai de bout en bout : rendu des scènes fournies, sans écriture d'image.
+ * <p>
+ * Usage : {@code java -cp target/benchmarks.jar com.raytracer.bench.RenderSuite [options]}
+ * </p>
+ * <p>
+ * Les scènes des jalons 3 à 6 ({@code jalonN/*.test}), {@code final.scene}
+ * et {@code final_avec_bonus.scene} sont rendues une première fois
+ * ({@code --warmup} tours complets, non mesurés) pour laisser le JIT
+ * compiler les chemins chauds, puis {@code --runs} fois pour chaque nombre
+ * de threads de rendu. Chaque mesure relève la durée d'analyse de la
+ * scène, de construction de la BVH et du rendu, le débit en rayons
+ * primaires (un par pixel) et le pic d'occupation du tas.
+ * </p>
+ * <p>
+ * Options :
+ * </p>
+ * <ul>
+ *   <li>{@code --scenes=répertoire} : scènes fournies (défaut {@value #DEFAULT_SCENES})</li>
+ *   <li>{@code --threads=1,2,4} : nombres de threads de rendu (défaut : nombre de processeurs)</li>
+ *   <li>{@code --warmup=N} : tours de chauffe (défaut 2)</li>
+ *   <li>{@code --runs=N} : mesures par scène et nombre de threads (défaut 3)</li>
+ *   <li>{@code --bvh=median|sah} : stratégie de construction de la BVH</li>
+ *   <li>{@code --bvh-width=2|4|8} : nombre de fils par noeud de la BVH parcourue</li>
+ *   <li>{@code --label=texte} : étiquette des résultats (commit, machine...)</li>
+ *   <li>{@code --json=fichier}, {@code --csv=fichier} : export des mesures</li>
+ * </ul>
+ * <p>
+ * {@code --threads} ne règle que le pool du rendu ; l'analyse parallèle et
+ * la construction de la BVH utilisent le pool commun, à dimensionner par
+ * {@code -Djava.util.concurrent.ForkJoinPool.common.parallelism=N}.
+ * </p>
+ *
+ * @author Projet Ray Tracer
+ * @version 1.0
+ */
+public class RenderSuite {
+    static final String DEFAULT_SCENES = "../raytracer/src/main/resources/scenes";
+
+    /** Une mesure : une scène rendue une fois avec un nombre de threads donné. */
+    static final class Result {
+        final String scene;
+        final int threads;
+        final int run;
+        final int width;
+        final int height;
+        final int primitives;
+        final double parseMillis;
+        final double bvhMillis;
+        final double renderMillis;
+        final long peakHeapBytes;
+
+        Result(String scene, int threads, int run, int width, int height, int primitives,
+               double parseMillis, double bvhMillis, double renderMillis, long peakHeapBytes) {
+            this.scene = scene;
+            this.threads = threads;
+            this.run = run;
+            this.width = width;
+            this.height = height;
+            this.primitives = primitives;
+            this.parseMillis = parseMillis;
+            this.bvhMillis = bvhMillis;
+            this.renderMillis = renderMillis;
+            this.peakHeapBytes = peakHeapBytes;
+        }
+
+        double getPrimaryRaysPerSecond() {
+            return renderMillis > 0 ? (double) width * height / (renderMillis / 1e3) : 0.0;
+        }
+    }
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        Path scenesDir = Path.of(DEFAULT_SCENES);
+        int[] threadCounts = {Runtime.getRuntime().availableProcessors()};
+        int warmup = 2;
+        int runs = 3;
+        BVHBuilder builder = BVHBuilder.median();
+        int bvhWidth = BVHBuilder.DEFAULT_BRANCHING_FACTOR;
+        String label = "";
+        Path jsonFile = null;
+        Path csvFile = null;
+        try {
+            for (String option : args) {
+                if (option.startsWith("--scenes=")) {
+                    scenesDir = Path.of(option.substring("--scenes=".length()));
+                } else if (option.startsWith("--threads=")) {
+                    threadCounts = Arrays.stream(option.substring("--threads=".length()).split(","))
+                        .mapToInt(Integer::parseInt).toArray();
+                } else if (option.startsWith("--warmup=")) {
+                    warmup = Integer.parseInt(option.substring("--warmup=".length()));
+                } else if (option.startsWith("--runs=")) {
+                    runs = Integer.parseInt(option.substring("--runs=".length()));
+                } else if (option.equals("--bvh=median")) {
+                    builder = BVHBuilder.median();
+                } else if (option.equals("--bvh=sah")) {
+                    builder = BVHBuilder.sah();
+                } else if (option.startsWith("--bvh-width=")) {
+                    bvhWidth = Integer.parseInt(option.substring("--bvh-width=".length()));
+                } else if (option.startsWith("--label=")) {
+                    label = option.substring("--label=".length());
+                } else if (option.startsWith("--json=")) {
+                    jsonFile = Path.of(option.substring("--json=".length()));
+                } else if (option.startsWith("--csv=")) {
+                    csvFile = Path.of(option.substring("--csv=".length()));
+                } else {
+                    throw new IllegalArgumentException("Option inconnue : " + option);
+                }
+            }
+            if (warmup < 0 || runs < 1 || Arrays.stream(threadCounts).anyMatch(t -> t < 1)) {
+                throw new IllegalArgumentException("--warmup >= 0, --runs >= 1 et --threads >= 1 attendus");
+            }
+            builder = builder.withBranchingFactor(bvhWidth);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: java -cp benchmarks.jar com.raytracer.bench.RenderSuite [--scenes=repertoire]"
+                + " [--threads=1,2,4] [--warmup=N] [--runs=N] [--bvh=median|sah] [--bvh-width=2|4|8] [--label=texte]"
+                + " [--json=fichier] [--csv=fichier]");
+            System.exit(1);
+            return;
+        }
+
+        try {
+            List<Path> scenes = bundledScenes(scenesDir);
+            if (scenes.isEmpty()) {
+                throw new IOException("Aucune scène dans " + scenesDir.toAbsolutePath());
+            }
+            List<Result> results = run(scenes, scenesDir, threadCounts, warmup, runs, builder);
+            printSummary(results);
+            if (jsonFile != null) {
+                writeJson(jsonFile, results, label, builder, warmup);
+                System.out.println("Résultats JSON : " + jsonFile);
+            }
+            if (csvFile != null) {
+                writeCsv(csvFile, results, label);
+                System.out.println("Résultats CSV : " + csvFile);
+            }
+        } catch (IOException e) {
+            System.err.println("Erreur lors du banc d'essai : " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * @return les scènes des jalons 3 à 6 puis les scènes finales, dans un ordre stable
+     */
+    static List<Path> bundledScenes(Path scenesDir) throws IOException {
+        List<Path> scenes = new ArrayList<>();
+        for (int jalon = 3; jalon <= 6; jalon++) {
+            Path dir = scenesDir.resolve("jalon" + jalon);
+            if (Files.isDirectory(dir)) {
+                try (Stream<Path> files = Files.list(dir)) {
+                    files.filter(p -> p.getFileName().toString().endsWith(".test")).sorted().forEach(scenes::add);
+                }
+            }
+        }
+        for (String name : new String[] {"final.scene", "final_avec_bonus.scene"}) {
+            Path scene = scenesDir.resolve(name);
+            if (Files.isRegularFile(scene)) {
+                scenes.add(scene);
+            }
+        }
+        return scenes;
+    }
+
+    private static List<Result> run(List<Path> scenes, Path scenesDir, int[] threadCounts, int warmup, int runs,
+                                    BVHBuilder builder) throws IOException {
+        ForkJoinPool[] pools = new ForkJoinPool[threadCounts.length];
+        for (int t = 0; t < threadCounts.length; t++) {
+            pools[t] = new ForkJoinPool(threadCounts[t]);
+        }
+        try {
+            for (int round = 1; round <= warmup; round++) {
+                long start = System.nanoTime();
+                for (Path scene : scenes) {
+                    for (int t = 0; t < pools.length; t++) {
+                        measure(scene, scenesDir, pools[t], threadCounts[t], 0, builder);
+                    }
+                }
+                System.out.printf(Locale.ROOT, "Chauffe %d/%d : %.1f s%n", round, warmup,
+                    (System.nanoTime() - start) / 1e9);
+            }
+            List<Result> results = new ArrayList<>();
+            for (Path scene : scenes) {
+                for (int t = 0; t < pools.length; t++) {
+                    for (int r = 1; r <= runs; r++) {
+                        results.add(measure(scene, scenesDir, pools[t], threadCounts[t], r, builder));
+                    }
+                }
+            }
+            return results;
+        } finally {
+            for (ForkJoinPool pool : pools) {
+                pool.shutdown();
+            }
+        }
+    }
+
+    private static Result measure(Path scenePath, Path scenesDir, ForkJoinPool pool, int threads, int run,
+                                  BVHBuilder builder) throws IOException {
+        List<MemoryPoolMXBean> heapPools = new ArrayList<>();
+        for (MemoryPoolMXBean memoryPool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (memoryPool.getType() == MemoryType.HEAP) {
+                heapPools.add(memoryPool);
+            }
+        }
+        // Pic mesuré depuis un tas nettoyé des scènes précédentes
+        System.gc();
+        for (MemoryPoolMXBean memoryPool : heapPools) {
+            memoryPool.resetPeakUsage();
+        }
+
+        long start = System.nanoTime();
+        Scene scene = new Scene();
+        new SceneFileParser(scene).parse(scenePath.toString());
+        long parsed = System.nanoTime();
+        RayTracer rayTracer = new RayTracer(scene, builder);
+        long built = System.nanoTime();
+        int width = scene.getWidth();
+        int height = scene.getHeight();
+        new TileRenderer(TileRenderer.DEFAULT_TILE_SIZE, TileRenderer.Order.HILBERT, pool)
+            .render(rayTracer, width, height, new int[width * height], finished -> { });
+        long rendered = System.nanoTime();
+
+        long peakHeap = 0;
+        for (MemoryPoolMXBean memoryPool : heapPools) {
+            peakHeap += memoryPool.getPeakUsage().getUsed();
+        }
+        return new Result(scenesDir.relativize(scenePath).toString().replace('\\', '/'), threads, run,
+            width, height, rayTracer.getBvhStats().getPrimitiveCount(),
+            (parsed - start) / 1e6, (built - parsed) / 1e6, (rendered - built) / 1e6, peakHeap);
+    }
+
+    // Médiane des mesures de chaque scène, par nombre de threads
+    private static void printSummary(List<Result> results) {
+        System.out.printf(Locale.ROOT, "%-28s %7s %10s %10s %11s %14s %10s%n",
+            "scène", "threads", "analyse", "BVH", "rendu", "rayons prim./s", "pic tas");
+        for (int i = 0; i < results.size(); ) {
+            int j = i;
+            while (j < results.size() && results.get(j).scene.equals(results.get(i).scene)
+                    && results.get(j).threads == results.get(i).threads) {
+                j++;
+            }
+            List<Result> group = results.subList(i, j);
+            Result first = group.get(0);
+            System.out.printf(Locale.ROOT, "%-28s %7d %7.1f ms %7.1f ms %8.1f ms %14.0f %7.1f Mo%n",
+                first.scene, first.threads,
+                median(group.stream().mapToDouble(r -> r.parseMillis).toArray()),
+                median(group.stream().mapToDouble(r -> r.bvhMillis).toArray()),
+                median(group.stream().mapToDouble(r -> r.renderMillis).toArray()),
+                median(group.stream().mapToDouble(Result::getPrimaryRaysPerSecond).toArray()),
+                median(group.stream().mapToDouble(r -> r.peakHeapBytes).toArray()) / (1024 * 1024));
+            i = j;
+        }
+    }
+
+    static double median(double[] values) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int n = sorted.length;
+        return n % 2 == 1 ? sorted[n / 2] : (sorted[n / 2 - 1] + sorted[n / 2]) / 2;
+    }
+
+    static void writeCsv(Path path, List<Result> results, String label) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(path)) {
+            out.write("label,scene,threads,run,largeur,hauteur,primitives,analyse_ms,bvh_ms,rendu_ms,"
+                + "rayons_primaires_par_s,pic_tas_octets");
+            out.newLine();
+            for (Result r : results) {
+                out.write(String.format(Locale.ROOT, "%s,%s,%d,%d,%d,%d,%d,%.3f,%.3f,%.3f,%.0f,%d",
+                    csvField(label), csvField(r.scene), r.threads, r.run, r.width, r.height, r.primitives,
+                    r.parseMillis, r.bvhMillis, r.renderMillis, r.getPrimaryRaysPerSecond(), r.peakHeapBytes));
+                out.newLine();
+            }
+        }
+    }
+
+    static void writeJson(Path path, List<Result> results, String label, BVHBuilder builder, int warmup)
+            throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(path)) {
+            out.write("{\n");
+            out.write("  \"label\": " + jsonString(label) + ",\n");
+            out.write("  \"date\": " + jsonString(Instant.now().toString()) + ",\n");
+            out.write("  \"java\": " + jsonString(System.getProperty("java.vm.name") + " "
+                + System.getProperty("java.vm.version")) + ",\n");
+            out.write("  \"processeurs\": " + Runtime.getRuntime().availableProcessors() + ",\n");
+            out.write("  \"tas_max_octets\": " + Runtime.getRuntime().maxMemory() + ",\n");
+            out.write("  \"bvh\": " + jsonString(builder.getStrategy().name()) + ",\n");
+            out.write("  \"bvh_fils\": " + builder.getBranchingFactor() + ",\n");
+            out.write("  \"chauffe\": " + warmup + ",\n");
+            out.write("  \"mesures\": [\n");
+            for (int i = 0; i < results.size(); i++) {
+                Result r = results.get(i);
+                out.write(String.format(Locale.ROOT,
+                    "    {\"scene\": %s, \"threads\": %d, \"run\": %d, \"largeur\": %d, \"hauteur\": %d, "
+                        + "\"primitives\": %d, \"analyse_ms\": %.3f, \"bvh_ms\": %.3f, \"rendu_ms\": %.3f, "
+                        + "\"rayons_primaires_par_s\": %.0f, \"pic_tas_octets\": %d}%s%n",
+                    jsonString(r.scene), r.threads, r.run, r.width, r.height, r.primitives,
+                    r.parseMillis, r.bvhMillis, r.renderMillis, r.getPrimaryRaysPerSecond(), r.peakHeapBytes,
+                    i + 1 < results.size() ? "," : ""));
+            }
+            out.write("  ]\n}\n");
+        }
+    }
+
+    static String jsonString(String value) {
+        StringBuilder s = new StringBuilder("\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                s.append('\\').append(c);
+            } else if (c < 0x20) {
+                s.append(String.format("\\u%04x", (int) c));
+            } else {
+                s.append(c);
+            }
+        }
+        return s.append('"').toString();
+    }
+
+    static String csvField(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+}
@@ -0,0 +1,63 @@
+package com.raytracer.bench;
+
+import com.geometry.Point;
+import com.geometry.Sphere;
+import com.imaging.Color;
+import com.raytracer.HitRecord;
+import com.raytracer.Ray;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Intersection rayon-sphère : chemin du rendu ({@link HitRecord} réutilisé)
+ * et ancienne API par {@code Optional}, pour comparer coût et allocation.
+ *
+ * @author Projet Ray Tracer
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class SphereBenchmark extends RaySet {
+    private Sphere sphere;
+
+    @Setup
+    public void setUpShape() {
+        sphere = new Sphere(new Point(0, 0, 0), 1.0, new Color(1, 0, 0), new Color(), 1f);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RAY_COUNT)
+    public int hitRecord() {
+        int hits = 0;
+        for (Ray ray : rays) {
+            if (sphere.intersect(ray, Double.POSITIVE_INFINITY, hit)) {
+                hits++;
+            }
+        }
+        return hits;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RAY_COUNT)
+    public int optional() {
+        int hits = 0;
+        for (Ray ray : rays) {
+            if (sphere.intersect(ray).isPresent()) {
+                hits++;
+            }
+        }
+        return hits;
+    }
+}
@@ -0,0 +1,69 @@
+package com.raytracer.bench;
+
+import com.geometry.Point;
+import com.geometry.Triangle;
+import com.geometry.TriangleMesh;
+import com.imaging.Color;
+import com.raytracer.Ray;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Intersection rayon-triangle (Möller-Trumbore) : triangle isolé, dont les
+ * arêtes sont précalculées, et triangle d'un {@link TriangleMesh}, dont
+ * les sommets sont relus dans le tampon indexé à chaque test.
+ *
+ * @author Projet Ray Tracer
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class TriangleBenchmark extends RaySet {
+    private Triangle triangle;
+    private TriangleMesh mesh;
+
+    @Setup
+    public void setUpShape() {
+        Color diffuse = new Color(0, 1, 0);
+        triangle = new Triangle(new Point(-1.5, -1.5, 0), new Point(1.5, -1.5, 0), new Point(0, 1.5, 0),
+            diffuse, new Color(), 1f);
+        double[] vertices = {-1.5, -1.5, 0, 1.5, -1.5, 0, 0, 1.5, 0};
+        mesh = new TriangleMesh(vertices, new int[] {0, 1, 2}, 1, diffuse, new Color(), 1f);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RAY_COUNT)
+    public int triangle() {
+        int hits = 0;
+        for (Ray ray : rays) {
+            if (triangle.intersect(ray, Double.POSITIVE_INFINITY, hit)) {
+                hits++;
+            }
+        }
+        return hits;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RAY_COUNT)
+    public int meshTriangle() {
+        int hits = 0;
+        for (Ray ray : rays) {
+            if (mesh.intersectTriangle(0, ray) != Double.POSITIVE_INFINITY) {
+                hits++;
+            }
+        }
+        return hits;
+    }
+}
@@ -0,0 +1,84 @@
+package com.raytracer.bench;
+
+import com.geometry.Vector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Arithmétique de {@link Vector} sur les directions du jeu de rayons :
+ * chaque opération crée un nouveau vecteur, {@code -prof gc} montre si
+ * l'analyse d'échappement supprime ces allocations.
+ *
+ * @author Projet Ray Tracer
+ * @version 1.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class VectorBenchmark extends RaySet {
+    private Vector[] directions;
+    private Vector light;
+
+    @Setup
+    public void setUpVectors() {
+        directions = new Vector[RAY_COUNT];
+        for (int r = 0; r < RAY_COUNT; r++) {
+            directions[r] = rays[r].getDirection();
+        }
+        light = new Vector(1, 2, -3).normalize();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RAY_COUNT)
+    public double dot() {
+        double sum = 0;
+        for (Vector d : directions) {
+            sum += d.dot(light);
+        }
+        return sum;
+    }
+
+    // Vecteur réfléchi r = d - 2 (d.n) n
+    @Benchmark
+    @OperationsPerInvocation(RAY_COUNT)
+    public double reflect() {
+        double sum = 0;
+        for (Vector d : directions) {
+            Vector r = d.subtract(light.scale(2 * d.dot(light)));
+            sum += r.getX();
+        }
+        return sum;
+    }
+
+    // Demi-vecteur de Blinn-Phong h = normalize(l + v)
+    @Benchmark
+    @OperationsPerInvocation(RAY_COUNT)
+    public double halfVector() {
+        double sum = 0;
+        for (Vector d : directions) {
+            sum += d.add(light).normalize().getZ();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RAY_COUNT)
+    public double crossNormalize() {
+        double sum = 0;
+        for (Vector d : directions) {
+            sum += d.cross(light).normalize().getY();
+        }
+        return sum;
+    }
+}
@@ -2,6 +2,7 @@ package com.geometry;
 
 import java.util.Optional;
 import com.raytracer.AABB;
+import com.raytracer.HitRecord;
 import com.raytracer.Intersection;
 import com.raytracer.Ray;
 import com.imaging.Color;
@@ -61,19 +62,27 @@ public class Plane implements Shape {
 
     @Override
     public Optional<Intersection> intersect(Ray ray) {
+        HitRecord hit = new HitRecord();
+        if (intersect(ray, Double.POSITIVE_INFINITY, hit)) {
+            return Optional.of(hit.toIntersection(ray));
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public boolean intersect(Ray ray, double tMax, HitRecord out) {
         double denom = normal.dot(ray.getDirection());
         if (Math.abs(denom) > 1e-6) {
-            Vector p0l0 = new Vector(
-                point.getX() - ray.getOrigin().getX(),
-                point.getY() - ray.getOrigin().getY(),
-                point.getZ() - ray.getOrigin().getZ()
-            );
-            double t = p0l0.dot(normal) / denom;
-            if (t >= 0) {
-                return Optional.of(new Intersection(this, t, ray.getPointAtParameter(t)));
+            double p0l0x = point.getX() - ray.getOrigin().getX();
+            double p0l0y = point.getY() - ray.getOrigin().getY();
+            double p0l0z = point.getZ() - ray.getOrigin().getZ();
+            double t = (p0l0x * normal.getX() + p0l0y * normal.getY() + p0l0z * normal.getZ()) / denom;
+            if (t >= 0 && t < tMax) {
+                out.set(this, t, -1);
+                return true;
             }
         }
-        return Optional.empty();
+        return false;
     }
 
     @Override
@@ -2,6 +2,7 @@ package com.geometry;
 
 import java.util.Optional;
 import com.raytracer.AABB;
+import com.raytracer.HitRecord;
 import com.raytracer.Intersection;
 import com.raytracer.Ray;
 import com.imaging.Color;
@@ -22,7 +23,28 @@ public interface Shape {
     Color getSpecular();
     Float getShininess();
     Vector getNormalAt(Point p);
+    /**
+     * Normale au point d'une intersection. Les maillages s'appuient sur
+     * l'indice du triangle touché ; les autres formes sur le point seul.
+     */
+    default Vector getNormal(Intersection hit) {
+        return getNormalAt(hit.getPoint());
+    }
     Optional<Intersection> intersect(Ray ray);
+    /**
+     * Intersection sans allocation : si le rayon touche la forme à une
+     * distance t (la même que {@link #intersect(Ray)}) inférieure à tMax,
+     * l'écrit dans {@code out} et retourne true ; sinon {@code out} est
+     * laissé intact. Le point d'intersection n'est pas calculé.
+     */
+    default boolean intersect(Ray ray, double tMax, HitRecord out) {
+        Optional<Intersection> hit = intersect(ray);
+        if (hit.isPresent() && hit.get().getT() < tMax) {
+            out.set(this, hit.get().getT(), hit.get().getPrimitiveIndex());
+            return true;
+        }
+        return false;
+    }
     /**
      * Return null pour les formes non bornées (plans)
      */
@@ -4,6 +4,7 @@ import java.util.Optional;
 
 import com.imaging.Color;
 import com.raytracer.AABB;
+import com.raytracer.HitRecord;
 import com.raytracer.Intersection;
 import com.raytracer.Ray;
 
@@ -110,45 +111,56 @@ public class Sphere implements Shape {
     */
     @Override
     public Optional<Intersection> intersect(Ray ray) {
+        HitRecord hit = new HitRecord();
+        if (intersect(ray, Double.POSITIVE_INFINITY, hit)) {
+            return Optional.of(hit.toIntersection(ray));
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public boolean intersect(Ray ray, double tMax, HitRecord out) {
         Point o = ray.getOrigin();
         Vector d = ray.getDirection();
-        
+        double dx = d.getX();
+        double dy = d.getY();
+        double dz = d.getZ();
+
         // Vecteur (o - c)
-        Vector oc = new Vector(
-            o.getX() - center.getX(),
-            o.getY() - center.getY(),
-            o.getZ() - center.getZ()
-        );
-        
+        double ocx = o.getX() - center.getX();
+        double ocy = o.getY() - center.getY();
+        double ocz = o.getZ() - center.getZ();
+
         // Coeff eq second degré
-        double a = d.dot(d);
-        double b = 2.0 * oc.dot(d);
-        double c = oc.dot(oc) - radius * radius;
-        
+        double a = dx * dx + dy * dy + dz * dz;
+        double b = 2.0 * (ocx * dx + ocy * dy + ocz * dz);
+        double c = (ocx * ocx + ocy * ocy + ocz * ocz) - radius * radius;
+
         // Discriminant
         double delta = b * b - 4 * a * c;
-        
+
         // Pas d'intersection
         if (delta < 0) {
-            return Optional.empty();
+            return false;
         }
-        
+
         // Calcul de t2 car plus proche
         double t2 = (-b - Math.sqrt(delta)) / (2 * a);
-        
+
         // Si t2 est négatif, essayer t1
         if (t2 < 0) {
             double t1 = (-b + Math.sqrt(delta)) / (2 * a);
             if (t1 < 0) {
-                return Optional.empty(); // Les deux sont derrière la caméra
+                return false; // Les deux sont derrière la caméra
             }
             t2 = t1;
         }
-        
-        // point d'intersection
-        Point intersectionPoint = ray.getPointAtParameter(t2);
-        
-        return Optional.of(new Intersection(this, t2, intersectionPoint));
+
+        if (t2 >= tMax) {
+            return false;
+        }
+        out.set(this, t2, -1);
+        return true;
     }
 
     @Override
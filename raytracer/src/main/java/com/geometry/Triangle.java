@@ -2,6 +2,7 @@ package com.geometry;
 
 import java.util.Optional;
 import com.raytracer.AABB;
+import com.raytracer.HitRecord;
 import com.raytracer.Intersection;
 import com.raytracer.Ray;
 import com.imaging.Color;
@@ -12,6 +13,11 @@ import com.imaging.Color;
  * L'intersection rayon-triangle utilise l'algorithme de Möller-Trumbore.
  * La normale est calculée par produit vectoriel des arêtes.
  * </p>
+ * <p>
+ * Les arêtes, la normale unitaire et la boite englobante sont calculées une
+ * fois à la construction : le test d'intersection se réduit à quelques
+ * multiplications-additions, sans allocation.
+ * </p>
  * 
  * @author Projet Ray Tracer
  * @version 1.0
@@ -23,6 +29,11 @@ public class Triangle implements Shape {
     private final Color diffuse;
     private final Color specular;
     protected final Float shininess;
+    // Données précalculées
+    private final Vector edge1;     // p2 - p1
+    private final Vector edge2;     // p3 - p1
+    private final Vector normal;    // normale géométrique unitaire
+    private final AABB boundingBox;
     
     public Triangle(Point p1, Point p2, Point p3, Color diffuse, Color specular, Float shininess) {
         this.p1 = p1;
@@ -31,6 +42,10 @@ public class Triangle implements Shape {
         this.diffuse = diffuse;
         this.specular = specular;
         this.shininess = shininess;
+        this.edge1 = new Vector(p2.getX() - p1.getX(), p2.getY() - p1.getY(), p2.getZ() - p1.getZ());
+        this.edge2 = new Vector(p3.getX() - p1.getX(), p3.getY() - p1.getY(), p3.getZ() - p1.getZ());
+        this.normal = edge1.cross(edge2).normalize();
+        this.boundingBox = computeBoundingBox();
     }
 
     @Override
@@ -61,55 +76,91 @@ public class Triangle implements Shape {
         return p3;
     }
 
+    public Vector getEdge1() {
+        return edge1;
+    }
+
+    public Vector getEdge2() {
+        return edge2;
+    }
+
     @Override
     public Vector getNormalAt(Point p) {
-        Vector v1 = new Vector(p2.getX() - p1.getX(), p2.getY() - p1.getY(), p2.getZ() - p1.getZ());
-        Vector v2 = new Vector(p3.getX() - p1.getX(), p3.getY() - p1.getY(), p3.getZ() - p1.getZ());
-        return v1.cross(v2).normalize();
+        return normal;
     }
 
     @Override
     public Optional<Intersection> intersect(Ray ray) {
+        HitRecord hit = new HitRecord();
+        if (intersect(ray, Double.POSITIVE_INFINITY, hit)) {
+            return Optional.of(hit.toIntersection(ray));
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Möller-Trumbore sur des scalaires (aucun vecteur intermédiaire alloué).
+     */
+    @Override
+    public boolean intersect(Ray ray, double tMax, HitRecord out) {
         final double EPSILON = 1e-8;
-        Vector edge1 = new Vector(p2.getX() - p1.getX(), p2.getY() - p1.getY(), p2.getZ() - p1.getZ());
-        Vector edge2 = new Vector(p3.getX() - p1.getX(), p3.getY() - p1.getY(), p3.getZ() - p1.getZ());
-        Vector h = ray.getDirection().cross(edge2);
-        double a = edge1.dot(h);
+        double dx = ray.getDirection().getX();
+        double dy = ray.getDirection().getY();
+        double dz = ray.getDirection().getZ();
+
+        double e1x = edge1.getX();
+        double e1y = edge1.getY();
+        double e1z = edge1.getZ();
+        double e2x = edge2.getX();
+        double e2y = edge2.getY();
+        double e2z = edge2.getZ();
+
+        // h = d x edge2
+        double hx = dy * e2z - dz * e2y;
+        double hy = dz * e2x - dx * e2z;
+        double hz = dx * e2y - dy * e2x;
+        double a = e1x * hx + e1y * hy + e1z * hz;
 
         if (a > -EPSILON && a < EPSILON) {
-            return Optional.empty(); // Rayon parallèle au triangle
+            return false; // Rayon parallèle au triangle
         }
 
         double f = 1.0 / a;
-        Vector s = new Vector(
-            ray.getOrigin().getX() - p1.getX(),
-            ray.getOrigin().getY() - p1.getY(),
-            ray.getOrigin().getZ() - p1.getZ()
-        );
-        double u = f * s.dot(h);
+        double sx = ray.getOrigin().getX() - p1.getX();
+        double sy = ray.getOrigin().getY() - p1.getY();
+        double sz = ray.getOrigin().getZ() - p1.getZ();
+        double u = f * (sx * hx + sy * hy + sz * hz);
 
         if (u < -EPSILON || u > 1.0 + EPSILON) {
-            return Optional.empty();
+            return false;
         }
 
-        Vector q = s.cross(edge1);
-        double v = f * ray.getDirection().dot(q);
+        // q = s x edge1
+        double qx = sy * e1z - sz * e1y;
+        double qy = sz * e1x - sx * e1z;
+        double qz = sx * e1y - sy * e1x;
+        double v = f * (dx * qx + dy * qy + dz * qz);
 
         if (v < -EPSILON || u + v > 1.0 + EPSILON) {
-            return Optional.empty();
+            return false;
         }
 
-        double t = f * edge2.dot(q);
+        double t = f * (e2x * qx + e2y * qy + e2z * qz);
 
-        if (t > EPSILON) {
-            return Optional.of(new Intersection(this, t, ray.getPointAtParameter(t)));
+        if (t > EPSILON && t < tMax) {
+            out.set(this, t, -1);
+            return true;
         }
 
-        return Optional.empty();
+        return false;
     }
 
     @Override
     public AABB getBoundingBox() {
+        return boundingBox;
+    }
+
+    private AABB computeBoundingBox() {
         double minX = Math.min(p1.getX(), Math.min(p2.getX(), p3.getX()));
         double minY = Math.min(p1.getY(), Math.min(p2.getY(), p3.getY()));
         double minZ = Math.min(p1.getZ(), Math.min(p2.getZ(), p3.getZ()));
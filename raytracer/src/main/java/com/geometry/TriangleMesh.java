@@ -0,0 +1,287 @@
+package com.geometry;
+
+import java.util.Optional;
+import com.raytracer.AABB;
+import com.raytracer.HitRecord;
+import com.raytracer.Intersection;
+import com.raytracer.Ray;
+import com.imaging.Color;
+
+/**
+ * Maillage de triangles indexé.
+ * <p>
+ * Les positions sont stockées dans un tampon de sommets {@code double[]}
+ * (x, y, z consécutifs) et les triangles dans un tampon d'indices
+ * {@code int[]} (trois indices de sommet par triangle). Tous les triangles
+ * partagent le même matériau. Un maillage de n triangles coûte ainsi
+ * quelques tableaux au lieu de n objets {@link Triangle} et de leurs
+ * points, couleurs et brillance.
+ * </p>
+ * <p>
+ * Le tampon de sommets peut être partagé entre plusieurs maillages (un par
+ * matériau, par exemple). Dans la scène, le BVH travaille directement sur
+ * les indices de triangles du maillage : l'intersection retournée porte
+ * l'indice du triangle touché, utilisé pour le calcul de la normale.
+ * </p>
+ * <p>
+ * Les normales unitaires des triangles sont précalculées dans un tableau
+ * compact (trois doubles par triangle) : l'ombrage ne refait ni produit
+ * vectoriel ni normalisation.
+ * </p>
+ *
+ * @author Projet Ray Tracer
+ * @version 1.0
+ * @see Triangle
+ */
+public class TriangleMesh implements Shape {
+    private static final double EPSILON = 1e-8; // même tolérance que Triangle.intersect
+
+    private final double[] vertices;
+    private final int[] indices;
+    private final int triangleCount;
+    private final double[] normals; // normale unitaire de chaque triangle (x, y, z consécutifs)
+    private final Color diffuse;
+    private final Color specular;
+    private final Float shininess;
+    private final AABB boundingBox;
+
+    /**
+     * @param vertices tampon de sommets (3 doubles par sommet), non recopié
+     * @param indices tampon d'indices (3 indices par triangle), non recopié
+     * @param triangleCount nombre de triangles utilisés dans {@code indices}
+     */
+    public TriangleMesh(double[] vertices, int[] indices, int triangleCount,
+                        Color diffuse, Color specular, Float shininess) {
+        if (triangleCount <= 0 || indices.length < triangleCount * 3) {
+            throw new IllegalArgumentException("Tampon d'indices trop court pour " + triangleCount + " triangles");
+        }
+        int vertexCount = vertices.length / 3;
+        for (int i = 0; i < triangleCount * 3; i++) {
+            if (indices[i] < 0 || indices[i] >= vertexCount) {
+                throw new IndexOutOfBoundsException("Index de vertex invalide dans le maillage : " + indices[i]);
+            }
+        }
+        this.vertices = vertices;
+        this.indices = indices;
+        this.triangleCount = triangleCount;
+        this.normals = computeNormals();
+        this.diffuse = diffuse;
+        this.specular = specular;
+        this.shininess = shininess;
+        this.boundingBox = computeBoundingBox();
+    }
+
+    @Override
+    public Color getDiffuse() {
+        return diffuse;
+    }
+
+    @Override
+    public Color getSpecular() {
+        return specular;
+    }
+
+    @Override
+    public Float getShininess() {
+        return shininess;
+    }
+
+    public int getTriangleCount() {
+        return triangleCount;
+    }
+
+    /**
+     * Tampon de sommets partagé (ne pas modifier).
+     */
+    public double[] getVertexBuffer() {
+        return vertices;
+    }
+
+    /**
+     * Tampon d'indices partagé (ne pas modifier).
+     */
+    public int[] getIndexBuffer() {
+        return indices;
+    }
+
+    /**
+     * Écrit la boite englobante du triangle {@code tri} dans {@code out}
+     * (min x, y, z puis max x, y, z) à partir de {@code off}.
+     */
+    public void getTriangleBounds(int tri, double[] out, int off) {
+        int a = indices[tri * 3] * 3;
+        int b = indices[tri * 3 + 1] * 3;
+        int c = indices[tri * 3 + 2] * 3;
+        for (int k = 0; k < 3; k++) {
+            out[off + k] = Math.min(vertices[a + k], Math.min(vertices[b + k], vertices[c + k]));
+            out[off + 3 + k] = Math.max(vertices[a + k], Math.max(vertices[b + k], vertices[c + k]));
+        }
+    }
+
+    /**
+     * Mémoire occupée par le maillage, en octets (tampons et en-têtes de tableaux).
+     * Le tampon de sommets est compté en entier même s'il est partagé.
+     */
+    public long getMemoryFootprint() {
+        return 16L + vertices.length * 8L + 16L + indices.length * 4L + 16L + normals.length * 8L + 64L;
+    }
+
+    /**
+     * Normale géométrique unitaire du triangle {@code tri} (précalculée).
+     */
+    public Vector getTriangleNormal(int tri) {
+        return new Vector(normals[tri * 3], normals[tri * 3 + 1], normals[tri * 3 + 2]);
+    }
+
+    /**
+     * Normales calculées comme {@link Triangle} : (b - a) x (c - a), normalisée.
+     */
+    private double[] computeNormals() {
+        double[] out = new double[triangleCount * 3];
+        for (int tri = 0; tri < triangleCount; tri++) {
+            Vector n = computeTriangleNormal(tri);
+            out[tri * 3] = n.getX();
+            out[tri * 3 + 1] = n.getY();
+            out[tri * 3 + 2] = n.getZ();
+        }
+        return out;
+    }
+
+    private Vector computeTriangleNormal(int tri) {
+        int a = indices[tri * 3] * 3;
+        int b = indices[tri * 3 + 1] * 3;
+        int c = indices[tri * 3 + 2] * 3;
+        Vector v1 = new Vector(vertices[b] - vertices[a], vertices[b + 1] - vertices[a + 1], vertices[b + 2] - vertices[a + 2]);
+        Vector v2 = new Vector(vertices[c] - vertices[a], vertices[c + 1] - vertices[a + 1], vertices[c + 2] - vertices[a + 2]);
+        return v1.cross(v2).normalize();
+    }
+
+    @Override
+    public Vector getNormal(Intersection hit) {
+        if (hit.getPrimitiveIndex() < 0) {
+            return getNormalAt(hit.getPoint());
+        }
+        return getTriangleNormal(hit.getPrimitiveIndex());
+    }
+
+    /**
+     * Sans indice de triangle, la normale est celle du triangle dont le plan
+     * passe au plus près du point.
+     */
+    @Override
+    public Vector getNormalAt(Point p) {
+        int best = 0;
+        double bestDistance = Double.POSITIVE_INFINITY;
+        for (int tri = 0; tri < triangleCount; tri++) {
+            int a = indices[tri * 3] * 3;
+            double d = Math.abs(normals[tri * 3] * (p.getX() - vertices[a])
+                + normals[tri * 3 + 1] * (p.getY() - vertices[a + 1])
+                + normals[tri * 3 + 2] * (p.getZ() - vertices[a + 2]));
+            if (d < bestDistance) {
+                bestDistance = d;
+                best = tri;
+            }
+        }
+        return getTriangleNormal(best);
+    }
+
+    /**
+     * Möller-Trumbore sur le triangle {@code tri}, mêmes opérations que
+     * {@link Triangle#intersect(Ray)}.
+     * @return la distance t, ou Double.POSITIVE_INFINITY si le triangle n'est pas touché
+     */
+    public double intersectTriangle(int tri, Ray ray) {
+        int a = indices[tri * 3] * 3;
+        int b = indices[tri * 3 + 1] * 3;
+        int c = indices[tri * 3 + 2] * 3;
+        double dx = ray.getDirection().getX();
+        double dy = ray.getDirection().getY();
+        double dz = ray.getDirection().getZ();
+
+        double e1x = vertices[b] - vertices[a];
+        double e1y = vertices[b + 1] - vertices[a + 1];
+        double e1z = vertices[b + 2] - vertices[a + 2];
+        double e2x = vertices[c] - vertices[a];
+        double e2y = vertices[c + 1] - vertices[a + 1];
+        double e2z = vertices[c + 2] - vertices[a + 2];
+
+        double hx = dy * e2z - dz * e2y;
+        double hy = dz * e2x - dx * e2z;
+        double hz = dx * e2y - dy * e2x;
+        double det = e1x * hx + e1y * hy + e1z * hz;
+        if (det > -EPSILON && det < EPSILON) {
+            return Double.POSITIVE_INFINITY; // Rayon parallèle au triangle
+        }
+
+        double f = 1.0 / det;
+        double sx = ray.getOrigin().getX() - vertices[a];
+        double sy = ray.getOrigin().getY() - vertices[a + 1];
+        double sz = ray.getOrigin().getZ() - vertices[a + 2];
+        double u = f * (sx * hx + sy * hy + sz * hz);
+        if (u < -EPSILON || u > 1.0 + EPSILON) {
+            return Double.POSITIVE_INFINITY;
+        }
+
+        double qx = sy * e1z - sz * e1y;
+        double qy = sz * e1x - sx * e1z;
+        double qz = sx * e1y - sy * e1x;
+        double v = f * (dx * qx + dy * qy + dz * qz);
+        if (v < -EPSILON || u + v > 1.0 + EPSILON) {
+            return Double.POSITIVE_INFINITY;
+        }
+
+        double t = f * (e2x * qx + e2y * qy + e2z * qz);
+        return t > EPSILON ? t : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Intersection par parcours exhaustif des triangles. Dans une scène, le
+     * maillage est éclaté triangle par triangle dans le BVH et ce chemin
+     * n'est pas utilisé.
+     */
+    @Override
+    public Optional<Intersection> intersect(Ray ray) {
+        HitRecord hit = new HitRecord();
+        if (intersect(ray, Double.POSITIVE_INFINITY, hit)) {
+            return Optional.of(hit.toIntersection(ray));
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public boolean intersect(Ray ray, double tMax, HitRecord out) {
+        int best = -1;
+        double tBest = tMax;
+        for (int tri = 0; tri < triangleCount; tri++) {
+            double t = intersectTriangle(tri, ray);
+            if (t < tBest) {
+                tBest = t;
+                best = tri;
+            }
+        }
+        if (best < 0) {
+            return false;
+        }
+        out.set(this, tBest, best);
+        return true;
+    }
+
+    @Override
+    public AABB getBoundingBox() {
+        return boundingBox;
+    }
+
+    private AABB computeBoundingBox() {
+        double[] box = new double[6];
+        double[] tri = new double[6];
+        getTriangleBounds(0, box, 0);
+        for (int i = 1; i < triangleCount; i++) {
+            getTriangleBounds(i, tri, 0);
+            for (int k = 0; k < 3; k++) {
+                box[k] = Math.min(box[k], tri[k]);
+                box[k + 3] = Math.max(box[k + 3], tri[k + 3]);
+            }
+        }
+        return new AABB(new Point(box[0], box[1], box[2]), new Point(box[3], box[4], box[5]));
+    }
+}
@@ -96,6 +96,11 @@ public class Color {
     }
     // Conversion RGB 
     public int toRGB(){
+        return toRGB(r, g, b);
+    }
+
+    // Conversion RGB sans objet Color (rendu direct dans le tampon de l'image)
+    public static int toRGB(float r, float g, float b){
     // Clamp dans [0,1] puis conversion
     double rc = AbstractVec3.clamp(r, 0.0, 1.0);
     double gc = AbstractVec3.clamp(g, 0.0, 1.0);
@@ -0,0 +1,538 @@
+package com.parsing;
+
+import com.geometry.*;
+import com.imaging.Color;
+import com.raytracer.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Format binaire compilé des scènes.
+ * <p>
+ * Une scène texte déjà analysée est enregistrée sous forme de blocs de
+ * primitives petit-boutistes : en-tête (dimensions, sortie, caméra,
+ * ambiante), matériaux, lumières, tampons de vertex et d'indices, puis
+ * formes. Les grands tampons sont alignés sur 8 octets et relus d'une
+ * seule copie depuis le fichier projeté en mémoire : le chargement ne
+ * dépend plus que des entrées-sorties, sans analyse ligne par ligne.
+ * </p>
+ * <p>
+ * Les objets partagés dans la scène d'origine le restent après relecture :
+ * une même {@link Color}, un même matériau (couleurs diffuse et spéculaire,
+ * brillance) ou un même tampon de vertex n'est enregistré qu'une fois.
+ * </p>
+ * <p>
+ * Structure (entiers sur 4 octets, réels en double ou float IEEE) :
+ * </p>
+ * <pre>
+ * "RTSB" version
+ * largeur hauteur maxdepth longueur_sortie octets_sortie(UTF-8)
+ * caméra? (octet 0/1, puis position lookAt up fov en doubles) ambiante? (octet 0/1, puis r g b)
+ * nb_couleurs { r g b }
+ * nb_matériaux { couleur_diffuse couleur_spéculaire brillance }
+ * nb_lumières  { type(0 directionnelle, 1 ponctuelle) x y z r g b }
+ * nb_tampons_vertex { nb_doubles, alignement, doubles }
+ * nb_tampons_indices { nb_entiers, entiers }
+ * nb_formes { type matériau ... }
+ * </pre>
+ *
+ * @author Projet Ray Tracer
+ * @version 1.0
+ * @see SceneConverter
+ */
+public final class BinarySceneFile {
+
+    /** Extension conventionnelle des scènes compilées. */
+    public static final String EXTENSION = ".rtb";
+
+    private static final int MAGIC = 0x42535452; // "RTSB" en petit-boutiste
+    private static final int VERSION = 1;
+
+    private static final byte LIGHT_DIRECTIONAL = 0;
+    private static final byte LIGHT_POINT = 1;
+    private static final byte SHAPE_SPHERE = 0;
+    private static final byte SHAPE_PLANE = 1;
+    private static final byte SHAPE_TRIANGLE = 2;
+    private static final byte SHAPE_MESH = 3;
+
+    private BinarySceneFile() {
+    }
+
+    /**
+     * @return true si le fichier commence par la signature du format binaire
+     */
+    public static boolean isBinary(Path path) throws IOException {
+        if (!Files.isRegularFile(path) || Files.size(path) < 8) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer head = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+            channel.read(head, 0);
+            return head.getInt(0) == MAGIC;
+        }
+    }
+
+    /**
+     * Enregistre la scène au format binaire.
+     * @throws IllegalArgumentException si la scène contient une forme ou une lumière inconnue du format
+     */
+    public static void write(Scene scene, Path path) throws IOException {
+        // Tables des objets partagés, dans l'ordre de première apparition
+        Map<MaterialKey, Integer> materialIds = new HashMap<>();
+        List<Shape> materials = new ArrayList<>();
+        Map<double[], Integer> vertexIds = new IdentityHashMap<>();
+        List<double[]> vertexBuffers = new ArrayList<>();
+        Map<int[], Integer> indexIds = new IdentityHashMap<>();
+        List<int[]> indexBuffers = new ArrayList<>();
+        int[] shapeMaterials = new int[scene.getShapes().size()];
+        int s = 0;
+        for (Shape shape : scene.getShapes()) {
+            shapeMaterials[s++] = materialId(shape, materialIds, materials);
+            if (shape instanceof TriangleMesh) {
+                TriangleMesh mesh = (TriangleMesh) shape;
+                if (!vertexIds.containsKey(mesh.getVertexBuffer())) {
+                    vertexIds.put(mesh.getVertexBuffer(), vertexBuffers.size());
+                    vertexBuffers.add(mesh.getVertexBuffer());
+                }
+                if (!indexIds.containsKey(mesh.getIndexBuffer())) {
+                    indexIds.put(mesh.getIndexBuffer(), indexBuffers.size());
+                    indexBuffers.add(mesh.getIndexBuffer());
+                }
+            }
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            Output out = new Output(channel);
+            out.putInt(MAGIC);
+            out.putInt(VERSION);
+
+            out.putInt(scene.getWidth());
+            out.putInt(scene.getHeight());
+            out.putInt(scene.getMaxDepth());
+            String output = scene.getOutputFile();
+            if (output == null) {
+                out.putInt(-1);
+            } else {
+                byte[] bytes = output.getBytes(StandardCharsets.UTF_8);
+                out.putInt(bytes.length);
+                out.putBytes(bytes);
+            }
+            Camera camera = scene.getCamera();
+            out.putByte(camera == null ? 0 : 1);
+            if (camera != null) {
+                out.putPoint(camera.getPosition());
+                out.putPoint(camera.getLookAt());
+                out.putVector(camera.getUp());
+                out.putDouble(camera.getFov());
+            }
+            out.putByte(scene.getAmbient() == null ? 0 : 1);
+            if (scene.getAmbient() != null) {
+                out.putColor(scene.getAmbient());
+            }
+
+            Map<Color, Integer> colorIds = new IdentityHashMap<>();
+            List<Color> colors = new ArrayList<>();
+            for (Shape m : materials) {
+                for (Color c : new Color[] {m.getDiffuse(), m.getSpecular()}) {
+                    if (!colorIds.containsKey(c)) {
+                        colorIds.put(c, colors.size());
+                        colors.add(c);
+                    }
+                }
+            }
+            out.putInt(colors.size());
+            for (Color c : colors) {
+                out.putColor(c);
+            }
+            out.putInt(materials.size());
+            for (Shape m : materials) {
+                out.putInt(colorIds.get(m.getDiffuse()));
+                out.putInt(colorIds.get(m.getSpecular()));
+                out.putFloat(m.getShininess());
+            }
+
+            out.putInt(scene.getLights().size());
+            for (Light light : scene.getLights()) {
+                if (light instanceof DirectionalLight) {
+                    out.putByte(LIGHT_DIRECTIONAL);
+                    out.putVector(((DirectionalLight) light).getDirection());
+                } else if (light instanceof PointLight) {
+                    out.putByte(LIGHT_POINT);
+                    out.putPoint(((PointLight) light).getPosition());
+                } else {
+                    throw new IllegalArgumentException("Lumière non prise en charge par le format binaire : "
+                        + light.getClass().getSimpleName());
+                }
+                out.putColor(light.getColor());
+            }
+
+            out.putInt(vertexBuffers.size());
+            for (double[] buffer : vertexBuffers) {
+                out.putInt(buffer.length);
+                out.align(8);
+                out.putDoubles(buffer);
+            }
+            out.putInt(indexBuffers.size());
+            for (int[] buffer : indexBuffers) {
+                out.putInt(buffer.length);
+                out.putInts(buffer);
+            }
+
+            out.putInt(scene.getShapes().size());
+            s = 0;
+            for (Shape shape : scene.getShapes()) {
+                if (shape instanceof Sphere) {
+                    Sphere sphere = (Sphere) shape;
+                    out.putByte(SHAPE_SPHERE);
+                    out.putInt(shapeMaterials[s]);
+                    out.putPoint(sphere.getCenter());
+                    out.putDouble(sphere.getRadius());
+                } else if (shape instanceof Plane) {
+                    Plane plane = (Plane) shape;
+                    out.putByte(SHAPE_PLANE);
+                    out.putInt(shapeMaterials[s]);
+                    out.putPoint(plane.getPoint());
+                    out.putVector(plane.getNormal());
+                } else if (shape instanceof Triangle) {
+                    Triangle triangle = (Triangle) shape;
+                    out.putByte(SHAPE_TRIANGLE);
+                    out.putInt(shapeMaterials[s]);
+                    out.putPoint(triangle.getP1());
+                    out.putPoint(triangle.getP2());
+                    out.putPoint(triangle.getP3());
+                } else if (shape instanceof TriangleMesh) {
+                    TriangleMesh mesh = (TriangleMesh) shape;
+                    out.putByte(SHAPE_MESH);
+                    out.putInt(shapeMaterials[s]);
+                    out.putInt(vertexIds.get(mesh.getVertexBuffer()));
+                    out.putInt(indexIds.get(mesh.getIndexBuffer()));
+                    out.putInt(mesh.getTriangleCount());
+                } else {
+                    throw new IllegalArgumentException("Forme non prise en charge par le format binaire : "
+                        + shape.getClass().getSimpleName());
+                }
+                s++;
+            }
+            out.flush();
+        }
+    }
+
+    private static int materialId(Shape shape, Map<MaterialKey, Integer> ids, List<Shape> materials) {
+        MaterialKey key = new MaterialKey(shape);
+        Integer id = ids.get(key);
+        if (id == null) {
+            id = materials.size();
+            ids.put(key, id);
+            materials.add(shape);
+        }
+        return id;
+    }
+
+    /** Un matériau est identifié par ses objets couleur et la valeur de brillance. */
+    private static final class MaterialKey {
+        private final Color diffuse;
+        private final Color specular;
+        private final float shininess;
+
+        MaterialKey(Shape shape) {
+            this.diffuse = shape.getDiffuse();
+            this.specular = shape.getSpecular();
+            this.shininess = shape.getShininess();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof MaterialKey)) {
+                return false;
+            }
+            MaterialKey other = (MaterialKey) obj;
+            return diffuse == other.diffuse && specular == other.specular && shininess == other.shininess;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * System.identityHashCode(diffuse) + System.identityHashCode(specular))
+                + Float.hashCode(shininess);
+        }
+    }
+
+    /**
+     * Charge une scène binaire en projetant le fichier en mémoire.
+     * @throws IOException si le fichier n'est pas une scène binaire lisible
+     */
+    public static Scene read(Path path) throws IOException {
+        SceneParseEvent event = new SceneParseEvent();
+        event.begin();
+        MappedByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        ByteBuffer in = mapped.order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            Scene scene = read(in);
+            event.commit(path, "BINARY", scene);
+            return scene;
+        } catch (java.nio.BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            // Lecture au-delà du fichier, indice de table hors bornes, maillage incohérent
+            throw new IOException("Scène binaire tronquée ou corrompue : " + path, e);
+        }
+    }
+
+    private static Scene read(ByteBuffer in) throws IOException {
+        if (in.getInt() != MAGIC) {
+            throw new IOException("Signature de scène binaire absente");
+        }
+        int version = in.getInt();
+        if (version != VERSION) {
+            throw new IOException("Version de scène binaire non prise en charge : " + version);
+        }
+        Scene scene = new Scene();
+        scene.setWidth(in.getInt());
+        scene.setHeight(in.getInt());
+        scene.setMaxDepth(in.getInt());
+        int outputLength = in.getInt();
+        if (outputLength != -1) {
+            byte[] bytes = new byte[checkCount(outputLength, 1, in)];
+            in.get(bytes);
+            scene.setOutput(new String(bytes, StandardCharsets.UTF_8));
+        } else {
+            scene.setOutput(null);
+        }
+        if (in.get() != 0) {
+            Point position = readPoint(in);
+            Point lookAt = readPoint(in);
+            Vector up = readVector(in);
+            scene.setCamera(new Camera(position, lookAt, up, in.getDouble()));
+        }
+        scene.setAmbient(in.get() != 0 ? readColor(in) : null);
+
+        Color[] colors = new Color[readCount(in, 3 * Float.BYTES)];
+        for (int c = 0; c < colors.length; c++) {
+            colors[c] = readColor(in);
+        }
+        int materialCount = readCount(in, 3 * Integer.BYTES);
+        Color[] diffuse = new Color[materialCount];
+        Color[] specular = new Color[materialCount];
+        Float[] shininess = new Float[materialCount];
+        for (int m = 0; m < materialCount; m++) {
+            diffuse[m] = colors[in.getInt()];
+            specular[m] = colors[in.getInt()];
+            shininess[m] = in.getFloat();
+        }
+
+        int lightCount = readCount(in, 1 + 3 * Double.BYTES + 3 * Float.BYTES);
+        for (int l = 0; l < lightCount; l++) {
+            byte type = in.get();
+            if (type == LIGHT_DIRECTIONAL) {
+                Vector direction = readVector(in);
+                scene.getLights().add(new DirectionalLight(direction, readColor(in)));
+            } else if (type == LIGHT_POINT) {
+                Point position = readPoint(in);
+                scene.getLights().add(new PointLight(position, readColor(in)));
+            } else {
+                throw new IOException("Type de lumière inconnu : " + type);
+            }
+        }
+
+        double[][] vertexBuffers = new double[readCount(in, Integer.BYTES)][];
+        for (int b = 0; b < vertexBuffers.length; b++) {
+            int length = in.getInt();
+            int aligned = (in.position() + 7) & ~7;
+            if (aligned > in.limit()) {
+                throw new IOException("Tampon de vertex hors du fichier");
+            }
+            in.position(aligned);
+            double[] buffer = new double[checkCount(length, Double.BYTES, in)];
+            in.asDoubleBuffer().get(buffer);
+            in.position(in.position() + buffer.length * Double.BYTES);
+            vertexBuffers[b] = buffer;
+        }
+        int[][] indexBuffers = new int[readCount(in, Integer.BYTES)][];
+        for (int b = 0; b < indexBuffers.length; b++) {
+            int[] buffer = new int[readCount(in, Integer.BYTES)];
+            in.asIntBuffer().get(buffer);
+            in.position(in.position() + buffer.length * Integer.BYTES);
+            indexBuffers[b] = buffer;
+        }
+
+        int shapeCount = readCount(in, 1 + 4 * Integer.BYTES); // type, matériau, au moins un maillage
+        for (int s = 0; s < shapeCount; s++) {
+            byte type = in.get();
+            int m = in.getInt();
+            Shape shape;
+            switch (type) {
+                case SHAPE_SPHERE:
+                    Point center = readPoint(in);
+                    shape = new Sphere(center, in.getDouble(), diffuse[m], specular[m], shininess[m]);
+                    break;
+                case SHAPE_PLANE:
+                    Point point = readPoint(in);
+                    shape = new Plane(point, readVector(in), diffuse[m], specular[m], shininess[m]);
+                    break;
+                case SHAPE_TRIANGLE:
+                    Point p1 = readPoint(in);
+                    Point p2 = readPoint(in);
+                    shape = new Triangle(p1, p2, readPoint(in), diffuse[m], specular[m], shininess[m]);
+                    break;
+                case SHAPE_MESH:
+                    double[] vertices = vertexBuffers[in.getInt()];
+                    int[] indices = indexBuffers[in.getInt()];
+                    shape = new TriangleMesh(vertices, indices, in.getInt(), diffuse[m], specular[m], shininess[m]);
+                    break;
+                default:
+                    throw new IOException("Type de forme inconnu : " + type);
+            }
+            scene.getShapes().add(shape);
+        }
+        return scene;
+    }
+
+    // Nombre d'éléments suivi d'éléments d'au moins elementBytes octets chacun
+    private static int readCount(ByteBuffer in, int elementBytes) throws IOException {
+        return checkCount(in.getInt(), elementBytes, in);
+    }
+
+    // Un nombre corrompu ne doit ni être négatif ni faire allouer plus que ce que contient le fichier
+    private static int checkCount(int count, int elementBytes, ByteBuffer in) throws IOException {
+        if (count < 0 || (long) count * elementBytes > in.remaining()) {
+            throw new IOException("Nombre d'éléments invalide : " + count);
+        }
+        return count;
+    }
+
+    private static Point readPoint(ByteBuffer in) {
+        double x = in.getDouble();
+        double y = in.getDouble();
+        return new Point(x, y, in.getDouble());
+    }
+
+    private static Vector readVector(ByteBuffer in) {
+        double x = in.getDouble();
+        double y = in.getDouble();
+        return new Vector(x, y, in.getDouble());
+    }
+
+    private static Color readColor(ByteBuffer in) {
+        float r = in.getFloat();
+        float g = in.getFloat();
+        return new Color(r, g, in.getFloat());
+    }
+
+    /**
+     * Écriture petit-boutiste tamponnée vers un canal, avec suivi de la
+     * position pour l'alignement des tampons.
+     */
+    private static final class Output {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+        private long written;
+
+        Output(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                written += channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        long position() {
+            return written + buffer.position();
+        }
+
+        void align(int alignment) throws IOException {
+            while (position() % alignment != 0) {
+                putByte(0);
+            }
+        }
+
+        void putByte(int value) throws IOException {
+            ensure(1);
+            buffer.put((byte) value);
+        }
+
+        void putInt(int value) throws IOException {
+            ensure(4);
+            buffer.putInt(value);
+        }
+
+        void putFloat(float value) throws IOException {
+            ensure(4);
+            buffer.putFloat(value);
+        }
+
+        void putDouble(double value) throws IOException {
+            ensure(8);
+            buffer.putDouble(value);
+        }
+
+        void putBytes(byte[] values) throws IOException {
+            for (byte b : values) {
+                putByte(b);
+            }
+        }
+
+        void putDoubles(double[] values) throws IOException {
+            int from = 0;
+            while (from < values.length) {
+                ensure(8);
+                int count = Math.min(values.length - from, buffer.remaining() / 8);
+                buffer.asDoubleBuffer().put(values, from, count);
+                buffer.position(buffer.position() + count * 8);
+                from += count;
+            }
+        }
+
+        void putInts(int[] values) throws IOException {
+            int from = 0;
+            while (from < values.length) {
+                ensure(4);
+                int count = Math.min(values.length - from, buffer.remaining() / 4);
+                buffer.asIntBuffer().put(values, from, count);
+                buffer.position(buffer.position() + count * 4);
+                from += count;
+            }
+        }
+
+        void putPoint(Point p) throws IOException {
+            putDouble(p.getX());
+            putDouble(p.getY());
+            putDouble(p.getZ());
+        }
+
+        void putVector(Vector v) throws IOException {
+            putDouble(v.getX());
+            putDouble(v.getY());
+            putDouble(v.getZ());
+        }
+
+        void putColor(Color c) throws IOException {
+            putFloat(c.getR());
+            putFloat(c.getG());
+            putFloat(c.getB());
+        }
+    }
+}
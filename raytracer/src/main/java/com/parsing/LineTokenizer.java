@@ -0,0 +1,76 @@
+package com.parsing;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Découpage historique : lecture ligne par ligne puis {@code split("\\s+")}.
+ * <p>
+ * Simple et robuste, mais chaque ligne produit une chaîne, un tableau de
+ * jetons et une sous-chaîne par paramètre.
+ * </p>
+ *
+ * @author Projet Ray Tracer
+ * @version 1.0
+ * @see MappedSceneTokenizer
+ */
+class LineTokenizer implements SceneTokenizer {
+    private final BufferedReader reader;
+    private String[] tokens;
+    private int next;
+
+    LineTokenizer(Path path) throws IOException {
+        this.reader = Files.newBufferedReader(path);
+    }
+
+    @Override
+    public boolean nextLine() throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            line = line.trim();
+
+            // ignorer lignes vides et com
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+
+            // découper la ligne
+            tokens = line.split("\\s+");
+            next = 1;
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public String keyword() {
+        return tokens[0];
+    }
+
+    @Override
+    public String nextString() {
+        return tokens[next++];
+    }
+
+    @Override
+    public double nextDouble() {
+        return Double.parseDouble(tokens[next++]);
+    }
+
+    @Override
+    public float nextFloat() {
+        return Float.parseFloat(tokens[next++]);
+    }
+
+    @Override
+    public int nextInt() {
+        return Integer.parseInt(tokens[next++]);
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
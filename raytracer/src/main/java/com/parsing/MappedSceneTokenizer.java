@@ -0,0 +1,529 @@
+package com.parsing;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Découpage sans copie d'un fichier de scène projeté en mémoire.
+ * <p>
+ * Le fichier est projeté d'un bloc ({@link FileChannel#map}) et parcouru
+ * octet par octet : aucune chaîne n'est créée pour les lignes ni pour les
+ * nombres, et les mots clés connus sont reconnus sur place. Seuls les
+ * paramètres texte ({@code output}) et les mots clés inconnus produisent
+ * une chaîne.
+ * </p>
+ * <p>
+ * Les nombres décimaux courts (au plus 15 chiffres significatifs et un
+ * exposant décimal d'au plus 22 pour un double, 7 et 10 pour un float) sont
+ * convertis par une seule opération flottante exacte (chemin rapide de
+ * Clinger), dont le résultat est identique à celui de
+ * {@link Double#parseDouble(String)}. Les autres formes (notation longue,
+ * hexadécimal, {@code NaN}...) sont confiées aux méthodes du JDK.
+ * </p>
+ * <p>
+ * Une longue suite de lignes de même mot clé peut être découpée en blocs
+ * lus en parallèle, chacun par son propre découpeur ({@link #splitRun},
+ * {@link #chunk}).
+ * </p>
+ *
+ * @author Projet Ray Tracer
+ * @version 1.0
+ * @see LineTokenizer
+ */
+final class MappedSceneTokenizer implements SceneTokenizer {
+
+    /** Mots clés reconnus sans allocation. */
+    private static final String[] KEYWORDS = {
+        "size", "output", "camera", "maxdepth", "ambient", "diffuse", "specular", "shininess",
+        "directional", "point", "sphere", "maxverts", "vertex", "tri", "plane", "mesh"
+    };
+    private static final byte[][] KEYWORD_BYTES = new byte[KEYWORDS.length][];
+
+    static {
+        for (int k = 0; k < KEYWORDS.length; k++) {
+            KEYWORD_BYTES[k] = KEYWORDS[k].getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    /** Puissances de 10 représentables exactement. */
+    private static final double[] POW10 = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+        1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    private static final float[] POW10F = {
+        1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f
+    };
+
+    private final ByteBuffer data;
+    private final int limit;
+    private int lineStart;
+    private int lineEnd;
+    private int cursor;
+    private int tokenStart;
+    private int tokenEnd;
+    private int lineNumber;
+    private int nextLineStart;
+    private int nextLineNumber;
+    private int shortRunEnd;
+
+    // Résultat de parseDecimal
+    private long mantissa;
+    private int digits;
+    private int exponent;
+    private boolean negative;
+
+    MappedSceneTokenizer(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Fichier trop volumineux pour être projeté en mémoire : " + path);
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            this.data = mapped;
+            this.limit = (int) size;
+        }
+    }
+
+    /**
+     * Découpe un tampon déjà en mémoire (fichier projeté ou tableau).
+     */
+    MappedSceneTokenizer(ByteBuffer data) {
+        this.data = data;
+        this.limit = data.limit();
+    }
+
+    @Override
+    public boolean nextLine() {
+        while (nextLineStart < limit) {
+            int pos = nextLineStart;
+            int end = findLineEnd(pos);
+            int start = skipBlanks(pos, end);
+            nextLineStart = skipTerminator(end);
+            nextLineNumber++;
+            // ignorer lignes vides et com
+            if (start == end || data.get(start) == '#') {
+                continue;
+            }
+            lineStart = start;
+            lineEnd = end;
+            lineNumber = nextLineNumber;
+            cursor = start;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Délimite la suite de lignes utiles consécutives qui commencent par le
+     * même mot clé que la ligne courante (celle-ci comprise), et la découpe
+     * en blocs de {@code chunkLines} lignes utiles. Si la suite est assez
+     * longue, le découpage reprendra après elle ; sinon rien ne change.
+     * @param minLines nombre minimal de lignes de la suite
+     * @param chunkLines nombre de lignes utiles par bloc (le dernier peut en avoir moins)
+     * @return la suite découpée, ou null si elle compte moins de {@code minLines} lignes
+     */
+    Run splitRun(int minLines, int chunkLines) {
+        if (lineStart < shortRunEnd) {
+            return null; // reste d'une suite déjà jugée trop courte
+        }
+        int keywordEnd = lineStart;
+        while (keywordEnd < lineEnd && !isBlank(keywordEnd)) {
+            keywordEnd++;
+        }
+        int[] bounds = new int[16];
+        int[] firstLines = new int[16];
+        bounds[0] = lineStart;
+        firstLines[0] = lineNumber;
+        int chunks = 1;
+        int lines = 1;
+        int pos = nextLineStart;
+        int lineNo = nextLineNumber;
+        while (pos < limit) {
+            int end = findLineEnd(pos);
+            int start = skipBlanks(pos, end);
+            if (start < end && data.get(start) != '#') {
+                if (!sameKeyword(start, end, lineStart, keywordEnd)) {
+                    break;
+                }
+                if (lines % chunkLines == 0) {
+                    if (chunks + 1 == bounds.length) {
+                        bounds = Arrays.copyOf(bounds, bounds.length * 2);
+                        firstLines = Arrays.copyOf(firstLines, firstLines.length * 2);
+                    }
+                    bounds[chunks] = pos;
+                    firstLines[chunks] = lineNo + 1;
+                    chunks++;
+                }
+                lines++;
+            }
+            pos = skipTerminator(end);
+            lineNo++;
+        }
+        if (lines < minLines) {
+            shortRunEnd = pos;
+            return null;
+        }
+        bounds[chunks] = pos;
+        nextLineStart = pos;
+        nextLineNumber = lineNo;
+        return new Run(lines, chunks, chunkLines, bounds, firstLines);
+    }
+
+    /**
+     * Découpeur indépendant d'un bloc de {@link #splitRun}, utilisable depuis
+     * un autre thread.
+     */
+    MappedSceneTokenizer chunk(Run run, int index) {
+        int from = run.bounds[index];
+        MappedSceneTokenizer chunk = new MappedSceneTokenizer(data.slice(from, run.bounds[index + 1] - from));
+        chunk.nextLineNumber = run.firstLines[index] - 1;
+        return chunk;
+    }
+
+    private boolean sameKeyword(int start, int end, int keywordStart, int keywordEnd) {
+        int length = keywordEnd - keywordStart;
+        if (end - start < length || (end - start > length && !isBlank(start + length))) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (data.get(start + i) != data.get(keywordStart + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Fin de la ligne commençant en pos (\n, \r et \r\n terminent une ligne)
+    private int findLineEnd(int pos) {
+        while (pos < limit) {
+            byte c = data.get(pos);
+            if (c == '\n' || c == '\r') {
+                break;
+            }
+            pos++;
+        }
+        return pos;
+    }
+
+    private int skipTerminator(int end) {
+        if (end == limit) {
+            return end;
+        }
+        if (data.get(end) == '\r' && end + 1 < limit && data.get(end + 1) == '\n') {
+            return end + 2;
+        }
+        return end + 1;
+    }
+
+    private int skipBlanks(int pos, int end) {
+        while (pos < end && isBlank(pos)) {
+            pos++;
+        }
+        return pos;
+    }
+
+    // Blanc au sens de String.trim() ; l'octet est lu sans signe pour que
+    // les octets UTF-8 d'un caractère non ASCII restent dans le jeton
+    private boolean isBlank(int pos) {
+        return (data.get(pos) & 0xff) <= ' ';
+    }
+
+    /** Numéro (à partir de 1) de la ligne courante. */
+    int getLineNumber() {
+        return lineNumber;
+    }
+
+    @Override
+    public String keyword() {
+        cursor = lineStart;
+        token();
+        int length = tokenEnd - tokenStart;
+        for (int k = 0; k < KEYWORD_BYTES.length; k++) {
+            byte[] word = KEYWORD_BYTES[k];
+            if (word.length == length && matches(word)) {
+                return KEYWORDS[k];
+            }
+        }
+        return tokenString();
+    }
+
+    private boolean matches(byte[] word) {
+        for (int i = 0; i < word.length; i++) {
+            if (data.get(tokenStart + i) != word[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Compare le mot clé de la ligne courante à un mot ASCII, sans allocation.
+     */
+    boolean keywordEquals(String word) {
+        cursor = lineStart;
+        token();
+        if (tokenEnd - tokenStart != word.length()) {
+            return false;
+        }
+        for (int i = 0; i < word.length(); i++) {
+            if (data.get(tokenStart + i) != word.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Nombre de paramètres restant sur la ligne courante (sans les lire). */
+    int remainingTokens() {
+        int count = 0;
+        int pos = cursor;
+        while (true) {
+            while (pos < lineEnd && isBlank(pos)) {
+                pos++;
+            }
+            if (pos == lineEnd) {
+                return count;
+            }
+            count++;
+            while (pos < lineEnd && !isBlank(pos)) {
+                pos++;
+            }
+        }
+    }
+
+    /**
+     * Entier en tête du paramètre suivant ; le reste du paramètre, à partir
+     * du premier {@code /}, est ignoré (références {@code v/vt/vn} des OBJ).
+     */
+    int nextLeadingInt() {
+        token();
+        int end = tokenStart;
+        while (end < tokenEnd && data.get(end) != '/') {
+            end++;
+        }
+        int full = tokenEnd;
+        tokenEnd = end;
+        try {
+            return parseInt();
+        } finally {
+            tokenEnd = full;
+        }
+    }
+
+    /** Découpeur reprenant au début des mêmes données. */
+    MappedSceneTokenizer rewind() {
+        return new MappedSceneTokenizer(data);
+    }
+
+    /** Données découpées (projection du fichier). */
+    ByteBuffer data() {
+        return data;
+    }
+
+    /** Position, dans les données, du début de la ligne suivant la ligne courante. */
+    int nextLineOffset() {
+        return nextLineStart;
+    }
+
+    @Override
+    public String nextString() {
+        token();
+        return tokenString();
+    }
+
+    @Override
+    public double nextDouble() {
+        token();
+        if (parseDecimal() && digits <= 15 && exponent >= -22 && exponent <= 22) {
+            double value = (double) mantissa;
+            value = exponent >= 0 ? value * POW10[exponent] : value / POW10[-exponent];
+            return negative ? -value : value;
+        }
+        return Double.parseDouble(tokenString());
+    }
+
+    @Override
+    public float nextFloat() {
+        token();
+        if (parseDecimal() && digits <= 7 && exponent >= -10 && exponent <= 10) {
+            float value = (float) mantissa;
+            value = exponent >= 0 ? value * POW10F[exponent] : value / POW10F[-exponent];
+            return negative ? -value : value;
+        }
+        return Float.parseFloat(tokenString());
+    }
+
+    @Override
+    public int nextInt() {
+        token();
+        return parseInt();
+    }
+
+    private int parseInt() {
+        if (tokenEnd == tokenStart) {
+            throw new NumberFormatException("Entier attendu ligne " + lineNumber);
+        }
+        int pos = tokenStart;
+        boolean minus = false;
+        byte first = data.get(pos);
+        if (first == '-' || first == '+') {
+            minus = first == '-';
+            pos++;
+        }
+        int length = tokenEnd - pos;
+        if (length < 1 || length > 9) {
+            // Hors du chemin rapide (ou débordement) : message d'erreur du JDK
+            return Integer.parseInt(tokenString());
+        }
+        int value = 0;
+        for (; pos < tokenEnd; pos++) {
+            int digit = data.get(pos) - '0';
+            if (digit < 0 || digit > 9) {
+                return Integer.parseInt(tokenString());
+            }
+            value = value * 10 + digit;
+        }
+        return minus ? -value : value;
+    }
+
+    /**
+     * Lit un décimal {@code [+-]chiffres[.chiffres][(e|E)[+-]chiffres]} du
+     * jeton courant. Les chiffres significatifs au-delà de 18 ne sont plus
+     * accumulés (le compte {@link #digits} force alors le repli).
+     * @return false si le jeton n'a pas cette forme
+     */
+    private boolean parseDecimal() {
+        int pos = tokenStart;
+        negative = false;
+        byte c = data.get(pos);
+        if (c == '-' || c == '+') {
+            negative = c == '-';
+            pos++;
+        }
+        long m = 0;
+        int significant = 0;
+        int fraction = 0;
+        int seen = 0;
+        boolean dot = false;
+        for (; pos < tokenEnd; pos++) {
+            c = data.get(pos);
+            if (c >= '0' && c <= '9') {
+                seen++;
+                if (dot) {
+                    fraction++;
+                }
+                if (m != 0 || c != '0') {
+                    significant++;
+                    if (significant <= 18) {
+                        m = m * 10 + (c - '0');
+                    }
+                }
+            } else if (c == '.' && !dot) {
+                dot = true;
+            } else {
+                break;
+            }
+        }
+        if (seen == 0) {
+            return false;
+        }
+        int exp = 0;
+        if (pos < tokenEnd) {
+            c = data.get(pos);
+            if (c != 'e' && c != 'E') {
+                return false;
+            }
+            pos++;
+            boolean expNegative = false;
+            if (pos < tokenEnd && (data.get(pos) == '-' || data.get(pos) == '+')) {
+                expNegative = data.get(pos) == '-';
+                pos++;
+            }
+            if (pos == tokenEnd || tokenEnd - pos > 4) {
+                return false;
+            }
+            for (; pos < tokenEnd; pos++) {
+                int digit = data.get(pos) - '0';
+                if (digit < 0 || digit > 9) {
+                    return false;
+                }
+                exp = exp * 10 + digit;
+            }
+            if (expNegative) {
+                exp = -exp;
+            }
+        }
+        mantissa = m;
+        digits = significant;
+        exponent = exp - fraction;
+        return true;
+    }
+
+    // Délimite le jeton suivant de la ligne courante
+    private void token() {
+        int pos = cursor;
+        while (pos < lineEnd && isBlank(pos)) {
+            pos++;
+        }
+        if (pos == lineEnd) {
+            throw new IndexOutOfBoundsException("Paramètre manquant ligne " + lineNumber);
+        }
+        int end = pos;
+        while (end < lineEnd && !isBlank(end)) {
+            end++;
+        }
+        tokenStart = pos;
+        tokenEnd = end;
+        cursor = end;
+    }
+
+    private String tokenString() {
+        byte[] bytes = new byte[tokenEnd - tokenStart];
+        data.get(tokenStart, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Suite de lignes de même mot clé découpée en blocs (voir {@link #splitRun}).
+     */
+    static final class Run {
+        private final int lines;
+        private final int chunks;
+        private final int chunkLines;
+        private final int[] bounds;
+        private final int[] firstLines;
+
+        private Run(int lines, int chunks, int chunkLines, int[] bounds, int[] firstLines) {
+            this.lines = lines;
+            this.chunks = chunks;
+            this.chunkLines = chunkLines;
+            this.bounds = bounds;
+            this.firstLines = firstLines;
+        }
+
+        /** Nombre de lignes utiles de la suite. */
+        int getLines() {
+            return lines;
+        }
+
+        int getChunkCount() {
+            return chunks;
+        }
+
+        /** Rang, dans la suite, de la première ligne utile du bloc. */
+        int getFirstLine(int chunk) {
+            return chunk * chunkLines;
+        }
+    }
+
+    @Override
+    public void close() {
+        // La projection est libérée par le ramasse-miettes
+    }
+}
@@ -0,0 +1,437 @@
+package com.parsing;
+
+import com.geometry.TriangleMesh;
+import com.imaging.Color;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Import de maillages Wavefront OBJ et PLY (ASCII ou binaire) en tampons indexés.
+ * <p>
+ * Le fichier est projeté en mémoire et lu directement dans les tampons
+ * {@code double[]} (sommets) et {@code int[]} (indices) d'un
+ * {@link TriangleMesh}, sans objet par sommet ni par triangle. Les tampons
+ * sont dimensionnés d'avance : par une première passe de comptage (sans
+ * lecture des nombres) pour un OBJ, par l'en-tête pour un PLY (un triangle
+ * par face, le tampon d'indices n'étant agrandi que pour des polygones). La
+ * mémoire occupée reste ainsi proche de celle du maillage final, quelle
+ * que soit la taille du fichier.
+ * </p>
+ * <p>
+ * Seules les positions et les faces sont lues ; les polygones sont
+ * découpés en éventail de triangles. Pour un OBJ, les références
+ * {@code v/vt/vn} et les indices négatifs (relatifs) sont acceptés, les
+ * autres instructions ({@code vn}, {@code usemtl}, {@code g}...) ignorées.
+ * </p>
+ *
+ * @author Projet Ray Tracer
+ * @version 1.0
+ * @see SceneFileParser
+ */
+public final class MeshImporter {
+
+    /** Taille maximale d'un tableau Java. */
+    private static final int MAX_BUFFER = Integer.MAX_VALUE - 8;
+
+    private MeshImporter() {
+    }
+
+    /**
+     * Lit un maillage OBJ ou PLY (reconnu à sa signature {@code ply}, OBJ sinon).
+     * @return le maillage, avec le matériau donné
+     * @throws IllegalArgumentException si le fichier est mal formé ou ne contient aucun triangle
+     */
+    public static TriangleMesh read(Path path, Color diffuse, Color specular, Float shininess) throws IOException {
+        MappedSceneTokenizer tokens = new MappedSceneTokenizer(path);
+        Buffers mesh;
+        if (tokens.nextLine() && tokens.keywordEquals("ply")) {
+            mesh = readPly(tokens, path);
+        } else {
+            mesh = readObj(tokens.rewind(), path);
+        }
+        if (mesh.triangleCount == 0) {
+            throw new IllegalArgumentException("Aucun triangle dans " + path);
+        }
+        return new TriangleMesh(mesh.vertices, mesh.compactIndices(), mesh.triangleCount, diffuse, specular, shininess);
+    }
+
+    /** Tampons du maillage en cours de lecture. */
+    private static final class Buffers {
+        final double[] vertices;
+        int[] indices;
+        int vertexCount;
+        int triangleCount;
+
+        Buffers(long vertexCount, long triangleCount, Path path) {
+            if (vertexCount * 3 > MAX_BUFFER || triangleCount * 3 > MAX_BUFFER) {
+                throw new IllegalArgumentException("Maillage trop volumineux : " + path);
+            }
+            this.vertices = new double[(int) vertexCount * 3];
+            this.indices = new int[(int) triangleCount * 3];
+        }
+
+        // Réserve la place de triangles supplémentaires (polygones d'un PLY)
+        void reserve(int triangles, Path path) {
+            long needed = (triangleCount + (long) triangles) * 3;
+            if (needed > indices.length) {
+                long capacity = Math.min(MAX_BUFFER, Math.max(needed, indices.length + (long) indices.length / 2));
+                if (needed > capacity) {
+                    throw new IllegalArgumentException("Maillage trop volumineux : " + path);
+                }
+                indices = Arrays.copyOf(indices, (int) capacity);
+            }
+        }
+
+        int[] compactIndices() {
+            return indices.length == triangleCount * 3 ? indices : Arrays.copyOf(indices, triangleCount * 3);
+        }
+
+        void vertex(double x, double y, double z) {
+            vertices[3 * vertexCount] = x;
+            vertices[3 * vertexCount + 1] = y;
+            vertices[3 * vertexCount + 2] = z;
+            vertexCount++;
+        }
+
+        void triangle(int a, int b, int c) {
+            indices[3 * triangleCount] = a;
+            indices[3 * triangleCount + 1] = b;
+            indices[3 * triangleCount + 2] = c;
+            triangleCount++;
+        }
+    }
+
+    // ---- OBJ ----
+
+    private static Buffers readObj(MappedSceneTokenizer tokens, Path path) {
+        // Comptage des sommets et des triangles (éventail : n - 2 par face)
+        long vertexCount = 0;
+        long triangleCount = 0;
+        MappedSceneTokenizer counting = tokens.rewind();
+        while (counting.nextLine()) {
+            if (counting.keywordEquals("v")) {
+                vertexCount++;
+            } else if (counting.keywordEquals("f")) {
+                triangleCount += Math.max(0, counting.remainingTokens() - 2);
+            }
+        }
+
+        Buffers mesh = new Buffers(vertexCount, triangleCount, path);
+        while (tokens.nextLine()) {
+            if (tokens.keywordEquals("v")) {
+                double x = tokens.nextDouble();
+                double y = tokens.nextDouble();
+                mesh.vertex(x, y, tokens.nextDouble());
+            } else if (tokens.keywordEquals("f")) {
+                int corners = tokens.remainingTokens();
+                if (corners < 3) {
+                    throw new IllegalArgumentException("Face à moins de 3 sommets ligne "
+                        + tokens.getLineNumber() + " de " + path);
+                }
+                int first = objIndex(tokens.nextLeadingInt(), mesh.vertexCount);
+                int previous = objIndex(tokens.nextLeadingInt(), mesh.vertexCount);
+                for (int k = 2; k < corners; k++) {
+                    int current = objIndex(tokens.nextLeadingInt(), mesh.vertexCount);
+                    mesh.triangle(first, previous, current);
+                    previous = current;
+                }
+            }
+        }
+        return mesh;
+    }
+
+    // Indices OBJ : à partir de 1, ou négatifs relativement au dernier sommet lu
+    private static int objIndex(int index, int vertexCount) {
+        int resolved = index > 0 ? index - 1 : vertexCount + index;
+        if (index == 0 || resolved < 0 || resolved >= vertexCount) {
+            throw new IndexOutOfBoundsException("Index de sommet invalide dans le maillage : " + index);
+        }
+        return resolved;
+    }
+
+    // ---- PLY ----
+
+    /** Types scalaires PLY et leur taille en octets. */
+    private enum PlyType {
+        INT8(1), UINT8(1), INT16(2), UINT16(2), INT32(4), UINT32(4), FLOAT32(4), FLOAT64(8);
+
+        final int size;
+
+        PlyType(int size) {
+            this.size = size;
+        }
+
+        static PlyType of(String name, Path path) {
+            switch (name) {
+                case "char": case "int8": return INT8;
+                case "uchar": case "uint8": return UINT8;
+                case "short": case "int16": return INT16;
+                case "ushort": case "uint16": return UINT16;
+                case "int": case "int32": return INT32;
+                case "uint": case "uint32": return UINT32;
+                case "float": case "float32": return FLOAT32;
+                case "double": case "float64": return FLOAT64;
+                default:
+                    throw new IllegalArgumentException("Type PLY inconnu « " + name + " » dans " + path);
+            }
+        }
+
+        double read(ByteBuffer data, int pos) {
+            switch (this) {
+                case INT8: return data.get(pos);
+                case UINT8: return data.get(pos) & 0xff;
+                case INT16: return data.getShort(pos);
+                case UINT16: return data.getShort(pos) & 0xffff;
+                case INT32: return data.getInt(pos);
+                case UINT32: return data.getInt(pos) & 0xffffffffL;
+                case FLOAT32: return data.getFloat(pos);
+                default: return data.getDouble(pos);
+            }
+        }
+    }
+
+    /** Propriété d'un élément PLY : scalaire, ou liste précédée de son nombre d'entrées. */
+    private static final class PlyProperty {
+        final String name;
+        final PlyType type;
+        final PlyType countType; // null pour un scalaire
+
+        PlyProperty(String name, PlyType type, PlyType countType) {
+            this.name = name;
+            this.type = type;
+            this.countType = countType;
+        }
+    }
+
+    private static final class PlyElement {
+        final String name;
+        final long count;
+        final List<PlyProperty> properties = new ArrayList<>();
+
+        PlyElement(String name, long count) {
+            this.name = name;
+            this.count = count;
+        }
+
+        int indexOf(String property) {
+            for (int i = 0; i < properties.size(); i++) {
+                if (properties.get(i).name.equals(property)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    private static Buffers readPly(MappedSceneTokenizer tokens, Path path) {
+        String format = null;
+        List<PlyElement> elements = new ArrayList<>();
+        while (true) {
+            if (!tokens.nextLine()) {
+                throw new IllegalArgumentException("En-tête PLY sans end_header : " + path);
+            }
+            String keyword = tokens.keyword();
+            if (keyword.equals("end_header")) {
+                break;
+            } else if (keyword.equals("format")) {
+                format = tokens.nextString();
+            } else if (keyword.equals("element")) {
+                String name = tokens.nextString();
+                elements.add(new PlyElement(name, Long.parseLong(tokens.nextString())));
+            } else if (keyword.equals("property")) {
+                if (elements.isEmpty()) {
+                    throw new IllegalArgumentException("Propriété PLY hors élément dans " + path);
+                }
+                String type = tokens.nextString();
+                PlyProperty property;
+                if (type.equals("list")) {
+                    PlyType countType = PlyType.of(tokens.nextString(), path);
+                    PlyType itemType = PlyType.of(tokens.nextString(), path);
+                    property = new PlyProperty(tokens.nextString(), itemType, countType);
+                } else {
+                    property = new PlyProperty(tokens.nextString(), PlyType.of(type, path), null);
+                }
+                elements.get(elements.size() - 1).properties.add(property);
+            }
+            // comment, obj_info : ignorés
+        }
+        if (format == null) {
+            throw new IllegalArgumentException("Format PLY absent de l'en-tête de " + path);
+        }
+
+        // Un triangle réservé par face : exact pour les maillages triangulés,
+        // les polygones agrandissent le tampon d'indices au besoin
+        long vertexCount = 0;
+        long triangleCount = 0;
+        for (PlyElement e : elements) {
+            if (e.name.equals("vertex")) {
+                vertexCount = e.count;
+                if (e.indexOf("x") < 0 || e.indexOf("y") < 0 || e.indexOf("z") < 0) {
+                    throw new IllegalArgumentException("Sommets PLY sans coordonnées x, y, z dans " + path);
+                }
+            } else if (e.name.equals("face")) {
+                triangleCount = e.count;
+            }
+        }
+
+        switch (format.toLowerCase(Locale.ROOT)) {
+            case "ascii":
+                return readPlyAscii(tokens, elements, vertexCount, triangleCount, path);
+            case "binary_little_endian":
+                return readPlyBinary(tokens, ByteOrder.LITTLE_ENDIAN, elements, vertexCount, triangleCount, path);
+            case "binary_big_endian":
+                return readPlyBinary(tokens, ByteOrder.BIG_ENDIAN, elements, vertexCount, triangleCount, path);
+            default:
+                throw new IllegalArgumentException("Format PLY non pris en charge « " + format + " » dans " + path);
+        }
+    }
+
+    private static Buffers readPlyAscii(MappedSceneTokenizer tokens, List<PlyElement> elements,
+                                        long vertexCount, long faceCount, Path path) {
+        Buffers mesh = null;
+        int[] polygon = new int[16];
+        for (PlyElement e : elements) {
+            boolean vertices = e.name.equals("vertex");
+            boolean faces = e.name.equals("face");
+            int faceList = faces ? faceListIndex(e, path) : -1;
+            if (mesh == null && (vertices || faces)) {
+                mesh = new Buffers(vertexCount, faceCount, path);
+            }
+            int x = e.indexOf("x");
+            int y = e.indexOf("y");
+            int z = e.indexOf("z");
+            double[] values = new double[e.properties.size()];
+            for (long i = 0; i < e.count; i++) {
+                if (!tokens.nextLine()) {
+                    throw new IllegalArgumentException("Fichier PLY tronqué : " + path);
+                }
+                for (int p = 0; p < values.length; p++) {
+                    PlyProperty property = e.properties.get(p);
+                    if (property.countType == null) {
+                        values[p] = tokens.nextDouble();
+                        continue;
+                    }
+                    int n = tokens.nextInt();
+                    if (p == faceList) {
+                        if (n > polygon.length) {
+                            polygon = new int[n];
+                        }
+                        for (int k = 0; k < n; k++) {
+                            polygon[k] = tokens.nextInt();
+                        }
+                        addPolygon(mesh, polygon, n, path);
+                    } else {
+                        for (int k = 0; k < n; k++) {
+                            tokens.nextDouble();
+                        }
+                    }
+                }
+                if (vertices) {
+                    mesh.vertex(values[x], values[y], values[z]);
+                }
+            }
+        }
+        return mesh != null ? mesh : new Buffers(0, 0, path);
+    }
+
+    private static Buffers readPlyBinary(MappedSceneTokenizer tokens, ByteOrder order, List<PlyElement> elements,
+                                         long vertexCount, long faceCount, Path path) {
+        ByteBuffer data = tokens.data().duplicate().order(order);
+        int pos = tokens.nextLineOffset();
+        Buffers mesh = null;
+        int[] polygon = new int[16];
+        for (PlyElement e : elements) {
+            boolean vertices = e.name.equals("vertex");
+            boolean faces = e.name.equals("face");
+            int faceList = faces ? faceListIndex(e, path) : -1;
+            if (mesh == null && (vertices || faces)) {
+                mesh = new Buffers(vertexCount, faceCount, path);
+            }
+            int x = e.indexOf("x");
+            int y = e.indexOf("y");
+            int z = e.indexOf("z");
+            double vx = 0;
+            double vy = 0;
+            double vz = 0;
+            for (long i = 0; i < e.count; i++) {
+                for (int p = 0; p < e.properties.size(); p++) {
+                    PlyProperty property = e.properties.get(p);
+                    if (property.countType == null) {
+                        require(data, pos, property.type.size, path);
+                        if (p == x) {
+                            vx = property.type.read(data, pos);
+                        } else if (p == y) {
+                            vy = property.type.read(data, pos);
+                        } else if (p == z) {
+                            vz = property.type.read(data, pos);
+                        }
+                        pos += property.type.size;
+                        continue;
+                    }
+                    require(data, pos, property.countType.size, path);
+                    int n = (int) property.countType.read(data, pos);
+                    pos += property.countType.size;
+                    require(data, pos, (long) n * property.type.size, path);
+                    if (p == faceList) {
+                        if (n > polygon.length) {
+                            polygon = new int[n];
+                        }
+                        for (int k = 0; k < n; k++) {
+                            polygon[k] = (int) property.type.read(data, pos);
+                            pos += property.type.size;
+                        }
+                        addPolygon(mesh, polygon, n, path);
+                    } else {
+                        pos += n * property.type.size;
+                    }
+                }
+                if (vertices) {
+                    mesh.vertex(vx, vy, vz);
+                }
+            }
+        }
+        return mesh != null ? mesh : new Buffers(0, 0, path);
+    }
+
+    // Les size octets à partir de pos doivent être dans le fichier
+    private static void require(ByteBuffer data, int pos, long size, Path path) {
+        if (size < 0 || pos + size > data.limit()) {
+            throw new IllegalArgumentException("Fichier PLY tronqué : " + path);
+        }
+    }
+
+    private static int faceListIndex(PlyElement faces, Path path) {
+        int index = faces.indexOf("vertex_indices");
+        if (index < 0) {
+            index = faces.indexOf("vertex_index");
+        }
+        if (index < 0 || faces.properties.get(index).countType == null) {
+            throw new IllegalArgumentException("Faces PLY sans liste vertex_indices dans " + path);
+        }
+        return index;
+    }
+
+    // Polygone découpé en éventail
+    private static void addPolygon(Buffers mesh, int[] polygon, int n, Path path) {
+        if (n < 3) {
+            throw new IllegalArgumentException("Face à moins de 3 sommets dans " + path);
+        }
+        int vertexCount = mesh.vertices.length / 3;
+        for (int k = 0; k < n; k++) {
+            if (polygon[k] < 0 || polygon[k] >= vertexCount) {
+                throw new IndexOutOfBoundsException("Index de sommet invalide dans le maillage : " + polygon[k]);
+            }
+        }
+        mesh.reserve(n - 2, path);
+        for (int k = 2; k < n; k++) {
+            mesh.triangle(polygon[0], polygon[k - 1], polygon[k]);
+        }
+    }
+}
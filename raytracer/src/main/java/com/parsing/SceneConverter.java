@@ -0,0 +1,58 @@
+package com.parsing;
+
+import com.raytracer.Scene;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * Convertisseur en ligne de commande des scènes texte vers le format binaire.
+ * <p>
+ * Usage : {@code java com.parsing.SceneConverter <scene.scene|scene.test> [sortie.rtb]}
+ * </p>
+ * <p>
+ * Sans fichier de sortie, la scène compilée est écrite à côté de la source,
+ * avec l'extension {@value BinarySceneFile#EXTENSION}. Le fichier produit
+ * se passe tel quel à {@link com.raytracer.Main}.
+ * </p>
+ *
+ * @author Projet Ray Tracer
+ * @version 1.0
+ * @see BinarySceneFile
+ */
+public class SceneConverter {
+    public static void main(String[] args) {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("Usage: java com.parsing.SceneConverter <scene.scene|scene.test> [sortie.rtb]");
+            System.exit(1);
+        }
+        Path source = Path.of(args[0]);
+        Path target = args.length == 2 ? Path.of(args[1]) : defaultTarget(source);
+        try {
+            long start = System.nanoTime();
+            Scene scene = new Scene();
+            new SceneFileParser(scene).parse(source.toString());
+            long parsed = System.nanoTime();
+            BinarySceneFile.write(scene, target);
+            long written = System.nanoTime();
+            System.out.printf(Locale.ROOT, "%s (%d octets) -> %s (%d octets) : analyse %.1f ms, écriture %.1f ms%n",
+                source, Files.size(source), target, Files.size(target),
+                (parsed - start) / 1e6, (written - parsed) / 1e6);
+        } catch (IOException e) {
+            System.err.println("Erreur lors de la conversion : " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * @return le chemin de la source avec l'extension du format binaire
+     */
+    static Path defaultTarget(Path source) {
+        String name = source.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String base = dot > 0 ? name.substring(0, dot) : name;
+        return source.resolveSibling(base + BinarySceneFile.EXTENSION);
+    }
+}
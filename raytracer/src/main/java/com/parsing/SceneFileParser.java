@@ -3,10 +3,11 @@ import com.imaging.Color;
 import com.raytracer.*;
 import com.geometry.*;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.stream.IntStream;
 
 /**
  * Analyseur syntaxique pour les fichiers de description de scène.
@@ -19,12 +20,35 @@ import java.nio.file.Path;
  *   <li>Paramètres de caméra (position, direction, champ de vision)</li>
  *   <li>Matériaux (couleurs diffuse, spéculaire, brillance)</li>
  *   <li>Sources lumineuses (directionnelles et ponctuelles)</li>
- *   <li>Primitives géométriques (sphères, triangles, plans)</li>
+ *   <li>Primitives géométriques (sphères, triangles, plans, maillages OBJ/PLY)</li>
  * </ul>
  * <p>
  * Le format supporte également les commentaires (lignes commençant par #)
  * et gère la définition de vertex pour la création de maillages triangulaires.
  * </p>
+ * <p>
+ * Les triangles consécutifs partageant le même matériau sont regroupés en un
+ * seul {@link TriangleMesh} indexé sur le tampon de vertex courant, plutôt
+ * qu'en autant d'objets {@link Triangle}.
+ * </p>
+ * <p>
+ * L'instruction {@code mesh fichier.obj} (ou {@code .ply}) importe un
+ * maillage externe avec le matériau courant, voir {@link MeshImporter}.
+ * </p>
+ * <p>
+ * Par défaut le fichier est projeté en mémoire et découpé sans créer de
+ * chaîne par ligne ni par nombre ({@link Mode#MAPPED}) ; les valeurs lues
+ * sont identiques bit à bit à celles de la lecture ligne par ligne
+ * ({@link Mode#LINES}).
+ * </p>
+ * <p>
+ * Dans ce mode, une longue suite de lignes {@code vertex} ou {@code tri}
+ * (au moins {@value #PARALLEL_MIN_LINES}) est découpée en blocs de lignes
+ * lus en parallèle, chacun écrivant à sa place dans le tampon de vertex ou
+ * d'indices préalloué. Aucune autre instruction ne s'intercale dans une
+ * telle suite : le matériau courant et l'ordre des éléments restent ceux
+ * de la lecture séquentielle.
+ * </p>
  * 
  * @author Jules
  * @version 1.0
@@ -32,62 +56,96 @@ import java.nio.file.Path;
  */
 public class SceneFileParser {
 
+    /** Méthode de lecture du fichier. */
+    public enum Mode {
+        /** Lecture ligne par ligne et découpage par expression régulière. */
+        LINES,
+        /** Fichier projeté en mémoire et découpé octet par octet, sans allocation. */
+        MAPPED
+    }
+
+    /** Longueur minimale d'une suite de vertex ou de tri lue en parallèle. */
+    static final int PARALLEL_MIN_LINES = 16384;
+    /** Nombre de lignes par bloc d'une suite lue en parallèle. */
+    static final int PARALLEL_CHUNK_LINES = 4096;
+
     private final Scene scene;
+    private final Mode mode;
     private Color currentDiffuse = new Color(0f, 0f, 0f);
     private Color currentSpecular = new Color(0f, 0f, 0f);
     private float currentShininess = 0.0f;
-    private Point[] vertices;      // stocke les vertex déclarés
+    private double[] vertices;     // stocke les vertex déclarés (x, y, z consécutifs)
     private int vertexCount = 0;   // nombre de vertex actuellement ajoutés 
 
+    // Maillage en cours : indices des tri consécutifs de même matériau
+    private int[] meshIndices = new int[3 * 64];
+    private int meshTriangleCount = 0;
+    private Color meshDiffuse;
+    private Color meshSpecular;
+    private float meshShininess;
+
     public SceneFileParser(Scene scene) {
-        this.scene = scene;
+        this(scene, Mode.MAPPED);
     }
 
-    public void parse(String filePath) throws IOException {
-
-        try (BufferedReader reader = Files.newBufferedReader(Path.of(filePath))) {
+    /**
+     * @param scene scène à remplir
+     * @param mode méthode de lecture du fichier
+     */
+    public SceneFileParser(Scene scene, Mode mode) {
+        if (mode == null) {
+            throw new IllegalArgumentException("Le mode de lecture ne peut pas être null");
+        }
+        this.scene = scene;
+        this.mode = mode;
+    }
 
-            String line;
+    public Mode getMode() {
+        return mode;
+    }
 
-            while ((line = reader.readLine()) != null) {
-                line = line.trim();
+    public void parse(String filePath) throws IOException {
+        SceneParseEvent event = new SceneParseEvent();
+        event.begin();
+        parseFile(filePath);
+        event.commit(Path.of(filePath), mode.name(), scene);
+    }
 
-                // ignorer lignes vides et com
-                if (line.isEmpty() || line.startsWith("#")) {
-                    continue;
-                }
+    private void parseFile(String filePath) throws IOException {
+        try (SceneTokenizer tokens = openTokenizer(Path.of(filePath))) {
+            MappedSceneTokenizer mapped = tokens instanceof MappedSceneTokenizer
+                ? (MappedSceneTokenizer) tokens : null;
 
-                // découper la ligne
-                String[] tokens = line.split("\\s+");
-                String keyword = tokens[0];
+            while (tokens.nextLine()) {
+                String keyword = tokens.keyword();
 
                 switch (keyword) {
 
                     case "size":
-                        int width = Integer.parseInt(tokens[1]);
-                        int height = Integer.parseInt(tokens[2]);
+                        int width = tokens.nextInt();
+                        int height = tokens.nextInt();
                         scene.setWidth(width);
                         scene.setHeight(height);
                         break;
 
                     case "output":
-                        scene.setOutput(tokens[1]);
+                        scene.setOutput(tokens.nextString());
                         break;
 
                     case "camera":
-                        double px = Double.parseDouble(tokens[1]); // position (x, y, z)
-                        double py = Double.parseDouble(tokens[2]);
-                        double pz = Double.parseDouble(tokens[3]);
+                        double px = tokens.nextDouble(); // position (x, y, z)
+                        double py = tokens.nextDouble();
+                        double pz = tokens.nextDouble();
 
-                        double lx = Double.parseDouble(tokens[4]); // lookAt (u, v, w)
-                        double ly = Double.parseDouble(tokens[5]);
-                        double lz = Double.parseDouble(tokens[6]);
+                        double lx = tokens.nextDouble(); // lookAt (u, v, w)
+                        double ly = tokens.nextDouble();
+                        double lz = tokens.nextDouble();
 
-                        double ux = Double.parseDouble(tokens[7]); // up (m, n, o)
-                        double uy = Double.parseDouble(tokens[8]);
-                        double uz = Double.parseDouble(tokens[9]);
+                        double ux = tokens.nextDouble(); // up (m, n, o)
+                        double uy = tokens.nextDouble();
+                        double uz = tokens.nextDouble();
 
-                        double fov = Double.parseDouble(tokens[10]); // f
+                        double fov = tokens.nextDouble(); // f
 
                         Point position = new Point(px, py, pz);
                         Point lookAt   = new Point(lx, ly, lz);
@@ -98,7 +156,7 @@ public class SceneFileParser {
                         break;
 
                     case "maxdepth":
-                        int md = Integer.parseInt(tokens[1]);
+                        int md = tokens.nextInt();
                         if (md < 0) {
                             throw new IllegalArgumentException("maxdepth doit être >= 0");
                         }
@@ -106,9 +164,9 @@ public class SceneFileParser {
                         break;
 
                     case "ambient": 
-                        float ambR = Float.parseFloat(tokens[1]);
-                        float ambG = Float.parseFloat(tokens[2]);
-                        float ambB = Float.parseFloat(tokens[3]);
+                        float ambR = tokens.nextFloat();
+                        float ambG = tokens.nextFloat();
+                        float ambB = tokens.nextFloat();
 
                         Color ambient = new Color(ambR, ambG, ambB);
 
@@ -122,9 +180,9 @@ public class SceneFileParser {
                         break;
 
                     case "diffuse": 
-                        float difR = Float.parseFloat(tokens[1]);
-                        float difG = Float.parseFloat(tokens[2]);
-                        float difB = Float.parseFloat(tokens[3]);
+                        float difR = tokens.nextFloat();
+                        float difG = tokens.nextFloat();
+                        float difB = tokens.nextFloat();
 
                         Color diffuse = new Color(difR, difG, difB);
 
@@ -141,16 +199,16 @@ public class SceneFileParser {
                         break;
                     
                     case "specular":
-                        float specR = Float.parseFloat(tokens[1]);
-                        float specG = Float.parseFloat(tokens[2]);
-                        float specB = Float.parseFloat(tokens[3]);
+                        float specR = tokens.nextFloat();
+                        float specG = tokens.nextFloat();
+                        float specB = tokens.nextFloat();
 
                         Color specular = new Color(specR, specG, specB);
                         currentSpecular = specular;
                         break;
 
                     case "shininess":
-                        float shininess = Float.parseFloat(tokens[1]);
+                        float shininess = tokens.nextFloat();
                         if (shininess < 0) {
                             shininess = 0.0f; // on borne à 0 pour éviter les échecs de parsing sur certaines scènes
                         }
@@ -159,12 +217,12 @@ public class SceneFileParser {
 
                     case "directional":
                         // directional dx dy dz r g b
-                        double dirX = Double.parseDouble(tokens[1]);
-                        double dirY = Double.parseDouble(tokens[2]);
-                        double dirZ = Double.parseDouble(tokens[3]);
-                        float lightDirR = Float.parseFloat(tokens[4]);
-                        float lightDirG = Float.parseFloat(tokens[5]);
-                        float lightDirB = Float.parseFloat(tokens[6]);
+                        double dirX = tokens.nextDouble();
+                        double dirY = tokens.nextDouble();
+                        double dirZ = tokens.nextDouble();
+                        float lightDirR = tokens.nextFloat();
+                        float lightDirG = tokens.nextFloat();
+                        float lightDirB = tokens.nextFloat();
                         
                         Vector direction = new Vector(dirX, dirY, dirZ).normalize();
                         Color lightDirColor = new Color(lightDirR, lightDirG, lightDirB);
@@ -174,12 +232,12 @@ public class SceneFileParser {
 
                     case "point":
                         // point px py pz r g b
-                        double lightPx = Double.parseDouble(tokens[1]);
-                        double lightPy = Double.parseDouble(tokens[2]);
-                        double lightPz = Double.parseDouble(tokens[3]);
-                        float lightPointR = Float.parseFloat(tokens[4]);
-                        float lightPointG = Float.parseFloat(tokens[5]);
-                        float lightPointB = Float.parseFloat(tokens[6]);
+                        double lightPx = tokens.nextDouble();
+                        double lightPy = tokens.nextDouble();
+                        double lightPz = tokens.nextDouble();
+                        float lightPointR = tokens.nextFloat();
+                        float lightPointG = tokens.nextFloat();
+                        float lightPointB = tokens.nextFloat();
                         
                         Point lightPosition = new Point(lightPx, lightPy, lightPz);
                         Color lightPointColor = new Color(lightPointR, lightPointG, lightPointB);
@@ -188,20 +246,22 @@ public class SceneFileParser {
                         break;
 
                     case "sphere":
-                        double cx = Double.parseDouble(tokens[1]); // centre (x, y, z)
-                        double cy = Double.parseDouble(tokens[2]);
-                        double cz = Double.parseDouble(tokens[3]);
-                        double radius = Double.parseDouble(tokens[4]); // r
+                        double cx = tokens.nextDouble(); // centre (x, y, z)
+                        double cy = tokens.nextDouble();
+                        double cz = tokens.nextDouble();
+                        double radius = tokens.nextDouble(); // r
 
                         Point center = new Point(cx, cy, cz);
 
                         Sphere sphere = new Sphere(center, radius, currentDiffuse, currentSpecular, currentShininess);
+                        flushMesh(); // conserve l'ordre des formes du fichier
                         scene.getShapes().add(sphere);
                         break;
 
                     case "maxverts":
-                        int maxVerts = Integer.parseInt(tokens[1]);
-                        vertices = new Point[maxVerts];
+                        int maxVerts = tokens.nextInt();
+                        flushMesh(); // le maillage en cours garde l'ancien tampon
+                        vertices = new double[3 * maxVerts];
                         vertexCount = 0;
                         break;
 
@@ -209,41 +269,69 @@ public class SceneFileParser {
                         if (vertices == null) {
                             throw new IllegalStateException("maxverts doit être déclaré avant vertex");
                         }
-                        if (vertexCount >= vertices.length) {
-                            throw new IllegalArgumentException("Trop de vertex déclarés (max = " + vertices.length + ")");
+                        if (vertexCount >= vertices.length / 3) {
+                            throw new IllegalArgumentException("Trop de vertex déclarés (max = " + vertices.length / 3 + ")");
+                        }
+                        if (mapped != null && parseVertexRun(mapped)) {
+                            break;
                         }
-                        double vx = Double.parseDouble(tokens[1]);
-                        double vy = Double.parseDouble(tokens[2]);
-                        double vz = Double.parseDouble(tokens[3]);
-                        vertices[vertexCount++] = new Point(vx, vy, vz);
+                        vertices[3 * vertexCount] = tokens.nextDouble();
+                        vertices[3 * vertexCount + 1] = tokens.nextDouble();
+                        vertices[3 * vertexCount + 2] = tokens.nextDouble();
+                        vertexCount++;
                         break;
 
                     case "tri":
                         if (vertices == null) { // on verif que maxverts a été déclaré
                             throw new IllegalStateException("maxverts doit être déclaré avant tri");
                         }
-                        int idx1 = Integer.parseInt(tokens[1]);
-                        int idx2 = Integer.parseInt(tokens[2]);
-                        int idx3 = Integer.parseInt(tokens[3]);
+                        if (mapped != null && parseTriRun(mapped)) {
+                            break;
+                        }
+                        int idx1 = tokens.nextInt();
+                        int idx2 = tokens.nextInt();
+                        int idx3 = tokens.nextInt();
                         if (idx1 < 0 || idx1 >= vertexCount ||
                             idx2 < 0 || idx2 >= vertexCount ||
                             idx3 < 0 || idx3 >= vertexCount) {
                             throw new IndexOutOfBoundsException("Index de vertex invalide dans tri");
                         }
-                        Triangle triangle = new Triangle(vertices[idx1], vertices[idx2], vertices[idx3], currentDiffuse, currentSpecular, currentShininess);
-                        scene.getShapes().add(triangle);
+                        if (meshTriangleCount > 0 && (meshDiffuse != currentDiffuse
+                                || meshSpecular != currentSpecular || meshShininess != currentShininess)) {
+                            flushMesh(); // changement de matériau : nouveau maillage
+                        }
+                        if (meshTriangleCount == 0) {
+                            meshDiffuse = currentDiffuse;
+                            meshSpecular = currentSpecular;
+                            meshShininess = currentShininess;
+                        }
+                        if (meshTriangleCount * 3 == meshIndices.length) {
+                            meshIndices = Arrays.copyOf(meshIndices, meshIndices.length * 2);
+                        }
+                        meshIndices[meshTriangleCount * 3] = idx1;
+                        meshIndices[meshTriangleCount * 3 + 1] = idx2;
+                        meshIndices[meshTriangleCount * 3 + 2] = idx3;
+                        meshTriangleCount++;
+                        break;
+
+                    case "mesh":
+                        // mesh fichier.obj|fichier.ply, relatif au fichier de scène
+                        Path asset = Path.of(filePath).resolveSibling(tokens.nextString());
+                        flushMesh(); // conserve l'ordre des formes du fichier
+                        scene.getShapes().add(MeshImporter.read(asset, currentDiffuse, currentSpecular, currentShininess));
                         break;
 
                     case "plane":
-                        double planePx = Double.parseDouble(tokens[1]); // point (x, y, z)
-                        double planePy = Double.parseDouble(tokens[2]);
-                        double planePz = Double.parseDouble(tokens[3]);
-                        double planeNx = Double.parseDouble(tokens[4]); // normale (u, v, w)
-                        double planeNy = Double.parseDouble(tokens[5]);
-                        double planeNz = Double.parseDouble(tokens[6]);
+                        double planePx = tokens.nextDouble(); // point (x, y, z)
+                        double planePy = tokens.nextDouble();
+                        double planePz = tokens.nextDouble();
+                        double planeNx = tokens.nextDouble(); // normale (u, v, w)
+                        double planeNy = tokens.nextDouble();
+                        double planeNz = tokens.nextDouble();
                         Point planePoint = new Point(planePx, planePy, planePz);
                         Vector planeNormal = new Vector(planeNx, planeNy, planeNz);
                         Plane plane = new Plane(planePoint, planeNormal, currentDiffuse, currentSpecular, currentShininess);
+                        flushMesh(); // conserve l'ordre des formes du fichier
                         scene.getShapes().add(plane);
                         break;
 
@@ -251,6 +339,107 @@ public class SceneFileParser {
                         System.out.println("Mot clé ignoré : " + keyword);
                 }
             }
+            flushMesh();
+        }
+    }
+
+    /**
+     * Lit en parallèle une longue suite de lignes {@code vertex} commençant à
+     * la ligne courante, directement dans le tampon de vertex.
+     * @return false si la suite est trop courte (rien n'a été lu)
+     */
+    private boolean parseVertexRun(MappedSceneTokenizer tokens) {
+        MappedSceneTokenizer.Run run = tokens.splitRun(PARALLEL_MIN_LINES, PARALLEL_CHUNK_LINES);
+        if (run == null) {
+            return false;
+        }
+        if (vertexCount + run.getLines() > vertices.length / 3) {
+            throw new IllegalArgumentException("Trop de vertex déclarés (max = " + vertices.length / 3 + ")");
+        }
+        double[] buffer = vertices;
+        int first = vertexCount;
+        IntStream.range(0, run.getChunkCount()).parallel().forEach(chunk -> {
+            MappedSceneTokenizer lines = tokens.chunk(run, chunk);
+            int v = first + run.getFirstLine(chunk);
+            while (lines.nextLine()) {
+                lines.keyword();
+                buffer[3 * v] = lines.nextDouble();
+                buffer[3 * v + 1] = lines.nextDouble();
+                buffer[3 * v + 2] = lines.nextDouble();
+                v++;
+            }
+        });
+        vertexCount += run.getLines();
+        return true;
+    }
+
+    /**
+     * Lit en parallèle une longue suite de lignes {@code tri} commençant à la
+     * ligne courante. Aucun changement de matériau ni de vertex ne peut
+     * survenir dans la suite : elle est ajoutée d'un bloc au maillage en cours.
+     * @return false si la suite est trop courte (rien n'a été lu)
+     */
+    private boolean parseTriRun(MappedSceneTokenizer tokens) {
+        MappedSceneTokenizer.Run run = tokens.splitRun(PARALLEL_MIN_LINES, PARALLEL_CHUNK_LINES);
+        if (run == null) {
+            return false;
+        }
+        if (meshTriangleCount > 0 && (meshDiffuse != currentDiffuse
+                || meshSpecular != currentSpecular || meshShininess != currentShininess)) {
+            flushMesh(); // changement de matériau : nouveau maillage
+        }
+        if (meshTriangleCount == 0) {
+            meshDiffuse = currentDiffuse;
+            meshSpecular = currentSpecular;
+            meshShininess = currentShininess;
+        }
+        int needed = (meshTriangleCount + run.getLines()) * 3;
+        if (needed > meshIndices.length) {
+            meshIndices = Arrays.copyOf(meshIndices, Math.max(needed, meshIndices.length * 2));
+        }
+        int[] indices = meshIndices;
+        int first = meshTriangleCount;
+        int count = vertexCount;
+        IntStream.range(0, run.getChunkCount()).parallel().forEach(chunk -> {
+            MappedSceneTokenizer lines = tokens.chunk(run, chunk);
+            int t = first + run.getFirstLine(chunk);
+            while (lines.nextLine()) {
+                lines.keyword();
+                int idx1 = lines.nextInt();
+                int idx2 = lines.nextInt();
+                int idx3 = lines.nextInt();
+                if (idx1 < 0 || idx1 >= count ||
+                    idx2 < 0 || idx2 >= count ||
+                    idx3 < 0 || idx3 >= count) {
+                    throw new IndexOutOfBoundsException("Index de vertex invalide dans tri");
+                }
+                indices[3 * t] = idx1;
+                indices[3 * t + 1] = idx2;
+                indices[3 * t + 2] = idx3;
+                t++;
+            }
+        });
+        meshTriangleCount += run.getLines();
+        return true;
+    }
+
+    private SceneTokenizer openTokenizer(Path path) throws IOException {
+        if (mode == Mode.LINES || Files.size(path) > Integer.MAX_VALUE) {
+            return new LineTokenizer(path);
+        }
+        return new MappedSceneTokenizer(path);
+    }
+
+    /**
+     * Ajoute à la scène le maillage en cours, s'il contient des triangles.
+     */
+    private void flushMesh() {
+        if (meshTriangleCount == 0) {
+            return;
         }
+        int[] indices = Arrays.copyOf(meshIndices, meshTriangleCount * 3);
+        scene.getShapes().add(new TriangleMesh(vertices, indices, meshTriangleCount,
+            meshDiffuse, meshSpecular, meshShininess));
+        meshTriangleCount = 0;
     }
 }
@@ -0,0 +1,68 @@
+package com.parsing;
+
+import com.raytracer.Scene;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Événement Java Flight Recorder : chargement d'une scène (texte ou binaire).
+ * <p>
+ * Enregistré par {@link SceneFileParser#parse(String)} et
+ * {@link BinarySceneFile#read(Path)} ; les champs ne sont calculés que si
+ * l'événement est retenu par l'enregistrement en cours.
+ * </p>
+ *
+ * @author Projet Ray Tracer
+ * @version 1.0
+ */
+@Name("com.raytracer.SceneParse")
+@Label("Chargement de la scène")
+@Category("Ray Tracer")
+@Description("Analyse d'un fichier de scène texte ou lecture d'une scène binaire")
+@StackTrace(false)
+final class SceneParseEvent extends Event {
+    @Label("Fichier")
+    String path;
+
+    @Label("Format")
+    @Description("MAPPED, LINES ou BINARY")
+    String format;
+
+    @Label("Taille du fichier")
+    @DataAmount
+    long bytes;
+
+    @Label("Formes")
+    int shapes;
+
+    @Label("Lumières")
+    int lights;
+
+    /**
+     * Termine l'événement et l'enregistre s'il est retenu.
+     */
+    void commit(Path file, String format, Scene scene) {
+        end();
+        if (shouldCommit()) {
+            this.path = file.toString();
+            this.format = format;
+            try {
+                this.bytes = Files.size(file);
+            } catch (IOException e) {
+                this.bytes = -1;
+            }
+            this.shapes = scene.getShapes().size();
+            this.lights = scene.getLights().size();
+            commit();
+        }
+    }
+}
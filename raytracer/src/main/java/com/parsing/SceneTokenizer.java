@@ -0,0 +1,39 @@
+package com.parsing;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Découpage d'un fichier de scène en lignes et en paramètres.
+ * <p>
+ * Une ligne utile commence par un mot clé suivi de ses paramètres ; les
+ * lignes vides et les commentaires ({@code #} en début de ligne) sont
+ * sautés, ainsi que les paramètres en trop en fin de ligne. Les nombres
+ * sont lus avec la même sémantique que {@link Double#parseDouble(String)},
+ * {@link Float#parseFloat(String)} et {@link Integer#parseInt(String)}.
+ * </p>
+ *
+ * @author Projet Ray Tracer
+ * @version 1.0
+ * @see SceneFileParser
+ */
+interface SceneTokenizer extends Closeable {
+
+    /**
+     * Passe à la ligne utile suivante.
+     * @return false à la fin du fichier
+     */
+    boolean nextLine() throws IOException;
+
+    /** Mot clé de la ligne courante. */
+    String keyword();
+
+    /** Paramètre suivant, tel quel. */
+    String nextString();
+
+    double nextDouble();
+
+    float nextFloat();
+
+    int nextInt();
+}
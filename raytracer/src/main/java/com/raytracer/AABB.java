@@ -1,7 +1,6 @@
 package com.raytracer;
 
 import com.geometry.Point;
-import com.geometry.Vector;
 
 /**
  * Boite englobante alignée sur les axes (Axis-Aligned Bounding Box).
@@ -46,35 +45,65 @@ public class AABB {
      * @return true if the ray intersects the box within [0, tMaxCap]
      */
     public boolean intersects(Ray ray, double tMaxCap) {
-        Vector dir = ray.getDirection();
         Point orig = ray.getOrigin();
-
         double tMin = 0.0;
         double tMax = tMaxCap;
 
-        double[] o = {orig.getX(), orig.getY(), orig.getZ()};
-        double[] d = {dir.getX(), dir.getY(), dir.getZ()};
-        double[] mn = {min.getX(), min.getY(), min.getZ()};
-        double[] mx = {max.getX(), max.getY(), max.getZ()};
+        // Axes déroulés, inverses de la direction précalculés par le rayon : aucune allocation
+        double invD = ray.getInvDirX();
+        double t0 = (min.getX() - orig.getX()) * invD;
+        double t1 = (max.getX() - orig.getX()) * invD;
+        if (invD < 0.0) {
+            double tmp = t0;
+            t0 = t1;
+            t1 = tmp;
+        }
+        tMin = Math.max(tMin, t0);
+        tMax = Math.min(tMax, t1);
+        if (tMax < tMin) {
+            return false;
+        }
+
+        invD = ray.getInvDirY();
+        t0 = (min.getY() - orig.getY()) * invD;
+        t1 = (max.getY() - orig.getY()) * invD;
+        if (invD < 0.0) {
+            double tmp = t0;
+            t0 = t1;
+            t1 = tmp;
+        }
+        tMin = Math.max(tMin, t0);
+        tMax = Math.min(tMax, t1);
+        if (tMax < tMin) {
+            return false;
+        }
 
-        for (int axis = 0; axis < 3; axis++) {
-            double invD = 1.0 / d[axis];
-            double t0 = (mn[axis] - o[axis]) * invD;
-            double t1 = (mx[axis] - o[axis]) * invD;
-            if (invD < 0.0) {
-                double tmp = t0;
-                t0 = t1;
-                t1 = tmp;
-            }
-            tMin = Math.max(tMin, t0);
-            tMax = Math.min(tMax, t1);
-            if (tMax < tMin) {
-                return false;
-            }
+        invD = ray.getInvDirZ();
+        t0 = (min.getZ() - orig.getZ()) * invD;
+        t1 = (max.getZ() - orig.getZ()) * invD;
+        if (invD < 0.0) {
+            double tmp = t0;
+            t0 = t1;
+            t1 = tmp;
+        }
+        tMin = Math.max(tMin, t0);
+        tMax = Math.min(tMax, t1);
+        if (tMax < tMin) {
+            return false;
         }
         return true;
     }
 
+    /**
+     * Surface area of the box, used by the SAH cost model.
+     */
+    public double surfaceArea() {
+        double dx = max.getX() - min.getX();
+        double dy = max.getY() - min.getY();
+        double dz = max.getZ() - min.getZ();
+        return 2.0 * (dx * dy + dy * dz + dz * dx);
+    }
+
     /**
      * Returns a bounding box enclosing both this and another box.
      */
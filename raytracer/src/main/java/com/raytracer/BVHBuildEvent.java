@@ -0,0 +1,58 @@
+package com.raytracer;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Événement Java Flight Recorder : construction (ou relecture depuis le
+ * cache) de la BVH d'une scène.
+ *
+ * @author Projet Ray Tracer
+ * @version 1.0
+ * @see LinearBVH#build(java.util.List, BVHBuilder, BVHCache)
+ */
+@Name("com.raytracer.BVHBuild")
+@Label("Construction de la BVH")
+@Category("Ray Tracer")
+@StackTrace(false)
+final class BVHBuildEvent extends Event {
+    @Label("Stratégie")
+    String strategy;
+
+    @Label("Primitives")
+    int primitives;
+
+    @Label("Noeuds")
+    int nodes;
+
+    @Label("Feuilles")
+    int leaves;
+
+    @Label("Profondeur maximale")
+    int maxDepth;
+
+    @Label("Coût SAH")
+    double sahCost;
+
+    @Label("Relue depuis le cache")
+    @Description("Noeuds relus depuis le cache disque plutôt que construits")
+    boolean fromCache;
+
+    void commit(BVHBuildStats stats, boolean fromCache) {
+        end();
+        if (shouldCommit()) {
+            this.strategy = stats.getStrategy().name();
+            this.primitives = stats.getPrimitiveCount();
+            this.nodes = stats.getNodeCount();
+            this.leaves = stats.getLeafCount();
+            this.maxDepth = stats.getMaxDepth();
+            this.sahCost = stats.getSahCost();
+            this.fromCache = fromCache;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.raytracer;
+
+/**
+ * Bilan de construction d'une BVH.
+ * <p>
+ * Regroupe le nombre de noeuds, de feuilles, la profondeur maximale et le
+ * coût SAH de l'arbre obtenu, afin de comparer les stratégies de construction
+ * sur une même scène. Le coût SAH est normalisé par l'aire de la racine :
+ * </p>
+ * <pre>
+ *   C = Ct * somme(A(interne)) / A(racine) + Ci * somme(N(feuille) * A(feuille)) / A(racine)
+ * </pre>
+ *
+ * @author Projet Ray Tracer
+ * @version 1.0
+ * @see BVHBuilder
+ */
+public class BVHBuildStats {
+    private final BVHBuilder.Strategy strategy;
+    private final int primitiveCount;
+    private final int nodeCount;
+    private final int leafCount;
+    private final int maxDepth;
+    private final double sahCost;
+    private final long buildTimeMillis;
+
+    public BVHBuildStats(BVHBuilder.Strategy strategy, int primitiveCount, int nodeCount, int leafCount,
+                         int maxDepth, double sahCost, long buildTimeMillis) {
+        this.strategy = strategy;
+        this.primitiveCount = primitiveCount;
+        this.nodeCount = nodeCount;
+        this.leafCount = leafCount;
+        this.maxDepth = maxDepth;
+        this.sahCost = sahCost;
+        this.buildTimeMillis = buildTimeMillis;
+    }
+
+    /**
+     * Parcourt un arbre construit et calcule son bilan.
+     * @param root racine de la BVH (peut être null)
+     * @param builder constructeur utilisé (stratégie et coûts SAH)
+     * @param buildTimeMillis durée de la construction
+     */
+    public static BVHBuildStats collect(BVHNode root, BVHBuilder builder, long buildTimeMillis) {
+        if (root == null) {
+            return new BVHBuildStats(builder.getStrategy(), 0, 0, 0, 0, 0.0, buildTimeMillis);
+        }
+        Accumulator acc = new Accumulator();
+        acc.visit(root, 1);
+        double rootArea = root.getBox().surfaceArea();
+        double cost = 0.0;
+        if (rootArea > 0.0) {
+            cost = (builder.getTraversalCost() * acc.interiorArea + builder.getLeafCost() * acc.leafArea) / rootArea;
+        }
+        return new BVHBuildStats(builder.getStrategy(), acc.primitives, acc.nodes, acc.leaves,
+            acc.maxDepth, cost, buildTimeMillis);
+    }
+
+    public BVHBuilder.Strategy getStrategy() {
+        return strategy;
+    }
+
+    public int getPrimitiveCount() {
+        return primitiveCount;
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    public int getLeafCount() {
+        return leafCount;
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    public double getSahCost() {
+        return sahCost;
+    }
+
+    public long getBuildTimeMillis() {
+        return buildTimeMillis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(java.util.Locale.ROOT,
+            "BVH %s : %d primitives, %d noeuds (%d feuilles), profondeur max %d, coût SAH %.2f, construite en %d ms",
+            strategy, primitiveCount, nodeCount, leafCount, maxDepth, sahCost, buildTimeMillis);
+    }
+
+    private static final class Accumulator {
+        int nodes;
+        int leaves;
+        int primitives;
+        int maxDepth;
+        double interiorArea;
+        double leafArea;
+
+        void visit(BVHNode node, int depth) {
+            nodes++;
+            maxDepth = Math.max(maxDepth, depth);
+            double area = node.getBox().surfaceArea();
+            if (node.isLeaf()) {
+                int count = node.getPrimitiveCount();
+                leaves++;
+                primitives += count;
+                leafArea += area * count;
+                return;
+            }
+            interiorArea += area;
+            if (node.getLeft() != null) {
+                visit(node.getLeft(), depth + 1);
+            }
+            if (node.getRight() != null) {
+                visit(node.getRight(), depth + 1);
+            }
+        }
+    }
+}
@@ -0,0 +1,609 @@
+package com.raytracer;
+
+import com.geometry.Point;
+import com.geometry.Shape;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.IntStream;
+
+/**
+ * Constructeur de BVH paramétrable.
+ * <p>
+ * Deux stratégies de partitionnement sont disponibles :
+ * </p>
+ * <ul>
+ *   <li>{@link Strategy#MEDIAN} : coupe à la médiane des centroïdes sur
+ *       l'axe de plus grande étendue (comportement historique) ;</li>
+ *   <li>{@link Strategy#SAH} : heuristique de surface (Surface Area Heuristic)
+ *       évaluée sur des intervalles (bins) de centroïdes, ce qui limite le
+ *       recouvrement des boites sur les maillages denses.</li>
+ * </ul>
+ * <p>
+ * Une feuille regroupe jusqu'à {@code maxLeafSize} primitives ; avec la SAH,
+ * un sous-ensemble de cette taille n'est découpé que si la découpe coûte
+ * moins cher que le test de toutes ses primitives.
+ * </p>
+ * <p>
+ * La construction travaille en place sur un tableau d'indices de primitives,
+ * sans recopier de sous-listes à chaque niveau. Au-delà d'un seuil de taille,
+ * les deux sous-arbres sont construits en parallèle sur le
+ * {@link ForkJoinPool#commonPool() pool commun} ; chaque tâche réutilise ses
+ * propres tampons de travail, si bien que le nombre de temporaires alloués
+ * est borné par le nombre de tâches et non par le nombre de noeuds.
+ * </p>
+ * <p>
+ * Le constructeur fixe aussi le test rayon-triangle des paquets de
+ * triangles de la {@link LinearBVH} (voir {@link TriangleTest}), dont les
+ * données sont précalculées à la construction, et les noyaux qui testent
+ * ses feuilles de triangles (voir {@link #withVectorKernels(boolean)}).
+ * Il fixe enfin le nombre de fils des noeuds parcourus (voir
+ * {@link #withBranchingFactor(int)}).
+ * </p>
+ *
+ * @author Projet Ray Tracer
+ * @version 1.0
+ * @see BVHNode
+ * @see BVHBuildStats
+ */
+public class BVHBuilder {
+
+    /** Stratégie de partitionnement des primitives. */
+    public enum Strategy {
+        MEDIAN,
+        SAH
+    }
+
+    /** Test rayon-triangle utilisé dans les feuilles de la BVH linéaire. */
+    public enum TriangleTest {
+        /** Möller-Trumbore sur arêtes précalculées (mêmes résultats que {@link com.geometry.Triangle}). */
+        MOLLER_TRUMBORE,
+        /** Test étanche (Woop, Benthin, Wald) : aucun trou le long des arêtes partagées. */
+        WATERTIGHT
+    }
+
+    public static final int DEFAULT_BIN_COUNT = 16;
+    public static final double DEFAULT_TRAVERSAL_COST = 1.0;
+    public static final double DEFAULT_LEAF_COST = 1.0;
+    /** Nombre de fils par noeud de la BVH parcourue : arbre binaire. */
+    public static final int DEFAULT_BRANCHING_FACTOR = 2;
+    /** Taille minimale d'un sous-ensemble pour le construire dans une tâche séparée. */
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 4096;
+    /** Nombre maximal de primitives par feuille. */
+    public static final int DEFAULT_MAX_LEAF_SIZE = 4;
+    /** Seuil désactivant la construction parallèle. */
+    public static final int SEQUENTIAL = Integer.MAX_VALUE;
+
+    private final Strategy strategy;
+    private final int binCount;
+    private final double traversalCost;
+    private final double leafCost;
+    private final int parallelThreshold;
+    private final int maxLeafSize;
+    private final TriangleTest triangleTest;
+    private final boolean vectorKernels;
+    private final int branchingFactor;
+
+    /**
+     * Constructeur par défaut : découpe médiane.
+     */
+    public BVHBuilder() {
+        this(Strategy.MEDIAN, DEFAULT_BIN_COUNT, DEFAULT_TRAVERSAL_COST, DEFAULT_LEAF_COST);
+    }
+
+    /**
+     * @param strategy stratégie de partitionnement
+     * @param binCount nombre d'intervalles pour la SAH (>= 2)
+     * @param traversalCost coût relatif du test d'une boite d'un noeud interne
+     * @param leafCost coût relatif du test d'intersection d'une primitive
+     */
+    public BVHBuilder(Strategy strategy, int binCount, double traversalCost, double leafCost) {
+        this(strategy, binCount, traversalCost, leafCost, DEFAULT_PARALLEL_THRESHOLD);
+    }
+
+    /**
+     * @param strategy stratégie de partitionnement
+     * @param binCount nombre d'intervalles pour la SAH (>= 2)
+     * @param traversalCost coût relatif du test d'une boite d'un noeud interne
+     * @param leafCost coût relatif du test d'intersection d'une primitive
+     * @param parallelThreshold nombre minimal de primitives pour paralléliser
+     *        un sous-arbre ({@link #SEQUENTIAL} pour tout construire sur le thread appelant)
+     */
+    public BVHBuilder(Strategy strategy, int binCount, double traversalCost, double leafCost, int parallelThreshold) {
+        this(strategy, binCount, traversalCost, leafCost, parallelThreshold, DEFAULT_MAX_LEAF_SIZE,
+            TriangleTest.MOLLER_TRUMBORE, false, DEFAULT_BRANCHING_FACTOR);
+    }
+
+    private BVHBuilder(Strategy strategy, int binCount, double traversalCost, double leafCost,
+                       int parallelThreshold, int maxLeafSize, TriangleTest triangleTest, boolean vectorKernels,
+                       int branchingFactor) {
+        if (strategy == null) {
+            throw new IllegalArgumentException("La stratégie de construction ne peut pas être null");
+        }
+        if (binCount < 2) {
+            throw new IllegalArgumentException("Le nombre de bins doit être >= 2");
+        }
+        if (traversalCost < 0 || leafCost <= 0) {
+            throw new IllegalArgumentException("Les coûts SAH doivent être positifs");
+        }
+        if (maxLeafSize < 1) {
+            throw new IllegalArgumentException("Une feuille doit pouvoir contenir au moins une primitive");
+        }
+        if (triangleTest == null) {
+            throw new IllegalArgumentException("Le test rayon-triangle ne peut pas être null");
+        }
+        if (branchingFactor != 2 && branchingFactor != 4 && branchingFactor != 8) {
+            throw new IllegalArgumentException("Le facteur de branchement de la BVH doit valoir 2, 4 ou 8");
+        }
+        this.strategy = strategy;
+        this.binCount = binCount;
+        this.traversalCost = traversalCost;
+        this.leafCost = leafCost;
+        this.parallelThreshold = Math.max(2, parallelThreshold);
+        this.maxLeafSize = maxLeafSize;
+        this.triangleTest = triangleTest;
+        this.vectorKernels = vectorKernels;
+        this.branchingFactor = branchingFactor;
+    }
+
+    public static BVHBuilder median() {
+        return new BVHBuilder();
+    }
+
+    public static BVHBuilder sah() {
+        return new BVHBuilder(Strategy.SAH, DEFAULT_BIN_COUNT, DEFAULT_TRAVERSAL_COST, DEFAULT_LEAF_COST);
+    }
+
+    public Strategy getStrategy() {
+        return strategy;
+    }
+
+    public int getBinCount() {
+        return binCount;
+    }
+
+    public double getTraversalCost() {
+        return traversalCost;
+    }
+
+    public double getLeafCost() {
+        return leafCost;
+    }
+
+    public int getParallelThreshold() {
+        return parallelThreshold;
+    }
+
+    public int getMaxLeafSize() {
+        return maxLeafSize;
+    }
+
+    public TriangleTest getTriangleTest() {
+        return triangleTest;
+    }
+
+    public boolean isVectorKernels() {
+        return vectorKernels;
+    }
+
+    public int getBranchingFactor() {
+        return branchingFactor;
+    }
+
+    /**
+     * @return une copie de ce constructeur qui travaille sur le seul thread appelant
+     */
+    public BVHBuilder sequential() {
+        return new BVHBuilder(strategy, binCount, traversalCost, leafCost, SEQUENTIAL, maxLeafSize, triangleTest,
+            vectorKernels, branchingFactor);
+    }
+
+    /**
+     * @param size nombre maximal de primitives par feuille (1 : une forme par feuille)
+     * @return une copie de ce constructeur avec la taille de feuille donnée
+     */
+    public BVHBuilder withMaxLeafSize(int size) {
+        return new BVHBuilder(strategy, binCount, traversalCost, leafCost, parallelThreshold, size, triangleTest,
+            vectorKernels, branchingFactor);
+    }
+
+    /**
+     * @param test test rayon-triangle des feuilles de la BVH linéaire
+     * @return une copie de ce constructeur avec le test donné
+     */
+    public BVHBuilder withTriangleTest(TriangleTest test) {
+        return new BVHBuilder(strategy, binCount, traversalCost, leafCost, parallelThreshold, maxLeafSize, test,
+            vectorKernels, branchingFactor);
+    }
+
+    /**
+     * Les feuilles de triangles de la BVH linéaire sont alors testées d'un
+     * bloc par les noyaux de l'API Vector de Java, si la JVM a été lancée
+     * avec {@code --add-modules jdk.incubator.vector} ; sinon (ou avec
+     * false), triangle par triangle. Le résultat est le même au bit près.
+     * @param vector true pour utiliser les noyaux vectoriels quand ils sont disponibles
+     * @return une copie de ce constructeur avec le choix de noyaux donné
+     */
+    public BVHBuilder withVectorKernels(boolean vector) {
+        return new BVHBuilder(strategy, binCount, traversalCost, leafCost, parallelThreshold, maxLeafSize,
+            triangleTest, vector, branchingFactor);
+    }
+
+    /**
+     * Avec 4 ou 8, l'arbre binaire construit est replié en une BVH large :
+     * chaque noeud porte jusqu'à {@code factor} fils, dont les boites sont
+     * testées d'un bloc (voir {@link LinearBVH}). L'arbre binaire, et donc
+     * le {@link BVHCache}, ne changent pas.
+     * @param factor nombre maximal de fils par noeud : 2, 4 ou 8
+     * @return une copie de ce constructeur avec le facteur de branchement donné
+     */
+    public BVHBuilder withBranchingFactor(int factor) {
+        return new BVHBuilder(strategy, binCount, traversalCost, leafCost, parallelThreshold, maxLeafSize,
+            triangleTest, vectorKernels, factor);
+    }
+
+    /**
+     * Construit la hiérarchie pour les formes données.
+     * @param shapes formes bornées (getBoundingBox() != null)
+     * @return la racine de l'arbre, ou null si la liste est vide
+     */
+    public BVHNode build(List<Shape> shapes) {
+        if (shapes == null || shapes.isEmpty()) {
+            return null;
+        }
+        Shape[] source = shapes.toArray(new Shape[0]);
+        double[] bounds = new double[source.length * 6];
+        IntStream range = IntStream.range(0, source.length);
+        (source.length >= parallelThreshold ? range.parallel() : range)
+            .forEach(i -> storeBounds(source[i].getBoundingBox(), bounds, i * 6));
+
+        // Les noeuds partagent ce tableau, rempli une fois la permutation connue
+        Shape[] ordered = new Shape[source.length];
+        BVHNode root = buildTree(bounds, source.length, ordered);
+        int[] order = root.getPrimitiveOrder();
+        for (int i = 0; i < ordered.length; i++) {
+            ordered[i] = source[order[i]];
+        }
+        return root;
+    }
+
+    /**
+     * Construit la hiérarchie sur des primitives décrites uniquement par leurs
+     * boites (triangles d'un maillage indexé par exemple). Les feuilles renvoient
+     * à des plages de {@link BVHNode#getPrimitiveOrder()}.
+     * @param bounds 6 valeurs par primitive : min x, y, z puis max x, y, z
+     * @param count nombre de primitives
+     * @return la racine de l'arbre, ou null si count == 0
+     */
+    public BVHNode build(double[] bounds, int count) {
+        if (count == 0) {
+            return null;
+        }
+        return buildTree(bounds, count, null);
+    }
+
+    private BVHNode buildTree(double[] bounds, int count, Shape[] ordered) {
+        boolean parallel = count >= parallelThreshold;
+        Build b = new Build(bounds, count, ordered, parallel);
+        if (parallel) {
+            return ForkJoinPool.commonPool().invoke(new BuildTask(b, 0, b.count));
+        }
+        return buildRange(b, 0, b.count, new Scratch(binCount));
+    }
+
+    private BVHNode buildRange(Build b, int start, int end, Scratch scratch) {
+        // Boite de l'ensemble, puis partition en place de [start, end[
+        double[] bounds = b.rangeBounds(start, end, scratch.box);
+        AABB box = new AABB(new Point(bounds[0], bounds[1], bounds[2]), new Point(bounds[3], bounds[4], bounds[5]));
+        int mid = end - start == 1 ? -1 : split(b, start, end, scratch);
+        if (mid < 0) {
+            return new BVHNode(box, null, null, start, end - start, b.ordered, b.order);
+        }
+
+        BVHNode leftNode;
+        BVHNode rightNode;
+        if (end - start >= parallelThreshold) {
+            BuildTask rightTask = new BuildTask(b, mid, end);
+            rightTask.fork();
+            leftNode = buildRange(b, start, mid, scratch);
+            rightNode = rightTask.join();
+        } else {
+            leftNode = buildRange(b, start, mid, scratch);
+            rightNode = buildRange(b, mid, end, scratch);
+        }
+        return new BVHNode(box, leftNode, rightNode, 0, 0, b.ordered, b.order);
+    }
+
+    /**
+     * @return l'indice de découpe de [start, end[, ou -1 pour en faire une feuille
+     */
+    private int split(Build b, int start, int end, Scratch scratch) {
+        if (strategy == Strategy.SAH) {
+            return splitSah(b, start, end, scratch);
+        }
+        if (end - start <= maxLeafSize) {
+            return -1;
+        }
+        return splitMedian(b, start, end, scratch.box);
+    }
+
+    /**
+     * Sous-arbre construit dans une tâche fork/join, avec ses propres tampons.
+     */
+    private final class BuildTask extends RecursiveTask<BVHNode> {
+        private static final long serialVersionUID = 1L;
+
+        private final Build b;
+        private final int start;
+        private final int end;
+
+        BuildTask(Build b, int start, int end) {
+            this.b = b;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected BVHNode compute() {
+            return buildRange(b, start, end, new Scratch(binCount));
+        }
+    }
+
+    /**
+     * Découpe médiane sur l'axe de plus grande étendue de la boite englobante.
+     * La sélection du k-ième élément remplace le tri complet du sous-tableau.
+     */
+    private int splitMedian(Build b, int start, int end, double[] bounds) {
+        int axis = largestAxis(bounds[3] - bounds[0], bounds[4] - bounds[1], bounds[5] - bounds[2]);
+        int mid = start + (end - start) / 2;
+        b.select(start, end - 1, mid, axis);
+        return mid;
+    }
+
+    /**
+     * Découpe selon la SAH évaluée sur des bins de centroïdes, sur les trois axes.
+     * Retombe sur la médiane si tous les centroïdes sont confondus. Renvoie -1
+     * quand une feuille de taille autorisée coûte moins cher que toute découpe.
+     */
+    private int splitSah(Build b, int start, int end, Scratch scratch) {
+        double[] cb = b.centroidBounds(start, end, scratch.centroidBox);
+        int count = end - start;
+        double invArea = 1.0 / Math.max(surfaceArea(scratch.box, 0), Double.MIN_NORMAL);
+
+        int bestAxis = -1;
+        int bestSplit = -1;
+        double bestCost = Double.POSITIVE_INFINITY;
+
+        int[] binCounts = scratch.binCounts;
+        double[] binBounds = scratch.binBounds;
+        double[] rightArea = scratch.rightArea;
+        int[] rightCount = scratch.rightCount;
+        double[] acc = scratch.acc;
+
+        for (int axis = 0; axis < 3; axis++) {
+            double cMin = cb[axis];
+            double extent = cb[axis + 3] - cMin;
+            if (extent <= 0.0) {
+                continue;
+            }
+            double scale = binCount / extent;
+
+            java.util.Arrays.fill(binCounts, 0);
+            for (int k = 0; k < binCount; k++) {
+                resetBounds(binBounds, k * 6);
+            }
+            for (int i = start; i < end; i++) {
+                int p = b.order[i];
+                int bin = binIndex(b.centroid[p * 3 + axis], cMin, scale);
+                binCounts[bin]++;
+                growBounds(binBounds, bin * 6, b.bounds, p * 6);
+            }
+
+            // Balayage droite -> gauche : aire et nombre à droite de chaque plan
+            resetBounds(acc, 0);
+            int accCount = 0;
+            for (int k = binCount - 1; k > 0; k--) {
+                accCount += binCounts[k];
+                growBounds(acc, 0, binBounds, k * 6);
+                rightCount[k] = accCount;
+                rightArea[k] = accCount > 0 ? surfaceArea(acc, 0) : 0.0;
+            }
+
+            // Balayage gauche -> droite et évaluation du coût
+            resetBounds(acc, 0);
+            accCount = 0;
+            for (int k = 1; k < binCount; k++) {
+                accCount += binCounts[k - 1];
+                growBounds(acc, 0, binBounds, (k - 1) * 6);
+                if (accCount == 0 || rightCount[k] == 0) {
+                    continue;
+                }
+                // C = Ct + Ci * (A_g * N_g + A_d * N_d) / A
+                double cost = traversalCost
+                    + leafCost * (surfaceArea(acc, 0) * accCount + rightArea[k] * rightCount[k]) * invArea;
+                if (cost < bestCost) {
+                    bestCost = cost;
+                    bestAxis = axis;
+                    bestSplit = k;
+                }
+            }
+        }
+
+        if (count <= maxLeafSize && (bestAxis < 0 || leafCost * count <= bestCost)) {
+            return -1;
+        }
+        if (bestAxis < 0) {
+            // Centroïdes confondus : partage en deux moitiés
+            return start + count / 2;
+        }
+
+        double cMin = cb[bestAxis];
+        double scale = binCount / (cb[bestAxis + 3] - cMin);
+        int i = start;
+        int j = end - 1;
+        while (i <= j) {
+            int p = b.order[i];
+            if (binIndex(b.centroid[p * 3 + bestAxis], cMin, scale) < bestSplit) {
+                i++;
+            } else {
+                b.order[i] = b.order[j];
+                b.order[j] = p;
+                j--;
+            }
+        }
+        if (i == start || i == end) {
+            return start + count / 2;
+        }
+        return i;
+    }
+
+    private int binIndex(double c, double cMin, double scale) {
+        int bin = (int) ((c - cMin) * scale);
+        if (bin < 0) {
+            return 0;
+        }
+        return Math.min(bin, binCount - 1);
+    }
+
+    static int largestAxis(double extentX, double extentY, double extentZ) {
+        if (extentX >= extentY && extentX >= extentZ) {
+            return 0;
+        } else if (extentY >= extentX && extentY >= extentZ) {
+            return 1;
+        }
+        return 2;
+    }
+
+    static void storeBounds(AABB box, double[] out, int off) {
+        Point mn = box.getMin();
+        Point mx = box.getMax();
+        out[off] = mn.getX();
+        out[off + 1] = mn.getY();
+        out[off + 2] = mn.getZ();
+        out[off + 3] = mx.getX();
+        out[off + 4] = mx.getY();
+        out[off + 5] = mx.getZ();
+    }
+
+    static void resetBounds(double[] box, int off) {
+        box[off] = box[off + 1] = box[off + 2] = Double.POSITIVE_INFINITY;
+        box[off + 3] = box[off + 4] = box[off + 5] = Double.NEGATIVE_INFINITY;
+    }
+
+    static void growBounds(double[] box, int off, double[] other, int otherOff) {
+        for (int a = 0; a < 3; a++) {
+            box[off + a] = Math.min(box[off + a], other[otherOff + a]);
+            box[off + a + 3] = Math.max(box[off + a + 3], other[otherOff + a + 3]);
+        }
+    }
+
+    static double surfaceArea(double[] box, int off) {
+        double dx = box[off + 3] - box[off];
+        double dy = box[off + 4] - box[off + 1];
+        double dz = box[off + 5] - box[off + 2];
+        return 2.0 * (dx * dy + dy * dz + dz * dx);
+    }
+
+    /**
+     * Tampons de travail réutilisés d'un noeud à l'autre au sein d'une même tâche.
+     */
+    private static final class Scratch {
+        final double[] box = new double[6];
+        final double[] centroidBox = new double[6];
+        final double[] acc = new double[6];
+        final int[] binCounts;
+        final double[] binBounds;
+        final double[] rightArea;
+        final int[] rightCount;
+
+        Scratch(int binCount) {
+            this.binCounts = new int[binCount];
+            this.binBounds = new double[binCount * 6];
+            this.rightArea = new double[binCount];
+            this.rightCount = new int[binCount];
+        }
+    }
+
+    /**
+     * Données de travail d'une construction : boites et centroïdes des
+     * primitives à plat, et permutation des indices partitionnée en place.
+     */
+    private static final class Build {
+        final Shape[] ordered;    // null pour une construction sur indices seuls
+        final int count;
+        final double[] bounds;    // 6 valeurs par primitive : min xyz, max xyz
+        final double[] centroid;  // 3 valeurs par primitive
+        final int[] order;
+
+        Build(double[] bounds, int count, Shape[] ordered, boolean parallel) {
+            this.ordered = ordered;
+            this.count = count;
+            this.bounds = bounds;
+            this.centroid = new double[count * 3];
+            this.order = new int[count];
+            IntStream range = IntStream.range(0, count);
+            (parallel ? range.parallel() : range).forEach(this::load);
+        }
+
+        private void load(int i) {
+            centroid[i * 3] = (bounds[i * 6] + bounds[i * 6 + 3]) * 0.5;
+            centroid[i * 3 + 1] = (bounds[i * 6 + 1] + bounds[i * 6 + 4]) * 0.5;
+            centroid[i * 3 + 2] = (bounds[i * 6 + 2] + bounds[i * 6 + 5]) * 0.5;
+            order[i] = i;
+        }
+
+        double[] rangeBounds(int start, int end, double[] box) {
+            resetBounds(box, 0);
+            for (int i = start; i < end; i++) {
+                growBounds(box, 0, bounds, order[i] * 6);
+            }
+            return box;
+        }
+
+        double[] centroidBounds(int start, int end, double[] box) {
+            resetBounds(box, 0);
+            for (int i = start; i < end; i++) {
+                int p = order[i] * 3;
+                for (int a = 0; a < 3; a++) {
+                    box[a] = Math.min(box[a], centroid[p + a]);
+                    box[a + 3] = Math.max(box[a + 3], centroid[p + a]);
+                }
+            }
+            return box;
+        }
+
+        /**
+         * Sélection rapide (quickselect) : place en position k l'élément qui
+         * y serait après un tri par centroïde sur l'axe donné.
+         */
+        void select(int lo, int hi, int k, int axis) {
+            while (lo < hi) {
+                double pivot = centroid[order[(lo + hi) >>> 1] * 3 + axis];
+                int i = lo;
+                int j = hi;
+                while (i <= j) {
+                    while (centroid[order[i] * 3 + axis] < pivot) {
+                        i++;
+                    }
+                    while (centroid[order[j] * 3 + axis] > pivot) {
+                        j--;
+                    }
+                    if (i <= j) {
+                        int tmp = order[i];
+                        order[i] = order[j];
+                        order[j] = tmp;
+                        i++;
+                        j--;
+                    }
+                }
+                if (k <= j) {
+                    hi = j;
+                } else if (k >= i) {
+                    lo = i;
+                } else {
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package com.raytracer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * Cache disque des BVH linéaires.
+ * <p>
+ * L'arbre construit ne dépend que des boites englobantes des primitives
+ * (dans l'ordre de la scène) et des paramètres du {@link BVHBuilder} : la
+ * clé est l'empreinte SHA-256 de ces données. Changer la caméra, les
+ * lumières ou les matériaux réutilise donc la BVH déjà construite ; toute
+ * modification de la géométrie change la clé.
+ * </p>
+ * <p>
+ * Une entrée contient les tableaux aplatis (boites et noeuds), l'ordre des
+ * primitives dans les feuilles et le coût SAH. Elle est relue par
+ * projection du fichier en mémoire et copie en bloc des tableaux. Une
+ * entrée illisible, tronquée ou incohérente est traitée comme absente, et
+ * l'écriture passe par un fichier temporaire renommé atomiquement : un
+ * rendu concurrent ne voit jamais d'entrée à moitié écrite.
+ * </p>
+ *
+ * @author Projet Ray Tracer
+ * @version 1.0
+ * @see LinearBVH#build(java.util.List, BVHBuilder, BVHCache)
+ */
+public class BVHCache {
+    private static final int MAGIC = 0x56425452; // "RTBV" en petit-boutiste
+    private static final int VERSION = 2;
+    private static final int KEY_BYTES = 32;
+    private static final int HEADER_BYTES = 8 + KEY_BYTES + 16 + 8; // 64 : tableaux alignés
+
+    private final Path directory;
+
+    /**
+     * @param directory répertoire des entrées (créé au premier enregistrement)
+     */
+    public BVHCache(Path directory) {
+        if (directory == null) {
+            throw new IllegalArgumentException("Le répertoire du cache ne peut pas être null");
+        }
+        this.directory = directory;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Empreinte des boites des primitives et des paramètres de construction.
+     * @param bounds boites des primitives (6 doubles par primitive)
+     * @param count nombre de primitives
+     */
+    static byte[] key(double[] bounds, int count, BVHBuilder builder) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponible", e);
+        }
+        ByteBuffer chunk = ByteBuffer.allocate(8192).order(ByteOrder.LITTLE_ENDIAN);
+        chunk.putInt(VERSION).putInt(builder.getStrategy().ordinal()).putInt(builder.getBinCount())
+            .putDouble(builder.getTraversalCost()).putDouble(builder.getLeafCost())
+            .putInt(builder.getMaxLeafSize()).putInt(count);
+        for (int i = 0; i < count * 6; i++) {
+            if (chunk.remaining() < 8) {
+                chunk.flip();
+                digest.update(chunk);
+                chunk.clear();
+            }
+            chunk.putDouble(bounds[i]);
+        }
+        chunk.flip();
+        digest.update(chunk);
+        return digest.digest();
+    }
+
+    /**
+     * @return le fichier de l'entrée de clé donnée
+     */
+    public Path entryPath(byte[] key) {
+        StringBuilder name = new StringBuilder("bvh-");
+        for (byte b : key) {
+            name.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return directory.resolve(name.append(".bin").toString());
+    }
+
+    /**
+     * Relit une entrée.
+     * @param primitiveCount nombre de primitives attendu
+     * @return l'entrée, ou null si elle est absente ou inutilisable
+     */
+    Entry load(byte[] key, int primitiveCount) {
+        Path path = entryPath(key);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            ByteBuffer in = mapped.order(ByteOrder.LITTLE_ENDIAN);
+            if (in.getInt() != MAGIC || in.getInt() != VERSION) {
+                return null;
+            }
+            byte[] stored = new byte[KEY_BYTES];
+            in.get(stored);
+            if (!Arrays.equals(stored, key)) {
+                return null;
+            }
+            int nodeCount = in.getInt();
+            int count = in.getInt();
+            int maxDepth = in.getInt();
+            in.getInt(); // réservé
+            double sahCost = in.getDouble();
+            if (count != primitiveCount || nodeCount < 1 || maxDepth < 1
+                    || in.remaining() != nodeCount * 32L + count * 4L) {
+                return null;
+            }
+            float[] bounds = new float[nodeCount * 6];
+            in.asFloatBuffer().get(bounds);
+            in.position(in.position() + bounds.length * Float.BYTES);
+            int[] nodes = new int[nodeCount * 2];
+            in.asIntBuffer().get(nodes);
+            in.position(in.position() + nodes.length * Integer.BYTES);
+            int[] order = new int[count];
+            in.asIntBuffer().get(order);
+            Entry entry = new Entry(bounds, nodes, order, maxDepth, sahCost);
+            return entry.isConsistent() ? entry : null;
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Entrée du cache BVH ignorée (" + path + ") : " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Enregistre une entrée ; un échec d'écriture n'interrompt pas le rendu.
+     */
+    void store(byte[] key, Entry entry) {
+        Path path = entryPath(key);
+        Path temp = null;
+        try {
+            Files.createDirectories(directory);
+            int nodeCount = entry.bounds.length / 6;
+            ByteBuffer out = ByteBuffer.allocate(HEADER_BYTES + nodeCount * 32 + entry.order.length * 4)
+                .order(ByteOrder.LITTLE_ENDIAN);
+            out.putInt(MAGIC).putInt(VERSION).put(key);
+            out.putInt(nodeCount).putInt(entry.order.length).putInt(entry.maxDepth).putInt(0);
+            out.putDouble(entry.sahCost);
+            out.asFloatBuffer().put(entry.bounds);
+            out.position(out.position() + entry.bounds.length * Float.BYTES);
+            out.asIntBuffer().put(entry.nodes);
+            out.position(out.position() + entry.nodes.length * Integer.BYTES);
+            out.asIntBuffer().put(entry.order);
+            out.position(out.capacity());
+            out.flip();
+
+            temp = Files.createTempFile(directory, "bvh-", ".tmp");
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                while (out.hasRemaining()) {
+                    channel.write(out);
+                }
+                channel.force(false);
+            }
+            try {
+                Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+            temp = null;
+        } catch (IOException e) {
+            System.err.println("Impossible d'écrire le cache BVH (" + path + ") : " + e.getMessage());
+        } finally {
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException ignored) {
+                    // fichier temporaire orphelin, sans conséquence
+                }
+            }
+        }
+    }
+
+    /** Contenu d'une entrée : BVH aplatie et ordre des primitives. */
+    static final class Entry {
+        final float[] bounds;
+        final int[] nodes;
+        final int[] order;
+        final int maxDepth;
+        final double sahCost;
+
+        Entry(float[] bounds, int[] nodes, int[] order, int maxDepth, double sahCost) {
+            this.bounds = bounds;
+            this.nodes = nodes;
+            this.order = order;
+            this.maxDepth = maxDepth;
+            this.sahCost = sahCost;
+        }
+
+        int getLeafCount() {
+            int leaves = 0;
+            for (int n = 1; n < nodes.length; n += 2) {
+                if (nodes[n] > 0) {
+                    leaves++;
+                }
+            }
+            return leaves;
+        }
+
+        // Indices de noeuds et de primitives dans les bornes, profondeur exacte
+        // (elle dimensionne la pile de parcours), ordre = permutation
+        boolean isConsistent() {
+            int nodeCount = nodes.length / 2;
+            int count = order.length;
+            int[] depth = new int[nodeCount];
+            depth[0] = 1;
+            int deepest = 0;
+            for (int n = 0; n < nodeCount; n++) {
+                int first = nodes[2 * n];
+                int primitives = nodes[2 * n + 1];
+                if (depth[n] == 0) {
+                    return false; // noeud orphelin
+                }
+                deepest = Math.max(deepest, depth[n]);
+                if (primitives > 0) {
+                    if (first < 0 || first + (long) primitives > count) {
+                        return false;
+                    }
+                } else if (primitives == 0 || ~primitives > 7 || first <= n + 1 || first >= nodeCount) {
+                    return false;
+                } else {
+                    depth[n + 1] = depth[n] + 1;
+                    depth[first] = depth[n] + 1;
+                }
+            }
+            if (deepest != maxDepth) {
+                return false;
+            }
+            boolean[] seen = new boolean[count];
+            for (int index : order) {
+                if (index < 0 || index >= count || seen[index]) {
+                    return false;
+                }
+                seen[index] = true;
+            }
+            return true;
+        }
+    }
+}
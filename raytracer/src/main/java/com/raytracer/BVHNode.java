@@ -1,8 +1,6 @@
 package com.raytracer;
 
 import com.geometry.Shape;
-import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
 
@@ -12,8 +10,8 @@ import java.util.Optional;
  * <p>
  * Cette classe implémente un arbre binaire où chaque noeud interne contient
  * une boite englobante (AABB) qui englobe tous ses enfants, et chaque feuille
- * contient une unique forme géométrique. La construction de l'arbre utilise
- * une heuristique de partitionnement basée sur l'axe de plus grande étendue.
+ * contient un petit groupe de formes géométriques. La construction de l'arbre est
+ * déléguée à {@link BVHBuilder} (découpe médiane ou SAH).
  * </p>
  * <p>
  * L'utilisation d'une BVH permet de réduire la complexité des tests
@@ -24,129 +22,187 @@ import java.util.Optional;
  * @author Projet Ray Tracer
  * @version 1.0
  * @see AABB
+ * @see BVHBuilder
  * @see Shape
  */
 public class BVHNode {
     private final AABB box;
     private final BVHNode left;
     private final BVHNode right;
-    private final Shape leafShape;
-
-    private BVHNode(AABB box, BVHNode left, BVHNode right, Shape leafShape) {
+    private final int firstPrimitive;   // feuille : première position dans l'ordre des primitives
+    private final int primitiveCount;   // feuille : nombre de primitives, 0 pour un noeud interne
+    private final Shape[] primitives;   // formes dans l'ordre des feuilles (null pour un arbre d'indices)
+    private final int[] order;          // position -> indice de la primitive d'origine
+    private final int splitCode;        // noeud interne : voir getSplitCode()
+
+    BVHNode(AABB box, BVHNode left, BVHNode right, int firstPrimitive, int primitiveCount,
+            Shape[] primitives, int[] order) {
         this.box = box;
         this.left = left;
         this.right = right;
-        this.leafShape = leafShape;
+        this.firstPrimitive = firstPrimitive;
+        this.primitiveCount = primitiveCount;
+        this.primitives = primitives;
+        this.order = order;
+        this.splitCode = left != null && right != null ? splitCode(left.box, right.box) : 0;
     }
 
-    public static BVHNode build(List<Shape> shapes) {
-        if (shapes == null || shapes.isEmpty()) {
-            return null;
+    // Axe de plus grand écart entre les centres des deux boites, bit 2 si la gauche est au-dessus
+    private static int splitCode(AABB left, AABB right) {
+        double dx = (right.getMin().getX() + right.getMax().getX()) - (left.getMin().getX() + left.getMax().getX());
+        double dy = (right.getMin().getY() + right.getMax().getY()) - (left.getMin().getY() + left.getMax().getY());
+        double dz = (right.getMin().getZ() + right.getMax().getZ()) - (left.getMin().getZ() + left.getMax().getZ());
+        int axis = 0;
+        double gap = dx;
+        if (Math.abs(dy) > Math.abs(gap)) {
+            axis = 1;
+            gap = dy;
+        }
+        if (Math.abs(dz) > Math.abs(gap)) {
+            axis = 2;
+            gap = dz;
         }
-        // Defensive copy
-        List<Shape> list = new ArrayList<>(shapes);
-        return buildRecursive(list);
+        return gap < 0.0 ? axis | 4 : axis;
     }
 
-    private static BVHNode buildRecursive(List<Shape> shapes) {
-        if (shapes.size() == 1) {
-            Shape s = shapes.get(0);
-            return new BVHNode(s.getBoundingBox(), null, null, s);
-        }
+    /**
+     * Construit l'arbre avec la découpe médiane historique.
+     * @see BVHBuilder
+     */
+    public static BVHNode build(List<Shape> shapes) {
+        return BVHBuilder.median().build(shapes);
+    }
 
-        // Compute global bbox and choose split axis by largest extent
-        AABB global = shapes.get(0).getBoundingBox();
-        double minX = global.getMin().getX();
-        double minY = global.getMin().getY();
-        double minZ = global.getMin().getZ();
-        double maxX = global.getMax().getX();
-        double maxY = global.getMax().getY();
-        double maxZ = global.getMax().getZ();
-
-        for (int i = 1; i < shapes.size(); i++) {
-            AABB b = shapes.get(i).getBoundingBox();
-            minX = Math.min(minX, b.getMin().getX());
-            minY = Math.min(minY, b.getMin().getY());
-            minZ = Math.min(minZ, b.getMin().getZ());
-            maxX = Math.max(maxX, b.getMax().getX());
-            maxY = Math.max(maxY, b.getMax().getY());
-            maxZ = Math.max(maxZ, b.getMax().getZ());
-        }
-        AABB globalBox = new AABB(new com.geometry.Point(minX, minY, minZ), new com.geometry.Point(maxX, maxY, maxZ));
+    AABB getBox() {
+        return box;
+    }
 
-        double extentX = maxX - minX;
-        double extentY = maxY - minY;
-        double extentZ = maxZ - minZ;
+    BVHNode getLeft() {
+        return left;
+    }
 
-        int axis;
-        if (extentX >= extentY && extentX >= extentZ) {
-            axis = 0;
-        } else if (extentY >= extentX && extentY >= extentZ) {
-            axis = 1;
-        } else {
-            axis = 2;
-        }
+    BVHNode getRight() {
+        return right;
+    }
 
-        // Sort by centroid along chosen axis
-        Comparator<Shape> cmp;
-        switch (axis) {
-            case 0:
-                cmp = Comparator.comparingDouble(s -> (s.getBoundingBox().getMin().getX() + s.getBoundingBox().getMax().getX()) * 0.5);
-                break;
-            case 1:
-                cmp = Comparator.comparingDouble(s -> (s.getBoundingBox().getMin().getY() + s.getBoundingBox().getMax().getY()) * 0.5);
-                break;
-            default:
-                cmp = Comparator.comparingDouble(s -> (s.getBoundingBox().getMin().getZ() + s.getBoundingBox().getMax().getZ()) * 0.5);
-        }
-        listSort(shapes, cmp);
+    int getFirstPrimitive() {
+        return firstPrimitive;
+    }
+
+    int getPrimitiveCount() {
+        return primitiveCount;
+    }
 
-        int mid = shapes.size() / 2;
-        List<Shape> leftList = shapes.subList(0, mid);
-        List<Shape> rightList = shapes.subList(mid, shapes.size());
+    /**
+     * Formes dans l'ordre des feuilles (null pour un arbre construit sur indices).
+     */
+    Shape[] getPrimitives() {
+        return primitives;
+    }
 
-        BVHNode leftNode = buildRecursive(new ArrayList<>(leftList));
-        BVHNode rightNode = buildRecursive(new ArrayList<>(rightList));
+    boolean isLeaf() {
+        return primitiveCount > 0;
+    }
+
+    /**
+     * Séparation des fils d'un noeud interne : les bits 0-1 donnent l'axe
+     * (0 à 2) sur lequel leurs centres sont le plus écartés, le bit 2 est
+     * levé si le fils gauche est du côté des coordonnées les plus grandes.
+     * Un rayon de direction négative sur cet axe rencontre alors le fils
+     * gauche en premier si le bit est levé, le droit sinon.
+     */
+    int getSplitCode() {
+        return splitCode;
+    }
 
-        return new BVHNode(globalBox, leftNode, rightNode, null);
+    /**
+     * @param code séparation d'un noeud interne ({@link #getSplitCode()})
+     * @param negative directions négatives du rayon : bit 0 pour x, 1 pour y, 2 pour z
+     * @return true si le fils droit est le plus proche le long du rayon
+     */
+    static boolean rightFirst(int code, int negative) {
+        return (((negative >> (code & 3)) ^ (code >> 2)) & 1) != 0;
     }
 
-    private static <T> void listSort(List<T> list, Comparator<? super T> c) {
-        list.sort(c);
+    /**
+     * @return les signes de la direction du rayon au format de {@link #rightFirst(int, int)}
+     */
+    static int negativeAxes(Ray ray) {
+        return (ray.getInvDirX() < 0.0 ? 1 : 0) | (ray.getInvDirY() < 0.0 ? 2 : 0) | (ray.getInvDirZ() < 0.0 ? 4 : 0);
     }
 
+    /**
+     * Permutation calculée par la construction : la position i des feuilles
+     * correspond à la primitive d'origine {@code order[i]}. Les feuilles
+     * occupent des plages contiguës de cette permutation, dans l'ordre préfixe.
+     */
+    public int[] getPrimitiveOrder() {
+        return order;
+    }
+
+    /**
+     * Intersection la plus proche dans le sous-arbre (arbre de formes uniquement).
+     */
     public Optional<Intersection> intersect(Ray ray, double currentClosest) {
-        if (!box.intersects(ray, currentClosest)) {
-            return Optional.empty();
+        HitRecord hit = new HitRecord();
+        if (intersect(ray, currentClosest, hit)) {
+            return Optional.of(hit.toIntersection(ray));
         }
-        if (leafShape != null) {
-            return leafShape.intersect(ray);
+        return Optional.empty();
+    }
+
+    /**
+     * Intersection la plus proche en deçà de tMax, écrite dans {@code out}.
+     * La borne se resserre à chaque forme touchée. Le fils le plus proche
+     * le long du rayon est visité d'abord : une intersection trouvée en
+     * lui écarte souvent le fils lointain dès le test de sa boite.
+     * @return true si {@code out} a été mis à jour
+     */
+    public boolean intersect(Ray ray, double tMax, HitRecord out) {
+        if (!box.intersects(ray, tMax)) {
+            return false;
         }
-        Intersection hitLeft = null;
-        Intersection hitRight = null;
-        double closest = currentClosest;
-
-        if (left != null) {
-            Optional<Intersection> l = left.intersect(ray, closest);
-            if (l.isPresent()) {
-                hitLeft = l.get();
-                closest = hitLeft.getT();
+        boolean found = false;
+        if (isLeaf()) {
+            for (int i = firstPrimitive; i < firstPrimitive + primitiveCount; i++) {
+                if (primitives[i].intersect(ray, tMax, out)) {
+                    tMax = out.getT();
+                    found = true;
+                }
             }
+            return found;
+        }
+        boolean rightFirst = left != null && right != null && rightFirst(splitCode, negativeAxes(ray));
+        BVHNode near = rightFirst ? right : left;
+        BVHNode far = rightFirst ? left : right;
+        if (near != null && near.intersect(ray, tMax, out)) {
+            tMax = out.getT();
+            found = true;
         }
-        if (right != null) {
-            Optional<Intersection> r = right.intersect(ray, closest);
-            if (r.isPresent()) {
-                hitRight = r.get();
-                if (hitRight.getT() < closest) {
-                    closest = hitRight.getT();
+        if (far != null && far.intersect(ray, tMax, out)) {
+            found = true;
+        }
+        return found;
+    }
+
+    /**
+     * Requête d'occultation : vrai dès qu'une forme coupe le rayon dans ]tMin, tMax[
+     * (arbre de formes uniquement).
+     */
+    public boolean isOccluded(Ray ray, double tMin, double tMax) {
+        if (!box.intersects(ray, tMax)) {
+            return false;
+        }
+        if (isLeaf()) {
+            HitRecord hit = new HitRecord();
+            for (int i = firstPrimitive; i < firstPrimitive + primitiveCount; i++) {
+                if (primitives[i].intersect(ray, tMax, hit) && hit.getT() > tMin) {
+                    return true;
                 }
             }
+            return false;
         }
-        if (hitLeft != null && hitRight != null) {
-            return Optional.of(hitLeft.getT() <= hitRight.getT() ? hitLeft : hitRight);
-        }
-        if (hitLeft != null) return Optional.of(hitLeft);
-        if (hitRight != null) return Optional.of(hitRight);
-        return Optional.empty();
+        return (left != null && left.isOccluded(ray, tMin, tMax))
+            || (right != null && right.isOccluded(ray, tMin, tMax));
     }
 }
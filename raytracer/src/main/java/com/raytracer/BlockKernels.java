@@ -0,0 +1,119 @@
+package com.raytracer;
+
+import com.geometry.Point;
+import com.geometry.Shape;
+import com.geometry.Triangle;
+import java.util.Arrays;
+
+/**
+ * Accès public aux noyaux d'intersection par blocs, pour les bancs d'essai.
+ * <p>
+ * Les noyaux ({@link IntersectionKernels}) et l'empaquetage des triangles
+ * ({@link TrianglePacks}) restent internes au paquetage : cette façade
+ * n'expose que ce qu'un banc mesure, un rayon contre un groupe de boites et
+ * contre un bloc de triangles empaquetés, avec les mêmes résultats que dans
+ * la BVH.
+ * </p>
+ *
+ * @author Projet Ray Tracer
+ * @version 1.0
+ * @see BVHBuilder#withVectorKernels(boolean)
+ */
+public final class BlockKernels {
+
+    /** Module de l'API Vector, à ajouter au lancement de la JVM. */
+    public static final String VECTOR_MODULE = IntersectionKernels.VECTOR_MODULE;
+
+    private static final BlockKernels SCALAR = new BlockKernels(IntersectionKernels.scalar());
+
+    private final IntersectionKernels kernels;
+
+    private BlockKernels(IntersectionKernels kernels) {
+        this.kernels = kernels;
+    }
+
+    /**
+     * @return les noyaux scalaires, de référence
+     */
+    public static BlockKernels scalar() {
+        return SCALAR;
+    }
+
+    /**
+     * @return les noyaux vectorisés, ou null si le module {@value #VECTOR_MODULE} est absent
+     */
+    public static BlockKernels vector() {
+        IntersectionKernels vector = IntersectionKernels.vector();
+        return vector != null ? new BlockKernels(vector) : null;
+    }
+
+    /**
+     * @return le nom du noyau et sa largeur de vecteur
+     */
+    public String getName() {
+        return kernels.getName();
+    }
+
+    /**
+     * Teste un rayon contre un groupe de boites.
+     * @param boxes boites rangées par composante : les {@code width} minX, puis
+     *        minY, minZ, maxX, maxY et maxZ
+     * @param width nombre de boites du groupe (au plus 32)
+     * @param tMax distance maximale
+     * @param tNear reçoit la distance d'entrée de chaque boite touchée
+     * @return le masque des boites touchées (bit i pour la boite i)
+     */
+    public int intersectBoxes(double[] boxes, int width, Ray ray, double tMax, double[] tNear) {
+        Point o = ray.getOrigin();
+        return kernels.intersectBoxes(boxes, 0, width, o.getX(), o.getY(), o.getZ(),
+            ray.getInvDirX(), ray.getInvDirY(), ray.getInvDirZ(), tMax, tNear);
+    }
+
+    /**
+     * Teste un rayon contre tous les triangles d'un bloc.
+     * @param distances reçoit la distance de chaque triangle, +infini s'il est manqué ;
+     *        au moins {@link Triangles#distanceCapacity()} valeurs
+     */
+    public void intersectTriangles(Triangles block, Ray ray, double[] distances) {
+        kernels.intersectTriangles(block.packs, 0, block.size, ray, distances);
+    }
+
+    /**
+     * Empaquette des triangles pour {@link #intersectTriangles(Triangles, Ray, double[])}.
+     * @param triangles triangles du bloc
+     * @param test test rayon-triangle
+     * @return le bloc empaqueté
+     */
+    public static Triangles pack(Triangle[] triangles, BVHBuilder.TriangleTest test) {
+        if (triangles == null || test == null) {
+            throw new IllegalArgumentException("Les triangles et le test ne peuvent pas être null");
+        }
+        int[] meshTriangles = new int[triangles.length];
+        Arrays.fill(meshTriangles, -1);
+        return new Triangles(new TrianglePacks(Arrays.copyOf(triangles, triangles.length, Shape[].class),
+            meshTriangles, test), triangles.length);
+    }
+
+    /** Bloc de triangles empaquetés en structure de tableaux. */
+    public static final class Triangles {
+        private final TrianglePacks packs;
+        private final int size;
+
+        private Triangles(TrianglePacks packs, int size) {
+            this.packs = packs;
+            this.size = size;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        /**
+         * @return la taille minimale du tableau des distances (les noyaux
+         *         lisent et écrivent au-delà du dernier triangle)
+         */
+        public int distanceCapacity() {
+            return size + TrianglePacks.PADDING;
+        }
+    }
+}
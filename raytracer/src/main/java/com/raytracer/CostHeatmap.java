@@ -0,0 +1,187 @@
+package com.raytracer;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Carte du coût de rendu de chaque pixel, en fausses couleurs.
+ * <p>
+ * Le {@link TileRenderer} relève, pour chaque pixel, l'écart d'une mesure
+ * avant et après son rendu : durée, noeuds de BVH visités, tests de
+ * primitives ou rayons lancés (ces trois dernières mesures lisent les
+ * compteurs {@link RayStats} du thread, qui doivent être actifs). Le pixel
+ * compte alors tous les rayons qui en partent : ombres et réflexions
+ * comprises.
+ * </p>
+ * <p>
+ * L'échelle va de 0 au 99e centile des coûts, pour qu'une poignée de
+ * pixels extrêmes n'écrase pas le reste de l'image : les pixels au-delà
+ * sont saturés (rouge). Les silhouettes rasantes d'un maillage ou les
+ * chaînes de réflexions ressortent ainsi d'un coup d'oeil.
+ * </p>
+ *
+ * @author Projet Ray Tracer
+ * @version 1.0
+ * @see TileRenderer#render(RayTracer, BufferedImage, java.util.function.IntConsumer, CostHeatmap)
+ */
+public class CostHeatmap {
+
+    /** Mesure du coût d'un pixel. */
+    public enum Metric {
+        TIME("nanosecondes", false),
+        NODES("noeuds visités", true),
+        TESTS("tests de primitives", true),
+        RAYS("rayons", true);
+
+        private final String label;
+        private final boolean usesCounters;
+
+        Metric(String label, boolean usesCounters) {
+            this.label = label;
+            this.usesCounters = usesCounters;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        /**
+         * @return true si la mesure lit les compteurs de {@link RayStats}
+         */
+        public boolean usesCounters() {
+            return usesCounters;
+        }
+
+        // Valeur cumulée de la mesure pour le thread courant
+        long sample(long[] counters) {
+            switch (this) {
+                case TIME:
+                    return System.nanoTime();
+                case NODES:
+                    return counters[RayStats.NODES_VISITED];
+                case TESTS:
+                    return counters[RayStats.TRIANGLE_TESTS] + counters[RayStats.Counter.SPHERE_TESTS.ordinal()]
+                        + counters[RayStats.Counter.PLANE_TESTS.ordinal()]
+                        + counters[RayStats.Counter.OTHER_TESTS.ordinal()];
+                default:
+                    return RayStats.rays(counters);
+            }
+        }
+    }
+
+    // Dégradé bleu nuit -> bleu -> vert -> jaune -> rouge
+    private static final int[][] PALETTE = {
+        {0, 0, 96}, {0, 128, 255}, {0, 220, 96}, {255, 220, 0}, {220, 0, 0}
+    };
+
+    private final int width;
+    private final int height;
+    private final Metric metric;
+    private final long[] costs;
+
+    public CostHeatmap(int width, int height, Metric metric) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Dimensions de la carte de coût invalides : " + width + "x" + height);
+        }
+        if (metric == null) {
+            throw new IllegalArgumentException("La mesure de la carte de coût ne peut pas être null");
+        }
+        this.width = width;
+        this.height = height;
+        this.metric = metric;
+        this.costs = new long[width * height];
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public Metric getMetric() {
+        return metric;
+    }
+
+    /**
+     * @return le coût du pixel (i, j), dans l'unité de la mesure
+     */
+    public long getCost(int i, int j) {
+        return costs[j * width + i];
+    }
+
+    void setCost(int i, int j, long cost) {
+        costs[j * width + i] = cost;
+    }
+
+    public long getMaxCost() {
+        long max = 0;
+        for (long c : costs) {
+            max = Math.max(max, c);
+        }
+        return max;
+    }
+
+    /**
+     * @return le coût correspondant au haut de l'échelle de couleurs (99e centile, au moins 1)
+     */
+    public long getScaleMax() {
+        long[] sorted = costs.clone();
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(0.99 * sorted.length) - 1;
+        return Math.max(1L, sorted[Math.max(0, index)]);
+    }
+
+    /**
+     * @return la carte en fausses couleurs, aux dimensions de l'image rendue
+     */
+    public BufferedImage toImage() {
+        double scale = getScaleMax();
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int j = 0; j < height; j++) {
+            for (int i = 0; i < width; i++) {
+                image.setRGB(i, j, color(Math.min(1.0, costs[j * width + i] / scale)));
+            }
+        }
+        return image;
+    }
+
+    /**
+     * @param t position dans l'échelle, entre 0 et 1
+     * @return la couleur RGB correspondante du dégradé
+     */
+    static int color(double t) {
+        double x = t * (PALETTE.length - 1);
+        int k = Math.min(PALETTE.length - 2, (int) x);
+        double f = x - k;
+        int rgb = 0;
+        for (int c = 0; c < 3; c++) {
+            int v = (int) Math.round(PALETTE[k][c] + f * (PALETTE[k + 1][c] - PALETTE[k][c]));
+            rgb = (rgb << 8) | v;
+        }
+        return rgb;
+    }
+
+    /**
+     * Écrit la carte en PNG.
+     */
+    public void writePng(String outputPath) throws IOException {
+        File outputFile = new File(outputPath);
+        File parentDir = outputFile.getParentFile();
+        if (parentDir != null && !parentDir.exists()) {
+            parentDir.mkdirs();
+        }
+        ImageIO.write(toImage(), "PNG", outputFile);
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "Carte de coût (%s) : échelle 0 - %d (99e centile), maximum %d",
+            metric.getLabel(), getScaleMax(), getMaxCost());
+    }
+}
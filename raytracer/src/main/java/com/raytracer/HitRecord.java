@@ -0,0 +1,72 @@
+package com.raytracer;
+import com.geometry.Shape;
+
+/**
+ * Enregistrement mutable de l'intersection la plus proche trouvée.
+ * <p>
+ * Alternative sans allocation à {@link Intersection} pendant le parcours :
+ * les formes n'y écrivent que l'objet touché, la distance t et l'indice du
+ * triangle (maillages). Le point d'intersection n'est calculé qu'une fois,
+ * pour le résultat final, par {@link #toIntersection(Ray)}.
+ * </p>
+ * <p>
+ * Un enregistrement n'est pas partagé entre threads : chaque thread de rendu
+ * utilise le sien.
+ * </p>
+ *
+ * @author Projet Ray Tracer
+ * @version 1.0
+ * @see Shape#intersect(Ray, double, HitRecord)
+ */
+public class HitRecord {
+    private Shape shape;
+    private double t;
+    private int primitiveIndex;
+
+    public HitRecord() {
+        reset();
+    }
+
+    /**
+     * Vide l'enregistrement (aucune intersection, t infini).
+     */
+    public void reset() {
+        shape = null;
+        t = Double.POSITIVE_INFINITY;
+        primitiveIndex = -1;
+    }
+
+    public void set(Shape shape, double t, int primitiveIndex) {
+        this.shape = shape;
+        this.t = t;
+        this.primitiveIndex = primitiveIndex;
+    }
+
+    public boolean isHit() {
+        return shape != null;
+    }
+
+    public Shape getShape() {
+        return shape;
+    }
+
+    public double getT() {
+        return t;
+    }
+
+    public int getPrimitiveIndex() {
+        return primitiveIndex;
+    }
+
+    /**
+     * Matérialise l'intersection enregistrée (calcul du point).
+     * @param ray le rayon ayant produit l'intersection
+     * @return l'intersection, ou null si l'enregistrement est vide
+     */
+    public Intersection toIntersection(Ray ray) {
+        if (shape == null) {
+            return null;
+        }
+        return new Intersection(shape, t, ray.getPointAtParameter(t), primitiveIndex);
+    }
+}
@@ -0,0 +1,37 @@
+package com.raytracer;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Événement Java Flight Recorder : encodage et écriture de l'image rendue.
+ *
+ * @author Projet Ray Tracer
+ * @version 1.0
+ * @see Main
+ */
+@Name("com.raytracer.ImageWrite")
+@Label("Écriture de l'image")
+@Category("Ray Tracer")
+@StackTrace(false)
+final class ImageWriteEvent extends Event {
+    @Label("Fichier")
+    String path;
+
+    @Label("Format")
+    String format;
+
+    @Label("Largeur")
+    int width;
+
+    @Label("Hauteur")
+    int height;
+
+    @Label("Taille du fichier")
+    @DataAmount
+    long bytes;
+}
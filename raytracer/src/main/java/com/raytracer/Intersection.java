@@ -6,7 +6,8 @@ import com.geometry.Shape;
  * Résultat d'une intersection rayon-objet.
  * <p>
  * Contient l'objet touché, le paramètre t (distance le long du rayon)
- * et le point d'intersection dans l'espace 3D.
+ * et le point d'intersection dans l'espace 3D. Pour un maillage, l'indice
+ * du triangle touché est également conservé.
  * </p>
  * 
  * @author Projet Ray Tracer
@@ -16,11 +17,17 @@ public class Intersection {
     private final Shape shape;    // objet touché
     private final double t;        // dist depuis l'origine du rayon
     private final Point point;     // point d'intersection
+    private final int primitiveIndex; // triangle touché dans un maillage, -1 sinon
     
     public Intersection(Shape shape, double t, Point point) {
+        this(shape, t, point, -1);
+    }
+
+    public Intersection(Shape shape, double t, Point point, int primitiveIndex) {
         this.shape = shape;
         this.t = t;
         this.point = point;
+        this.primitiveIndex = primitiveIndex;
     }
     
     public Shape getShape() {
@@ -34,4 +41,8 @@ public class Intersection {
     public Point getPoint() {
         return point;
     }
-}
\ No newline at end of file
+
+    public int getPrimitiveIndex() {
+        return primitiveIndex;
+    }
+}
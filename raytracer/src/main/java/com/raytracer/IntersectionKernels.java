@@ -0,0 +1,176 @@
+package com.raytracer;
+
+/**
+ * Noyaux d'intersection par blocs : un rayon contre plusieurs boites, ou
+ * contre les triangles contigus d'une feuille, en une seule étape.
+ * <p>
+ * Deux implémentations : {@link #scalar()}, toujours disponible, et
+ * {@link #vector()}, vectorisée avec l'API Vector de Java
+ * ({@code jdk.incubator.vector}). Ce module incubateur n'est chargé que si
+ * la JVM est lancée avec {@code --add-modules jdk.incubator.vector} ; la
+ * classe vectorisée est alors instanciée par réflexion, de sorte que son
+ * absence ne fait que désactiver les noyaux vectoriels.
+ * </p>
+ * <p>
+ * Les deux implémentations calculent, voie par voie, les mêmes opérations
+ * IEEE dans le même ordre (sans FMA) que les tests scalaires de la
+ * {@link LinearBVH} et de {@link TrianglePacks} : leurs résultats sont
+ * identiques au bit près, et l'image rendue ne dépend pas du noyau.
+ * </p>
+ * <p>
+ * Disposition d'un groupe de {@code width} boites à partir de
+ * {@code offset} : les {@code width} valeurs de minX, puis celles de minY,
+ * minZ, maxX, maxY et maxZ. Une voie inutilisée contient une boite vide
+ * (min à +infini, max à -infini), qu'aucun rayon ne touche.
+ * </p>
+ *
+ * @author Projet Ray Tracer
+ * @version 1.0
+ * @see BVHBuilder#withVectorKernels(boolean)
+ */
+abstract class IntersectionKernels {
+
+    /** Module de l'API Vector, à ajouter au lancement de la JVM. */
+    static final String VECTOR_MODULE = "jdk.incubator.vector";
+
+    private static final IntersectionKernels SCALAR = new ScalarKernels();
+
+    // Chargée au premier appel de vector() seulement
+    private static final class VectorHolder {
+        static final IntersectionKernels INSTANCE = loadVector();
+    }
+
+    private static IntersectionKernels loadVector() {
+        if (ModuleLayer.boot().findModule(VECTOR_MODULE).isEmpty()) {
+            return null;
+        }
+        try {
+            return (IntersectionKernels) Class.forName("com.raytracer.VectorKernels")
+                .getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return les noyaux scalaires, de référence
+     */
+    static IntersectionKernels scalar() {
+        return SCALAR;
+    }
+
+    /**
+     * @return les noyaux vectorisés, ou null si le module {@value #VECTOR_MODULE} est absent
+     */
+    static IntersectionKernels vector() {
+        return VectorHolder.INSTANCE;
+    }
+
+    /**
+     * @return le nom du noyau et sa largeur de vecteur
+     */
+    abstract String getName();
+
+    /**
+     * Teste un rayon contre un groupe de boites (méthode des slabs, mêmes
+     * opérations que le parcours de la {@link LinearBVH}).
+     * @param boxes boites rangées par composante (voir la description de la classe)
+     * @param offset indice de la première valeur du groupe
+     * @param width nombre de boites du groupe (au plus 32)
+     * @param tMax distance maximale
+     * @param tNear reçoit, pour chaque boite touchée, la distance d'entrée dans la boite
+     *        (les autres places sont quelconques)
+     * @return le masque des boites touchées (bit {@code k} pour la boite {@code k})
+     */
+    abstract int intersectBoxes(double[] boxes, int offset, int width,
+                                double ox, double oy, double oz,
+                                double idx, double idy, double idz, double tMax, double[] tNear);
+
+    /**
+     * Teste un rayon contre les triangles empaquetés d'indices [from, to[.
+     * @param t reçoit en {@code t[k - from]} la distance du triangle {@code k},
+     *        ou Double.POSITIVE_INFINITY s'il n'est pas touché ; les
+     *        {@link TrianglePacks#PADDING} places suivantes peuvent être écrasées
+     */
+    abstract void intersectTriangles(TrianglePacks packs, int from, int to, Ray ray, double[] t);
+
+    @Override
+    public String toString() {
+        return getName();
+    }
+
+    /**
+     * Implémentation de référence : les tests scalaires, boite par boite et
+     * triangle par triangle.
+     */
+    private static final class ScalarKernels extends IntersectionKernels {
+
+        @Override
+        String getName() {
+            return "scalaire";
+        }
+
+        @Override
+        int intersectBoxes(double[] boxes, int offset, int width, double ox, double oy, double oz,
+                           double idx, double idy, double idz, double tMax, double[] tNear) {
+            int mask = 0;
+            for (int k = 0; k < width; k++) {
+                int o = offset + k;
+                double near = 0.0;
+                double far = tMax;
+
+                double t0 = (boxes[o] - ox) * idx;
+                double t1 = (boxes[o + 3 * width] - ox) * idx;
+                if (idx < 0.0) {
+                    double tmp = t0;
+                    t0 = t1;
+                    t1 = tmp;
+                }
+                t1 *= LinearBVH.SLAB_PADDING;
+                near = t0 > near ? t0 : near;
+                far = t1 < far ? t1 : far;
+                if (far < near) {
+                    continue;
+                }
+
+                t0 = (boxes[o + width] - oy) * idy;
+                t1 = (boxes[o + 4 * width] - oy) * idy;
+                if (idy < 0.0) {
+                    double tmp = t0;
+                    t0 = t1;
+                    t1 = tmp;
+                }
+                t1 *= LinearBVH.SLAB_PADDING;
+                near = t0 > near ? t0 : near;
+                far = t1 < far ? t1 : far;
+                if (far < near) {
+                    continue;
+                }
+
+                t0 = (boxes[o + 2 * width] - oz) * idz;
+                t1 = (boxes[o + 5 * width] - oz) * idz;
+                if (idz < 0.0) {
+                    double tmp = t0;
+                    t0 = t1;
+                    t1 = tmp;
+                }
+                t1 *= LinearBVH.SLAB_PADDING;
+                near = t0 > near ? t0 : near;
+                far = t1 < far ? t1 : far;
+
+                if (near <= far) {
+                    tNear[k] = near;
+                    mask |= 1 << k;
+                }
+            }
+            return mask;
+        }
+
+        @Override
+        void intersectTriangles(TrianglePacks packs, int from, int to, Ray ray, double[] t) {
+            for (int i = from; i < to; i++) {
+                t[i - from] = packs.intersect(i, ray);
+            }
+        }
+    }
+}
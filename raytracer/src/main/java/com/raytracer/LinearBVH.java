@@ -0,0 +1,943 @@
+package com.raytracer;
+
+import com.geometry.Shape;
+import com.geometry.TriangleMesh;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * BVH aplatie en tableaux de types primitifs.
+ * <p>
+ * Les noeuds sont rangés en ordre préfixe (profondeur d'abord) : le fils
+ * gauche d'un noeud interne est toujours le noeud suivant, seul l'indice du
+ * fils droit est stocké. Les boites sont conservées dans un {@code float[]}
+ * (6 valeurs par noeud, arrondies vers l'extérieur pour rester
+ * conservatives), ce qui tient un noeud dans une demi-ligne de cache au lieu
+ * d'un graphe d'objets {@link BVHNode}/{@link AABB}/{@code Point}.
+ * </p>
+ * <p>
+ * Le parcours est itératif, avec une pile d'indices propre à chaque thread :
+ * la boucle de traversée n'alloue rien. Chaque noeud interne retient l'axe
+ * qui sépare le mieux ses fils ({@link BVHNode#getSplitCode()}) : la
+ * recherche du plus proche descend d'abord dans le fils situé du côté d'où
+ * vient le rayon, et le fils lointain, dépilé plus tard, est écarté par le
+ * test de sa boite dès que son entrée dépasse la meilleure distance.
+ * </p>
+ * <p>
+ * Une feuille désigne une plage contiguë de primitives. Les sommets des
+ * triangles sont recopiés en structure de tableaux (SoA), dans l'ordre des
+ * feuilles : le test d'une feuille est une boucle serrée de Möller-Trumbore
+ * sur des {@code double[]}, sans appel virtuel ni allocation ; seule
+ * l'intersection retenue est écrite dans le {@link HitRecord}.
+ * </p>
+ * <p>
+ * Les {@link TriangleMesh maillages} sont éclatés : chacun de leurs
+ * triangles est une primitive de la BVH, repérée par le maillage et
+ * l'indice du triangle, sans objet intermédiaire.
+ * </p>
+ * <p>
+ * Avec un facteur de branchement de 4 ou 8
+ * ({@link BVHBuilder#withBranchingFactor(int)}), l'arbre binaire est en
+ * outre replié en une BVH large ({@link WideNodes}) : chaque noeud teste
+ * ses fils d'un bloc et les visite du plus proche au plus lointain. Le
+ * parcours compte alors bien moins d'étapes pour les rayons isolés.
+ * </p>
+ *
+ * @author Projet Ray Tracer
+ * @version 1.0
+ * @see BVHNode
+ */
+public class LinearBVH {
+    private final float[] bounds;      // minX, minY, minZ, maxX, maxY, maxZ par noeud
+    private final int[] nodes;         // 2 entiers par noeud, voir ci-dessous
+    private final Shape[] primitives;  // primitives dans l'ordre des feuilles
+    private final int[] meshTriangles; // indice du triangle dans son maillage, -1 pour une forme simple
+    private final TrianglePacks triangles;
+    private final IntersectionKernels kernels; // null : boucle scalaire sur chaque primitive
+    private final ThreadLocal<Traversal> traversals;
+    private final int nodeCount;
+    private final int stackSize;
+    private final ThreadLocal<int[]> stacks;
+    private final ThreadLocal<long[]> maskStacks; // masques des rayons actifs, parcours par paquets
+    private final WideNodes wide;                 // null : parcours de l'arbre binaire
+    private final IntersectionKernels boxKernels; // tests des boites des noeuds larges
+    private final ThreadLocal<double[]> nearStacks; // distances d'entrée des fils empilés, parcours large
+    private final ThreadLocal<double[]> childNear;  // distances d'entrée des fils du noeud large courant
+    private final BVHBuildStats buildStats;
+    private final boolean loadedFromCache;
+
+    /*
+     * nodes[2n]     : indice du fils droit (noeud interne) ou de la première primitive (feuille)
+     * nodes[2n + 1] : nombre de primitives de la feuille, ou ~code pour un noeud interne,
+     *                 code étant la séparation des fils (BVHNode.getSplitCode(), 0 à 7)
+     */
+
+    private LinearBVH(float[] bounds, int[] nodes, int maxDepth, Shape[] primitives, int[] meshTriangles,
+                      BVHBuilder.TriangleTest triangleTest, IntersectionKernels kernels, int branchingFactor,
+                      BVHBuildStats buildStats, boolean loadedFromCache) {
+        this.bounds = bounds;
+        this.nodes = nodes;
+        this.primitives = primitives;
+        this.meshTriangles = meshTriangles;
+        this.triangles = new TrianglePacks(primitives, meshTriangles, triangleTest);
+        this.kernels = kernels;
+        int maxLeaf = 1;
+        for (int n = 1; n < nodes.length; n += 2) {
+            maxLeaf = Math.max(maxLeaf, nodes[n]);
+        }
+        int leafCapacity = maxLeaf + TrianglePacks.PADDING;
+        this.traversals = ThreadLocal.withInitial(() -> new Traversal(leafCapacity));
+        this.nodeCount = nodes.length / 2;
+        this.wide = branchingFactor > 2 ? new WideNodes(bounds, nodes, branchingFactor) : null;
+        this.boxKernels = kernels != null ? kernels : IntersectionKernels.scalar();
+        this.stackSize = wide != null ? Math.max(maxDepth + 1, wide.stackSize()) : maxDepth + 1;
+        this.stacks = ThreadLocal.withInitial(() -> new int[stackSize]);
+        this.maskStacks = ThreadLocal.withInitial(() -> new long[stackSize]);
+        this.nearStacks = ThreadLocal.withInitial(() -> new double[stackSize]);
+        this.childNear = ThreadLocal.withInitial(() -> new double[branchingFactor]);
+        this.buildStats = buildStats;
+        this.loadedFromCache = loadedFromCache;
+    }
+
+    /**
+     * Aplatit un arbre de formes construit par {@link BVHBuilder#build(List)}.
+     * Les maillages y restent des primitives uniques.
+     * @param root racine de l'arbre (null accepté : BVH vide)
+     * @return la BVH linéaire, ou null si l'arbre est vide
+     */
+    public static LinearBVH flatten(BVHNode root) {
+        if (root == null) {
+            return null;
+        }
+        Flattener f = new Flattener(countNodes(root));
+        f.emit(root, 1);
+        Shape[] primitives = root.getPrimitives().clone();
+        int[] meshTriangles = new int[primitives.length];
+        Arrays.fill(meshTriangles, -1);
+        return new LinearBVH(f.bounds, f.nodes, f.maxDepth, primitives, meshTriangles,
+            BVHBuilder.TriangleTest.MOLLER_TRUMBORE, null, 2, null, false);
+    }
+
+    /**
+     * Construit la BVH de la scène : les formes bornées sont des primitives,
+     * les maillages sont éclatés en autant de primitives que de triangles.
+     * @param shapes formes bornées de la scène
+     * @param builder stratégie de construction
+     * @return la BVH linéaire, ou null si la liste est vide
+     */
+    public static LinearBVH build(List<Shape> shapes, BVHBuilder builder) {
+        return build(shapes, builder, null);
+    }
+
+    /**
+     * Construit la BVH de la scène, ou la relit depuis le cache si la même
+     * géométrie a déjà été construite avec les mêmes paramètres.
+     * @param shapes formes bornées de la scène
+     * @param builder stratégie de construction
+     * @param cache cache disque (null : construction systématique)
+     * @return la BVH linéaire, ou null si la liste est vide
+     */
+    public static LinearBVH build(List<Shape> shapes, BVHBuilder builder, BVHCache cache) {
+        BVHBuildEvent event = new BVHBuildEvent();
+        event.begin();
+        long start = System.nanoTime();
+        int count = 0;
+        for (Shape shape : shapes) {
+            count += shape instanceof TriangleMesh ? ((TriangleMesh) shape).getTriangleCount() : 1;
+        }
+        if (count == 0) {
+            return null;
+        }
+
+        // Références (forme, triangle) et boites de toutes les primitives
+        Shape[] owners = new Shape[count];
+        int[] tris = new int[count];
+        double[] primBounds = new double[count * 6];
+        int p = 0;
+        for (Shape shape : shapes) {
+            if (shape instanceof TriangleMesh) {
+                TriangleMesh mesh = (TriangleMesh) shape;
+                for (int tri = 0; tri < mesh.getTriangleCount(); tri++, p++) {
+                    owners[p] = mesh;
+                    tris[p] = tri;
+                    mesh.getTriangleBounds(tri, primBounds, p * 6);
+                }
+            } else {
+                owners[p] = shape;
+                tris[p] = -1;
+                BVHBuilder.storeBounds(shape.getBoundingBox(), primBounds, p * 6);
+                p++;
+            }
+        }
+
+        byte[] key = null;
+        if (cache != null) {
+            key = BVHCache.key(primBounds, count, builder);
+            BVHCache.Entry entry = cache.load(key, count);
+            if (entry != null) {
+                Shape[] primitives = new Shape[count];
+                int[] meshTriangles = new int[count];
+                reorder(entry.order, owners, tris, primitives, meshTriangles);
+                long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+                BVHBuildStats stats = new BVHBuildStats(builder.getStrategy(), count, entry.bounds.length / 6,
+                    entry.getLeafCount(), entry.maxDepth, entry.sahCost, elapsedMillis);
+                event.commit(stats, true);
+                return new LinearBVH(entry.bounds, entry.nodes, entry.maxDepth, primitives, meshTriangles,
+                    builder.getTriangleTest(), kernels(builder), builder.getBranchingFactor(), stats, true);
+            }
+        }
+
+        BVHNode root = builder.build(primBounds, count);
+        int[] order = root.getPrimitiveOrder();
+        Shape[] primitives = new Shape[count];
+        int[] meshTriangles = new int[count];
+        reorder(order, owners, tris, primitives, meshTriangles);
+        Flattener f = new Flattener(countNodes(root));
+        f.emit(root, 1);
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        BVHBuildStats stats = BVHBuildStats.collect(root, builder, elapsedMillis);
+        if (cache != null) {
+            cache.store(key, new BVHCache.Entry(f.bounds, f.nodes, order, f.maxDepth, stats.getSahCost()));
+        }
+        event.commit(stats, false);
+        return new LinearBVH(f.bounds, f.nodes, f.maxDepth, primitives, meshTriangles,
+            builder.getTriangleTest(), kernels(builder), builder.getBranchingFactor(), stats, false);
+    }
+
+    // Noyaux vectoriels si demandés et disponibles, sinon boucle scalaire
+    private static IntersectionKernels kernels(BVHBuilder builder) {
+        return builder.isVectorKernels() ? IntersectionKernels.vector() : null;
+    }
+
+    private static void reorder(int[] order, Shape[] owners, int[] tris, Shape[] primitives, int[] meshTriangles) {
+        for (int i = 0; i < order.length; i++) {
+            primitives[i] = owners[order[i]];
+            meshTriangles[i] = tris[order[i]];
+        }
+    }
+
+    private static int countNodes(BVHNode node) {
+        if (node.isLeaf()) {
+            return 1;
+        }
+        return 1 + countNodes(node.getLeft()) + countNodes(node.getRight());
+    }
+
+    /** Rangement préfixe des noeuds dans les tableaux. */
+    private static final class Flattener {
+        final float[] bounds;
+        final int[] nodes;
+        int next;
+        int maxDepth;
+
+        Flattener(int count) {
+            this.bounds = new float[count * 6];
+            this.nodes = new int[count * 2];
+        }
+
+        void emit(BVHNode node, int depth) {
+            int index = next++;
+            maxDepth = Math.max(maxDepth, depth);
+            storeBox(bounds, index, node.getBox());
+            if (node.isLeaf()) {
+                // Les feuilles couvrent déjà des plages contiguës de l'ordre des primitives
+                nodes[index * 2] = node.getFirstPrimitive();
+                nodes[index * 2 + 1] = node.getPrimitiveCount();
+                return;
+            }
+            nodes[index * 2 + 1] = ~node.getSplitCode();
+            emit(node.getLeft(), depth + 1);   // le fils gauche suit immédiatement
+            nodes[index * 2] = next;           // le fils droit commence ici
+            emit(node.getRight(), depth + 1);
+        }
+    }
+
+    private static void storeBox(float[] bounds, int index, AABB box) {
+        int o = index * 6;
+        bounds[o] = roundDown(box.getMin().getX());
+        bounds[o + 1] = roundDown(box.getMin().getY());
+        bounds[o + 2] = roundDown(box.getMin().getZ());
+        bounds[o + 3] = roundUp(box.getMax().getX());
+        bounds[o + 4] = roundUp(box.getMax().getY());
+        bounds[o + 5] = roundUp(box.getMax().getZ());
+    }
+
+    static final double SLAB_PADDING = 1.0 + 2.0 * gamma(3);
+
+    // Borne de l'erreur relative de n opérations flottantes en double
+    private static double gamma(int n) {
+        double eps = Math.ulp(1.0) * 0.5;
+        return n * eps / (1.0 - n * eps);
+    }
+
+    // Arrondis dirigés : la boite float contient toujours la boite double
+    static float roundDown(double v) {
+        float f = (float) v;
+        return f > v ? Math.nextDown(f) : f;
+    }
+
+    static float roundUp(double v) {
+        float f = (float) v;
+        return f < v ? Math.nextUp(f) : f;
+    }
+
+    /**
+     * @return le nombre de noeuds de l'arbre binaire (avant repliement en BVH large)
+     */
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * @return le nombre maximal de fils des noeuds parcourus : 2, 4 ou 8
+     * @see BVHBuilder#withBranchingFactor(int)
+     */
+    public int getBranchingFactor() {
+        return wide != null ? wide.width : 2;
+    }
+
+    /**
+     * @return le nombre de noeuds de la BVH large, ou 0 si l'arbre binaire est parcouru
+     */
+    public int getWideNodeCount() {
+        return wide != null ? wide.nodeCount : 0;
+    }
+
+    public int getPrimitiveCount() {
+        return primitives.length;
+    }
+
+    /**
+     * @return le bilan de construction, ou null pour une BVH issue de {@link #flatten(BVHNode)}
+     */
+    public BVHBuildStats getBuildStats() {
+        return buildStats;
+    }
+
+    /**
+     * @return true si les noeuds ont été relus depuis un {@link BVHCache} plutôt que construits
+     */
+    public boolean isLoadedFromCache() {
+        return loadedFromCache;
+    }
+
+    /**
+     * @return true si les feuilles de triangles sont testées par les noyaux vectoriels
+     * @see BVHBuilder#withVectorKernels(boolean)
+     */
+    public boolean isVectorized() {
+        return kernels != null;
+    }
+
+    /**
+     * Mémoire occupée par la structure (noeuds, noeuds larges, références de
+     * primitives et paquets de triangles), en octets, hors formes et maillages eux-mêmes.
+     */
+    public long getMemoryFootprint() {
+        long n = primitives.length;
+        return 16L + bounds.length * 4L
+            + 16L + nodes.length * 4L
+            + 16L + n * 4L   // références compressées
+            + 16L + n * 4L   // indices de triangles
+            + triangles.getMemoryFootprint()
+            + (wide != null ? wide.getMemoryFootprint() : 0L);
+    }
+
+    /**
+     * Test rayon / boite du noeud par la méthode des slabs, sur l'intervalle [0, tMax].
+     * Les comparaisons explicites ignorent les NaN (rayon parallèle à un plan de la boite).
+     * La sortie de chaque slab est élargie de l'erreur d'arrondi du calcul
+     * (2 gamma(3), cf. PBRT) : un rayon rasant la face commune de deux boites
+     * voisines ne peut pas les manquer toutes les deux, ce qui préserve
+     * l'étanchéité du test {@link BVHBuilder.TriangleTest#WATERTIGHT}.
+     */
+    private boolean hitsBox(int node, double ox, double oy, double oz,
+                            double idx, double idy, double idz, double tMax) {
+        int o = node * 6;
+        double tNear = 0.0;
+        double tFar = tMax;
+
+        double t0 = (bounds[o] - ox) * idx;
+        double t1 = (bounds[o + 3] - ox) * idx;
+        if (idx < 0.0) {
+            double tmp = t0;
+            t0 = t1;
+            t1 = tmp;
+        }
+        t1 *= SLAB_PADDING;
+        tNear = t0 > tNear ? t0 : tNear;
+        tFar = t1 < tFar ? t1 : tFar;
+        if (tFar < tNear) {
+            return false;
+        }
+
+        t0 = (bounds[o + 1] - oy) * idy;
+        t1 = (bounds[o + 4] - oy) * idy;
+        if (idy < 0.0) {
+            double tmp = t0;
+            t0 = t1;
+            t1 = tmp;
+        }
+        t1 *= SLAB_PADDING;
+        tNear = t0 > tNear ? t0 : tNear;
+        tFar = t1 < tFar ? t1 : tFar;
+        if (tFar < tNear) {
+            return false;
+        }
+
+        t0 = (bounds[o + 2] - oz) * idz;
+        t1 = (bounds[o + 5] - oz) * idz;
+        if (idz < 0.0) {
+            double tmp = t0;
+            t0 = t1;
+            t1 = tmp;
+        }
+        t1 *= SLAB_PADDING;
+        tNear = t0 > tNear ? t0 : tNear;
+        tFar = t1 < tFar ? t1 : tFar;
+        return tNear <= tFar;
+    }
+
+    // Résultats du test d'intervalle d'un paquet
+    private static final int PACKET_MISS = 0;
+    private static final int PACKET_PARTIAL = 1;
+    private static final int PACKET_HIT = 2;
+
+    /**
+     * Test d'intervalle d'un paquet cohérent contre la boite du noeud. Sur
+     * chaque axe, les entrées et sorties de slab de tous les rayons sont
+     * encadrées par les produits avec les inverses extrêmes, qui sont
+     * exactement ceux des rayons extrêmes (l'arrondi est monotone).
+     * @param tMin minorant des distances retenues par les rayons du paquet
+     * @return {@code PACKET_MISS} si {@link #hitsBox} échoue pour chaque rayon,
+     *         {@code PACKET_HIT} s'il réussit pour chacun, {@code PACKET_PARTIAL} sinon
+     */
+    private int packetHitsBox(int node, RayPacket p, double tMin) {
+        int o = node * 6;
+        double nearLo = 0.0;
+        double nearHi = 0.0;
+        double farLo = tMin;
+        double farHi = Double.POSITIVE_INFINITY;
+
+        double near = (p.idxLo > 0.0 ? bounds[o] : bounds[o + 3]) - p.ox;
+        double far = (p.idxLo > 0.0 ? bounds[o + 3] : bounds[o]) - p.ox;
+        double a = near * p.idxLo;
+        double b = near * p.idxHi;
+        nearLo = Math.max(nearLo, Math.min(a, b));
+        nearHi = Math.max(nearHi, Math.max(a, b));
+        a = far * p.idxLo;
+        b = far * p.idxHi;
+        farLo = Math.min(farLo, Math.min(a, b) * SLAB_PADDING);
+        farHi = Math.min(farHi, Math.max(a, b) * SLAB_PADDING);
+
+        near = (p.idyLo > 0.0 ? bounds[o + 1] : bounds[o + 4]) - p.oy;
+        far = (p.idyLo > 0.0 ? bounds[o + 4] : bounds[o + 1]) - p.oy;
+        a = near * p.idyLo;
+        b = near * p.idyHi;
+        nearLo = Math.max(nearLo, Math.min(a, b));
+        nearHi = Math.max(nearHi, Math.max(a, b));
+        a = far * p.idyLo;
+        b = far * p.idyHi;
+        farLo = Math.min(farLo, Math.min(a, b) * SLAB_PADDING);
+        farHi = Math.min(farHi, Math.max(a, b) * SLAB_PADDING);
+
+        near = (p.idzLo > 0.0 ? bounds[o + 2] : bounds[o + 5]) - p.oz;
+        far = (p.idzLo > 0.0 ? bounds[o + 5] : bounds[o + 2]) - p.oz;
+        a = near * p.idzLo;
+        b = near * p.idzHi;
+        nearLo = Math.max(nearLo, Math.min(a, b));
+        nearHi = Math.max(nearHi, Math.max(a, b));
+        a = far * p.idzLo;
+        b = far * p.idzHi;
+        farLo = Math.min(farLo, Math.min(a, b) * SLAB_PADDING);
+        farHi = Math.min(farHi, Math.max(a, b) * SLAB_PADDING);
+
+        if (nearLo > farHi) {
+            return PACKET_MISS;
+        }
+        return nearHi <= farLo ? PACKET_HIT : PACKET_PARTIAL;
+    }
+
+    /**
+     * Intersection la plus proche le long du rayon.
+     * @param ray le rayon
+     * @param tMax distance maximale (Double.POSITIVE_INFINITY si aucune)
+     * @return l'intersection la plus proche, ou empty si aucune
+     */
+    public Optional<Intersection> intersect(Ray ray, double tMax) {
+        HitRecord hit = new HitRecord();
+        if (intersect(ray, tMax, hit)) {
+            return Optional.of(hit.toIntersection(ray));
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Intersection la plus proche en deçà de tMax, écrite dans {@code out}
+     * sans allocation.
+     * @param ray le rayon
+     * @param tMax distance maximale (exclue)
+     * @param out enregistrement mis à jour si une primitive est touchée
+     * @return true si {@code out} a été mis à jour
+     */
+    public boolean intersect(Ray ray, double tMax, HitRecord out) {
+        return intersect(ray, tMax, out, null);
+    }
+
+    /**
+     * Comme {@link #intersect(Ray, double, HitRecord)}, en comptant les
+     * tests de boite, les noeuds visités et les tests de primitives.
+     * @param counters compteurs du thread courant ({@link RayStats#local()}), ou null
+     */
+    boolean intersect(Ray ray, double tMax, HitRecord out, long[] counters) {
+        if (wide != null) {
+            return intersectWide(ray, tMax, out, counters);
+        }
+        double ox = ray.getOrigin().getX();
+        double oy = ray.getOrigin().getY();
+        double oz = ray.getOrigin().getZ();
+        double idx = ray.getInvDirX();
+        double idy = ray.getInvDirY();
+        double idz = ray.getInvDirZ();
+
+        int[] stack = stacks.get();
+        Traversal closest = traversals.get().start(tMax);
+        int sp = 0;
+        int node = 0;
+        int negative = BVHNode.negativeAxes(ray);
+
+        while (true) {
+            boolean hit = hitsBox(node, ox, oy, oz, idx, idy, idz, closest.tBest);
+            countStep(counters, 1, hit ? 1 : 0);
+            if (hit) {
+                int count = nodes[node * 2 + 1];
+                if (count < 0) {
+                    // Le fils proche d'abord ; le lointain sera retesté avec la distance retenue
+                    if (BVHNode.rightFirst(~count, negative)) {
+                        stack[sp++] = node + 1;
+                        node = nodes[node * 2];
+                    } else {
+                        stack[sp++] = nodes[node * 2];
+                        node++;
+                    }
+                    continue;
+                }
+                intersectLeaf(nodes[node * 2], count, ray, closest, out, counters);
+            }
+            if (sp == 0) {
+                break;
+            }
+            node = stack[--sp];
+        }
+        return finish(closest, out);
+    }
+
+    /**
+     * Parcours de la BVH large, le plus proche d'abord : les fils touchés
+     * d'un noeud, testés d'un bloc, sont empilés par distance d'entrée
+     * décroissante, si bien que le plus proche est dépilé en premier. Un fils
+     * dépilé dont l'entrée est au-delà de la meilleure distance trouvée
+     * depuis son empilement est écarté sans nouveau test : c'est le résultat
+     * qu'aurait donné le test de sa boite avec cette distance.
+     */
+    private boolean intersectWide(Ray ray, double tMax, HitRecord out, long[] counters) {
+        double ox = ray.getOrigin().getX();
+        double oy = ray.getOrigin().getY();
+        double oz = ray.getOrigin().getZ();
+        double idx = ray.getInvDirX();
+        double idy = ray.getInvDirY();
+        double idz = ray.getInvDirZ();
+        int width = wide.width;
+
+        int[] stack = stacks.get();
+        double[] nearStack = nearStacks.get();
+        double[] near = childNear.get();
+        Traversal closest = traversals.get().start(tMax);
+        int sp = 0;
+        int node = 0;
+
+        while (node >= 0) {
+            countStep(counters, wide.childCounts[node], 1);
+            int mask = boxKernels.intersectBoxes(wide.boxes, node * 6 * width, width,
+                ox, oy, oz, idx, idy, idz, closest.tBest, near);
+            // Tri par insertion au sommet de la pile : le fils le plus proche en haut
+            int base = sp;
+            for (; mask != 0; mask &= mask - 1) {
+                int lane = Integer.numberOfTrailingZeros(mask);
+                double d = near[lane];
+                int j = sp++;
+                while (j > base && nearStack[j - 1] < d) {
+                    stack[j] = stack[j - 1];
+                    nearStack[j] = nearStack[j - 1];
+                    j--;
+                }
+                stack[j] = node * width + lane;
+                nearStack[j] = d;
+            }
+
+            node = -1;
+            while (sp > 0) {
+                int slot = stack[--sp];
+                if (nearStack[sp] > closest.tBest) {
+                    continue;
+                }
+                int count = wide.counts[slot];
+                if (count == 0) {
+                    node = wide.children[slot];
+                    break;
+                }
+                countStep(counters, 0, 1);
+                intersectLeaf(wide.children[slot], count, ray, closest, out, counters);
+            }
+        }
+        return finish(closest, out);
+    }
+
+    /**
+     * Intersections les plus proches des rayons d'un paquet, écrites dans
+     * {@code packet.hits} : le résultat de chaque rayon est celui de
+     * {@link #intersect(Ray, double, HitRecord)} sans borne de distance.
+     * <p>
+     * Le paquet descend dans la BVH avec le masque des rayons qui ont touché
+     * le noeud parent ; un noeud est d'abord soumis au test d'intervalle du
+     * paquet, puis, seulement si ce test ne tranche pas, à celui de chaque
+     * rayon actif. Chaque rayon voit donc exactement les noeuds et les
+     * feuilles de son parcours isolé, dans le même ordre, mais les boites
+     * écartées ou traversées par tout le paquet ne coûtent qu'un test. Un
+     * paquet non cohérent est parcouru rayon par rayon.
+     * </p>
+     * <p>
+     * Le paquet parcourt l'arbre binaire, même si la BVH est repliée en
+     * noeuds larges : le test d'intervalle y écarte les boites une à une.
+     * </p>
+     * @param packet paquet préparé ({@code rays} et {@code size} remplis)
+     * @param counters compteurs du thread courant ({@link RayStats#local()}), ou null
+     */
+    void intersect(RayPacket packet, long[] counters) {
+        int n = packet.size;
+        Ray[] rays = packet.rays;
+        HitRecord[] hits = packet.hits;
+        for (int k = 0; k < n; k++) {
+            hits[k].reset();
+        }
+        if (!packet.prepare()) {
+            for (int k = 0; k < n; k++) {
+                intersect(rays[k], Double.POSITIVE_INFINITY, hits[k], counters);
+            }
+            return;
+        }
+        double[] tBest = packet.tBest;
+        int[] primitive = packet.closest;
+        Arrays.fill(tBest, 0, n, Double.POSITIVE_INFINITY);
+        Arrays.fill(primitive, 0, n, -1);
+        double ox = packet.ox;
+        double oy = packet.oy;
+        double oz = packet.oz;
+
+        int[] stack = stacks.get();
+        long[] masks = maskStacks.get();
+        Traversal closest = traversals.get();
+        int sp = 0;
+        int node = 0;
+        long active = n == 64 ? -1L : (1L << n) - 1;
+        int negative = (packet.idxLo < 0.0 ? 1 : 0) | (packet.idyLo < 0.0 ? 2 : 0) | (packet.idzLo < 0.0 ? 4 : 0);
+        double tMin = Double.POSITIVE_INFINITY; // minorant des tBest du paquet
+
+        while (true) {
+            long hitMask = 0L;
+            if (counters != null) {
+                counters[RayStats.PACKET_TESTS]++;
+            }
+            int packetHit = packetHitsBox(node, packet, tMin);
+            if (packetHit == PACKET_HIT) {
+                hitMask = active;
+            } else if (packetHit == PACKET_PARTIAL) {
+                for (long m = active; m != 0L; m &= m - 1) {
+                    int k = Long.numberOfTrailingZeros(m);
+                    Ray ray = rays[k];
+                    if (hitsBox(node, ox, oy, oz, ray.getInvDirX(), ray.getInvDirY(), ray.getInvDirZ(), tBest[k])) {
+                        hitMask |= 1L << k;
+                    }
+                }
+                countStep(counters, Long.bitCount(active), 0);
+            }
+            if (hitMask != 0L) {
+                int count = nodes[node * 2 + 1];
+                countStep(counters, 0, Long.bitCount(hitMask));
+                if (count < 0) {
+                    // Signes communs à tout le paquet : même ordre que chaque rayon isolé
+                    if (BVHNode.rightFirst(~count, negative)) {
+                        stack[sp] = node + 1;
+                        node = nodes[node * 2];
+                    } else {
+                        stack[sp] = nodes[node * 2];
+                        node++;
+                    }
+                    masks[sp++] = hitMask;
+                    active = hitMask;
+                    continue;
+                }
+                // Chaque rayon touché teste la feuille comme dans son parcours isolé
+                int first = nodes[node * 2];
+                for (long m = hitMask; m != 0L; m &= m - 1) {
+                    int k = Long.numberOfTrailingZeros(m);
+                    closest.tBest = tBest[k];
+                    closest.primitive = primitive[k];
+                    intersectLeaf(first, count, rays[k], closest, hits[k], counters);
+                    tBest[k] = closest.tBest;
+                    primitive[k] = closest.primitive;
+                    tMin = Math.min(tMin, tBest[k]);
+                }
+            }
+            if (sp == 0) {
+                break;
+            }
+            node = stack[--sp];
+            active = masks[sp];
+        }
+        for (int k = 0; k < n; k++) {
+            int i = primitive[k];
+            if (i >= 0 && triangles.isTriangle[i]) {
+                hits[k].set(primitives[i], tBest[k], meshTriangles[i]);
+            }
+        }
+    }
+
+    /**
+     * Requête d'occultation : s'arrête à la première primitive touchée
+     * dans l'intervalle ]tMin, tMax[, sans chercher la plus proche.
+     * @param ray le rayon (typiquement un rayon d'ombre)
+     * @param tMin distance minimale (exclue)
+     * @param tMax distance maximale (exclue)
+     * @return true si au moins une primitive coupe le rayon dans l'intervalle
+     */
+    public boolean isOccluded(Ray ray, double tMin, double tMax) {
+        return isOccluded(ray, tMin, tMax, null);
+    }
+
+    /**
+     * Comme {@link #isOccluded(Ray, double, double)}, en comptant le parcours.
+     * @param counters compteurs du thread courant ({@link RayStats#local()}), ou null
+     */
+    boolean isOccluded(Ray ray, double tMin, double tMax, long[] counters) {
+        if (wide != null) {
+            return isOccludedWide(ray, tMin, tMax, counters);
+        }
+        double ox = ray.getOrigin().getX();
+        double oy = ray.getOrigin().getY();
+        double oz = ray.getOrigin().getZ();
+        double idx = ray.getInvDirX();
+        double idy = ray.getInvDirY();
+        double idz = ray.getInvDirZ();
+
+        int[] stack = stacks.get();
+        Traversal traversal = traversals.get();
+        int sp = 0;
+        int node = 0;
+
+        while (true) {
+            boolean hit = hitsBox(node, ox, oy, oz, idx, idy, idz, tMax);
+            countStep(counters, 1, hit ? 1 : 0);
+            if (hit) {
+                int count = nodes[node * 2 + 1];
+                if (count < 0) {
+                    stack[sp++] = nodes[node * 2];
+                    node++;
+                    continue;
+                }
+                if (occludedLeaf(nodes[node * 2], count, ray, tMin, tMax, traversal, counters)) {
+                    return true;
+                }
+            }
+            if (sp == 0) {
+                return false;
+            }
+            node = stack[--sp];
+        }
+    }
+
+    // Requête d'occultation dans la BVH large : l'ordre des fils est indifférent
+    private boolean isOccludedWide(Ray ray, double tMin, double tMax, long[] counters) {
+        double ox = ray.getOrigin().getX();
+        double oy = ray.getOrigin().getY();
+        double oz = ray.getOrigin().getZ();
+        double idx = ray.getInvDirX();
+        double idy = ray.getInvDirY();
+        double idz = ray.getInvDirZ();
+        int width = wide.width;
+
+        int[] stack = stacks.get();
+        double[] near = childNear.get();
+        Traversal traversal = traversals.get();
+        int sp = 0;
+        int node = 0;
+
+        while (node >= 0) {
+            countStep(counters, wide.childCounts[node], 1);
+            int mask = boxKernels.intersectBoxes(wide.boxes, node * 6 * width, width,
+                ox, oy, oz, idx, idy, idz, tMax, near);
+            for (; mask != 0; mask &= mask - 1) {
+                stack[sp++] = node * width + Integer.numberOfTrailingZeros(mask);
+            }
+
+            node = -1;
+            while (sp > 0) {
+                int slot = stack[--sp];
+                int count = wide.counts[slot];
+                if (count == 0) {
+                    node = wide.children[slot];
+                    break;
+                }
+                countStep(counters, 0, 1);
+                if (occludedLeaf(wide.children[slot], count, ray, tMin, tMax, traversal, counters)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Teste les primitives d'une feuille et retient la plus proche en deçà de
+     * {@code closest.tBest}. Un triangle empaqueté n'est que noté (écrit par
+     * {@link #finish(Traversal, HitRecord)}) ; une autre forme est écrite
+     * aussitôt dans {@code out}. Commun à tous les parcours du plus proche.
+     * <p>
+     * À distance égale, la primitive d'indice le plus petit l'emporte, quel
+     * que soit l'ordre de visite des feuilles : un rayon qui passe sur
+     * l'arête commune de deux triangles touche ainsi le même triangle dans
+     * l'arbre binaire, dans les noeuds larges et en paquet.
+     * </p>
+     */
+    private void intersectLeaf(int first, int count, Ray ray, Traversal closest, HitRecord out,
+                               long[] counters) {
+        boolean packed = kernels != null && triangles.allTriangles(first, first + count);
+        countLeaf(counters, packed ? count : 0);
+        if (packed) {
+            double[] distances = closest.distances;
+            kernels.intersectTriangles(triangles, first, first + count, ray, distances);
+            for (int k = 0; k < count; k++) {
+                if (closest.isCloser(distances[k], first + k)) {
+                    closest.tBest = distances[k];
+                    closest.primitive = first + k;
+                }
+            }
+            return;
+        }
+        for (int i = first; i < first + count; i++) {
+            countTest(i, counters);
+            if (triangles.isTriangle[i]) {
+                double t = triangles.intersect(i, ray);
+                if (closest.isCloser(t, i)) {
+                    closest.tBest = t;
+                    closest.primitive = i;
+                }
+            } else if (primitives[i].intersect(ray, closest.shapeLimit(i), out)) {
+                closest.tBest = out.getT();
+                closest.primitive = i;
+            }
+        }
+    }
+
+    /**
+     * @return true si une primitive de la feuille coupe le rayon dans
+     *         ]tMin, tMax[ (commun aux requêtes d'occultation)
+     */
+    private boolean occludedLeaf(int first, int count, Ray ray, double tMin, double tMax, Traversal traversal,
+                                 long[] counters) {
+        boolean packed = kernels != null && triangles.allTriangles(first, first + count);
+        countLeaf(counters, packed ? count : 0);
+        if (packed) {
+            double[] distances = traversal.distances;
+            kernels.intersectTriangles(triangles, first, first + count, ray, distances);
+            for (int k = 0; k < count; k++) {
+                if (distances[k] > tMin && distances[k] < tMax) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        for (int i = first; i < first + count; i++) {
+            countTest(i, counters);
+            double t;
+            if (triangles.isTriangle[i]) {
+                t = triangles.intersect(i, ray);
+            } else {
+                HitRecord hit = traversal.scratch;
+                t = primitives[i].intersect(ray, tMax, hit) ? hit.getT() : Double.POSITIVE_INFINITY;
+            }
+            if (t > tMin && t < tMax) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Écrit dans {@code out} le triangle empaqueté retenu par le parcours ;
+     * les triangles ne sont ainsi écrits qu'une fois, à la fin.
+     * @return true si {@code out} a été mis à jour pendant ou à la fin du parcours
+     */
+    private boolean finish(Traversal closest, HitRecord out) {
+        int i = closest.primitive;
+        if (i >= 0 && triangles.isTriangle[i]) {
+            out.set(primitives[i], closest.tBest, meshTriangles[i]);
+        }
+        return i >= 0;
+    }
+
+    private void countTest(int primitive, long[] counters) {
+        if (counters != null) {
+            counters[triangles.isTriangle[primitive] ? RayStats.TRIANGLE_TESTS
+                : RayStats.testCounter(primitives[primitive])]++;
+        }
+    }
+
+    // Une feuille visitée, dont packedTriangles triangles testés d'un bloc par les noyaux
+    private static void countLeaf(long[] counters, int packedTriangles) {
+        if (counters != null) {
+            counters[RayStats.LEAVES_VISITED]++;
+            counters[RayStats.TRIANGLE_TESTS] += packedTriangles;
+        }
+    }
+
+    // Une étape de parcours : boites testées et noeuds visités (feuilles comprises)
+    private static void countStep(long[] counters, long boxTests, long visited) {
+        if (counters != null) {
+            counters[RayStats.AABB_TESTS] += boxTests;
+            counters[RayStats.NODES_VISITED] += visited;
+        }
+    }
+
+    /**
+     * État d'un parcours, propre à chaque thread : tampons des feuilles et
+     * meilleure intersection trouvée jusqu'ici.
+     */
+    private static final class Traversal {
+        final double[] distances;                   // distances des triangles d'une feuille (noyaux)
+        final HitRecord scratch = new HitRecord();  // formes non empaquetées des requêtes d'occultation
+        double tBest;
+        int primitive;  // primitive retenue, -1 si aucune ; une forme autre qu'un triangle est déjà écrite
+
+        Traversal(int leafCapacity) {
+            this.distances = new double[leafCapacity];
+        }
+
+        Traversal start(double tMax) {
+            tBest = tMax;
+            primitive = -1;
+            return this;
+        }
+
+        // Plus proche que la primitive retenue, ou à même distance et d'indice plus petit
+        boolean isCloser(double t, int i) {
+            return t < tBest || (t == tBest && i < primitive);
+        }
+
+        // Borne (exclue) à passer à une forme d'indice i pour appliquer la même règle
+        double shapeLimit(int i) {
+            return i < primitive ? Math.nextUp(tBest) : tBest;
+        }
+    }
+}
@@ -1,28 +1,53 @@
 package com.raytracer;
 
-import com.imaging.Color;
+import com.geometry.Shape;
+import com.geometry.TriangleMesh;
+import com.parsing.BinarySceneFile;
 import com.parsing.SceneFileParser;
 
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.nio.file.Path;
+import java.util.Locale;
 
 /**
  * Point d'entrée du ray tracer.
  * <p>
- * Charge un fichier scène passé en argument, effectue le rendu
- * en parallèle (multi-threadé par lignes) et sauvegarde l'image PNG.
+ * Charge un fichier scène passé en argument (texte, ou binaire compilé par
+ * {@link com.parsing.SceneConverter}), effectue le rendu
+ * en parallèle (par tuiles, voir {@link TileRenderer}) et sauvegarde l'image PNG.
  * </p>
  * <p>
- * Usage : {@code java com.raytracer.Main <fichier.scene>}
+ * Usage : {@code java com.raytracer.Main <fichier.scene> [options]}
+ * </p>
+ * <p>
+ * Options :
+ * </p>
+ * <ul>
+ *   <li>{@code --bvh=median|sah} : stratégie de construction de la BVH (médiane par défaut)</li>
+ *   <li>{@code --leaf-size=N} : nombre maximal de primitives par feuille de la BVH</li>
+ *   <li>{@code --bvh-width=2|4|8} : nombre de fils par noeud de la BVH parcourue (2 par défaut)</li>
+ *   <li>{@code --triangle=mt|watertight} : test rayon-triangle (Möller-Trumbore par défaut, ou étanche)</li>
+ *   <li>{@code --simd} : teste les feuilles de triangles avec l'API Vector (JVM lancée avec
+ *       {@code --add-modules jdk.incubator.vector}, sinon noyaux scalaires)</li>
+ *   <li>{@code --tile-size=N} : côté des tuiles de rendu en pixels</li>
+ *   <li>{@code --tile-order=scanline|spiral|morton|hilbert} : ordre de parcours des tuiles</li>
+ *   <li>{@code --packets=N} : lance les rayons primaires par paquets de N x N (2 à 8, 0 : rayon par rayon)</li>
+ *   <li>{@code --wavefront} : rend chaque tuile en front d'onde, rayons d'ombre et de réflexion triés par rebond</li>
+ *   <li>{@code --tile-stats=fichier.csv} : exporte la durée de rendu de chaque tuile</li>
+ *   <li>{@code --bvh-cache=répertoire} : réutilise la BVH d'une géométrie déjà rendue (cache disque)</li>
+ *   <li>{@code --parser=mmap|lines} : lecture de la scène projetée en mémoire (défaut) ou ligne par ligne</li>
+ *   <li>{@code --stats} : compte les rayons, les noeuds de BVH visités et les tests de primitives</li>
+ *   <li>{@code --heatmap=fichier.png} : écrit la carte du coût de chaque pixel en fausses couleurs</li>
+ *   <li>{@code --heatmap-metric=nodes|tests|rays|time} : mesure de la carte (noeuds de BVH visités par défaut)</li>
+ * </ul>
+ * <p>
+ * Chaque phase émet un événement Java Flight Recorder (catégorie « Ray Tracer ») :
+ * chargement de la scène, construction de la BVH, rendu de chaque tuile et
+ * écriture de l'image. Pour les enregistrer :
+ * {@code java -XX:StartFlightRecording=filename=rendu.jfr -jar raytracer.jar <fichier.scene>}.
  * </p>
  * 
  * @author Projet Ray Tracer
@@ -31,7 +56,91 @@ import java.util.concurrent.atomic.AtomicInteger;
 public class Main {
     public static void main(String[] args) {
         if (args.length < 1) {
-            System.err.println("Usage: java -jar raytracer.jar <scene-file>");
+            System.err.println("Usage: java -jar raytracer.jar <scene-file> [--bvh=median|sah] [--leaf-size=N] [--bvh-width=2|4|8] [--triangle=mt|watertight] [--simd]"
+                + " [--tile-size=N] [--tile-order=scanline|spiral|morton|hilbert] [--packets=N] [--wavefront] [--tile-stats=fichier.csv]"
+                + " [--parser=mmap|lines] [--bvh-cache=repertoire] [--stats]"
+                + " [--heatmap=fichier.png] [--heatmap-metric=nodes|tests|rays|time]");
+            System.exit(1);
+        }
+
+        BVHBuilder bvhBuilder = BVHBuilder.median();
+        int leafSize = BVHBuilder.DEFAULT_MAX_LEAF_SIZE;
+        int bvhWidth = BVHBuilder.DEFAULT_BRANCHING_FACTOR;
+        BVHBuilder.TriangleTest triangleTest = BVHBuilder.TriangleTest.MOLLER_TRUMBORE;
+        boolean simd = false;
+        int tileSize = TileRenderer.DEFAULT_TILE_SIZE;
+        TileRenderer.Order tileOrder = TileRenderer.Order.HILBERT;
+        int packetSize = 0;
+        boolean wavefront = false;
+        String tileStatsFile = null;
+        SceneFileParser.Mode parserMode = SceneFileParser.Mode.MAPPED;
+        BVHCache bvhCache = null;
+        boolean countRays = false;
+        String heatmapFile = null;
+        CostHeatmap.Metric heatmapMetric = CostHeatmap.Metric.NODES;
+        for (int a = 1; a < args.length; a++) {
+            String option = args[a];
+            if (option.equals("--bvh=median")) {
+                bvhBuilder = BVHBuilder.median();
+            } else if (option.equals("--bvh=sah")) {
+                bvhBuilder = BVHBuilder.sah();
+            } else if (option.startsWith("--leaf-size=")) {
+                leafSize = intOption(option, "--leaf-size=");
+            } else if (option.startsWith("--bvh-width=")) {
+                bvhWidth = intOption(option, "--bvh-width=");
+            } else if (option.equals("--triangle=mt")) {
+                triangleTest = BVHBuilder.TriangleTest.MOLLER_TRUMBORE;
+            } else if (option.equals("--triangle=watertight")) {
+                triangleTest = BVHBuilder.TriangleTest.WATERTIGHT;
+            } else if (option.equals("--simd")) {
+                simd = true;
+            } else if (option.startsWith("--tile-size=")) {
+                tileSize = intOption(option, "--tile-size=");
+            } else if (option.startsWith("--tile-order=")) {
+                String name = option.substring("--tile-order=".length()).toUpperCase(Locale.ROOT);
+                try {
+                    tileOrder = TileRenderer.Order.valueOf(name);
+                } catch (IllegalArgumentException e) {
+                    System.err.println("Option inconnue : " + option);
+                    System.exit(1);
+                }
+            } else if (option.startsWith("--packets=")) {
+                packetSize = intOption(option, "--packets=");
+            } else if (option.equals("--wavefront")) {
+                wavefront = true;
+            } else if (option.startsWith("--tile-stats=")) {
+                tileStatsFile = option.substring("--tile-stats=".length());
+            } else if (option.startsWith("--bvh-cache=")) {
+                bvhCache = new BVHCache(Path.of(option.substring("--bvh-cache=".length())));
+            } else if (option.equals("--parser=mmap")) {
+                parserMode = SceneFileParser.Mode.MAPPED;
+            } else if (option.equals("--parser=lines")) {
+                parserMode = SceneFileParser.Mode.LINES;
+            } else if (option.equals("--stats")) {
+                countRays = true;
+            } else if (option.startsWith("--heatmap=")) {
+                heatmapFile = option.substring("--heatmap=".length());
+            } else if (option.startsWith("--heatmap-metric=")) {
+                String name = option.substring("--heatmap-metric=".length()).toUpperCase(Locale.ROOT);
+                try {
+                    heatmapMetric = CostHeatmap.Metric.valueOf(name);
+                } catch (IllegalArgumentException e) {
+                    System.err.println("Mesure de carte de coût inconnue : " + name.toLowerCase(Locale.ROOT));
+                    System.exit(1);
+                }
+            } else {
+                System.err.println("Option inconnue : " + option);
+                System.exit(1);
+            }
+        }
+        // Valeurs hors bornes (--leaf-size=0, --bvh-width=3, --packets=9...) : message et arrêt
+        TileRenderer renderer = null;
+        try {
+            bvhBuilder = bvhBuilder.withMaxLeafSize(leafSize).withTriangleTest(triangleTest).withVectorKernels(simd)
+                .withBranchingFactor(bvhWidth);
+            renderer = new TileRenderer(tileSize, tileOrder).withPacketSize(packetSize).withWavefront(wavefront);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Option invalide : " + e.getMessage());
             System.exit(1);
         }
 
@@ -51,12 +160,32 @@ public class Main {
         try {
             // Charger la scène depuis le fichier
             System.out.println("Chargement de la scène depuis : " + sceneFilePath);
-            Scene scene = new Scene();
-            SceneFileParser parser = new SceneFileParser(scene);
-            parser.parse(sceneFilePath);
+            Scene scene;
+            long loadStart = System.nanoTime();
+            if (BinarySceneFile.isBinary(Path.of(sceneFilePath))) {
+                scene = BinarySceneFile.read(Path.of(sceneFilePath));
+            } else {
+                scene = new Scene();
+                new SceneFileParser(scene, parserMode).parse(sceneFilePath);
+            }
+            System.out.printf(Locale.ROOT, "Scène chargée en %.1f ms%n", (System.nanoTime() - loadStart) / 1e6);
             
             // Créer le RayTracer
-            RayTracer rayTracer = new RayTracer(scene);
+            RayTracer rayTracer = new RayTracer(scene, bvhBuilder, bvhCache);
+            System.out.println(rayTracer.getBvhStats()
+                + (rayTracer.isBvhLoadedFromCache() ? " (relue depuis le cache)" : ""));
+            if (rayTracer.getBvhWideNodeCount() > 0) {
+                System.out.println("BVH large : " + rayTracer.getBvhWideNodeCount() + " noeuds de "
+                    + bvhWidth + " fils au plus");
+            }
+            printMeshMemory(scene, rayTracer);
+            if (simd && !rayTracer.isBvhVectorized()) {
+                System.out.println("Noyaux vectoriels indisponibles (lancer la JVM avec"
+                    + " --add-modules jdk.incubator.vector) : noyaux scalaires");
+            }
+            if (countRays || (heatmapFile != null && heatmapMetric.usesCounters())) {
+                rayTracer.setStats(new RayStats());
+            }
             
             // Créer l'image (BufferedImage)
             int width = scene.getWidth();
@@ -65,55 +194,35 @@ public class Main {
 
             System.out.println("Rendu de l'image (" + width + "x" + height + ")...");
 
-            // Rendu multi-threadé par lignes, stockage temporaire des pixels
-            int[][] pixelBuffer = new int[height][width];
-            int threadCount = Math.max(1, Runtime.getRuntime().availableProcessors());
-            ExecutorService pool = Executors.newFixedThreadPool(threadCount);
-            List<Callable<Void>> jobs = new ArrayList<>();
-            AtomicInteger rowsDone = new AtomicInteger(0);
-
-            for (int j = 0; j < height; j++) {
-                final int row = j;
-                jobs.add(() -> {
-                    for (int i = 0; i < width; i++) {
-                        Color color = rayTracer.getPixelColor(i, row);
-                        pixelBuffer[row][i] = color.toRGB();
-                    }
-                    int finished = rowsDone.incrementAndGet();
-                    if (finished % 50 == 0 || finished == height) {
-                        System.out.println("  Progression : " + finished + "/" + height + " lignes");
-                    }
-                    return null;
-                });
+            // Rendu multi-threadé par tuiles, directement dans le tampon de l'image
+            int tileCount = renderer.tiles(width, height).length;
+            int step = Math.max(1, tileCount / 10);
+            CostHeatmap heatmap = heatmapFile != null ? new CostHeatmap(width, height, heatmapMetric) : null;
+            TileRenderStats tileStats = renderer.render(rayTracer, image, finished -> {
+                if (finished % step == 0 || finished == tileCount) {
+                    System.out.println("  Progression : " + finished + "/" + tileCount + " tuiles");
+                }
+            }, heatmap);
+            System.out.println(tileStats);
+            if (countRays) {
+                RayStats rayStats = rayTracer.getStats();
+                System.out.println(rayStats);
+                System.out.printf(Locale.ROOT, "Débit : %.0f rayons/s%n",
+                    rayStats.getTotalRays() / Math.max(1e-3, tileStats.getWallTimeMillis() / 1e3));
             }
-
-            try {
-                pool.invokeAll(jobs);
-                pool.shutdown();
-                pool.awaitTermination(1, TimeUnit.HOURS);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                throw new RuntimeException("Rendu interrompu", e);
+            if (tileStatsFile != null) {
+                tileStats.writeCsv(Path.of(tileStatsFile));
+                System.out.println("Durées des tuiles : " + tileStatsFile);
             }
-
-            // Copier les pixels calculés dans l'image
-            for (int j = 0; j < height; j++) {
-                for (int i = 0; i < width; i++) {
-                    image.setRGB(i, j, pixelBuffer[j][i]);
-                }
+            if (heatmap != null) {
+                heatmap.writePng(heatmapFile);
+                System.out.println(heatmap);
+                System.out.println("Carte de coût sauvegardée : " + heatmapFile);
             }
-            
+
             // Sauvegarder l'image en PNG
             String outputPath = scene.getOutputFile();
-            File outputFile = new File(outputPath);
-            
-            // Créer les répertoires parents si nécessaire
-            File parentDir = outputFile.getParentFile();
-            if (parentDir != null && !parentDir.exists()) {
-                parentDir.mkdirs();
-            }
-            
-            ImageIO.write(image, "PNG", outputFile);
+            writePng(image, outputPath);
             System.out.println("Image sauvegardée : " + outputPath);
             
         } catch (IOException e) {
@@ -126,4 +235,60 @@ public class Main {
             System.exit(1);
         }
     }
+
+    // Valeur entière d'une option --nom=N ; message et arrêt si elle n'est pas un entier
+    private static int intOption(String option, String prefix) {
+        try {
+            return Integer.parseInt(option.substring(prefix.length()));
+        } catch (NumberFormatException e) {
+            System.err.println("Valeur entière attendue : " + option);
+            System.exit(1);
+            return 0;
+        }
+    }
+
+    /**
+     * Encode et écrit l'image en PNG, en créant les répertoires parents si nécessaire.
+     */
+    static void writePng(BufferedImage image, String outputPath) throws IOException {
+        ImageWriteEvent event = new ImageWriteEvent();
+        event.begin();
+        File outputFile = new File(outputPath);
+        File parentDir = outputFile.getParentFile();
+        if (parentDir != null && !parentDir.exists()) {
+            parentDir.mkdirs();
+        }
+        ImageIO.write(image, "PNG", outputFile);
+        event.end();
+        if (event.shouldCommit()) {
+            event.path = outputPath;
+            event.format = "PNG";
+            event.width = image.getWidth();
+            event.height = image.getHeight();
+            event.bytes = outputFile.length();
+            event.commit();
+        }
+    }
+
+    /**
+     * Affiche la mémoire occupée par les maillages et la BVH, rapportée au triangle.
+     */
+    private static void printMeshMemory(Scene scene, RayTracer rayTracer) {
+        long meshBytes = 0;
+        long triangles = 0;
+        for (Shape shape : scene.getShapes()) {
+            if (shape instanceof TriangleMesh) {
+                TriangleMesh mesh = (TriangleMesh) shape;
+                meshBytes += mesh.getMemoryFootprint();
+                triangles += mesh.getTriangleCount();
+            }
+        }
+        if (triangles == 0) {
+            return;
+        }
+        long bvhBytes = rayTracer.getBvhMemoryFootprint();
+        System.out.printf(Locale.ROOT,
+            "Maillages : %d triangles, %.1f octets/triangle (BVH comprise : %.1f octets/triangle)%n",
+            triangles, (double) meshBytes / triangles, (double) (meshBytes + bvhBytes) / triangles);
+    }
 }
@@ -15,10 +15,19 @@ import com.geometry.Vector;
 public class Ray {
     private final Point origin;
     private final Vector direction;
+    // Inverse de la direction, précalculé pour les tests de boites (slabs)
+    private final double invDirX;
+    private final double invDirY;
+    private final double invDirZ;
+    // Cisaillement du test rayon-triangle étanche, calculé au premier usage
+    private Shear shear;
 
     public Ray(Point origin, Vector direction) {
         this.origin = origin;
         this.direction = direction.normalize(); // Normaliser la direction
+        this.invDirX = 1.0 / this.direction.getX();
+        this.invDirY = 1.0 / this.direction.getY();
+        this.invDirZ = 1.0 / this.direction.getZ();
     }
 
     public Point getOrigin() {
@@ -29,6 +38,34 @@ public class Ray {
         return direction;
     }    
 
+    public double getInvDirX() {
+        return invDirX;
+    }
+
+    public double getInvDirY() {
+        return invDirY;
+    }
+
+    public double getInvDirZ() {
+        return invDirZ;
+    }
+
+    /**
+     * Permutation d'axes et cisaillement du test rayon-triangle étanche
+     * ({@link BVHBuilder.TriangleTest#WATERTIGHT}). Seul ce test s'en sert :
+     * ils ne sont calculés qu'à son premier appel pour ce rayon, pas pour
+     * chaque rayon du test de Möller-Trumbore.
+     */
+    Shear getShear() {
+        Shear s = shear;
+        if (s == null) {
+            // Sans synchronisation : un autre thread recalculerait au pire les mêmes valeurs
+            s = new Shear(direction);
+            shear = s;
+        }
+        return s;
+    }
+
     /**
      * Calcule un point sur le rayon à la distance t
      * p = origin + t * direction
@@ -40,4 +77,42 @@ public class Ray {
             origin.getZ() + t * direction.getZ()
         );
     }
+
+    /**
+     * Transformation du test étanche : axisZ est l'axe dominant de la
+     * direction, et le rayon cisaillé suit cet axe.
+     */
+    static final class Shear {
+        final int axisX;
+        final int axisY;
+        final int axisZ;
+        final double x;
+        final double y;
+        final double z;
+
+        private Shear(Vector direction) {
+            double dx = direction.getX();
+            double dy = direction.getY();
+            double dz = direction.getZ();
+            double adx = Math.abs(dx);
+            double ady = Math.abs(dy);
+            double adz = Math.abs(dz);
+            int kz = adx > ady ? (adx > adz ? 0 : 2) : (ady > adz ? 1 : 2);
+            int kx = (kz + 1) % 3;
+            int ky = (kx + 1) % 3;
+            double dkz = kz == 0 ? dx : (kz == 1 ? dy : dz);
+            if (dkz < 0) {
+                // Conserve l'orientation des triangles
+                int swap = kx;
+                kx = ky;
+                ky = swap;
+            }
+            this.axisX = kx;
+            this.axisY = ky;
+            this.axisZ = kz;
+            this.z = 1.0 / dkz;
+            this.x = (kx == 0 ? dx : (kx == 1 ? dy : dz)) * z;
+            this.y = (ky == 0 ? dx : (ky == 1 ? dy : dz)) * z;
+        }
+    }
 }
@@ -0,0 +1,77 @@
+package com.raytracer;
+
+/**
+ * Paquet de rayons primaires voisins, parcouru d'un bloc dans la BVH.
+ * <p>
+ * Les rayons d'un bloc de pixels partent tous de la caméra et ont des
+ * directions proches : pour un noeud de la BVH, un seul test d'intervalle
+ * (bornes des inverses des directions sur chaque axe) suffit à écarter le
+ * noeud pour tout le paquet. Ce test n'est valable que si toutes les
+ * directions ont le même signe sur chaque axe, sans composante nulle, et une
+ * origine commune : {@link #prepare()} le vérifie, et un paquet qui diverge
+ * est parcouru rayon par rayon.
+ * </p>
+ * <p>
+ * Un paquet appartient à un thread et sert pour tous ses blocs : les
+ * tableaux de travail du parcours y sont alloués une fois.
+ * </p>
+ *
+ * @author Projet Ray Tracer
+ * @version 1.0
+ * @see LinearBVH#intersect(RayPacket, long[])
+ */
+final class RayPacket {
+
+    /** Nombre maximal de rayons : un masque {@code long} par noeud de la pile. */
+    static final int MAX_SIZE = 64;
+
+    final Ray[] rays = new Ray[MAX_SIZE];
+    final HitRecord[] hits = new HitRecord[MAX_SIZE];
+    int size;
+
+    // Origine commune et bornes des inverses des directions, valides après prepare()
+    double ox, oy, oz;
+    double idxLo, idxHi, idyLo, idyHi, idzLo, idzHi;
+
+    // Travail du parcours : distance et primitive retenues par rayon
+    final double[] tBest = new double[MAX_SIZE];
+    final int[] closest = new int[MAX_SIZE];
+
+    RayPacket() {
+        for (int k = 0; k < MAX_SIZE; k++) {
+            hits[k] = new HitRecord();
+        }
+    }
+
+    /**
+     * Calcule l'origine commune et les bornes des directions du paquet.
+     * @return true si le paquet est cohérent (test d'intervalle applicable)
+     */
+    boolean prepare() {
+        Ray first = rays[0];
+        ox = first.getOrigin().getX();
+        oy = first.getOrigin().getY();
+        oz = first.getOrigin().getZ();
+        idxLo = idxHi = first.getInvDirX();
+        idyLo = idyHi = first.getInvDirY();
+        idzLo = idzHi = first.getInvDirZ();
+        for (int k = 1; k < size; k++) {
+            Ray ray = rays[k];
+            if (ray.getOrigin().getX() != ox || ray.getOrigin().getY() != oy || ray.getOrigin().getZ() != oz) {
+                return false;
+            }
+            idxLo = Math.min(idxLo, ray.getInvDirX());
+            idxHi = Math.max(idxHi, ray.getInvDirX());
+            idyLo = Math.min(idyLo, ray.getInvDirY());
+            idyHi = Math.max(idyHi, ray.getInvDirY());
+            idzLo = Math.min(idzLo, ray.getInvDirZ());
+            idzHi = Math.max(idzHi, ray.getInvDirZ());
+        }
+        return sameSign(idxLo, idxHi) && sameSign(idyLo, idyHi) && sameSign(idzLo, idzHi);
+    }
+
+    // Bornes finies et strictement du même signe (pas de NaN dans le test d'intervalle)
+    private static boolean sameSign(double lo, double hi) {
+        return Double.isFinite(lo) && Double.isFinite(hi) && (lo > 0.0 || hi < 0.0);
+    }
+}
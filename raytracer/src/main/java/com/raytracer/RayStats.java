@@ -0,0 +1,181 @@
+package com.raytracer;
+
+import com.geometry.Plane;
+import com.geometry.Shape;
+import com.geometry.Sphere;
+import com.geometry.Triangle;
+import com.geometry.TriangleMesh;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Compteurs de rayons et de parcours de la BVH d'un rendu.
+ * <p>
+ * Chaque thread incrémente son propre tableau de compteurs, sans
+ * synchronisation ni partage de ligne de cache ; les tableaux sont sommés
+ * à la lecture ({@link #get(Counter)}, {@link #snapshot()}), une fois le
+ * rendu terminé. Les compteurs sont désactivés par défaut : un
+ * {@link RayTracer} sans {@code RayStats} ne touche à aucun tableau, le
+ * parcours ne fait qu'un test de référence nulle, hors de la boucle pour
+ * les rayons et dans la boucle pour la BVH.
+ * </p>
+ *
+ * @author Projet Ray Tracer
+ * @version 1.0
+ * @see RayTracer#setStats(RayStats)
+ */
+public final class RayStats {
+
+    /** Grandeurs comptées ; l'ordinal est l'indice dans le tableau d'un thread. */
+    public enum Counter {
+        PRIMARY_RAYS("rayons primaires"),
+        PRIMARY_HITS("rayons primaires touchant une forme"),
+        SHADOW_RAYS("rayons d'ombre"),
+        SHADOW_OCCLUDED("rayons d'ombre occultés"),
+        REFLECTION_RAYS("rayons réfléchis"),
+        REFLECTION_HITS("rayons réfléchis touchant une forme"),
+        AABB_TESTS("tests de boite"),
+        NODES_VISITED("noeuds visités"),
+        LEAVES_VISITED("feuilles visitées"),
+        TRIANGLE_TESTS("tests de triangle"),
+        SPHERE_TESTS("tests de sphère"),
+        PLANE_TESTS("tests de plan"),
+        OTHER_TESTS("tests d'autres formes"),
+        PACKET_TESTS("tests de boite de paquet");
+
+        private final String label;
+
+        Counter(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    // Indices pour les boucles chaudes (évite Counter.ordinal() et l'énumération)
+    static final int PRIMARY_RAYS = Counter.PRIMARY_RAYS.ordinal();
+    static final int PRIMARY_HITS = Counter.PRIMARY_HITS.ordinal();
+    static final int SHADOW_RAYS = Counter.SHADOW_RAYS.ordinal();
+    static final int SHADOW_OCCLUDED = Counter.SHADOW_OCCLUDED.ordinal();
+    static final int REFLECTION_RAYS = Counter.REFLECTION_RAYS.ordinal();
+    static final int REFLECTION_HITS = Counter.REFLECTION_HITS.ordinal();
+    static final int AABB_TESTS = Counter.AABB_TESTS.ordinal();
+    static final int NODES_VISITED = Counter.NODES_VISITED.ordinal();
+    static final int LEAVES_VISITED = Counter.LEAVES_VISITED.ordinal();
+    static final int TRIANGLE_TESTS = Counter.TRIANGLE_TESTS.ordinal();
+    static final int PACKET_TESTS = Counter.PACKET_TESTS.ordinal();
+
+    private static final Counter[] COUNTERS = Counter.values();
+
+    private final List<long[]> threadCounters = new ArrayList<>();
+    private final ThreadLocal<long[]> local = ThreadLocal.withInitial(this::register);
+
+    private synchronized long[] register() {
+        long[] counters = new long[COUNTERS.length];
+        threadCounters.add(counters);
+        return counters;
+    }
+
+    /**
+     * @return les compteurs du thread courant, à incrémenter par indice d'ordinal
+     */
+    long[] local() {
+        return local.get();
+    }
+
+    /**
+     * @param counters compteurs d'un thread
+     * @return le nombre de rayons (primaires, d'ombre et réfléchis) comptés dans le tableau
+     */
+    static long rays(long[] counters) {
+        return counters[PRIMARY_RAYS] + counters[SHADOW_RAYS] + counters[REFLECTION_RAYS];
+    }
+
+    /**
+     * @return l'indice du compteur de tests correspondant au type de la forme
+     */
+    static int testCounter(Shape shape) {
+        if (shape instanceof Triangle || shape instanceof TriangleMesh) {
+            return TRIANGLE_TESTS;
+        } else if (shape instanceof Sphere) {
+            return Counter.SPHERE_TESTS.ordinal();
+        } else if (shape instanceof Plane) {
+            return Counter.PLANE_TESTS.ordinal();
+        }
+        return Counter.OTHER_TESTS.ordinal();
+    }
+
+    /**
+     * Somme des compteurs de tous les threads. À lire une fois le rendu
+     * terminé : pendant le rendu, la valeur peut omettre des incréments récents.
+     */
+    public synchronized long get(Counter counter) {
+        long total = 0;
+        for (long[] counters : threadCounters) {
+            total += counters[counter.ordinal()];
+        }
+        return total;
+    }
+
+    /**
+     * @return la valeur de chaque compteur
+     */
+    public synchronized Map<Counter, Long> snapshot() {
+        Map<Counter, Long> values = new EnumMap<>(Counter.class);
+        for (Counter counter : COUNTERS) {
+            values.put(counter, get(counter));
+        }
+        return values;
+    }
+
+    /**
+     * @return le nombre total de rayons lancés (primaires, d'ombre et réfléchis)
+     */
+    public long getTotalRays() {
+        return get(Counter.PRIMARY_RAYS) + get(Counter.SHADOW_RAYS) + get(Counter.REFLECTION_RAYS);
+    }
+
+    /**
+     * Remet les compteurs à zéro, entre deux rendus.
+     */
+    public synchronized void reset() {
+        for (long[] counters : threadCounters) {
+            Arrays.fill(counters, 0L);
+        }
+    }
+
+    @Override
+    public String toString() {
+        Map<Counter, Long> v = snapshot();
+        long rays = v.get(Counter.PRIMARY_RAYS) + v.get(Counter.SHADOW_RAYS) + v.get(Counter.REFLECTION_RAYS);
+        long primitiveTests = v.get(Counter.TRIANGLE_TESTS) + v.get(Counter.SPHERE_TESTS)
+            + v.get(Counter.PLANE_TESTS) + v.get(Counter.OTHER_TESTS);
+        StringBuilder s = new StringBuilder();
+        s.append(String.format(Locale.ROOT, "Rayons : %d (primaires %d dont %d touchant, ombre %d dont %d occultés,"
+                + " réfléchis %d dont %d touchant)%n",
+            rays, v.get(Counter.PRIMARY_RAYS), v.get(Counter.PRIMARY_HITS),
+            v.get(Counter.SHADOW_RAYS), v.get(Counter.SHADOW_OCCLUDED),
+            v.get(Counter.REFLECTION_RAYS), v.get(Counter.REFLECTION_HITS)));
+        s.append(String.format(Locale.ROOT, "BVH : %d tests de boite, %d noeuds visités dont %d feuilles"
+                + " (%.1f tests de boite par rayon)%n",
+            v.get(Counter.AABB_TESTS), v.get(Counter.NODES_VISITED), v.get(Counter.LEAVES_VISITED),
+            rays > 0 ? (double) v.get(Counter.AABB_TESTS) / rays : 0.0));
+        if (v.get(Counter.PACKET_TESTS) > 0) {
+            s.append(String.format(Locale.ROOT, "Paquets : %d tests de boite pour tout un paquet de rayons primaires%n",
+                v.get(Counter.PACKET_TESTS)));
+        }
+        s.append(String.format(Locale.ROOT, "Primitives : %d tests (triangles %d, sphères %d, plans %d, autres %d,"
+                + " %.1f par rayon)",
+            primitiveTests, v.get(Counter.TRIANGLE_TESTS), v.get(Counter.SPHERE_TESTS),
+            v.get(Counter.PLANE_TESTS), v.get(Counter.OTHER_TESTS),
+            rays > 0 ? (double) primitiveTests / rays : 0.0));
+        return s.toString();
+    }
+}
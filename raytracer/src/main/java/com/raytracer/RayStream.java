@@ -0,0 +1,132 @@
+package com.raytracer;
+
+import com.geometry.Point;
+import java.util.Arrays;
+
+/**
+ * Flot de rayons d'un rebond, trié avant d'être lancé dans la BVH.
+ * <p>
+ * Le rendu en front d'onde ({@link RayTracer#renderWavefront}) ne trace pas
+ * les rayons d'ombre et de réflexion au fil de la récursion : il les range
+ * ici, avec l'indice de leur propriétaire et leur distance maximale, puis
+ * les trie avant de les lancer. La clé de tri place en tête l'octant de la
+ * direction (ses trois signes, qui fixent aussi l'ordre de visite des fils
+ * dans la BVH), puis la cellule de l'origine sur une grille de
+ * 2<sup>{@value #CELL_BITS}</sup> cellules par axe couvrant la scène,
+ * numérotée le long de la courbe de Morton. Des rayons consécutifs partent
+ * ainsi de points voisins dans la même direction générale et parcourent
+ * les mêmes noeuds, encore présents dans le cache.
+ * </p>
+ * <p>
+ * Un flot appartient à un thread et sert pour toutes ses tuiles : ses
+ * tableaux ne font que grandir.
+ * </p>
+ *
+ * @author Projet Ray Tracer
+ * @version 1.0
+ * @see RayTracer#renderWavefront
+ */
+final class RayStream {
+
+    /** Bits de la cellule d'origine par axe. */
+    static final int CELL_BITS = 8;
+
+    Ray[] rays;
+    int[] owners;     // indice du rayon ou du chemin qui a émis le rayon
+    double[] limits;  // distance maximale du rayon
+    int size;
+
+    private long[] keys;
+    private Ray[] sortedRays;
+    private int[] sortedOwners;
+    private double[] sortedLimits;
+
+    RayStream() {
+        allocate(256);
+    }
+
+    private void allocate(int capacity) {
+        rays = Arrays.copyOf(rays != null ? rays : new Ray[0], capacity);
+        owners = Arrays.copyOf(owners != null ? owners : new int[0], capacity);
+        limits = Arrays.copyOf(limits != null ? limits : new double[0], capacity);
+        keys = new long[capacity];
+        sortedRays = new Ray[capacity];
+        sortedOwners = new int[capacity];
+        sortedLimits = new double[capacity];
+    }
+
+    void clear() {
+        Arrays.fill(rays, 0, size, null);
+        size = 0;
+    }
+
+    void add(Ray ray, int owner, double limit) {
+        if (size == rays.length) {
+            allocate(size * 2);
+        }
+        rays[size] = ray;
+        owners[size] = owner;
+        limits[size] = limit;
+        size++;
+    }
+
+    /**
+     * Trie le flot par octant de direction, puis par cellule d'origine.
+     * L'ordre des rayons de même clé est conservé.
+     * @param bounds boite de la scène (minX, minY, minZ, maxX, maxY, maxZ) ; une
+     *        origine extérieure est rattachée à la cellule la plus proche
+     */
+    void sort(double[] bounds) {
+        double cells = 1 << CELL_BITS;
+        double sx = cells / Math.max(bounds[3] - bounds[0], Double.MIN_NORMAL);
+        double sy = cells / Math.max(bounds[4] - bounds[1], Double.MIN_NORMAL);
+        double sz = cells / Math.max(bounds[5] - bounds[2], Double.MIN_NORMAL);
+        for (int k = 0; k < size; k++) {
+            Ray ray = rays[k];
+            Point o = ray.getOrigin();
+            int octant = (ray.getInvDirX() < 0.0 ? 1 : 0) | (ray.getInvDirY() < 0.0 ? 2 : 0)
+                | (ray.getInvDirZ() < 0.0 ? 4 : 0);
+            long cell = morton(cell(o.getX(), bounds[0], sx), cell(o.getY(), bounds[1], sy),
+                cell(o.getZ(), bounds[2], sz));
+            long key = ((long) octant << (3 * CELL_BITS)) | cell;
+            keys[k] = key << 32 | k;
+        }
+        Arrays.sort(keys, 0, size);
+        for (int k = 0; k < size; k++) {
+            int from = (int) keys[k];
+            sortedRays[k] = rays[from];
+            sortedOwners[k] = owners[from];
+            sortedLimits[k] = limits[from];
+        }
+        Ray[] r = rays;
+        rays = sortedRays;
+        sortedRays = r;
+        int[] o = owners;
+        owners = sortedOwners;
+        sortedOwners = o;
+        double[] l = limits;
+        limits = sortedLimits;
+        sortedLimits = l;
+        Arrays.fill(sortedRays, 0, size, null);
+    }
+
+    private static int cell(double v, double min, double scale) {
+        double c = (v - min) * scale;
+        // NaN et origines hors de la scène : cellule la plus proche
+        if (!(c > 0.0)) {
+            return 0;
+        }
+        return (int) Math.min(c, (1 << CELL_BITS) - 1);
+    }
+
+    // Entrelacement des bits de x, y et z
+    static long morton(int x, int y, int z) {
+        long code = 0;
+        for (int bit = 0; bit < CELL_BITS; bit++) {
+            code |= ((long) (x >> bit) & 1L) << (3 * bit);
+            code |= ((long) (y >> bit) & 1L) << (3 * bit + 1);
+            code |= ((long) (z >> bit) & 1L) << (3 * bit + 2);
+        }
+        return code;
+    }
+}
@@ -2,6 +2,7 @@ package com.raytracer;
 import com.imaging.Color;
 import com.geometry.Vector;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 import com.geometry.Point;
@@ -25,10 +26,41 @@ import com.geometry.Shape;
 public class RayTracer {
     private Scene scene;
     private static final double EPSILON = 1e-4;
-    private final BVHNode bvhRoot;
+    private final LinearBVH bvh;
     private final List<Shape> unboundedShapes;
+    private final BVHBuildStats bvhStats;
+    // Enregistrements d'intersection propres à chaque thread de rendu
+    private final ThreadLocal<HitRecord> closestHits = ThreadLocal.withInitial(HitRecord::new);
+    private final ThreadLocal<HitRecord> candidateHits = ThreadLocal.withInitial(HitRecord::new);
+    // Couleur (r, g, b) produite par shade(), propre à chaque thread
+    private final ThreadLocal<float[]> shadeResults = ThreadLocal.withInitial(() -> new float[3]);
+    // Paquet de rayons primaires propre à chaque thread
+    private final ThreadLocal<RayPacket> packets = ThreadLocal.withInitial(RayPacket::new);
+    // Tampons du rendu en front d'onde propres à chaque thread
+    private final ThreadLocal<Wavefront> wavefronts = ThreadLocal.withInitial(Wavefront::new);
+    // Boite des objets bornés (minX, minY, minZ, maxX, maxY, maxZ), pour trier les flots de rayons
+    private final double[] sceneBounds;
+    // Compteurs de rayons et de parcours, null si désactivés
+    private volatile RayStats stats;
 
     public RayTracer(Scene scene) {
+        this(scene, BVHBuilder.median());
+    }
+
+    /**
+     * @param scene la scène à rendre
+     * @param builder constructeur de BVH (médiane ou SAH)
+     */
+    public RayTracer(Scene scene, BVHBuilder builder) {
+        this(scene, builder, null);
+    }
+
+    /**
+     * @param scene la scène à rendre
+     * @param builder constructeur de BVH (médiane ou SAH)
+     * @param cache cache disque de la BVH (null : construction systématique)
+     */
+    public RayTracer(Scene scene, BVHBuilder builder, BVHCache cache) {
         this.scene = scene;
         List<Shape> bounded = new ArrayList<>();
         List<Shape> unbounded = new ArrayList<>();
@@ -39,39 +71,388 @@ public class RayTracer {
                 unbounded.add(shape);
             }
         }
-        this.bvhRoot = BVHNode.build(bounded);
+        // Les maillages sont éclatés en triangles dans la BVH
+        this.bvh = LinearBVH.build(bounded, builder, cache);
+        this.bvhStats = bvh != null ? bvh.getBuildStats() : BVHBuildStats.collect(null, builder, 0L);
         this.unboundedShapes = unbounded;
+        this.sceneBounds = boundsOf(bounded);
+    }
+
+    private static double[] boundsOf(List<Shape> shapes) {
+        if (shapes.isEmpty()) {
+            return new double[6];
+        }
+        double[] bounds = {
+            Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY,
+            Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY
+        };
+        for (Shape shape : shapes) {
+            AABB box = shape.getBoundingBox();
+            bounds[0] = Math.min(bounds[0], box.getMin().getX());
+            bounds[1] = Math.min(bounds[1], box.getMin().getY());
+            bounds[2] = Math.min(bounds[2], box.getMin().getZ());
+            bounds[3] = Math.max(bounds[3], box.getMax().getX());
+            bounds[4] = Math.max(bounds[4], box.getMax().getY());
+            bounds[5] = Math.max(bounds[5], box.getMax().getZ());
+        }
+        return bounds;
+    }
+
+    /**
+     * @return le bilan de construction de la BVH (noeuds, coût SAH, durée)
+     */
+    public BVHBuildStats getBvhStats() {
+        return bvhStats;
+    }
+
+    /**
+     * @return true si la BVH a été relue depuis le cache disque
+     */
+    public boolean isBvhLoadedFromCache() {
+        return bvh != null && bvh.isLoadedFromCache();
+    }
+
+    /**
+     * @return true si les feuilles de triangles de la BVH sont testées par les noyaux vectoriels
+     */
+    public boolean isBvhVectorized() {
+        return bvh != null && bvh.isVectorized();
+    }
+
+    /**
+     * @return le nombre de noeuds de la BVH large, ou 0 si la BVH est parcourue en arbre binaire
+     */
+    public int getBvhWideNodeCount() {
+        return bvh != null ? bvh.getWideNodeCount() : 0;
+    }
+
+    /**
+     * @return la mémoire occupée par la BVH de la scène, en octets
+     */
+    public long getBvhMemoryFootprint() {
+        return bvh != null ? bvh.getMemoryFootprint() : 0L;
+    }
+
+    /**
+     * Active (ou désactive, avec null) le comptage des rayons et du parcours
+     * de la BVH pour les rendus suivants.
+     * @param stats compteurs à incrémenter, ou null
+     */
+    public void setStats(RayStats stats) {
+        this.stats = stats;
+    }
+
+    /**
+     * @return les compteurs actifs, ou null si le comptage est désactivé
+     */
+    public RayStats getStats() {
+        return stats;
+    }
+
+    // Compteurs du thread courant, ou null si le comptage est désactivé
+    long[] counters() {
+        RayStats s = stats;
+        return s != null ? s.local() : null;
     }
 
     public Color getPixelColor(int i, int j) {
+        long[] counters = counters();
         Ray primaryRay = generateRay(i, j);
-        Optional<Intersection> intersection = findClosestIntersection(primaryRay);
+        Optional<Intersection> intersection = findPrimaryIntersection(primaryRay, counters);
 
         if (intersection.isPresent()) {
-            return computeColor(intersection.get(), primaryRay, scene.getMaxDepth());
+            float[] rgb = shadeResults.get();
+            shade(intersection.get(), primaryRay, scene.getMaxDepth(), rgb, counters);
+            return new Color(rgb[0], rgb[1], rgb[2]);
         }
         return new Color(0f, 0f, 0f);
     }
 
+    /**
+     * Couleur du pixel (i, j) au format RGB compact de {@link java.awt.image.BufferedImage#TYPE_INT_RGB},
+     * sans objet {@link Color} intermédiaire.
+     */
+    public int getPixelRGB(int i, int j) {
+        long[] counters = counters();
+        Ray primaryRay = generateRay(i, j);
+        return shadeRGB(findPrimaryIntersection(primaryRay, counters), primaryRay, counters);
+    }
+
+    /**
+     * Rend un bloc de pixels en lançant ses rayons primaires en un seul
+     * paquet dans la BVH ; les rayons d'ombre et les réflexions restent
+     * individuels. Les couleurs sont celles de {@link #getPixelRGB(int, int)}.
+     * @param x colonne du coin haut gauche du bloc
+     * @param y ligne du coin haut gauche du bloc
+     * @param width largeur du bloc
+     * @param height hauteur du bloc ({@code width * height <= 64})
+     * @param pixels tampon RGB de sortie
+     * @param offset indice du pixel (0, 0) dans le tampon
+     * @param stride nombre d'entiers par ligne du tampon
+     */
+    void renderPacket(int x, int y, int width, int height, int[] pixels, int offset, int stride) {
+        long[] counters = counters();
+        RayPacket packet = packets.get();
+        int n = 0;
+        for (int j = y; j < y + height; j++) {
+            for (int i = x; i < x + width; i++) {
+                packet.rays[n++] = generateRay(i, j);
+            }
+        }
+        packet.size = n;
+        if (bvh != null) {
+            bvh.intersect(packet, counters);
+        } else {
+            for (int k = 0; k < n; k++) {
+                packet.hits[k].reset();
+            }
+        }
+
+        int k = 0;
+        for (int j = y; j < y + height; j++) {
+            int row = offset + j * stride;
+            for (int i = x; i < x + width; i++, k++) {
+                Ray primaryRay = packet.rays[k];
+                HitRecord closest = packet.hits[k];
+                if (closest.isHit() && closest.getT() <= EPSILON) {
+                    closest.reset();
+                }
+                Optional<Intersection> intersection = countPrimary(
+                    intersectUnbounded(primaryRay, closest, counters), counters);
+                pixels[row + i] = shadeRGB(intersection, primaryRay, counters);
+            }
+        }
+    }
+
+    private int shadeRGB(Optional<Intersection> intersection, Ray primaryRay, long[] counters) {
+        if (intersection.isPresent()) {
+            float[] rgb = shadeResults.get();
+            shade(intersection.get(), primaryRay, scene.getMaxDepth(), rgb, counters);
+            return Color.toRGB(rgb[0], rgb[1], rgb[2]);
+        }
+        return 0;
+    }
+
+    private Optional<Intersection> findPrimaryIntersection(Ray primaryRay, long[] counters) {
+        return countPrimary(findClosestIntersection(primaryRay, counters), counters);
+    }
+
+    private static Optional<Intersection> countPrimary(Optional<Intersection> intersection, long[] counters) {
+        if (counters != null) {
+            counters[RayStats.PRIMARY_RAYS]++;
+            if (intersection.isPresent()) {
+                counters[RayStats.PRIMARY_HITS]++;
+            }
+        }
+        return intersection;
+    }
+
+    /**
+     * Rend un bloc de pixels en front d'onde : au lieu de suivre chaque
+     * chemin jusqu'au bout, tous les chemins du bloc avancent d'un rebond à
+     * la fois.
+     * <p>
+     * À chaque rebond, les intersections de tous les rayons du flot sont
+     * calculées, puis les rayons d'ombre de tous les impacts sont rangés
+     * dans un {@link RayStream}, triés par octant de direction et cellule
+     * d'origine, et lancés dans cet ordre. Les réflexions émises forment,
+     * triées de même, le flot du rebond suivant. Le rendu s'arrête quand le
+     * flot est vide. Les couleurs locales et les couleurs spéculaires de
+     * chaque rebond sont gardées par chemin, puis combinées du dernier
+     * rebond au premier avec les opérations de {@code shade()} : les
+     * couleurs sont exactement celles de {@link #getPixelRGB(int, int)}.
+     * </p>
+     * @param x colonne du coin haut gauche du bloc
+     * @param y ligne du coin haut gauche du bloc
+     * @param width largeur du bloc
+     * @param height hauteur du bloc
+     * @param pixels tampon RGB de sortie
+     * @param offset indice du pixel (0, 0) dans le tampon
+     * @param stride nombre d'entiers par ligne du tampon
+     */
+    void renderWavefront(int x, int y, int width, int height, int[] pixels, int offset, int stride) {
+        long[] counters = counters();
+        Wavefront front = wavefronts.get();
+        List<Light> lights = scene.getLights();
+        int lightCount = lights.size();
+        int levels = scene.getMaxDepth() + 1;
+        int paths = width * height;
+        front.reserve(paths, levels);
+
+        // Rayons primaires, dans l'ordre des pixels (déjà cohérents)
+        RayStream stream = front.rays;
+        stream.clear();
+        for (int j = y; j < y + height; j++) {
+            for (int i = x; i < x + width; i++) {
+                stream.add(generateRay(i, j), stream.size, Double.POSITIVE_INFINITY);
+            }
+        }
+        Arrays.fill(front.lastDepth, 0, paths, -1);
+
+        float[] rgb = shadeResults.get();
+        for (int depth = 0; stream.size > 0; depth++) {
+            int m = stream.size;
+            front.reserveHits(m, lightCount);
+
+            // Intersections les plus proches du rebond
+            for (int k = 0; k < m; k++) {
+                Optional<Intersection> hit = findClosestIntersection(stream.rays[k], counters);
+                if (depth == 0) {
+                    countPrimary(hit, counters);
+                } else {
+                    countReflection(hit, counters);
+                }
+                front.hits[k] = hit.orElse(null);
+            }
+
+            // Rayons d'ombre de tous les impacts, triés puis lancés
+            RayStream shadows = front.shadows;
+            shadows.clear();
+            for (int k = 0; k < m; k++) {
+                Intersection hit = front.hits[k];
+                if (hit == null) {
+                    continue;
+                }
+                Point point = hit.getPoint();
+                Vector orientedNormal = orientedNormal(hit, stream.rays[k]);
+                front.normals[k] = orientedNormal;
+                for (int li = 0; li < lightCount; li++) {
+                    Light light = lights.get(li);
+                    Vector lightDir = lightDirection(light, point);
+                    if (lightDir != null && orientedNormal.dot(lightDir) > 0.0) {
+                        shadows.add(new Ray(offsetOrigin(point, orientedNormal), lightDir), k * lightCount + li,
+                            shadowDistance(light, point));
+                    }
+                }
+            }
+            shadows.sort(sceneBounds);
+            for (int s = 0; s < shadows.size; s++) {
+                boolean inShadow = isOccluded(shadows.rays[s], shadows.limits[s], counters);
+                countShadow(inShadow, counters);
+                front.shadowed[shadows.owners[s]] = inShadow;
+            }
+
+            // Couleurs locales, et réflexions du rebond suivant
+            RayStream next = front.next;
+            next.clear();
+            for (int k = 0; k < m; k++) {
+                Intersection hit = front.hits[k];
+                if (hit == null) {
+                    continue;
+                }
+                int path = stream.owners[k];
+                int slot = path * levels + depth;
+                Shape shape = hit.getShape();
+                Point point = hit.getPoint();
+                Vector orientedNormal = front.normals[k];
+                shadeLocal(shape, point, orientedNormal, front.shadowed, k * lightCount, counters, rgb);
+                front.colors[slot * 3] = rgb[0];
+                front.colors[slot * 3 + 1] = rgb[1];
+                front.colors[slot * 3 + 2] = rgb[2];
+                front.lastDepth[path] = depth;
+                if (hasSpecular(shape) && depth < levels - 1) {
+                    front.specular[slot] = shape.getSpecular();
+                    next.add(reflectRay(stream.rays[k], point, orientedNormal), path, Double.POSITIVE_INFINITY);
+                }
+                front.hits[k] = null;
+                front.normals[k] = null;
+            }
+            next.sort(sceneBounds);
+            front.swap();
+            stream = front.rays;
+        }
+
+        // Combinaison des rebonds, du dernier au premier
+        int path = 0;
+        for (int j = y; j < y + height; j++) {
+            int row = offset + j * stride;
+            for (int i = x; i < x + width; i++, path++) {
+                int last = front.lastDepth[path];
+                if (last < 0) {
+                    pixels[row + i] = 0;
+                    continue;
+                }
+                float r = 0f;
+                float g = 0f;
+                float b = 0f;
+                for (int depth = last; depth >= 0; depth--) {
+                    int slot = path * levels + depth;
+                    float lr = front.colors[slot * 3];
+                    float lg = front.colors[slot * 3 + 1];
+                    float lb = front.colors[slot * 3 + 2];
+                    if (depth < last) {
+                        Color spec = front.specular[slot];
+                        lr += r * spec.getR();
+                        lg += g * spec.getG();
+                        lb += b * spec.getB();
+                    }
+                    r = Math.min(1.0f, Math.max(0.0f, lr));
+                    g = Math.min(1.0f, Math.max(0.0f, lg));
+                    b = Math.min(1.0f, Math.max(0.0f, lb));
+                }
+                pixels[row + i] = Color.toRGB(r, g, b);
+            }
+        }
+        Arrays.fill(front.specular, 0, paths * levels, null);
+    }
+
     /**
      * Calcule la couleur d'un point en fonction de l'illumination
      * @param intersection l'intersection avec l'objet
-     * @return la couleur calculée
+     * @param out reçoit la couleur calculée (r, g, b), bornée à [0, 1] ; écrit
+     *        en dernier, le même tableau sert donc à toute la récursion
+     * @param counters compteurs du thread courant, ou null
      */
-    private Color computeColor(Intersection intersection, Ray incomingRay, int remainingDepth) {
+    private void shade(Intersection intersection, Ray incomingRay, int remainingDepth, float[] out,
+                       long[] counters) {
         // Récupérer les informations de l’intersection
         Shape shape = intersection.getShape();
         Point point = intersection.getPoint();
+        Vector orientedNormal = orientedNormal(intersection, incomingRay);
+
+        // Ambiante, diffuse et spéculaire ; out est libre jusqu'à la réflexion
+        shadeLocal(shape, point, orientedNormal, null, 0, counters, out);
+        float r = out[0];
+        float g = out[1];
+        float b = out[2];
+
+        // ================== REFLEXION (bonus) ==================
+        if (hasSpecular(shape) && remainingDepth > 0) {
+            Ray reflectRay = reflectRay(incomingRay, point, orientedNormal);
+            Optional<Intersection> reflectHit = countReflection(
+                findClosestIntersection(reflectRay, counters), counters);
 
-        // Normale au point d’intersection
-        Vector geometricNormal = shape.getNormalAt(point).normalize();
+            if (reflectHit.isPresent()) {
+                shade(reflectHit.get(), reflectRay, remainingDepth - 1, out, counters);
+                Color spec = shape.getSpecular();
 
-        // Oriente la normale pour qu'elle fasse face au rayon incident (évite un rebond vers l'intérieur)
-        Vector orientedNormal = geometricNormal;
-        if (orientedNormal.dot(incomingRay.getDirection()) > 0) {
-            orientedNormal = orientedNormal.scale(-1);
+                r += out[0] * spec.getR();
+                g += out[1] * spec.getG();
+                b += out[2] * spec.getB();
+            }
         }
 
+        // Clamp [0,1]
+        r = Math.min(1.0f, Math.max(0.0f, r));
+        g = Math.min(1.0f, Math.max(0.0f, g));
+        b = Math.min(1.0f, Math.max(0.0f, b));
+
+        out[0] = r;
+        out[1] = g;
+        out[2] = b;
+    }
+
+    /**
+     * Couleur locale d'un point : ambiante, puis diffuse (Lambert) et
+     * spéculaire (Blinn-Phong) de chaque lumière visible, sans réflexion ni
+     * bornage.
+     * @param shadowed résultats des rayons d'ombre déjà lancés, indexés par
+     *        {@code shadowOffset} + indice de la lumière ; null pour lancer
+     *        les rayons d'ombre ici
+     * @param out reçoit la couleur (r, g, b)
+     */
+    private void shadeLocal(Shape shape, Point point, Vector orientedNormal, boolean[] shadowed,
+                            int shadowOffset, long[] counters, float[] out) {
         // Composante ambiante
         Color ambient = scene.getAmbient();
         float r = ambient.getR();
@@ -87,56 +468,30 @@ public class RayTracer {
             eye.getZ() - point.getZ()
         ).normalize();
 
-        // (Double face géré par lumière ci-dessous)
-
         // Contribution de chaque lumière (Lambert + Blinn-Phong + ombres)
-        for (Light light : scene.getLights()) {
-            Vector lightDir;
-            double maxDistance = Double.POSITIVE_INFINITY; // utile pour les PointLight
-
-            if (light instanceof DirectionalLight) {
-                DirectionalLight dirLight = (DirectionalLight) light;
-                lightDir = dirLight.getDirection().normalize();
-            } else if (light instanceof PointLight) {
-                PointLight pointLight = (PointLight) light;
-                Point lightPos = pointLight.getPosition();
-
-                double dx = lightPos.getX() - point.getX();
-                double dy = lightPos.getY() - point.getY();
-                double dz = lightPos.getZ() - point.getZ();
-
-                maxDistance = Math.sqrt(dx * dx + dy * dy + dz * dz);
-                lightDir = new Vector(dx, dy, dz).normalize();
-            } else {
+        List<Light> lights = scene.getLights();
+        for (int li = 0; li < lights.size(); li++) {
+            Light light = lights.get(li);
+            Vector lightDir = lightDirection(light, point);
+            if (lightDir == null) {
                 continue; // Type de lumière non supporté
             }
 
-            // TEST D’OMBRE 
-            // On décale légèrement l’origine le long de la normale pour éviter 
-            // de se réintersecter avec l'objet lui-même.
-            Point shadowOrigin = new Point(
-                point.getX() + orientedNormal.getX() * EPSILON,
-                point.getY() + orientedNormal.getY() * EPSILON,
-                point.getZ() + orientedNormal.getZ() * EPSILON
-            );
-            Ray shadowRay = new Ray(shadowOrigin, lightDir);
-
-            Optional<Intersection> shadowHit = findClosestIntersection(shadowRay);
-            boolean inShadow = false;
-
-            if (shadowHit.isPresent()) {
-                double tShadow = shadowHit.get().getT();
-
-                if (light instanceof PointLight) {
-                    // L’objet doit être entre le point et la lumière
-                    if (tShadow > EPSILON && tShadow < maxDistance - EPSILON) {
-                        inShadow = true;
-                    }
-                } else { // DirectionalLight
-                    if (tShadow > EPSILON) {
-                        inShadow = true;
-                    }
-                }
+            // Faces tournées à l'opposé de la lumière : pas de contribution,
+            // inutile de lancer le rayon d'ombre
+            double dotNL = orientedNormal.dot(lightDir);
+            if (dotNL <= 0.0) {
+                continue;
+            }
+
+            // TEST D’OMBRE : l’objet doit être entre le point et la lumière
+            boolean inShadow;
+            if (shadowed != null) {
+                inShadow = shadowed[shadowOffset + li];
+            } else {
+                Ray shadowRay = new Ray(offsetOrigin(point, orientedNormal), lightDir);
+                inShadow = isOccluded(shadowRay, shadowDistance(light, point), counters);
+                countShadow(inShadow, counters);
             }
 
             // Si ce point est dans l’ombre pour cette lumière → pas de diffuse ni specular
@@ -145,12 +500,6 @@ public class RayTracer {
             }
 
             // ================== DIFFUSE (Lambert) ==================
-            // Faces tournées à l'opposé de la lumière : pas de contribution
-            double dotNL = orientedNormal.dot(lightDir);
-            if (dotNL <= 0.0) {
-                continue;
-            }
-
             double diffuseIntensity = dotNL; // normales et lightDir sont normalisés
             Color lightColor = light.getColor();
             Color diffuseColor = shape.getDiffuse();
@@ -174,41 +523,92 @@ public class RayTracer {
             }
         }
 
-        // ================== REFLEXION (bonus) ==================
-        boolean hasSpecular = shape.getSpecular() != null && (
-            shape.getSpecular().getR() > 0f || shape.getSpecular().getG() > 0f || shape.getSpecular().getB() > 0f
-        );
+        out[0] = r;
+        out[1] = g;
+        out[2] = b;
+    }
 
-        if (hasSpecular && remainingDepth > 0) {
-            Vector d = incomingRay.getDirection();
-            // r = d - 2*(d·n)*n (n déjà orientée vers l'extérieur par rapport au rayon)
-            Vector reflectDir = d.subtract(orientedNormal.scale(2 * d.dot(orientedNormal))).normalize();
+    // Normale orientée face au rayon incident (évite un rebond vers l'intérieur)
+    private static Vector orientedNormal(Intersection intersection, Ray incomingRay) {
+        Vector normal = intersection.getShape().getNormal(intersection).normalize();
+        if (normal.dot(incomingRay.getDirection()) > 0) {
+            normal = normal.scale(-1);
+        }
+        return normal;
+    }
 
-            Point reflectOrigin = new Point(
-                point.getX() + orientedNormal.getX() * EPSILON,
-                point.getY() + orientedNormal.getY() * EPSILON,
-                point.getZ() + orientedNormal.getZ() * EPSILON
-            );
+    // Direction normalisée du point vers la lumière, null pour un type de lumière non supporté
+    private static Vector lightDirection(Light light, Point point) {
+        if (light instanceof DirectionalLight) {
+            return ((DirectionalLight) light).getDirection().normalize();
+        }
+        if (light instanceof PointLight) {
+            Point lightPos = ((PointLight) light).getPosition();
+            return new Vector(
+                lightPos.getX() - point.getX(),
+                lightPos.getY() - point.getY(),
+                lightPos.getZ() - point.getZ()
+            ).normalize();
+        }
+        return null;
+    }
 
-            Ray reflectRay = new Ray(reflectOrigin, reflectDir);
-            Optional<Intersection> reflectHit = findClosestIntersection(reflectRay);
+    // Portée du rayon d'ombre : jusqu'à la lumière ponctuelle, illimitée pour une directionnelle
+    private static double shadowDistance(Light light, Point point) {
+        if (light instanceof PointLight) {
+            Point lightPos = ((PointLight) light).getPosition();
+            double dx = lightPos.getX() - point.getX();
+            double dy = lightPos.getY() - point.getY();
+            double dz = lightPos.getZ() - point.getZ();
+            return Math.sqrt(dx * dx + dy * dy + dz * dz) - EPSILON;
+        }
+        return Double.POSITIVE_INFINITY;
+    }
 
-            if (reflectHit.isPresent()) {
-                Color reflected = computeColor(reflectHit.get(), reflectRay, remainingDepth - 1);
-                Color spec = shape.getSpecular();
+    // Origine décalée le long de la normale, pour ne pas se réintersecter avec l'objet lui-même
+    private static Point offsetOrigin(Point point, Vector orientedNormal) {
+        return new Point(
+            point.getX() + orientedNormal.getX() * EPSILON,
+            point.getY() + orientedNormal.getY() * EPSILON,
+            point.getZ() + orientedNormal.getZ() * EPSILON
+        );
+    }
 
-                r += reflected.getR() * spec.getR();
-                g += reflected.getG() * spec.getG();
-                b += reflected.getB() * spec.getB();
+    private static boolean hasSpecular(Shape shape) {
+        Color specular = shape.getSpecular();
+        return specular != null && (specular.getR() > 0f || specular.getG() > 0f || specular.getB() > 0f);
+    }
+
+    // r = d - 2*(d·n)*n (n déjà orientée vers l'extérieur par rapport au rayon)
+    private static Ray reflectRay(Ray incomingRay, Point point, Vector orientedNormal) {
+        Vector d = incomingRay.getDirection();
+        Vector reflectDir = d.subtract(orientedNormal.scale(2 * d.dot(orientedNormal))).normalize();
+        return new Ray(offsetOrigin(point, orientedNormal), reflectDir);
+    }
+
+    private static Optional<Intersection> countReflection(Optional<Intersection> intersection, long[] counters) {
+        if (counters != null) {
+            counters[RayStats.REFLECTION_RAYS]++;
+            if (intersection.isPresent()) {
+                counters[RayStats.REFLECTION_HITS]++;
             }
         }
+        return intersection;
+    }
 
-        // Clamp [0,1]
-        r = Math.min(1.0f, Math.max(0.0f, r));
-        g = Math.min(1.0f, Math.max(0.0f, g));
-        b = Math.min(1.0f, Math.max(0.0f, b));
+    private static void countTest(Shape shape, long[] counters) {
+        if (counters != null) {
+            counters[RayStats.testCounter(shape)]++;
+        }
+    }
 
-        return new Color(r, g, b);
+    private static void countShadow(boolean inShadow, long[] counters) {
+        if (counters != null) {
+            counters[RayStats.SHADOW_RAYS]++;
+            if (inShadow) {
+                counters[RayStats.SHADOW_OCCLUDED]++;
+            }
+        }
     }
 
 
@@ -248,29 +648,59 @@ public class RayTracer {
          * @return Optional contenant l'intersection la plus proche, ou empty si aucune
          */
         public Optional<Intersection> findClosestIntersection(Ray ray) {
-            Intersection closest = null;
-            double minDistance = Double.POSITIVE_INFINITY;
-
-            if (bvhRoot != null) {
-                Optional<Intersection> hit = bvhRoot.intersect(ray, minDistance);
-                if (hit.isPresent() && hit.get().getT() > EPSILON) {
-                    closest = hit.get();
-                    minDistance = closest.getT();
-                }
+            return findClosestIntersection(ray, counters());
+        }
+
+        private Optional<Intersection> findClosestIntersection(Ray ray, long[] counters) {
+            HitRecord closest = closestHits.get();
+            closest.reset();
+
+            if (bvh != null && bvh.intersect(ray, Double.POSITIVE_INFINITY, closest, counters)
+                    && closest.getT() <= EPSILON) {
+                closest.reset();
             }
+            return intersectUnbounded(ray, closest, counters);
+        }
 
+        // Complète l'intersection trouvée dans la BVH par les formes non bornées (plans)
+        private Optional<Intersection> intersectUnbounded(Ray ray, HitRecord closest, long[] counters) {
+            HitRecord candidate = candidateHits.get();
             for (Shape shape : unboundedShapes) {
-                Optional<Intersection> intersection = shape.intersect(ray);
-                if (intersection.isPresent()) {
-                    Intersection inter = intersection.get();
-                    double t = inter.getT();
-                    if (t > EPSILON && t < minDistance) {
-                        minDistance = t;
-                        closest = inter;
-                    }
+                countTest(shape, counters);
+                if (shape.intersect(ray, closest.getT(), candidate) && candidate.getT() > EPSILON) {
+                    closest.set(candidate.getShape(), candidate.getT(), candidate.getPrimitiveIndex());
                 }
             }
 
-            return Optional.ofNullable(closest);
+            // Seule l'intersection retenue est matérialisée (calcul du point)
+            return Optional.ofNullable(closest.toIntersection(ray));
+        }
+
+        /**
+         * Teste si un objet coupe le rayon entre EPSILON et tMax (rayons d'ombre).
+         * <p>
+         * Contrairement à {@link #findClosestIntersection(Ray)}, la recherche
+         * s'arrête dès la première intersection trouvée dans l'intervalle.
+         * </p>
+         * @param ray le rayon à tester
+         * @param tMax distance maximale (exclue), Double.POSITIVE_INFINITY si aucune
+         * @return true si le rayon est bloqué avant tMax
+         */
+        public boolean isOccluded(Ray ray, double tMax) {
+            return isOccluded(ray, tMax, counters());
+        }
+
+        private boolean isOccluded(Ray ray, double tMax, long[] counters) {
+            if (bvh != null && bvh.isOccluded(ray, EPSILON, tMax, counters)) {
+                return true;
+            }
+            HitRecord candidate = candidateHits.get();
+            for (Shape shape : unboundedShapes) {
+                countTest(shape, counters);
+                if (shape.intersect(ray, tMax, candidate) && candidate.getT() > EPSILON) {
+                    return true;
+                }
+            }
+            return false;
         }
 }
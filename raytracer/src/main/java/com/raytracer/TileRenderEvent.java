@@ -0,0 +1,50 @@
+package com.raytracer;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Événement Java Flight Recorder : rendu d'une tuile de l'image.
+ * <p>
+ * La position et la durée de chaque tuile montrent les zones coûteuses de
+ * l'image. Le nombre total de rayons (primaires, d'ombre et réfléchis)
+ * n'est connu que si le comptage est actif ({@link RayTracer#setStats(RayStats)}) ;
+ * il vaut -1 sinon.
+ * </p>
+ *
+ * @author Projet Ray Tracer
+ * @version 1.0
+ * @see TileRenderer
+ */
+@Name("com.raytracer.TileRender")
+@Label("Rendu d'une tuile")
+@Category("Ray Tracer")
+@StackTrace(false)
+final class TileRenderEvent extends Event {
+    @Label("Rang")
+    @Description("Rang de la tuile dans l'ordre de parcours")
+    int index;
+
+    @Label("x")
+    int x;
+
+    @Label("y")
+    int y;
+
+    @Label("Largeur")
+    int width;
+
+    @Label("Hauteur")
+    int height;
+
+    @Label("Rayons primaires")
+    long primaryRays;
+
+    @Label("Rayons")
+    @Description("Rayons primaires, d'ombre et réfléchis ; -1 sans comptage des rayons")
+    long rays;
+}
@@ -0,0 +1,115 @@
+package com.raytracer;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Durées de rendu des tuiles d'une image.
+ * <p>
+ * Le résumé (minimum, moyenne, 95e centile, maximum) suffit pour comparer
+ * deux tailles de tuiles ; le détail par tuile s'exporte en CSV pour
+ * repérer les zones coûteuses de l'image.
+ * </p>
+ *
+ * @author Projet Ray Tracer
+ * @version 1.0
+ * @see TileRenderer
+ */
+public class TileRenderStats {
+    private final int tileSize;
+    private final TileRenderer.Order order;
+    private final TileRenderer.Tile[] tiles;
+    private final long[] tileNanos;
+    private final long wallTimeMillis;
+
+    public TileRenderStats(int tileSize, TileRenderer.Order order, TileRenderer.Tile[] tiles,
+                           long[] tileNanos, long wallTimeMillis) {
+        this.tileSize = tileSize;
+        this.order = order;
+        this.tiles = tiles;
+        this.tileNanos = tileNanos;
+        this.wallTimeMillis = wallTimeMillis;
+    }
+
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    public TileRenderer.Order getOrder() {
+        return order;
+    }
+
+    public int getTileCount() {
+        return tiles.length;
+    }
+
+    public TileRenderer.Tile getTile(int index) {
+        return tiles[index];
+    }
+
+    /**
+     * @return la durée de rendu de la tuile d'indice donné (ordre de parcours), en nanosecondes
+     */
+    public long getTileNanos(int index) {
+        return tileNanos[index];
+    }
+
+    public long getWallTimeMillis() {
+        return wallTimeMillis;
+    }
+
+    /**
+     * @param p centile entre 0 et 100
+     * @return la durée de tuile correspondante, en millisecondes
+     */
+    public double getPercentileMillis(double p) {
+        if (tileNanos.length == 0) {
+            return 0.0;
+        }
+        long[] sorted = tileNanos.clone();
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(p / 100.0 * sorted.length) - 1;
+        index = Math.max(0, Math.min(sorted.length - 1, index));
+        return sorted[index] / 1e6;
+    }
+
+    public double getMeanTileMillis() {
+        if (tileNanos.length == 0) {
+            return 0.0;
+        }
+        long total = 0;
+        for (long n : tileNanos) {
+            total += n;
+        }
+        return total / 1e6 / tileNanos.length;
+    }
+
+    /**
+     * Écrit une ligne par tuile : position, taille et durée.
+     * @param path fichier CSV à créer (remplacé s'il existe)
+     */
+    public void writeCsv(Path path) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(path)) {
+            out.write("rang,x,y,largeur,hauteur,duree_ms");
+            out.newLine();
+            for (int i = 0; i < tiles.length; i++) {
+                TileRenderer.Tile t = tiles[i];
+                out.write(String.format(Locale.ROOT, "%d,%d,%d,%d,%d,%.3f",
+                    i, t.getX(), t.getY(), t.getWidth(), t.getHeight(), tileNanos[i] / 1e6));
+                out.newLine();
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT,
+            "Tuiles %dx%d (%s) : %d tuiles, min %.2f ms, moyenne %.2f ms, p95 %.2f ms, max %.2f ms, rendu en %d ms",
+            tileSize, tileSize, order, tiles.length, getPercentileMillis(0), getMeanTileMillis(),
+            getPercentileMillis(95), getPercentileMillis(100), wallTimeMillis);
+    }
+}
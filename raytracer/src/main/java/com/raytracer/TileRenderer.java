@@ -0,0 +1,460 @@
+package com.raytracer;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+
+/**
+ * Ordonnanceur de rendu par tuiles.
+ * <p>
+ * L'image est découpée en tuiles carrées de {@code tileSize} pixels de côté,
+ * parcourues dans un ordre configurable (voir {@link Order}). Les tuiles sont
+ * réparties sur un {@link ForkJoinPool} par découpage récursif de la liste :
+ * un thread qui a fini sa part vole la moitié restante d'un autre, ce qui
+ * évite qu'une poignée de lignes coûteuses (un maillage dense au milieu du
+ * ciel) ne retarde la fin de l'image.
+ * </p>
+ * <p>
+ * Les pixels sont écrits directement au format RGB compact dans un tampon
+ * {@code int[]} partagé, en pratique celui de l'image de sortie
+ * ({@link #render(RayTracer, BufferedImage, IntConsumer)}) : ni copie finale,
+ * ni objet {@link com.imaging.Color} par pixel.
+ * </p>
+ * <p>
+ * Avec {@link #withPacketSize(int)}, chaque tuile est rendue par blocs de
+ * N x N pixels dont les rayons primaires parcourent la BVH en un seul
+ * paquet ({@link RayTracer#renderPacket}) : l'image est identique, seul le
+ * coût de la visibilité primaire change.
+ * </p>
+ * <p>
+ * Avec {@link #withWavefront(boolean)}, chaque tuile est rendue en front
+ * d'onde ({@link RayTracer#renderWavefront}) : les rayons d'ombre et de
+ * réflexion de toute la tuile sont rassemblés rebond par rebond, triés,
+ * puis lancés ensemble. L'image est encore identique ; ce mode l'emporte
+ * sur les paquets.
+ * </p>
+ * <p>
+ * La durée de chaque tuile est mesurée et restituée dans un
+ * {@link TileRenderStats}, pour ajuster la taille des tuiles à la machine.
+ * </p>
+ *
+ * @author Projet Ray Tracer
+ * @version 1.0
+ * @see TileRenderStats
+ */
+public class TileRenderer {
+
+    /** Ordre de parcours des tuiles. */
+    public enum Order {
+        /** Ligne par ligne, de gauche à droite. */
+        SCANLINE,
+        /** En spirale depuis le centre de l'image (le sujet apparaît en premier). */
+        SPIRAL,
+        /** Courbe de Morton (ordre Z) : tuiles voisines proches dans la liste. */
+        MORTON,
+        /** Courbe de Hilbert : comme Morton, sans les sauts entre quadrants. */
+        HILBERT
+    }
+
+    public static final int DEFAULT_TILE_SIZE = 32;
+
+    /** Côté maximal d'un paquet de rayons primaires (64 rayons). */
+    public static final int MAX_PACKET_SIZE = 8;
+
+    private final int tileSize;
+    private final Order order;
+    private final ForkJoinPool pool;
+    private final int packetSize;
+    private final boolean wavefront;
+
+    /**
+     * Constructeur par défaut : tuiles de {@value #DEFAULT_TILE_SIZE} pixels, ordre de Hilbert.
+     */
+    public TileRenderer() {
+        this(DEFAULT_TILE_SIZE, Order.HILBERT);
+    }
+
+    /**
+     * @param tileSize côté des tuiles en pixels (>= 1)
+     * @param order ordre de parcours
+     */
+    public TileRenderer(int tileSize, Order order) {
+        this(tileSize, order, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param tileSize côté des tuiles en pixels (>= 1)
+     * @param order ordre de parcours
+     * @param pool pool de threads exécutant les tuiles
+     */
+    public TileRenderer(int tileSize, Order order, ForkJoinPool pool) {
+        this(tileSize, order, pool, 0, false);
+    }
+
+    private TileRenderer(int tileSize, Order order, ForkJoinPool pool, int packetSize, boolean wavefront) {
+        if (tileSize < 1) {
+            throw new IllegalArgumentException("La taille des tuiles doit être >= 1");
+        }
+        if (order == null || pool == null) {
+            throw new IllegalArgumentException("L'ordre et le pool ne peuvent pas être null");
+        }
+        this.tileSize = tileSize;
+        this.order = order;
+        this.pool = pool;
+        this.packetSize = packetSize;
+        this.wavefront = wavefront;
+    }
+
+    /**
+     * @param packetSize côté des paquets de rayons primaires, de 2 à
+     *        {@value #MAX_PACKET_SIZE} (0 : un rayon primaire à la fois)
+     * @return un ordonnanceur identique qui rend les tuiles par paquets
+     */
+    public TileRenderer withPacketSize(int packetSize) {
+        if (packetSize != 0 && (packetSize < 2 || packetSize > MAX_PACKET_SIZE)) {
+            throw new IllegalArgumentException("La taille des paquets doit être 0 ou comprise entre 2 et "
+                + MAX_PACKET_SIZE + " : " + packetSize);
+        }
+        return new TileRenderer(tileSize, order, pool, packetSize, wavefront);
+    }
+
+    /**
+     * @param wavefront true pour rendre chaque tuile en front d'onde
+     * @return un ordonnanceur identique qui rend les tuiles en front d'onde (ou non)
+     */
+    public TileRenderer withWavefront(boolean wavefront) {
+        return new TileRenderer(tileSize, order, pool, packetSize, wavefront);
+    }
+
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    public Order getOrder() {
+        return order;
+    }
+
+    /**
+     * @return le côté des paquets de rayons primaires, 0 si le rendu est rayon par rayon
+     */
+    public int getPacketSize() {
+        return packetSize;
+    }
+
+    /**
+     * @return true si les tuiles sont rendues en front d'onde
+     */
+    public boolean isWavefront() {
+        return wavefront;
+    }
+
+    /**
+     * Rend l'image complète de la scène du ray tracer.
+     * @param rayTracer moteur de rendu (partagé entre threads)
+     * @param width largeur de l'image
+     * @param height hauteur de l'image
+     * @param pixels tampon de sortie RGB, ligne par ligne ({@code width * height} entiers)
+     * @param progress appelé avec le nombre de tuiles terminées (peut être null)
+     * @return les durées de rendu des tuiles
+     */
+    public TileRenderStats render(RayTracer rayTracer, int width, int height, int[] pixels, IntConsumer progress) {
+        return render(rayTracer, width, height, pixels, 0, width, progress, null);
+    }
+
+    /**
+     * Rend la scène directement dans le tampon de pixels d'une image
+     * {@link BufferedImage#TYPE_INT_RGB}.
+     * @param rayTracer moteur de rendu (partagé entre threads)
+     * @param image image de destination, aux dimensions de la scène
+     * @param progress appelé avec le nombre de tuiles terminées (peut être null)
+     * @return les durées de rendu des tuiles
+     */
+    public TileRenderStats render(RayTracer rayTracer, BufferedImage image, IntConsumer progress) {
+        return render(rayTracer, image, progress, null);
+    }
+
+    /**
+     * Rend la scène dans l'image en relevant le coût de chaque pixel.
+     * @param heatmap carte de coût aux dimensions de l'image (null : aucun relevé) ;
+     *        ses mesures par compteurs exigent un {@link RayStats} actif sur le ray tracer.
+     *        Le coût étant relevé pixel par pixel, ni les paquets ni le front d'onde ne sont utilisés
+     * @return les durées de rendu des tuiles
+     */
+    public TileRenderStats render(RayTracer rayTracer, BufferedImage image, IntConsumer progress,
+                                  CostHeatmap heatmap) {
+        if (heatmap != null) {
+            if (heatmap.getWidth() != image.getWidth() || heatmap.getHeight() != image.getHeight()) {
+                throw new IllegalArgumentException("La carte de coût doit avoir les dimensions de l'image");
+            }
+            if (heatmap.getMetric().usesCounters() && rayTracer.getStats() == null) {
+                throw new IllegalArgumentException("La carte de coût (" + heatmap.getMetric().getLabel()
+                    + ") demande le comptage des rayons (RayTracer.setStats)");
+            }
+        }
+        if (image.getType() != BufferedImage.TYPE_INT_RGB
+                || !(image.getRaster().getSampleModel() instanceof SinglePixelPackedSampleModel)) {
+            throw new IllegalArgumentException("L'image de destination doit être de type TYPE_INT_RGB");
+        }
+        SinglePixelPackedSampleModel model = (SinglePixelPackedSampleModel) image.getRaster().getSampleModel();
+        DataBufferInt buffer = (DataBufferInt) image.getRaster().getDataBuffer();
+        return render(rayTracer, image.getWidth(), image.getHeight(), buffer.getData(), buffer.getOffset(),
+            model.getScanlineStride(), progress, heatmap);
+    }
+
+    private TileRenderStats render(RayTracer rayTracer, int width, int height, int[] pixels,
+                                   int offset, int stride, IntConsumer progress, CostHeatmap heatmap) {
+        if (pixels.length < offset + (long) stride * (height - 1) + width) {
+            throw new IllegalArgumentException("Tampon de pixels trop petit pour " + width + "x" + height);
+        }
+        Tile[] tiles = tiles(width, height);
+        long[] nanos = new long[tiles.length];
+        AtomicInteger done = new AtomicInteger();
+        Target target = new Target(rayTracer, pixels, offset, stride, tiles, nanos, done, progress, heatmap,
+            packetSize, wavefront);
+        long start = System.nanoTime();
+        pool.invoke(new TileTask(target, 0, tiles.length));
+        long wallMillis = (System.nanoTime() - start) / 1_000_000;
+        return new TileRenderStats(tileSize, order, tiles, nanos, wallMillis);
+    }
+
+    /**
+     * Découpe l'image en tuiles, dans l'ordre de parcours configuré.
+     */
+    public Tile[] tiles(int width, int height) {
+        int tilesX = (width + tileSize - 1) / tileSize;
+        int tilesY = (height + tileSize - 1) / tileSize;
+        List<Tile> list = new ArrayList<>(tilesX * tilesY);
+        for (int ty = 0; ty < tilesY; ty++) {
+            for (int tx = 0; tx < tilesX; tx++) {
+                int x = tx * tileSize;
+                int y = ty * tileSize;
+                list.add(new Tile(tx, ty, x, y, Math.min(tileSize, width - x), Math.min(tileSize, height - y)));
+            }
+        }
+        Tile[] tiles = list.toArray(new Tile[0]);
+        switch (order) {
+            case SPIRAL:
+                sortSpiral(tiles, tilesX, tilesY);
+                break;
+            case MORTON:
+                Arrays.sort(tiles, Comparator.comparingLong(t -> morton(t.tileX, t.tileY)));
+                break;
+            case HILBERT:
+                int n = Integer.highestOneBit(Math.max(1, Math.max(tilesX, tilesY) - 1)) << 1;
+                Arrays.sort(tiles, Comparator.comparingLong(t -> hilbert(n, t.tileX, t.tileY)));
+                break;
+            default:
+                break; // SCANLINE : ordre de création
+        }
+        return tiles;
+    }
+
+    // Anneaux de tuiles autour du centre, chaque anneau parcouru par angle croissant
+    private static void sortSpiral(Tile[] tiles, int tilesX, int tilesY) {
+        double cx = (tilesX - 1) / 2.0;
+        double cy = (tilesY - 1) / 2.0;
+        Arrays.sort(tiles, Comparator
+            .comparingDouble((Tile t) -> Math.max(Math.abs(t.tileX - cx), Math.abs(t.tileY - cy)))
+            .thenComparingDouble(t -> Math.atan2(t.tileY - cy, t.tileX - cx)));
+    }
+
+    // Entrelacement des bits de x et y
+    static long morton(int x, int y) {
+        long code = 0;
+        for (int bit = 0; bit < 31; bit++) {
+            code |= ((long) (x >> bit) & 1L) << (2 * bit);
+            code |= ((long) (y >> bit) & 1L) << (2 * bit + 1);
+        }
+        return code;
+    }
+
+    // Distance le long de la courbe de Hilbert d'une grille n x n (n puissance de 2)
+    static long hilbert(int n, int x, int y) {
+        long d = 0;
+        for (int s = n / 2; s > 0; s /= 2) {
+            int rx = (x & s) > 0 ? 1 : 0;
+            int ry = (y & s) > 0 ? 1 : 0;
+            d += (long) s * s * ((3 * rx) ^ ry);
+            // Rotation du quadrant
+            if (ry == 0) {
+                if (rx == 1) {
+                    x = n - 1 - x;
+                    y = n - 1 - y;
+                }
+                int tmp = x;
+                x = y;
+                y = tmp;
+            }
+        }
+        return d;
+    }
+
+    /**
+     * Tuile rectangulaire de l'image (les tuiles du bord droit et du bas
+     * peuvent être plus petites).
+     */
+    public static final class Tile {
+        final int tileX;
+        final int tileY;
+        final int x;
+        final int y;
+        final int width;
+        final int height;
+
+        Tile(int tileX, int tileY, int x, int y, int width, int height) {
+            this.tileX = tileX;
+            this.tileY = tileY;
+            this.x = x;
+            this.y = y;
+            this.width = width;
+            this.height = height;
+        }
+
+        public int getX() {
+            return x;
+        }
+
+        public int getY() {
+            return y;
+        }
+
+        public int getWidth() {
+            return width;
+        }
+
+        public int getHeight() {
+            return height;
+        }
+    }
+
+    /** Données partagées par toutes les tâches d'un rendu. */
+    private static final class Target {
+        final RayTracer rayTracer;
+        final int[] pixels;
+        final int offset;
+        final int stride;
+        final Tile[] tiles;
+        final long[] nanos;
+        final AtomicInteger done;
+        final IntConsumer progress;
+        final CostHeatmap heatmap;
+        final int packetSize;
+        final boolean wavefront;
+
+        Target(RayTracer rayTracer, int[] pixels, int offset, int stride, Tile[] tiles, long[] nanos,
+               AtomicInteger done, IntConsumer progress, CostHeatmap heatmap, int packetSize,
+               boolean wavefront) {
+            this.rayTracer = rayTracer;
+            this.pixels = pixels;
+            this.offset = offset;
+            this.stride = stride;
+            this.tiles = tiles;
+            this.nanos = nanos;
+            this.done = done;
+            this.progress = progress;
+            this.heatmap = heatmap;
+            this.packetSize = packetSize;
+            this.wavefront = wavefront;
+        }
+    }
+
+    /**
+     * Rend une plage de la liste de tuiles : la moitié droite est confiée au
+     * pool (et peut être volée), la moitié gauche est traitée sur place.
+     */
+    private static final class TileTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Target target;
+        private final int from;
+        private final int to;
+
+        TileTask(Target target, int from, int to) {
+            this.target = target;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                TileTask right = new TileTask(target, mid, to);
+                right.fork();
+                new TileTask(target, from, mid).compute();
+                right.join();
+                return;
+            }
+            Tile tile = target.tiles[from];
+            RayTracer rayTracer = target.rayTracer;
+            int[] pixels = target.pixels;
+            TileRenderEvent event = new TileRenderEvent();
+            long[] counters = event.isEnabled() ? rayTracer.counters() : null;
+            long raysBefore = counters != null ? RayStats.rays(counters) : 0L;
+            event.begin();
+            long start = System.nanoTime();
+            if (target.heatmap != null) {
+                renderWithCosts(tile, target.heatmap);
+            } else if (target.wavefront) {
+                rayTracer.renderWavefront(tile.x, tile.y, tile.width, tile.height, pixels, target.offset,
+                    target.stride);
+            } else if (target.packetSize > 0) {
+                int size = target.packetSize;
+                for (int y = tile.y; y < tile.y + tile.height; y += size) {
+                    int h = Math.min(size, tile.y + tile.height - y);
+                    for (int x = tile.x; x < tile.x + tile.width; x += size) {
+                        int w = Math.min(size, tile.x + tile.width - x);
+                        rayTracer.renderPacket(x, y, w, h, pixels, target.offset, target.stride);
+                    }
+                }
+            } else {
+                for (int j = tile.y; j < tile.y + tile.height; j++) {
+                    int row = target.offset + j * target.stride;
+                    for (int i = tile.x; i < tile.x + tile.width; i++) {
+                        pixels[row + i] = rayTracer.getPixelRGB(i, j);
+                    }
+                }
+            }
+            target.nanos[from] = System.nanoTime() - start;
+            event.end();
+            if (event.shouldCommit()) {
+                event.index = from;
+                event.x = tile.x;
+                event.y = tile.y;
+                event.width = tile.width;
+                event.height = tile.height;
+                event.primaryRays = (long) tile.width * tile.height;
+                event.rays = counters != null ? RayStats.rays(counters) - raysBefore : -1L;
+                event.commit();
+            }
+            int finished = target.done.incrementAndGet();
+            if (target.progress != null) {
+                target.progress.accept(finished);
+            }
+        }
+
+        // Même boucle, en relevant l'écart de la mesure autour de chaque pixel
+        private void renderWithCosts(Tile tile, CostHeatmap heatmap) {
+            RayTracer rayTracer = target.rayTracer;
+            int[] pixels = target.pixels;
+            CostHeatmap.Metric metric = heatmap.getMetric();
+            long[] counters = metric.usesCounters() ? rayTracer.counters() : null;
+            for (int j = tile.y; j < tile.y + tile.height; j++) {
+                int row = target.offset + j * target.stride;
+                for (int i = tile.x; i < tile.x + tile.width; i++) {
+                    long before = metric.sample(counters);
+                    pixels[row + i] = rayTracer.getPixelRGB(i, j);
+                    heatmap.setCost(i, j, metric.sample(counters) - before);
+                }
+            }
+        }
+    }
+}
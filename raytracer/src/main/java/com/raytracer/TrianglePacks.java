@@ -0,0 +1,211 @@
+package com.raytracer;
+
+import com.geometry.Point;
+import com.geometry.Shape;
+import com.geometry.Triangle;
+import com.geometry.TriangleMesh;
+
+/**
+ * Triangles en structure de tableaux, indexés comme les primitives de la
+ * {@link LinearBVH}. Les emplacements des autres formes restent inutilisés.
+ * <p>
+ * Pour Möller-Trumbore, chaque triangle est stocké par son premier sommet
+ * et ses deux arêtes, calculées une fois à la construction. Le test
+ * étanche a besoin des trois sommets exacts (deux triangles voisins
+ * doivent voir les mêmes valeurs sur leur arête commune) : u et v
+ * contiennent alors les deuxième et troisième sommets.
+ * </p>
+ * <p>
+ * Les triangles d'une feuille étant contigus, une feuille sans autre forme
+ * se teste d'un bloc ({@link IntersectionKernels#intersectTriangles}).
+ * </p>
+ *
+ * @author Projet Ray Tracer
+ * @version 1.0
+ * @see IntersectionKernels
+ */
+final class TrianglePacks {
+    static final double EPSILON = 1e-8; // même tolérance que Triangle.intersect
+    /** Places libres en fin de tableaux : un noyau vectoriel y lit un vecteur entier sans masque. */
+    static final int PADDING = 8;
+
+    final boolean watertight;
+    final boolean[] isTriangle;
+    final int[] othersBefore; // nombre de formes non empaquetées avant chaque indice (n + 1 entrées)
+    final double[] ax, ay, az;
+    final double[] ux, uy, uz; // arête b - a, ou sommet b (étanche)
+    final double[] vx, vy, vz; // arête c - a, ou sommet c (étanche)
+    final double[][] a, u, v;  // mêmes tableaux, indexés par axe
+
+    TrianglePacks(Shape[] primitives, int[] meshTriangles, BVHBuilder.TriangleTest test) {
+        int n = primitives.length;
+        watertight = test == BVHBuilder.TriangleTest.WATERTIGHT;
+        isTriangle = new boolean[n];
+        ax = new double[n + PADDING]; ay = new double[n + PADDING]; az = new double[n + PADDING];
+        ux = new double[n + PADDING]; uy = new double[n + PADDING]; uz = new double[n + PADDING];
+        vx = new double[n + PADDING]; vy = new double[n + PADDING]; vz = new double[n + PADDING];
+        a = new double[][] {ax, ay, az};
+        u = new double[][] {ux, uy, uz};
+        v = new double[][] {vx, vy, vz};
+        for (int i = 0; i < n; i++) {
+            if (meshTriangles[i] >= 0) {
+                TriangleMesh mesh = (TriangleMesh) primitives[i];
+                double[] v = mesh.getVertexBuffer();
+                int[] idx = mesh.getIndexBuffer();
+                int tri = meshTriangles[i];
+                int a = idx[tri * 3] * 3;
+                int b = idx[tri * 3 + 1] * 3;
+                int c = idx[tri * 3 + 2] * 3;
+                store(i, v[a], v[a + 1], v[a + 2], v[b], v[b + 1], v[b + 2], v[c], v[c + 1], v[c + 2]);
+                continue;
+            }
+            // Les sous-classes peuvent redéfinir intersect() : seul Triangle est recopié
+            if (primitives[i].getClass() != Triangle.class) {
+                continue;
+            }
+            Triangle tri = (Triangle) primitives[i];
+            Point p1 = tri.getP1();
+            Point p2 = tri.getP2();
+            Point p3 = tri.getP3();
+            store(i, p1.getX(), p1.getY(), p1.getZ(), p2.getX(), p2.getY(), p2.getZ(),
+                p3.getX(), p3.getY(), p3.getZ());
+        }
+        othersBefore = new int[n + 1];
+        for (int i = 0; i < n; i++) {
+            othersBefore[i + 1] = othersBefore[i] + (isTriangle[i] ? 0 : 1);
+        }
+    }
+
+    /**
+     * @return true si les primitives d'indices [from, to[ sont toutes des triangles empaquetés
+     */
+    boolean allTriangles(int from, int to) {
+        return othersBefore[to] == othersBefore[from];
+    }
+
+    private void store(int i, double x1, double y1, double z1, double x2, double y2, double z2,
+                       double x3, double y3, double z3) {
+        isTriangle[i] = true;
+        ax[i] = x1; ay[i] = y1; az[i] = z1;
+        if (watertight) {
+            ux[i] = x2; uy[i] = y2; uz[i] = z2;
+            vx[i] = x3; vy[i] = y3; vz[i] = z3;
+        } else {
+            ux[i] = x2 - x1; uy[i] = y2 - y1; uz[i] = z2 - z1;
+            vx[i] = x3 - x1; vy[i] = y3 - y1; vz[i] = z3 - z1;
+        }
+    }
+
+    long getMemoryFootprint() {
+        return 16L + isTriangle.length + 16L + othersBefore.length * 4L + 9L * (16L + ax.length * 8L);
+    }
+
+    /**
+     * @return la distance t, ou Double.POSITIVE_INFINITY si le triangle n'est pas touché
+     */
+    double intersect(int i, Ray ray) {
+        return watertight ? intersectWatertight(i, ray) : intersectMollerTrumbore(i, ray);
+    }
+
+    /**
+     * Möller-Trumbore, mêmes opérations que {@link Triangle#intersect(Ray)}.
+     */
+    private double intersectMollerTrumbore(int i, Ray ray) {
+        double dx = ray.getDirection().getX();
+        double dy = ray.getDirection().getY();
+        double dz = ray.getDirection().getZ();
+
+        double e1x = ux[i];
+        double e1y = uy[i];
+        double e1z = uz[i];
+        double e2x = vx[i];
+        double e2y = vy[i];
+        double e2z = vz[i];
+
+        // h = d x e2
+        double hx = dy * e2z - dz * e2y;
+        double hy = dz * e2x - dx * e2z;
+        double hz = dx * e2y - dy * e2x;
+        double a = e1x * hx + e1y * hy + e1z * hz;
+        if (a > -EPSILON && a < EPSILON) {
+            return Double.POSITIVE_INFINITY;
+        }
+
+        double f = 1.0 / a;
+        double sx = ray.getOrigin().getX() - ax[i];
+        double sy = ray.getOrigin().getY() - ay[i];
+        double sz = ray.getOrigin().getZ() - az[i];
+        double u = f * (sx * hx + sy * hy + sz * hz);
+        if (u < -EPSILON || u > 1.0 + EPSILON) {
+            return Double.POSITIVE_INFINITY;
+        }
+
+        // q = s x e1
+        double qx = sy * e1z - sz * e1y;
+        double qy = sz * e1x - sx * e1z;
+        double qz = sx * e1y - sy * e1x;
+        double v = f * (dx * qx + dy * qy + dz * qz);
+        if (v < -EPSILON || u + v > 1.0 + EPSILON) {
+            return Double.POSITIVE_INFINITY;
+        }
+
+        double t = f * (e2x * qx + e2y * qy + e2z * qz);
+        return t > EPSILON ? t : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Test étanche de Woop, Benthin et Wald : les sommets sont ramenés à
+     * l'origine du rayon puis cisaillés pour que le rayon suive l'axe z
+     * (transformation calculée une fois par rayon, {@link Ray#getShear()}).
+     * Les coordonnées barycentriques sont alors des produits 2D exacts en
+     * signe : un rayon passant sur une arête commune touche toujours au
+     * moins un des deux triangles.
+     */
+    private double intersectWatertight(int i, Ray ray) {
+        Ray.Shear shear = ray.getShear();
+        int kx = shear.axisX;
+        int ky = shear.axisY;
+        int kz = shear.axisZ;
+        double shx = shear.x;
+        double shy = shear.y;
+        double shz = shear.z;
+        double ox = ray.getOrigin().getX();
+        double oy = ray.getOrigin().getY();
+        double oz = ray.getOrigin().getZ();
+
+        // Sommets relatifs à l'origine du rayon
+        double a0 = ax[i] - ox, a1 = ay[i] - oy, a2 = az[i] - oz;
+        double b0 = ux[i] - ox, b1 = uy[i] - oy, b2 = uz[i] - oz;
+        double c0 = vx[i] - ox, c1 = vy[i] - oy, c2 = vz[i] - oz;
+
+        // Cisaillement : le rayon devient l'axe z
+        double akz = component(a0, a1, a2, kz);
+        double bkz = component(b0, b1, b2, kz);
+        double ckz = component(c0, c1, c2, kz);
+        double pax = component(a0, a1, a2, kx) - shx * akz;
+        double pay = component(a0, a1, a2, ky) - shy * akz;
+        double pbx = component(b0, b1, b2, kx) - shx * bkz;
+        double pby = component(b0, b1, b2, ky) - shy * bkz;
+        double pcx = component(c0, c1, c2, kx) - shx * ckz;
+        double pcy = component(c0, c1, c2, ky) - shy * ckz;
+
+        // Coordonnées barycentriques non normalisées
+        double u = pcx * pby - pcy * pbx;
+        double v = pax * pcy - pay * pcx;
+        double w = pbx * pay - pby * pax;
+        if ((u < 0 || v < 0 || w < 0) && (u > 0 || v > 0 || w > 0)) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double det = u + v + w;
+        if (det == 0.0) {
+            return Double.POSITIVE_INFINITY;
+        }
+
+        double t = (u * (shz * akz) + v * (shz * bkz) + w * (shz * ckz)) / det;
+        return t > EPSILON ? t : Double.POSITIVE_INFINITY;
+    }
+
+    private static double component(double x, double y, double z, int axis) {
+        return axis == 0 ? x : (axis == 1 ? y : z);
+    }
+}
@@ -0,0 +1,209 @@
+package com.raytracer;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Noyaux d'intersection vectorisés avec l'API Vector de Java.
+ * <p>
+ * Chaque voie d'un {@link DoubleVector} de 4 doubles (256 bits, ou moins
+ * si le processeur n'a pas de vecteurs aussi larges) traite une boite ou un
+ * triangle ; un groupe plus large que le vecteur, 8 boites par exemple,
+ * est parcouru en plusieurs pas. Les triangles sont lus et écrits par vecteurs entiers, sans masque
+ * (les tableaux de {@link TrianglePacks} et des distances ont
+ * {@link TrianglePacks#PADDING} places de marge) ; les voies excédentaires
+ * des boites sont masquées. Les tests
+ * de rejet des versions scalaires deviennent des masques, combinés avant
+ * l'écriture des distances.
+ * </p>
+ * <p>
+ * Ne pas référencer cette classe directement : elle n'est chargée, par
+ * {@link IntersectionKernels#vector()}, que si le module
+ * {@code jdk.incubator.vector} est présent.
+ * </p>
+ *
+ * @author Projet Ray Tracer
+ * @version 1.0
+ */
+final class VectorKernels extends IntersectionKernels {
+    // 4 doubles : une feuille par défaut ou un groupe de 4 boites en un pas, sans passer en AVX-512
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED.vectorBitSize() > 256
+        ? DoubleVector.SPECIES_256 : DoubleVector.SPECIES_PREFERRED;
+    private static final double EPSILON = TrianglePacks.EPSILON;
+
+    @Override
+    String getName() {
+        return "vectoriel (" + SPECIES.length() + " doubles)";
+    }
+
+    @Override
+    int intersectBoxes(double[] boxes, int offset, int width, double ox, double oy, double oz,
+                       double idx, double idy, double idz, double tMax, double[] tNear) {
+        int mask = 0;
+        for (int lane = 0; lane < width; lane += SPECIES.length()) {
+            // Masque des voies existantes, pour le dernier pas seulement
+            VectorMask<Double> in = lane + SPECIES.length() <= width ? null : SPECIES.indexInRange(lane, width);
+            int o = offset + lane;
+            DoubleVector near = DoubleVector.zero(SPECIES);
+            DoubleVector far = DoubleVector.broadcast(SPECIES, tMax);
+
+            DoubleVector t0 = load(boxes, o, in).sub(ox).mul(idx);
+            DoubleVector t1 = load(boxes, o + 3 * width, in).sub(ox).mul(idx);
+            if (idx < 0.0) {
+                DoubleVector tmp = t0;
+                t0 = t1;
+                t1 = tmp;
+            }
+            t1 = t1.mul(LinearBVH.SLAB_PADDING);
+            near = near.blend(t0, t0.compare(VectorOperators.GT, near));
+            far = far.blend(t1, t1.compare(VectorOperators.LT, far));
+
+            t0 = load(boxes, o + width, in).sub(oy).mul(idy);
+            t1 = load(boxes, o + 4 * width, in).sub(oy).mul(idy);
+            if (idy < 0.0) {
+                DoubleVector tmp = t0;
+                t0 = t1;
+                t1 = tmp;
+            }
+            t1 = t1.mul(LinearBVH.SLAB_PADDING);
+            near = near.blend(t0, t0.compare(VectorOperators.GT, near));
+            far = far.blend(t1, t1.compare(VectorOperators.LT, far));
+
+            t0 = load(boxes, o + 2 * width, in).sub(oz).mul(idz);
+            t1 = load(boxes, o + 5 * width, in).sub(oz).mul(idz);
+            if (idz < 0.0) {
+                DoubleVector tmp = t0;
+                t0 = t1;
+                t1 = tmp;
+            }
+            t1 = t1.mul(LinearBVH.SLAB_PADDING);
+            near = near.blend(t0, t0.compare(VectorOperators.GT, near));
+            far = far.blend(t1, t1.compare(VectorOperators.LT, far));
+
+            VectorMask<Double> hit = near.compare(VectorOperators.LE, far);
+            if (in == null) {
+                near.intoArray(tNear, lane);
+            } else {
+                hit = hit.and(in);
+                near.intoArray(tNear, lane, in);
+            }
+            mask |= (int) hit.toLong() << lane;
+        }
+        return mask;
+    }
+
+    private static DoubleVector load(double[] array, int index, VectorMask<Double> in) {
+        return in == null ? DoubleVector.fromArray(SPECIES, array, index)
+            : DoubleVector.fromArray(SPECIES, array, index, in);
+    }
+
+    @Override
+    void intersectTriangles(TrianglePacks packs, int from, int to, Ray ray, double[] t) {
+        if (packs.watertight) {
+            intersectWatertight(packs, from, to, ray, t);
+        } else {
+            intersectMollerTrumbore(packs, from, to, ray, t);
+        }
+    }
+
+    // Möller-Trumbore, opérations de TrianglePacks.intersectMollerTrumbore voie par voie
+    private static void intersectMollerTrumbore(TrianglePacks p, int from, int to, Ray ray, double[] out) {
+        double dx = ray.getDirection().getX();
+        double dy = ray.getDirection().getY();
+        double dz = ray.getDirection().getZ();
+        double ox = ray.getOrigin().getX();
+        double oy = ray.getOrigin().getY();
+        double oz = ray.getOrigin().getZ();
+        int n = to - from;
+        for (int k = 0; k < n; k += SPECIES.length()) {
+            int i = from + k;
+            DoubleVector e1x = DoubleVector.fromArray(SPECIES, p.ux, i);
+            DoubleVector e1y = DoubleVector.fromArray(SPECIES, p.uy, i);
+            DoubleVector e1z = DoubleVector.fromArray(SPECIES, p.uz, i);
+            DoubleVector e2x = DoubleVector.fromArray(SPECIES, p.vx, i);
+            DoubleVector e2y = DoubleVector.fromArray(SPECIES, p.vy, i);
+            DoubleVector e2z = DoubleVector.fromArray(SPECIES, p.vz, i);
+
+            // h = d x e2
+            DoubleVector hx = e2z.mul(dy).sub(e2y.mul(dz));
+            DoubleVector hy = e2x.mul(dz).sub(e2z.mul(dx));
+            DoubleVector hz = e2y.mul(dx).sub(e2x.mul(dy));
+            DoubleVector a = e1x.mul(hx).add(e1y.mul(hy)).add(e1z.mul(hz));
+            VectorMask<Double> valid = a.compare(VectorOperators.GT, -EPSILON)
+                .and(a.compare(VectorOperators.LT, EPSILON)).not();
+
+            DoubleVector f = DoubleVector.broadcast(SPECIES, 1.0).div(a);
+            DoubleVector sx = DoubleVector.broadcast(SPECIES, ox).sub(DoubleVector.fromArray(SPECIES, p.ax, i));
+            DoubleVector sy = DoubleVector.broadcast(SPECIES, oy).sub(DoubleVector.fromArray(SPECIES, p.ay, i));
+            DoubleVector sz = DoubleVector.broadcast(SPECIES, oz).sub(DoubleVector.fromArray(SPECIES, p.az, i));
+            DoubleVector u = f.mul(sx.mul(hx).add(sy.mul(hy)).add(sz.mul(hz)));
+            valid = valid.andNot(u.compare(VectorOperators.LT, -EPSILON)
+                .or(u.compare(VectorOperators.GT, 1.0 + EPSILON)));
+
+            // q = s x e1
+            DoubleVector qx = sy.mul(e1z).sub(sz.mul(e1y));
+            DoubleVector qy = sz.mul(e1x).sub(sx.mul(e1z));
+            DoubleVector qz = sx.mul(e1y).sub(sy.mul(e1x));
+            DoubleVector v = f.mul(qx.mul(dx).add(qy.mul(dy)).add(qz.mul(dz)));
+            valid = valid.andNot(v.compare(VectorOperators.LT, -EPSILON)
+                .or(u.add(v).compare(VectorOperators.GT, 1.0 + EPSILON)));
+
+            DoubleVector t = f.mul(e2x.mul(qx).add(e2y.mul(qy)).add(e2z.mul(qz)));
+            valid = valid.and(t.compare(VectorOperators.GT, EPSILON));
+            DoubleVector.broadcast(SPECIES, Double.POSITIVE_INFINITY).blend(t, valid).intoArray(out, k);
+        }
+    }
+
+    // Test étanche, opérations de TrianglePacks.intersectWatertight voie par voie
+    private static void intersectWatertight(TrianglePacks p, int from, int to, Ray ray, double[] out) {
+        Ray.Shear shear = ray.getShear();
+        int kx = shear.axisX;
+        int ky = shear.axisY;
+        int kz = shear.axisZ;
+        double[] a0 = p.a[kx], a1 = p.a[ky], a2 = p.a[kz];
+        double[] b0 = p.u[kx], b1 = p.u[ky], b2 = p.u[kz];
+        double[] c0 = p.v[kx], c1 = p.v[ky], c2 = p.v[kz];
+        double ox = component(ray, kx);
+        double oy = component(ray, ky);
+        double oz = component(ray, kz);
+        double shx = shear.x;
+        double shy = shear.y;
+        double shz = shear.z;
+        int n = to - from;
+        for (int k = 0; k < n; k += SPECIES.length()) {
+            int i = from + k;
+            // Sommets relatifs à l'origine du rayon, puis cisaillés
+            DoubleVector akz = DoubleVector.fromArray(SPECIES, a2, i).sub(oz);
+            DoubleVector bkz = DoubleVector.fromArray(SPECIES, b2, i).sub(oz);
+            DoubleVector ckz = DoubleVector.fromArray(SPECIES, c2, i).sub(oz);
+            DoubleVector pax = DoubleVector.fromArray(SPECIES, a0, i).sub(ox).sub(akz.mul(shx));
+            DoubleVector pay = DoubleVector.fromArray(SPECIES, a1, i).sub(oy).sub(akz.mul(shy));
+            DoubleVector pbx = DoubleVector.fromArray(SPECIES, b0, i).sub(ox).sub(bkz.mul(shx));
+            DoubleVector pby = DoubleVector.fromArray(SPECIES, b1, i).sub(oy).sub(bkz.mul(shy));
+            DoubleVector pcx = DoubleVector.fromArray(SPECIES, c0, i).sub(ox).sub(ckz.mul(shx));
+            DoubleVector pcy = DoubleVector.fromArray(SPECIES, c1, i).sub(oy).sub(ckz.mul(shy));
+
+            // Coordonnées barycentriques non normalisées
+            DoubleVector u = pcx.mul(pby).sub(pcy.mul(pbx));
+            DoubleVector v = pax.mul(pcy).sub(pay.mul(pcx));
+            DoubleVector w = pbx.mul(pay).sub(pby.mul(pax));
+            VectorMask<Double> negative = u.compare(VectorOperators.LT, 0.0)
+                .or(v.compare(VectorOperators.LT, 0.0)).or(w.compare(VectorOperators.LT, 0.0));
+            VectorMask<Double> positive = u.compare(VectorOperators.GT, 0.0)
+                .or(v.compare(VectorOperators.GT, 0.0)).or(w.compare(VectorOperators.GT, 0.0));
+            DoubleVector det = u.add(v).add(w);
+            VectorMask<Double> valid = negative.and(positive).not()
+                .andNot(det.compare(VectorOperators.EQ, 0.0));
+
+            DoubleVector t = u.mul(akz.mul(shz)).add(v.mul(bkz.mul(shz))).add(w.mul(ckz.mul(shz))).div(det);
+            valid = valid.and(t.compare(VectorOperators.GT, EPSILON));
+            DoubleVector.broadcast(SPECIES, Double.POSITIVE_INFINITY).blend(t, valid).intoArray(out, k);
+        }
+    }
+
+    private static double component(Ray ray, int axis) {
+        return axis == 0 ? ray.getOrigin().getX() : (axis == 1 ? ray.getOrigin().getY() : ray.getOrigin().getZ());
+    }
+}
@@ -0,0 +1,66 @@
+package com.raytracer;
+
+import com.geometry.Vector;
+import com.imaging.Color;
+import java.util.Arrays;
+
+/**
+ * Tampons du rendu en front d'onde d'un bloc de pixels.
+ * <p>
+ * Un chemin part d'un pixel du bloc ; à chaque rebond, il garde sa couleur
+ * locale (ambiante, diffuse, spéculaire) et, s'il est réfléchi, la couleur
+ * spéculaire qui pondère la suite. Les intersections, normales et résultats
+ * d'ombre ne servent que le temps d'un rebond, indexés par rayon du flot.
+ * </p>
+ * <p>
+ * Les tampons appartiennent à un thread et servent pour toutes ses tuiles :
+ * ils ne font que grandir.
+ * </p>
+ *
+ * @author Projet Ray Tracer
+ * @version 1.0
+ * @see RayTracer#renderWavefront
+ */
+final class Wavefront {
+
+    RayStream rays = new RayStream();             // rayons du rebond courant (propriétaire : chemin)
+    RayStream next = new RayStream();             // réflexions du rebond suivant
+    final RayStream shadows = new RayStream();    // rayons d'ombre (propriétaire : rayon * lumières + lumière)
+
+    // Par chemin et par rebond
+    float[] colors = new float[0];     // couleur locale r, g, b
+    Color[] specular = new Color[0];   // couleur spéculaire d'un rebond réfléchi
+    int[] lastDepth = new int[0];      // dernier rebond touché, -1 si le rayon primaire ne touche rien
+
+    // Par rayon du rebond courant
+    Intersection[] hits = new Intersection[0];
+    Vector[] normals = new Vector[0];
+    boolean[] shadowed = new boolean[0];
+
+    void reserve(int paths, int levels) {
+        if (lastDepth.length < paths) {
+            lastDepth = new int[paths];
+        }
+        if (specular.length < paths * levels) {
+            colors = new float[paths * levels * 3];
+            specular = new Color[paths * levels];
+        }
+    }
+
+    void reserveHits(int size, int lightCount) {
+        if (hits.length < size) {
+            hits = Arrays.copyOf(hits, size);
+            normals = Arrays.copyOf(normals, size);
+        }
+        if (shadowed.length < size * lightCount) {
+            shadowed = new boolean[size * lightCount];
+        }
+    }
+
+    // Le flot des réflexions devient celui du rebond courant
+    void swap() {
+        RayStream r = rays;
+        rays = next;
+        next = r;
+    }
+}
@@ -0,0 +1,142 @@
+package com.raytracer;
+
+import java.util.Arrays;
+
+/**
+ * Noeuds d'une BVH large : l'arbre binaire de la {@link LinearBVH} replié
+ * en noeuds de {@code width} fils (4 ou 8).
+ * <p>
+ * Le repliement part de la racine : tant qu'un noeud large a moins de
+ * {@code width} fils, son fils interne de plus grande surface est remplacé
+ * par ses deux fils. Les grandes boites sont les plus souvent touchées : les
+ * ouvrir économise un niveau de parcours là où il sert le plus. Les feuilles
+ * restent les plages de primitives de l'arbre binaire.
+ * </p>
+ * <p>
+ * Les boites des fils d'un noeud sont rangées par composante (les
+ * {@code width} minX, puis minY, minZ, maxX, maxY et maxZ) : c'est la
+ * disposition de {@link IntersectionKernels#intersectBoxes}, qui teste tout
+ * le noeud en un appel. Une voie sans fils contient une boite vide. Les
+ * valeurs sont les bornes float de l'arbre binaire, converties sans perte :
+ * chaque boite est testée exactement comme dans le parcours binaire.
+ * </p>
+ *
+ * @author Projet Ray Tracer
+ * @version 1.0
+ * @see BVHBuilder#withBranchingFactor(int)
+ */
+final class WideNodes {
+    final int width;
+    final double[] boxes;      // 6 * width valeurs par noeud
+    final int[] children;      // par voie : noeud large (interne) ou première primitive (feuille)
+    final int[] counts;        // par voie : primitives de la feuille, 0 pour un noeud interne ou une voie vide
+    final int[] childCounts;   // nombre de fils de chaque noeud
+    final int nodeCount;
+    final int maxDepth;
+
+    // Arbre binaire source, voir LinearBVH
+    private final float[] bounds;
+    private final int[] nodes;
+    private int next;
+    private int depth;
+
+    WideNodes(float[] bounds, int[] nodes, int width) {
+        this.width = width;
+        this.bounds = bounds;
+        this.nodes = nodes;
+        // Chaque noeud large absorbe au moins un noeud interne binaire (la racine feuille exceptée)
+        int capacity = Math.max(1, (nodes.length / 2 - 1) / 2);
+        double[] boxes = new double[capacity * 6 * width];
+        int[] children = new int[capacity * width];
+        int[] counts = new int[capacity * width];
+        int[] childCounts = new int[capacity];
+        emit(0, 1, boxes, children, counts, childCounts);
+        this.nodeCount = next;
+        this.maxDepth = depth;
+        this.boxes = Arrays.copyOf(boxes, nodeCount * 6 * width);
+        this.children = Arrays.copyOf(children, nodeCount * width);
+        this.counts = Arrays.copyOf(counts, nodeCount * width);
+        this.childCounts = Arrays.copyOf(childCounts, nodeCount);
+    }
+
+    private int emit(int root, int level, double[] boxes, int[] children, int[] counts, int[] childCounts) {
+        int index = next++;
+        depth = Math.max(depth, level);
+        int[] open = new int[width];
+        int n;
+        if (isLeaf(root)) {
+            open[0] = root;
+            n = 1;
+        } else {
+            open[0] = root + 1;
+            open[1] = nodes[root * 2];
+            n = 2;
+        }
+        while (n < width) {
+            int best = -1;
+            double bestArea = -1.0;
+            for (int k = 0; k < n; k++) {
+                if (!isLeaf(open[k]) && area(open[k]) > bestArea) {
+                    best = k;
+                    bestArea = area(open[k]);
+                }
+            }
+            if (best < 0) {
+                break;
+            }
+            int b = open[best];
+            open[best] = b + 1;
+            open[n++] = nodes[b * 2];
+        }
+        childCounts[index] = n;
+
+        int o = index * 6 * width;
+        for (int lane = 0; lane < width; lane++) {
+            int slot = index * width + lane;
+            if (lane >= n) {
+                for (int a = 0; a < 3; a++) {
+                    boxes[o + a * width + lane] = Double.POSITIVE_INFINITY;
+                    boxes[o + (a + 3) * width + lane] = Double.NEGATIVE_INFINITY;
+                }
+                children[slot] = -1;
+                continue;
+            }
+            int child = open[lane];
+            for (int c = 0; c < 6; c++) {
+                boxes[o + c * width + lane] = bounds[child * 6 + c];
+            }
+            if (isLeaf(child)) {
+                children[slot] = nodes[child * 2];
+                counts[slot] = nodes[child * 2 + 1];
+            } else {
+                children[slot] = emit(child, level + 1, boxes, children, counts, childCounts);
+            }
+        }
+        return index;
+    }
+
+    private boolean isLeaf(int node) {
+        return nodes[node * 2 + 1] > 0;
+    }
+
+    private double area(int node) {
+        int o = node * 6;
+        double dx = bounds[o + 3] - bounds[o];
+        double dy = bounds[o + 4] - bounds[o + 1];
+        double dz = bounds[o + 5] - bounds[o + 2];
+        return dx * dy + dy * dz + dz * dx;
+    }
+
+    /**
+     * @return la taille de pile suffisante pour un parcours : au plus
+     *         {@code width - 1} frères en attente par niveau, plus les fils du dernier noeud
+     */
+    int stackSize() {
+        return maxDepth * (width - 1) + 1;
+    }
+
+    long getMemoryFootprint() {
+        return 16L + boxes.length * 8L + 16L + children.length * 4L + 16L + counts.length * 4L
+            + 16L + childCounts.length * 4L;
+    }
+}
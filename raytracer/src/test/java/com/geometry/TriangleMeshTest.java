@@ -0,0 +1,75 @@
+package com.geometry;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.imaging.Color;
+import com.raytracer.AABB;
+import com.raytracer.Intersection;
+import com.raytracer.Ray;
+import java.util.Optional;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+public class TriangleMeshTest {
+
+    private static final Color GREY = new Color(0.5f, 0.5f, 0.5f);
+
+    // Deux triangles formant un carré unité dans le plan z = 0
+    private static TriangleMesh square() {
+        double[] vertices = {0, 0, 0, 1, 0, 0, 1, 1, 0, 0, 1, 0};
+        int[] indices = {0, 1, 2, 0, 2, 3};
+        return new TriangleMesh(vertices, indices, 2, GREY, GREY, 1f);
+    }
+
+    @Test
+    void testMatchesTriangleShapes() {
+        TriangleMesh mesh = square();
+        Triangle t0 = new Triangle(new Point(0, 0, 0), new Point(1, 0, 0), new Point(1, 1, 0), GREY, GREY, 1f);
+        Triangle t1 = new Triangle(new Point(0, 0, 0), new Point(1, 1, 0), new Point(0, 1, 0), GREY, GREY, 1f);
+        Random rnd = new Random(1L);
+        for (int i = 0; i < 500; i++) {
+            Ray ray = new Ray(new Point(rnd.nextDouble() * 1.4 - 0.2, rnd.nextDouble() * 1.4 - 0.2, -2),
+                new Vector(rnd.nextDouble() - 0.5, rnd.nextDouble() - 0.5, 1.0));
+            double expected0 = t0.intersect(ray).map(Intersection::getT).orElse(Double.POSITIVE_INFINITY);
+            double expected1 = t1.intersect(ray).map(Intersection::getT).orElse(Double.POSITIVE_INFINITY);
+            assertEquals(expected0, mesh.intersectTriangle(0, ray));
+            assertEquals(expected1, mesh.intersectTriangle(1, ray));
+        }
+    }
+
+    @Test
+    void testIntersectionCarriesTriangleIndex() {
+        TriangleMesh mesh = square();
+        Ray ray = new Ray(new Point(0.2, 0.8, -1), new Vector(0, 0, 1));
+        Optional<Intersection> hit = mesh.intersect(ray);
+        assertTrue(hit.isPresent());
+        assertEquals(1.0, hit.get().getT(), 1e-9);
+        assertEquals(1, hit.get().getPrimitiveIndex());
+        assertEquals(new Vector(0, 0, 1), mesh.getNormal(hit.get()));
+    }
+
+    @Test
+    void testPrecomputedNormalsMatchTriangle() {
+        TriangleMesh mesh = square();
+        Triangle t1 = new Triangle(new Point(0, 0, 0), new Point(1, 1, 0), new Point(0, 1, 0), GREY, GREY, 1f);
+        assertEquals(t1.getNormalAt(new Point(0.2, 0.8, 0)), mesh.getTriangleNormal(1));
+        assertEquals(new Vector(1, 1, 0), t1.getEdge1());
+        assertEquals(new Vector(0, 1, 0), t1.getEdge2());
+    }
+
+    @Test
+    void testBoundingBoxCoversAllTriangles() {
+        AABB box = square().getBoundingBox();
+        assertEquals(new Point(0, 0, 0), box.getMin());
+        assertEquals(new Point(1, 1, 0), box.getMax());
+    }
+
+    @Test
+    void testInvalidIndexThrows() {
+        double[] vertices = {0, 0, 0, 1, 0, 0, 1, 1, 0};
+        assertThrows(IndexOutOfBoundsException.class,
+            () -> new TriangleMesh(vertices, new int[]{0, 1, 3}, 1, GREY, GREY, 1f));
+        assertThrows(IllegalArgumentException.class,
+            () -> new TriangleMesh(vertices, new int[]{0, 1, 2}, 2, GREY, GREY, 1f));
+    }
+}
@@ -0,0 +1,122 @@
+package com.parsing;
+
+import com.geometry.*;
+import com.imaging.Color;
+import com.raytracer.Camera;
+import com.raytracer.DirectionalLight;
+import com.raytracer.PointLight;
+import com.raytracer.Scene;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BinarySceneFileTest {
+
+    @Test
+    void testBundledScenesRoundTrip() throws IOException {
+        for (String file : new String[] {"tp31.test", "final.scene", "final_avec_bonus.scene"}) {
+            Scene scene = new Scene();
+            new SceneFileParser(scene).parse("src/test/java/com/ressources/scenes/" + file);
+            Path binary = Files.createTempFile("scene", BinarySceneFile.EXTENSION);
+            BinarySceneFile.write(scene, binary);
+
+            assertTrue(BinarySceneFile.isBinary(binary));
+            assertEquals(SceneFileParserTest.describe(scene), SceneFileParserTest.describe(BinarySceneFile.read(binary)), file);
+        }
+    }
+
+    @Test
+    void testSharedObjectsStayShared() throws IOException {
+        Color diffuse = new Color(0.5f, 0.1f, 0.1f);
+        Color specular = new Color(0.2f, 0.2f, 0.2f);
+        double[] vertices = {0, 0, 0, 1, 0, 0, 0, 1, 0, 1, 1, 0};
+        Scene scene = new Scene();
+        scene.setWidth(20);
+        scene.setHeight(10);
+        scene.setOutput("sortie é.png");
+        scene.setCamera(new Camera(new Point(0, 0, -5), new Point(0, 0, 0), new Vector(0, 1, 0), 45));
+        scene.getLights().add(new DirectionalLight(new Vector(0, 0, 1), new Color(1f, 1f, 1f)));
+        scene.getLights().add(new PointLight(new Point(1, 2, 3), new Color(0.5f, 0.5f, 0.5f)));
+        scene.getShapes().add(new TriangleMesh(vertices, new int[] {0, 1, 2}, 1, diffuse, specular, 10f));
+        scene.getShapes().add(new TriangleMesh(vertices, new int[] {1, 3, 2}, 1, new Color(0.1f, 0.5f, 0.1f), specular, 10f));
+        scene.getShapes().add(new Triangle(new Point(0, 0, 1), new Point(1, 0, 1), new Point(0, 1, 1), diffuse, specular, 10f));
+        scene.getShapes().add(new Sphere(new Point(0, 0, 2), 0.5, diffuse, specular, 10f));
+        scene.getShapes().add(new Plane(new Point(0, -1, 0), new Vector(0, 1, 0), diffuse, specular, 3f));
+        Path binary = Files.createTempFile("scene_partagee", BinarySceneFile.EXTENSION);
+        BinarySceneFile.write(scene, binary);
+
+        Scene loaded = BinarySceneFile.read(binary);
+        assertEquals(SceneFileParserTest.describe(scene), SceneFileParserTest.describe(loaded));
+        TriangleMesh first = (TriangleMesh) loaded.getShapes().get(0);
+        TriangleMesh second = (TriangleMesh) loaded.getShapes().get(1);
+        assertSame(first.getVertexBuffer(), second.getVertexBuffer());
+        assertSame(first.getDiffuse(), loaded.getShapes().get(3).getDiffuse());
+        assertNotSame(first.getDiffuse(), second.getDiffuse());
+        assertSame(first.getSpecular(), loaded.getShapes().get(4).getSpecular());
+    }
+
+    @Test
+    void testTextAndTruncatedFilesAreRejected() throws IOException {
+        Path text = Path.of("src/test/java/com/ressources/scenes/tp31.test");
+        assertFalse(BinarySceneFile.isBinary(text));
+        assertThrows(IOException.class, () -> BinarySceneFile.read(text));
+
+        Scene scene = new Scene();
+        new SceneFileParser(scene).parse(text.toString());
+        Path binary = Files.createTempFile("scene_tronquee", BinarySceneFile.EXTENSION);
+        BinarySceneFile.write(scene, binary);
+        byte[] bytes = Files.readAllBytes(binary);
+        Files.write(binary, Arrays.copyOf(bytes, bytes.length - 5));
+        assertThrows(IOException.class, () -> BinarySceneFile.read(binary));
+    }
+
+    // Nombres corrompus : négatifs, plus grands que le fichier, ou maillage incohérent
+    @Test
+    void testCorruptCountsAreRejected() throws IOException {
+        int[][] corruptions = {
+            {-7},                                   // longueur du nom de sortie
+            {-1, -5},                               // nombre de couleurs
+            {-1, 0, 0, 0, Integer.MAX_VALUE},       // nombre de tampons de vertex
+            {-1, 0, 0, 0, 1, Integer.MAX_VALUE},    // longueur d'un tampon de vertex
+            {-1, 0, 0, 0, 0, 1, -3},                // longueur d'un tampon d'indices
+        };
+        Path binary = Files.createTempFile("scene_corrompue", BinarySceneFile.EXTENSION);
+        for (int[] ints : corruptions) {
+            ByteBuffer bytes = header();
+            bytes.putInt(ints[0]).put((byte) 0).put((byte) 0); // sortie, sans caméra ni ambiante
+            for (int k = 1; k < ints.length; k++) {
+                bytes.putInt(ints[k]);
+            }
+            Files.write(binary, Arrays.copyOf(bytes.array(), bytes.position() + 64));
+            assertThrows(IOException.class, () -> BinarySceneFile.read(binary), Arrays.toString(ints));
+        }
+
+        // Maillage sans triangle
+        ByteBuffer bytes = header();
+        bytes.putInt(-1).put((byte) 0).put((byte) 0);
+        bytes.putInt(1).putFloat(1f).putFloat(1f).putFloat(1f);   // une couleur
+        bytes.putInt(1).putInt(0).putInt(0).putFloat(1f);         // un matériau
+        bytes.putInt(0);                                          // aucune lumière
+        bytes.putInt(1).putInt(3);                                // un tampon de 3 doubles, aligné
+        bytes.position((bytes.position() + 7) & ~7);
+        bytes.putDouble(0).putDouble(0).putDouble(0);
+        bytes.putInt(1).putInt(3).putInt(0).putInt(0).putInt(0); // un tampon de 3 indices
+        bytes.putInt(1).put((byte) 3).putInt(0).putInt(0).putInt(0).putInt(0);
+        Files.write(binary, Arrays.copyOf(bytes.array(), bytes.position()));
+        assertThrows(IOException.class, () -> BinarySceneFile.read(binary));
+    }
+
+    // Signature, version et dimensions d'une scène binaire
+    private static ByteBuffer header() {
+        ByteBuffer bytes = ByteBuffer.allocate(256).order(ByteOrder.LITTLE_ENDIAN);
+        bytes.put("RTSB".getBytes(java.nio.charset.StandardCharsets.US_ASCII)).putInt(1);
+        return bytes.putInt(10).putInt(10).putInt(5);
+    }
+}
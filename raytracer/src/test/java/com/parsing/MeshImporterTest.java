@@ -0,0 +1,160 @@
+package com.parsing;
+
+import com.geometry.TriangleMesh;
+import com.imaging.Color;
+import com.raytracer.RayTracer;
+import com.raytracer.Scene;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class MeshImporterTest {
+
+    // Carré unité découpé en deux quadrilatères
+    private static final double[] VERTICES = {0, 0, 0, 1, 0, 0, 2, 0, 0, 0, 1, 0, 1, 1, 0, 2, 1, 0};
+    private static final int[] TRIANGLES = {0, 1, 4, 0, 4, 3, 1, 2, 5, 1, 5, 4};
+
+    @Test
+    void testObjFacesReferencesAndNegativeIndices() throws IOException {
+        String obj = """
+            # exporté par un modeleur
+            mtllib carre.mtl
+            o carre
+            v 0 0 0
+            v 1 0 0
+            v 2 0 0
+            vt 0 0
+            vn 0 0 1
+            v 0 1 0
+            v 1 1 0
+            v 2 1 0
+            usemtl rouge
+            s off
+            f 1/1/1 2/1/1 5/1/1 4/1/1
+            f -5//1 -4//1 -1//1 -2//1
+            """;
+        Path file = Files.createTempFile("carre", ".obj");
+        Files.writeString(file, obj);
+        Color diffuse = new Color(0.5f, 0.1f, 0.1f);
+        TriangleMesh mesh = MeshImporter.read(file, diffuse, new Color(), 4f);
+
+        assertArrayEquals(VERTICES, mesh.getVertexBuffer());
+        assertArrayEquals(TRIANGLES, mesh.getIndexBuffer());
+        assertEquals(4, mesh.getTriangleCount());
+        assertSame(diffuse, mesh.getDiffuse());
+
+        Files.writeString(file, "v 0 0 0\nv 1 0 0\nf 1 2 3\n");
+        assertThrows(IndexOutOfBoundsException.class, () -> MeshImporter.read(file, diffuse, diffuse, 1f));
+    }
+
+    @Test
+    void testPlyAsciiAndBinaryGiveSameBuffers() throws IOException {
+        String header = "ply\nformat %s 1.0\ncomment carre\nelement vertex 6\nproperty float x\nproperty float y\n"
+            + "property double z\nproperty uchar intensite\nelement face 2\nproperty list uchar int vertex_indices\n"
+            + "property uchar drapeau\nend_header\n";
+        StringBuilder ascii = new StringBuilder(String.format(header, "ascii"));
+        for (int v = 0; v < 6; v++) {
+            ascii.append(VERTICES[3 * v]).append(' ').append(VERTICES[3 * v + 1]).append(' ')
+                .append(VERTICES[3 * v + 2]).append(" 255\n");
+        }
+        ascii.append("4 0 1 4 3 7\n4 1 2 5 4 7\n");
+        Path asciiFile = Files.createTempFile("carre_ascii", ".ply");
+        Files.writeString(asciiFile, ascii);
+        assertBuffers(MeshImporter.read(asciiFile, null, null, 1f));
+
+        for (ByteOrder order : new ByteOrder[] {ByteOrder.LITTLE_ENDIAN, ByteOrder.BIG_ENDIAN}) {
+            String format = order == ByteOrder.LITTLE_ENDIAN ? "binary_little_endian" : "binary_big_endian";
+            ByteBuffer body = ByteBuffer.allocate(6 * 17 + 2 * 18).order(order);
+            for (int v = 0; v < 6; v++) {
+                body.putFloat((float) VERTICES[3 * v]).putFloat((float) VERTICES[3 * v + 1])
+                    .putDouble(VERTICES[3 * v + 2]).put((byte) 255);
+            }
+            for (int[] face : new int[][] {{0, 1, 4, 3}, {1, 2, 5, 4}}) {
+                body.put((byte) 4);
+                for (int index : face) {
+                    body.putInt(index);
+                }
+                body.put((byte) 7);
+            }
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            bytes.write(String.format(header, format).getBytes(StandardCharsets.US_ASCII));
+            bytes.write(body.array());
+            Path binaryFile = Files.createTempFile("carre_binaire", ".ply");
+            Files.write(binaryFile, bytes.toByteArray());
+            assertBuffers(MeshImporter.read(binaryFile, null, null, 1f));
+
+            // Fichier tronqué
+            Files.write(binaryFile, java.util.Arrays.copyOf(bytes.toByteArray(), bytes.size() - 3));
+            assertThrows(IllegalArgumentException.class, () -> MeshImporter.read(binaryFile, null, null, 1f));
+
+            // Index de sommet hors du maillage : pas un fichier tronqué
+            byte[] badIndex = bytes.toByteArray();
+            ByteBuffer.wrap(badIndex).order(order).putInt(badIndex.length - 2 * 18 + 1, 99);
+            Files.write(binaryFile, badIndex);
+            assertThrows(IndexOutOfBoundsException.class, () -> MeshImporter.read(binaryFile, null, null, 1f));
+        }
+    }
+
+    private static void assertBuffers(TriangleMesh mesh) {
+        assertArrayEquals(VERTICES, mesh.getVertexBuffer());
+        assertArrayEquals(TRIANGLES, mesh.getIndexBuffer());
+    }
+
+    @Test
+    void testMeshDirectiveRendersLikeTriLines() throws IOException {
+        Path dir = Files.createTempDirectory("scene_maillage");
+        Files.writeString(dir.resolve("carre.obj"), "v 0 0 0\nv 1 0 0\nv 2 0 0\nv 0 1 0\nv 1 1 0\nv 2 1 0\n"
+            + "f 1 2 5 4\nf 2 3 6 5\n");
+        String common = "size 24 16\ncamera 1 0.5 -3  1 0.5 0  0 1 0  45\nambient 0.1 0.1 0.1\n"
+            + "directional 0 0 1 1 1 1\ndiffuse 0.6 0.3 0.2\n";
+        Files.writeString(dir.resolve("import.scene"), common + "mesh carre.obj\nsphere 1 0.5 1 0.3\n");
+        StringBuilder tris = new StringBuilder(common).append("maxverts 6\n");
+        for (int v = 0; v < 6; v++) {
+            tris.append("vertex ").append(VERTICES[3 * v]).append(' ').append(VERTICES[3 * v + 1]).append(' ')
+                .append(VERTICES[3 * v + 2]).append('\n');
+        }
+        for (int t = 0; t < 4; t++) {
+            tris.append("tri ").append(TRIANGLES[3 * t]).append(' ').append(TRIANGLES[3 * t + 1]).append(' ')
+                .append(TRIANGLES[3 * t + 2]).append('\n');
+        }
+        Files.writeString(dir.resolve("tri.scene"), tris.append("sphere 1 0.5 1 0.3\n").toString());
+
+        RayTracer imported = rayTracer(dir.resolve("import.scene"));
+        RayTracer reference = rayTracer(dir.resolve("tri.scene"));
+        for (int j = 0; j < 16; j++) {
+            for (int i = 0; i < 24; i++) {
+                assertEquals(reference.getPixelRGB(i, j), imported.getPixelRGB(i, j));
+            }
+        }
+    }
+
+    @Test
+    void testMeshDirectiveAcceptsNonAsciiNames() throws IOException {
+        assumeTrue(Charset.forName(System.getProperty("sun.jnu.encoding", "UTF-8")).newEncoder().canEncode("è"),
+            "Noms de fichiers non ASCII impossibles avec cette locale");
+        Path dir = Files.createTempDirectory("scene_maillage");
+        Files.writeString(dir.resolve("modèle.obj"), "v 0 0 0\nv 1 0 0\nv 0 1 0\nf 1 2 3\n");
+        Files.writeString(dir.resolve("import.scene"), "size 4 4\nmesh modèle.obj\n");
+        for (SceneFileParser.Mode mode : SceneFileParser.Mode.values()) {
+            Scene scene = new Scene();
+            new SceneFileParser(scene, mode).parse(dir.resolve("import.scene").toString());
+            assertEquals(1, ((TriangleMesh) scene.getShapes().get(0)).getTriangleCount(), mode.name());
+        }
+    }
+
+    private static RayTracer rayTracer(Path scenePath) throws IOException {
+        Scene scene = new Scene();
+        new SceneFileParser(scene).parse(scenePath.toString());
+        return new RayTracer(scene);
+    }
+}
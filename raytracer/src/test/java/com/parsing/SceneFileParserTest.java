@@ -2,12 +2,18 @@ package com.parsing;
 
 import com.geometry.*;
 import com.imaging.Color;
+import com.raytracer.DirectionalLight;
+import com.raytracer.Light;
+import com.raytracer.PointLight;
 import com.raytracer.Scene;
 import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -137,5 +143,191 @@ public class SceneFileParserTest {
                 () -> parser.parse(temp.toString()),
                 "Un tri avec un index >= vertexCount doit lever IndexOutOfBoundsException");
     }
-}
 
+    // Les triangles regroupés en maillage gardent leur place parmi les autres formes
+    @Test
+    public void testShapesKeepFileOrder() throws IOException {
+        String content = """
+            size 10 10
+            maxverts 3
+            vertex 0 0 0
+            vertex 1 0 0
+            vertex 0 1 0
+            tri 0 1 2
+            sphere 0 0 0 1
+            tri 0 2 1
+            plane 0 -1 0   0 1 0
+            tri 0 1 2
+        """;
+        Path temp = Files.createTempFile("scene_ordre", ".test");
+        Files.writeString(temp, content);
+        for (SceneFileParser.Mode mode : SceneFileParser.Mode.values()) {
+            Scene scene = parse(temp, mode);
+            assertEquals(5, scene.getShapes().size(), mode.name());
+            assertTrue(scene.getShapes().get(0) instanceof TriangleMesh, mode.name());
+            assertTrue(scene.getShapes().get(1) instanceof Sphere, mode.name());
+            assertTrue(scene.getShapes().get(2) instanceof TriangleMesh, mode.name());
+            assertTrue(scene.getShapes().get(3) instanceof Plane, mode.name());
+            assertTrue(scene.getShapes().get(4) instanceof TriangleMesh, mode.name());
+        }
+    }
+
+    // Les deux modes de lecture doivent produire exactement la même scène
+    @Test
+    public void testMappedAndLineModesProduceIdenticalScenes() throws IOException {
+        for (String file : new String[] {"tp31.test", "final.scene", "final_avec_bonus.scene"}) {
+            String path = "src/test/java/com/ressources/scenes/" + file;
+            assertEquals(describe(path, SceneFileParser.Mode.LINES), describe(path, SceneFileParser.Mode.MAPPED), file);
+        }
+
+        // Octets UTF-8 d'un caractère non ASCII (>= 0x80) : partie du jeton, pas des blancs
+        Path temp = Files.createTempFile("scene_accents", ".test");
+        Files.writeString(temp, "size 10 10\noutput sortie_é.png\ncamera 0 0 5 0 0 0 0 1 0 45\n"
+            + "maxverts 3\nvertex 0 0 0\nvertex 1 0 0\nvertex 0 1 0\ntri 0 1 2\n");
+        assertEquals("sortie_é.png", parse(temp, SceneFileParser.Mode.MAPPED).getOutputFile());
+        assertEquals(describe(parse(temp, SceneFileParser.Mode.LINES)), describe(parse(temp, SceneFileParser.Mode.MAPPED)));
+    }
+
+    // Nombres de toutes les formes : chemin rapide et repli doivent rester exacts au bit près
+    @Test
+    public void testMappedNumbersMatchJdkParsing() throws IOException {
+        StringBuilder content = new StringBuilder("maxverts 4000\r\n");
+        content.append("vertex 0.1 -0 1e-5\r\n");
+        content.append("vertex 123456789012345678 1.7976931348623157e308 4.9e-324\r\n");
+        content.append("  vertex .5 5. 2.5E+3   # commentaire en fin de ligne ignoré\n");
+        content.append("vertex 0x1p3 1.5d NaN\n");
+        content.append("vertex 0.000000000000000000000000001 +7 1e22\n");
+        Random random = new Random(42);
+        String[] formats = {"%.6f", "%.17g", "%e", "%.3f", "%.9e"};
+        for (int i = 0; i < 3000; i++) {
+            content.append("vertex");
+            for (int k = 0; k < 3; k++) {
+                double v = (random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(12) - 6);
+                content.append(' ').append(String.format(Locale.ROOT, formats[random.nextInt(formats.length)], v));
+            }
+            content.append('\n');
+        }
+        content.append("diffuse 0.3 0.33333334 0.1234567\n");
+        content.append("specular 1e-10 3.4028235e38 0.7\n");
+        content.append("tri 0 1 2\n");
+        Path temp = Files.createTempFile("scene_nombres", ".test");
+        Files.writeString(temp, content.toString());
+
+        TriangleMesh lines = (TriangleMesh) parse(temp, SceneFileParser.Mode.LINES).getShapes().get(0);
+        TriangleMesh mapped = (TriangleMesh) parse(temp, SceneFileParser.Mode.MAPPED).getShapes().get(0);
+        assertArrayEquals(lines.getVertexBuffer(), mapped.getVertexBuffer());
+        assertEquals(-0.0, mapped.getVertexBuffer()[1]);
+        assertEquals(describe(lines.getDiffuse()) + describe(lines.getSpecular()),
+            describe(mapped.getDiffuse()) + describe(mapped.getSpecular()));
+    }
+
+    @Test
+    public void testMappedMissingParameterThrows() throws IOException {
+        Path temp = Files.createTempFile("scene_parametre_manquant", ".test");
+        Files.writeString(temp, "size 100\n");
+        assertThrows(IndexOutOfBoundsException.class,
+            () -> new SceneFileParser(new Scene(), SceneFileParser.Mode.MAPPED).parse(temp.toString()));
+        Files.writeString(temp, "size 10 abc\n");
+        assertThrows(NumberFormatException.class,
+            () -> new SceneFileParser(new Scene(), SceneFileParser.Mode.MAPPED).parse(temp.toString()));
+    }
+
+    // Longues suites de vertex et de tri lues en parallèle par blocs
+    @Test
+    public void testParallelRunsMatchSequentialParsing() throws IOException {
+        int vertexCount = SceneFileParser.PARALLEL_MIN_LINES + 1234;
+        StringBuilder content = new StringBuilder("size 10 10\nmaxverts " + vertexCount + "\n");
+        Random random = new Random(7);
+        for (int i = 0; i < vertexCount; i++) {
+            if (i % 5000 == 17) {
+                content.append("# commentaire au milieu des vertex\n\n");
+            }
+            content.append(String.format(Locale.ROOT, "vertex %.6f %.6f %.6f\n",
+                random.nextGaussian(), random.nextGaussian(), random.nextGaussian()));
+        }
+        for (int run = 0; run < 2; run++) {
+            content.append("diffuse 0.").append(run + 1).append(" 0.2 0.3\n");
+            int tris = run == 0 ? 100 : SceneFileParser.PARALLEL_MIN_LINES * 2 + 7;
+            for (int i = 0; i < tris; i++) {
+                int a = random.nextInt(vertexCount - 2);
+                content.append("tri ").append(a).append(' ').append(a + 1).append(' ').append(a + 2).append('\n');
+            }
+        }
+        content.append("sphere 0 0 0 1\n");
+        Path temp = Files.createTempFile("scene_blocs", ".test");
+        Files.writeString(temp, content.toString());
+
+        assertEquals(describe(temp.toString(), SceneFileParser.Mode.LINES),
+            describe(temp.toString(), SceneFileParser.Mode.MAPPED));
+        Scene scene = parse(temp, SceneFileParser.Mode.MAPPED);
+        assertEquals(3, scene.getShapes().size());
+        assertEquals(SceneFileParser.PARALLEL_MIN_LINES * 2 + 7,
+            ((TriangleMesh) scene.getShapes().get(1)).getTriangleCount());
+        assertTrue(scene.getShapes().get(2) instanceof Sphere); // ordre des formes du fichier
+
+        // Une erreur au milieu d'un bloc lu en parallèle remonte telle quelle
+        Files.writeString(temp, content.toString().replace("sphere", "tri 0 1 " + vertexCount + "\nsphere"));
+        assertThrows(IndexOutOfBoundsException.class, () -> parse(temp, SceneFileParser.Mode.MAPPED));
+    }
+
+    private static Scene parse(Path path, SceneFileParser.Mode mode) throws IOException {
+        Scene scene = new Scene();
+        new SceneFileParser(scene, mode).parse(path.toString());
+        return scene;
+    }
+
+    // Description exacte (Double.toString est réversible) de tout le contenu de la scène
+    private static String describe(String path, SceneFileParser.Mode mode) throws IOException {
+        return describe(parse(Path.of(path), mode));
+    }
+
+    static String describe(Scene scene) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(scene.getWidth()).append('x').append(scene.getHeight()).append(' ').append(scene.getOutputFile());
+        sb.append(" depth=").append(scene.getMaxDepth()).append(" ambient=").append(describe(scene.getAmbient()));
+        if (scene.getCamera() != null) {
+            sb.append(" camera=").append(describe(scene.getCamera().getPosition()))
+                .append(describe(scene.getCamera().getLookAt())).append(describe(scene.getCamera().getUp()))
+                .append(scene.getCamera().getFov());
+        }
+        for (Light light : scene.getLights()) {
+            if (light instanceof PointLight) {
+                PointLight p = (PointLight) light;
+                sb.append("\npoint ").append(describe(p.getPosition())).append(describe(p.getColor()));
+            } else if (light instanceof DirectionalLight) {
+                DirectionalLight d = (DirectionalLight) light;
+                sb.append("\ndirectional ").append(describe(d.getDirection())).append(describe(d.getColor()));
+            }
+        }
+        for (Shape shape : scene.getShapes()) {
+            sb.append('\n').append(shape.getClass().getSimpleName()).append(' ')
+                .append(describe(shape.getDiffuse())).append(describe(shape.getSpecular())).append(shape.getShininess());
+            if (shape instanceof Sphere) {
+                Sphere s = (Sphere) shape;
+                sb.append(describe(s.getCenter())).append(s.getRadius());
+            } else if (shape instanceof Plane) {
+                Plane p = (Plane) shape;
+                sb.append(describe(p.getPoint())).append(describe(p.getNormal()));
+            } else if (shape instanceof Triangle) {
+                Triangle t = (Triangle) shape;
+                sb.append(describe(t.getP1())).append(describe(t.getP2())).append(describe(t.getP3()));
+            } else if (shape instanceof TriangleMesh) {
+                TriangleMesh m = (TriangleMesh) shape;
+                sb.append(Arrays.toString(m.getVertexBuffer())).append(Arrays.toString(m.getIndexBuffer()));
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String describe(Point p) {
+        return "(" + p.getX() + " " + p.getY() + " " + p.getZ() + ")";
+    }
+
+    private static String describe(Vector v) {
+        return "(" + v.getX() + " " + v.getY() + " " + v.getZ() + ")";
+    }
+
+    private static String describe(Color c) {
+        return c == null ? "()" : "(" + c.getR() + " " + c.getG() + " " + c.getB() + ")";
+    }
+}
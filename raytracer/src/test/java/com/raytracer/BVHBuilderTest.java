@@ -0,0 +1,108 @@
+package com.raytracer;
+
+import com.geometry.Point;
+import com.geometry.Shape;
+import com.geometry.Sphere;
+import com.geometry.Triangle;
+import com.geometry.Vector;
+import com.imaging.Color;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BVHBuilderTest {
+
+    static List<Shape> randomShapes(int count, long seed) {
+        Random rnd = new Random(seed);
+        Color c = new Color(0.5f, 0.5f, 0.5f);
+        List<Shape> shapes = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Point p = new Point(rnd.nextDouble() * 20 - 10, rnd.nextDouble() * 20 - 10, rnd.nextDouble() * 20 - 10);
+            if (i % 2 == 0) {
+                shapes.add(new Sphere(p, 0.1 + rnd.nextDouble() * 0.5, c, c, 1f));
+            } else {
+                Point q = new Point(p.getX() + rnd.nextDouble(), p.getY() + rnd.nextDouble(), p.getZ());
+                Point r = new Point(p.getX(), p.getY() + rnd.nextDouble(), p.getZ() + rnd.nextDouble());
+                shapes.add(new Triangle(p, q, r, c, c, 1f));
+            }
+        }
+        return shapes;
+    }
+
+    static double bruteForce(List<Shape> shapes, Ray ray) {
+        double best = Double.POSITIVE_INFINITY;
+        for (Shape s : shapes) {
+            Optional<Intersection> hit = s.intersect(ray);
+            if (hit.isPresent()) {
+                best = Math.min(best, hit.get().getT());
+            }
+        }
+        return best;
+    }
+
+    @Test
+    void testMedianAndSahMatchBruteForce() {
+        List<Shape> shapes = randomShapes(500, 42L);
+        BVHNode median = BVHBuilder.median().build(shapes);
+        BVHNode sah = BVHBuilder.sah().build(shapes);
+        Random rnd = new Random(7L);
+        for (int i = 0; i < 2000; i++) {
+            Ray ray = new Ray(new Point(0, 0, -30),
+                new Vector(rnd.nextDouble() - 0.5, rnd.nextDouble() - 0.5, 1.0));
+            double expected = bruteForce(shapes, ray);
+            double m = median.intersect(ray, Double.POSITIVE_INFINITY).map(Intersection::getT).orElse(Double.POSITIVE_INFINITY);
+            double s = sah.intersect(ray, Double.POSITIVE_INFINITY).map(Intersection::getT).orElse(Double.POSITIVE_INFINITY);
+            assertEquals(expected, m, 1e-9);
+            assertEquals(expected, s, 1e-9);
+        }
+    }
+
+    @Test
+    void testParallelBuildMatchesSequential() {
+        List<Shape> shapes = randomShapes(3000, 17L);
+        BVHBuilder parallel = new BVHBuilder(BVHBuilder.Strategy.SAH, 8, 1.0, 1.0, 64);
+        BVHBuildStats seqStats = BVHBuildStats.collect(parallel.sequential().build(shapes), parallel, 0L);
+        BVHBuildStats parStats = BVHBuildStats.collect(parallel.build(shapes), parallel, 0L);
+        assertEquals(seqStats.getNodeCount(), parStats.getNodeCount());
+        assertEquals(seqStats.getMaxDepth(), parStats.getMaxDepth());
+        assertEquals(seqStats.getSahCost(), parStats.getSahCost(), 1e-9);
+    }
+
+    @Test
+    void testStatsCountNodes() {
+        List<Shape> shapes = randomShapes(100, 3L);
+        BVHBuilder builder = BVHBuilder.sah().withMaxLeafSize(1);
+        BVHBuildStats stats = BVHBuildStats.collect(builder.build(shapes), builder, 0L);
+        assertEquals(100, stats.getPrimitiveCount());
+        assertEquals(100, stats.getLeafCount());
+        assertEquals(199, stats.getNodeCount());
+        assertTrue(stats.getSahCost() > 0.0);
+    }
+
+    @Test
+    void testMultiPrimitiveLeavesGiveShallowerTree() {
+        List<Shape> shapes = randomShapes(1000, 4L);
+        for (BVHBuilder builder : new BVHBuilder[]{BVHBuilder.median(), BVHBuilder.sah()}) {
+            BVHBuildStats single = BVHBuildStats.collect(builder.withMaxLeafSize(1).build(shapes), builder, 0L);
+            BVHBuildStats packed = BVHBuildStats.collect(builder.withMaxLeafSize(8).build(shapes), builder, 0L);
+            assertEquals(1000, packed.getPrimitiveCount());
+            assertTrue(packed.getNodeCount() < single.getNodeCount());
+            assertTrue(packed.getMaxDepth() < single.getMaxDepth());
+        }
+    }
+
+    @Test
+    void testInvalidBinCountThrows() {
+        assertThrows(IllegalArgumentException.class,
+            () -> new BVHBuilder(BVHBuilder.Strategy.SAH, 1, 1.0, 1.0));
+        assertThrows(IllegalArgumentException.class,
+            () -> BVHBuilder.sah().withMaxLeafSize(0));
+        assertThrows(IllegalArgumentException.class,
+            () -> BVHBuilder.sah().withBranchingFactor(3));
+    }
+}
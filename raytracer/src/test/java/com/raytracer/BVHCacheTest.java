@@ -0,0 +1,70 @@
+package com.raytracer;
+
+import com.geometry.Point;
+import com.geometry.Shape;
+import com.geometry.Vector;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BVHCacheTest {
+
+    @Test
+    void testMissWritesEntryAndHitReusesIt() throws IOException {
+        List<Shape> shapes = BVHBuilderTest.randomShapes(500, 3L);
+        BVHCache cache = new BVHCache(Files.createTempDirectory("bvh_cache"));
+
+        LinearBVH built = LinearBVH.build(shapes, BVHBuilder.sah(), cache);
+        assertFalse(built.isLoadedFromCache());
+        try (var entries = Files.list(cache.getDirectory())) {
+            assertEquals(1, entries.count(), "Une seule entrée, sans fichier temporaire résiduel");
+        }
+
+        LinearBVH cached = LinearBVH.build(shapes, BVHBuilder.sah(), cache);
+        assertTrue(cached.isLoadedFromCache());
+        assertEquals(built.getNodeCount(), cached.getNodeCount());
+        assertEquals(built.getBuildStats().getLeafCount(), cached.getBuildStats().getLeafCount());
+        assertEquals(built.getBuildStats().getMaxDepth(), cached.getBuildStats().getMaxDepth());
+        assertEquals(built.getBuildStats().getSahCost(), cached.getBuildStats().getSahCost());
+        Random rnd = new Random(4L);
+        for (int i = 0; i < 2000; i++) {
+            Ray ray = new Ray(new Point(0, 0, -30), new Vector(rnd.nextDouble() - 0.5, rnd.nextDouble() - 0.5, 1.0));
+            HitRecord expected = new HitRecord();
+            HitRecord actual = new HitRecord();
+            assertEquals(built.intersect(ray, Double.POSITIVE_INFINITY, expected),
+                cached.intersect(ray, Double.POSITIVE_INFINITY, actual));
+            assertSame(expected.getShape(), actual.getShape());
+            assertEquals(expected.getT(), actual.getT());
+        }
+
+        // Autres paramètres de construction ou autre géométrie : autre entrée
+        assertFalse(LinearBVH.build(shapes, BVHBuilder.median(), cache).isLoadedFromCache());
+        assertFalse(LinearBVH.build(BVHBuilderTest.randomShapes(500, 4L), BVHBuilder.sah(), cache).isLoadedFromCache());
+    }
+
+    @Test
+    void testCorruptEntryIsRebuilt() throws IOException {
+        List<Shape> shapes = BVHBuilderTest.randomShapes(200, 6L);
+        BVHCache cache = new BVHCache(Files.createTempDirectory("bvh_cache"));
+        LinearBVH.build(shapes, BVHBuilder.median(), cache);
+        Path entry;
+        try (var entries = Files.list(cache.getDirectory())) {
+            entry = entries.findFirst().orElseThrow();
+        }
+        byte[] bytes = Files.readAllBytes(entry);
+        // Fils droit de la racine hors de l'arbre
+        int nodesOffset = 64 + (int) (Files.size(entry) - 64 - 200 * 4) / 32 * 24;
+        bytes[nodesOffset + 3] = 0x7f;
+        Files.write(entry, bytes);
+
+        LinearBVH rebuilt = LinearBVH.build(shapes, BVHBuilder.median(), cache);
+        assertFalse(rebuilt.isLoadedFromCache());
+        assertTrue(LinearBVH.build(shapes, BVHBuilder.median(), cache).isLoadedFromCache());
+    }
+}
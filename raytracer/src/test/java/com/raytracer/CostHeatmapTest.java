@@ -0,0 +1,99 @@
+package com.raytracer;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CostHeatmapTest {
+
+    private static RayTracer rayTracer() throws IOException {
+        String content = """
+            size 32 24
+            output heatmap.png
+            maxdepth 2
+            camera 0 0 -5   0 0 0   0 1 0   45
+            ambient 0.1 0.1 0.1
+            directional 0.3 0.2 -1 1 1 1
+            diffuse 0.5 0.2 0.2
+            specular 0.4 0.4 0.4
+            sphere 0 0 0 1
+            specular 0 0 0
+            sphere 1.2 0.6 -0.5 0.4
+            sphere -1.2 -0.6 0.5 0.3
+        """;
+        return TestScenes.rayTracer(content);
+    }
+
+    @Test
+    void testCostsAddUpToTheCounters() throws IOException {
+        RayTracer rayTracer = rayTracer();
+        TileRenderer renderer = new TileRenderer(8, TileRenderer.Order.HILBERT);
+        BufferedImage reference = new BufferedImage(32, 24, BufferedImage.TYPE_INT_RGB);
+        renderer.render(rayTracer, reference, null);
+
+        RayStats stats = new RayStats();
+        rayTracer.setStats(stats);
+        for (CostHeatmap.Metric metric : CostHeatmap.Metric.values()) {
+            stats.reset();
+            CostHeatmap heatmap = new CostHeatmap(32, 24, metric);
+            BufferedImage image = new BufferedImage(32, 24, BufferedImage.TYPE_INT_RGB);
+            renderer.render(rayTracer, image, null, heatmap);
+            for (int j = 0; j < 24; j++) {
+                for (int i = 0; i < 32; i++) {
+                    assertEquals(reference.getRGB(i, j), image.getRGB(i, j), "La carte ne change pas l'image");
+                }
+            }
+
+            long total = 0;
+            for (int j = 0; j < 24; j++) {
+                for (int i = 0; i < 32; i++) {
+                    assertTrue(heatmap.getCost(i, j) >= 0);
+                    total += heatmap.getCost(i, j);
+                }
+            }
+            if (metric == CostHeatmap.Metric.NODES) {
+                assertEquals(stats.get(RayStats.Counter.NODES_VISITED), total);
+            } else if (metric == CostHeatmap.Metric.RAYS) {
+                assertEquals(stats.getTotalRays(), total);
+                // Un pixel du fond ne lance que son rayon primaire
+                assertEquals(1L, heatmap.getCost(0, 0));
+                assertTrue(heatmap.getCost(16, 12) > 1, "Ombre et réflexion au centre de la sphère");
+            } else if (metric == CostHeatmap.Metric.TESTS) {
+                assertEquals(stats.get(RayStats.Counter.SPHERE_TESTS), total);
+            }
+            assertTrue(heatmap.getScaleMax() <= Math.max(1L, heatmap.getMaxCost()));
+            BufferedImage colors = heatmap.toImage();
+            assertEquals(32, colors.getWidth());
+            assertEquals(24, colors.getHeight());
+        }
+    }
+
+    @Test
+    void testPalette() {
+        assertEquals(0x000060, CostHeatmap.color(0.0));
+        assertEquals(0xDC0000, CostHeatmap.color(1.0));
+        assertEquals(0x00DC60, CostHeatmap.color(0.5));
+    }
+
+    @Test
+    void testInvalidUse() throws IOException {
+        assertThrows(IllegalArgumentException.class, () -> new CostHeatmap(0, 10, CostHeatmap.Metric.TIME));
+        assertThrows(IllegalArgumentException.class, () -> new CostHeatmap(10, 10, null));
+
+        RayTracer rayTracer = rayTracer();
+        TileRenderer renderer = new TileRenderer();
+        BufferedImage image = new BufferedImage(32, 24, BufferedImage.TYPE_INT_RGB);
+        // Les compteurs sont désactivés
+        assertThrows(IllegalArgumentException.class,
+            () -> renderer.render(rayTracer, image, null, new CostHeatmap(32, 24, CostHeatmap.Metric.NODES)));
+        assertThrows(IllegalArgumentException.class,
+            () -> renderer.render(rayTracer, image, null, new CostHeatmap(16, 24, CostHeatmap.Metric.TIME)));
+        // La durée se passe des compteurs
+        CostHeatmap time = new CostHeatmap(32, 24, CostHeatmap.Metric.TIME);
+        renderer.render(rayTracer, image, null, time);
+        assertTrue(time.getMaxCost() > 0);
+    }
+}
@@ -0,0 +1,64 @@
+package com.raytracer;
+
+import com.geometry.Plane;
+import com.geometry.Point;
+import com.geometry.Shape;
+import com.geometry.Vector;
+import com.imaging.Color;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HitRecordTest {
+
+    @Test
+    void testRecordMatchesOptionalPath() {
+        List<Shape> shapes = BVHBuilderTest.randomShapes(200, 31L);
+        shapes.add(new Plane(new Point(0, -12, 0), new Vector(0, 1, 0), null, null, 1f));
+        Random rnd = new Random(3L);
+        HitRecord hit = new HitRecord();
+        for (int i = 0; i < 500; i++) {
+            Ray ray = new Ray(new Point(0, 0, -30), new Vector(rnd.nextDouble() - 0.5, rnd.nextDouble() - 0.5, 1.0));
+            for (Shape shape : shapes) {
+                Optional<Intersection> expected = shape.intersect(ray);
+                hit.reset();
+                assertEquals(expected.isPresent(), shape.intersect(ray, Double.POSITIVE_INFINITY, hit));
+                if (expected.isPresent()) {
+                    assertSame(shape, hit.getShape());
+                    assertEquals(expected.get().getT(), hit.getT());
+                    assertEquals(expected.get().getPoint(), hit.toIntersection(ray).getPoint());
+                }
+            }
+        }
+    }
+
+    @Test
+    void testFartherHitLeavesRecordUntouched() {
+        Shape plane = new Plane(new Point(0, 0, 5), new Vector(0, 0, 1), null, null, 1f);
+        Ray ray = new Ray(new Point(0, 0, 0), new Vector(0, 0, 1));
+        HitRecord hit = new HitRecord();
+        assertFalse(plane.intersect(ray, 4.0, hit));
+        assertFalse(hit.isHit());
+        assertNull(hit.toIntersection(ray));
+        assertTrue(plane.intersect(ray, 6.0, hit));
+        assertEquals(5.0, hit.getT(), 1e-12);
+    }
+
+    @Test
+    void testTreeRecordMatchesBruteForce() {
+        List<Shape> shapes = BVHBuilderTest.randomShapes(300, 12L);
+        BVHNode tree = BVHBuilder.sah().build(shapes);
+        Random rnd = new Random(4L);
+        HitRecord hit = new HitRecord();
+        for (int i = 0; i < 1000; i++) {
+            Ray ray = new Ray(new Point(0, 0, -30), new Vector(rnd.nextDouble() - 0.5, rnd.nextDouble() - 0.5, 1.0));
+            hit.reset();
+            tree.intersect(ray, Double.POSITIVE_INFINITY, hit);
+            assertEquals(BVHBuilderTest.bruteForce(shapes, ray), hit.getT(), 1e-9);
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.raytracer;
+
+import com.geometry.Point;
+import com.geometry.Shape;
+import com.geometry.Triangle;
+import com.geometry.Vector;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class IntersectionKernelsTest {
+
+    private static Ray randomRay(Random rnd) {
+        Point origin = new Point(rnd.nextDouble() * 30 - 15, rnd.nextDouble() * 30 - 15, -30);
+        double dx = rnd.nextDouble() - 0.5;
+        double dy = rnd.nextDouble() - 0.5;
+        // Quelques rayons parallèles à un plan des boites (inverse infini)
+        if (rnd.nextInt(10) == 0) {
+            dx = 0.0;
+        }
+        return new Ray(origin, new Vector(dx, dy, 1.0));
+    }
+
+    @Test
+    void testVectorTrianglesMatchScalarBitForBit() {
+        IntersectionKernels vector = IntersectionKernels.vector();
+        assumeTrue(vector != null, "Module jdk.incubator.vector absent");
+        List<Shape> shapes = BVHBuilderTest.randomShapes(400, 3L);
+        shapes.removeIf(s -> !(s instanceof Triangle));
+        Shape[] primitives = shapes.toArray(new Shape[0]);
+        int[] meshTriangles = new int[primitives.length];
+        Arrays.fill(meshTriangles, -1);
+
+        for (BVHBuilder.TriangleTest test : BVHBuilder.TriangleTest.values()) {
+            TrianglePacks packs = new TrianglePacks(primitives, meshTriangles, test);
+            double[] expected = new double[8 + TrianglePacks.PADDING];
+            double[] actual = new double[8 + TrianglePacks.PADDING];
+            Random rnd = new Random(17L);
+            int hits = 0;
+            for (int r = 0; r < 3000; r++) {
+                int from = rnd.nextInt(primitives.length - 8);
+                int to = from + 1 + rnd.nextInt(8);
+                // Rayon visant le voisinage d'un triangle du bloc
+                Triangle target = (Triangle) primitives[from + rnd.nextInt(to - from)];
+                Point origin = randomRay(rnd).getOrigin();
+                Ray ray = new Ray(origin, new Vector(
+                    target.getP1().getX() + rnd.nextDouble() * 0.6 - origin.getX(),
+                    target.getP1().getY() + rnd.nextDouble() * 0.6 - origin.getY(),
+                    target.getP1().getZ() + rnd.nextDouble() * 0.6 - origin.getZ()));
+                IntersectionKernels.scalar().intersectTriangles(packs, from, to, ray, expected);
+                vector.intersectTriangles(packs, from, to, ray, actual);
+                for (int k = 0; k < to - from; k++) {
+                    assertEquals(expected[k], actual[k], test + " triangle " + (from + k));
+                    if (actual[k] != Double.POSITIVE_INFINITY) {
+                        hits++;
+                    }
+                }
+            }
+            assertTrue(hits > 0, "Des rayons touchent des triangles (" + test + ")");
+        }
+    }
+
+    @Test
+    void testVectorBoxesMatchScalar() {
+        IntersectionKernels vector = IntersectionKernels.vector();
+        assumeTrue(vector != null, "Module jdk.incubator.vector absent");
+        Random rnd = new Random(29L);
+        for (int width : new int[] {1, 3, 4, 5, 8}) {
+            double[] boxes = new double[6 * width];
+            double[] expected = new double[width];
+            double[] actual = new double[width];
+            for (int r = 0; r < 2000; r++) {
+                for (int k = 0; k < width; k++) {
+                    if (k == width - 1 && width > 1) {
+                        // Voie inutilisée : boite vide
+                        for (int a = 0; a < 3; a++) {
+                            boxes[a * width + k] = Double.POSITIVE_INFINITY;
+                            boxes[(a + 3) * width + k] = Double.NEGATIVE_INFINITY;
+                        }
+                        continue;
+                    }
+                    for (int a = 0; a < 3; a++) {
+                        double c = rnd.nextDouble() * 20 - 10;
+                        double h = rnd.nextDouble() * 3;
+                        boxes[a * width + k] = c - h;
+                        boxes[(a + 3) * width + k] = c + h;
+                    }
+                }
+                Ray ray = randomRay(rnd);
+                double tMax = rnd.nextBoolean() ? Double.POSITIVE_INFINITY : rnd.nextDouble() * 40;
+                double ox = ray.getOrigin().getX();
+                double oy = ray.getOrigin().getY();
+                double oz = ray.getOrigin().getZ();
+                int mask = IntersectionKernels.scalar().intersectBoxes(boxes, 0, width, ox, oy, oz,
+                    ray.getInvDirX(), ray.getInvDirY(), ray.getInvDirZ(), tMax, expected);
+                assertEquals(mask, vector.intersectBoxes(boxes, 0, width, ox, oy, oz,
+                    ray.getInvDirX(), ray.getInvDirY(), ray.getInvDirZ(), tMax, actual));
+                if (width > 1) {
+                    assertEquals(0, mask & (1 << (width - 1)), "Une boite vide n'est jamais touchée");
+                }
+                for (int k = 0; k < width; k++) {
+                    if ((mask & (1 << k)) != 0) {
+                        assertEquals(expected[k], actual[k]);
+                        assertTrue(expected[k] >= 0.0 && expected[k] <= tMax);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void testPublicFacadeMatchesKernels() {
+        List<Shape> shapes = BVHBuilderTest.randomShapes(200, 5L);
+        shapes.removeIf(s -> !(s instanceof Triangle));
+        Triangle[] block = shapes.subList(0, 8).toArray(new Triangle[0]);
+        BlockKernels.Triangles packed = BlockKernels.pack(block, BVHBuilder.TriangleTest.MOLLER_TRUMBORE);
+        assertEquals(8, packed.size());
+        double[] distances = new double[packed.distanceCapacity()];
+        double[] boxes = new double[6 * 4];
+        for (int k = 0; k < 4; k++) {
+            AABB box = block[k].getBoundingBox();
+            boxes[k] = box.getMin().getX();
+            boxes[4 + k] = box.getMin().getY();
+            boxes[8 + k] = box.getMin().getZ();
+            boxes[12 + k] = box.getMax().getX();
+            boxes[16 + k] = box.getMax().getY();
+            boxes[20 + k] = box.getMax().getZ();
+        }
+        double[] tNear = new double[4];
+        Random rnd = new Random(41L);
+        int hits = 0;
+        for (int r = 0; r < 500; r++) {
+            Triangle target = block[rnd.nextInt(block.length)];
+            Point origin = randomRay(rnd).getOrigin();
+            Ray ray = new Ray(origin, new Vector(target.getP1().getX() - origin.getX(),
+                target.getP1().getY() - origin.getY() + rnd.nextDouble() * 0.4, target.getP1().getZ() - origin.getZ()));
+            BlockKernels.scalar().intersectTriangles(packed, ray, distances);
+            for (int k = 0; k < block.length; k++) {
+                HitRecord hit = new HitRecord();
+                double expected = block[k].intersect(ray, Double.POSITIVE_INFINITY, hit)
+                    ? hit.getT() : Double.POSITIVE_INFINITY;
+                assertEquals(expected, distances[k], 1e-9);
+            }
+            int mask = BlockKernels.scalar().intersectBoxes(boxes, 4, ray, Double.POSITIVE_INFINITY, tNear);
+            for (int k = 0; k < 4; k++) {
+                if (distances[k] != Double.POSITIVE_INFINITY) {
+                    assertTrue((mask & (1 << k)) != 0, "La boite d'un triangle touché est touchée");
+                    hits++;
+                }
+            }
+        }
+        assertTrue(hits > 0, "Des rayons touchent des triangles");
+    }
+
+    @Test
+    void testVectorizedBvhMatchesScalarBvh() {
+        List<Shape> shapes = BVHBuilderTest.randomShapes(600, 8L);
+        LinearBVH scalar = LinearBVH.build(shapes, BVHBuilder.median());
+        LinearBVH vector = LinearBVH.build(shapes, BVHBuilder.median().withVectorKernels(true));
+        assertFalse(scalar.isVectorized());
+        assertEquals(IntersectionKernels.vector() != null, vector.isVectorized());
+
+        Random rnd = new Random(31L);
+        for (int r = 0; r < 3000; r++) {
+            Ray ray = randomRay(rnd);
+            HitRecord expected = new HitRecord();
+            HitRecord actual = new HitRecord();
+            assertEquals(scalar.intersect(ray, Double.POSITIVE_INFINITY, expected),
+                vector.intersect(ray, Double.POSITIVE_INFINITY, actual));
+            assertSame(expected.getShape(), actual.getShape());
+            assertEquals(expected.getT(), actual.getT());
+            double tMax = rnd.nextDouble() * 60;
+            assertEquals(scalar.isOccluded(ray, 1e-4, tMax), vector.isOccluded(ray, 1e-4, tMax));
+        }
+    }
+}
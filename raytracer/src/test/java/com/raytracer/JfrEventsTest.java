@@ -0,0 +1,94 @@
+package com.raytracer;
+
+import com.parsing.SceneFileParser;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JfrEventsTest {
+
+    @Test
+    void testRenderPhasesAreRecorded() throws IOException {
+        Path dir = Files.createTempDirectory("rendu_jfr");
+        Path scenePath = dir.resolve("jfr.test");
+        Files.writeString(scenePath, """
+            size 40 24
+            output jfr.png
+            camera 0 0 -5   0 0 0   0 1 0   45
+            ambient 0.1 0.1 0.1
+            directional 0.3 0.2 -1 1 1 1
+            diffuse 0.5 0.2 0.2
+            sphere 0 0 0 1
+            sphere 1.2 0.6 -0.5 0.4
+            plane 0 0 3   0 0 -1
+        """);
+        Path imagePath = dir.resolve("jfr.png");
+        RayStats stats = new RayStats();
+        TileRenderStats tileStats;
+
+        List<RecordedEvent> events;
+        try (Recording recording = new Recording()) {
+            for (String name : new String[] {"SceneParse", "BVHBuild", "TileRender", "ImageWrite"}) {
+                recording.enable("com.raytracer." + name);
+            }
+            recording.start();
+            Scene scene = new Scene();
+            new SceneFileParser(scene).parse(scenePath.toString());
+            RayTracer rayTracer = new RayTracer(scene);
+            rayTracer.setStats(stats);
+            BufferedImage image = new BufferedImage(40, 24, BufferedImage.TYPE_INT_RGB);
+            tileStats = new TileRenderer(8, TileRenderer.Order.HILBERT).render(rayTracer, image, null);
+            Main.writePng(image, imagePath.toString());
+            recording.stop();
+            Path file = dir.resolve("rendu.jfr");
+            recording.dump(file);
+            events = RecordingFile.readAllEvents(file);
+        }
+
+        RecordedEvent parse = single(events, "com.raytracer.SceneParse");
+        assertEquals(scenePath.toString(), parse.getString("path"));
+        assertEquals("MAPPED", parse.getString("format"));
+        assertEquals(3, parse.getInt("shapes"));
+        assertEquals(1, parse.getInt("lights"));
+
+        RecordedEvent bvh = single(events, "com.raytracer.BVHBuild");
+        assertEquals(2, bvh.getInt("primitives"));
+        assertFalse(bvh.getBoolean("fromCache"));
+
+        List<RecordedEvent> tiles = events.stream()
+            .filter(e -> e.getEventType().getName().equals("com.raytracer.TileRender"))
+            .collect(Collectors.toList());
+        assertEquals(tileStats.getTileCount(), tiles.size());
+        long pixels = 0;
+        long rays = 0;
+        for (RecordedEvent tile : tiles) {
+            assertEquals((long) tile.getInt("width") * tile.getInt("height"), tile.getLong("primaryRays"));
+            pixels += tile.getLong("primaryRays");
+            rays += tile.getLong("rays");
+        }
+        assertEquals(40 * 24, pixels);
+        assertEquals(stats.getTotalRays(), rays, "Rayons des tuiles = total des compteurs");
+
+        RecordedEvent write = single(events, "com.raytracer.ImageWrite");
+        assertEquals(Files.size(imagePath), write.getLong("bytes"));
+        assertEquals(40, write.getInt("width"));
+    }
+
+    private static RecordedEvent single(List<RecordedEvent> events, String name) {
+        List<RecordedEvent> matching = events.stream()
+            .filter(e -> e.getEventType().getName().equals(name))
+            .collect(Collectors.toList());
+        assertEquals(1, matching.size(), name);
+        return matching.get(0);
+    }
+}
@@ -0,0 +1,302 @@
+package com.raytracer;
+
+import com.geometry.Point;
+import com.geometry.Shape;
+import com.geometry.Triangle;
+import com.geometry.TriangleMesh;
+import com.geometry.Vector;
+import com.imaging.Color;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LinearBVHTest {
+
+    @Test
+    void testFlattenedTraversalMatchesBruteForce() {
+        List<Shape> shapes = BVHBuilderTest.randomShapes(800, 11L);
+        BVHBuilder[] builders = {
+            BVHBuilder.median(), BVHBuilder.sah(), BVHBuilder.median().withMaxLeafSize(1), BVHBuilder.sah().withMaxLeafSize(8)
+        };
+        for (BVHBuilder builder : builders) {
+            LinearBVH bvh = LinearBVH.flatten(builder.build(shapes));
+            assertTrue(bvh.getNodeCount() <= 2 * shapes.size() - 1);
+            Random rnd = new Random(5L);
+            for (int i = 0; i < 2000; i++) {
+                Point origin = new Point(rnd.nextDouble() * 30 - 15, rnd.nextDouble() * 30 - 15, -30);
+                Ray ray = new Ray(origin, new Vector(rnd.nextDouble() - 0.5, rnd.nextDouble() - 0.5, 1.0));
+                double expected = BVHBuilderTest.bruteForce(shapes, ray);
+                double t = bvh.intersect(ray, Double.POSITIVE_INFINITY).map(Intersection::getT).orElse(Double.POSITIVE_INFINITY);
+                assertEquals(expected, t, 1e-9);
+            }
+        }
+    }
+
+    @Test
+    void testAxisAlignedRayIsNotCulled() {
+        List<Shape> shapes = BVHBuilderTest.randomShapes(50, 2L);
+        LinearBVH bvh = LinearBVH.flatten(BVHBuilder.median().build(shapes));
+        Ray ray = new Ray(new Point(0, 0, -30), new Vector(0, 0, 1));
+        double expected = BVHBuilderTest.bruteForce(shapes, ray);
+        double t = bvh.intersect(ray, Double.POSITIVE_INFINITY).map(Intersection::getT).orElse(Double.POSITIVE_INFINITY);
+        assertEquals(expected, t, 1e-9);
+    }
+
+    @Test
+    void testOcclusionMatchesClosestHitInterval() {
+        List<Shape> shapes = BVHBuilderTest.randomShapes(400, 23L);
+        LinearBVH bvh = LinearBVH.flatten(BVHBuilder.sah().build(shapes));
+        BVHNode tree = BVHBuilder.median().build(shapes);
+        Random rnd = new Random(9L);
+        for (int i = 0; i < 2000; i++) {
+            Ray ray = new Ray(new Point(0, 0, -30), new Vector(rnd.nextDouble() - 0.5, rnd.nextDouble() - 0.5, 1.0));
+            double closest = BVHBuilderTest.bruteForce(shapes, ray);
+            double tMax = rnd.nextDouble() * 60.0;
+            boolean expected = closest < tMax;
+            assertEquals(expected, bvh.isOccluded(ray, 0.0, tMax));
+            assertEquals(expected, tree.isOccluded(ray, 0.0, tMax));
+        }
+    }
+
+    @Test
+    void testMeshTrianglesAreExplodedIntoPrimitives() {
+        // Maillage de triangles aléatoires partageant un tampon de sommets, plus des formes simples
+        Random rnd = new Random(13L);
+        int triangles = 300;
+        double[] vertices = new double[triangles * 9];
+        int[] indices = new int[triangles * 3];
+        for (int i = 0; i < triangles; i++) {
+            double x = rnd.nextDouble() * 20 - 10, y = rnd.nextDouble() * 20 - 10, z = rnd.nextDouble() * 20 - 10;
+            double[] corner = {x, y, z, x + rnd.nextDouble(), y + rnd.nextDouble(), z, x, y + rnd.nextDouble(), z + rnd.nextDouble()};
+            System.arraycopy(corner, 0, vertices, i * 9, 9);
+            indices[i * 3] = i * 3;
+            indices[i * 3 + 1] = i * 3 + 1;
+            indices[i * 3 + 2] = i * 3 + 2;
+        }
+        List<Shape> shapes = new ArrayList<>(BVHBuilderTest.randomShapes(50, 8L));
+        TriangleMesh mesh = new TriangleMesh(vertices, indices, triangles, null, null, 1f);
+        shapes.add(mesh);
+
+        LinearBVH bvh = LinearBVH.build(shapes, BVHBuilder.sah());
+        assertEquals(50 + triangles, bvh.getPrimitiveCount());
+        assertEquals(50 + triangles, bvh.getBuildStats().getPrimitiveCount());
+        for (int i = 0; i < 2000; i++) {
+            Ray ray = new Ray(new Point(0, 0, -30), new Vector(rnd.nextDouble() - 0.5, rnd.nextDouble() - 0.5, 1.0));
+            double expected = BVHBuilderTest.bruteForce(shapes, ray);
+            Optional<Intersection> hit = bvh.intersect(ray, Double.POSITIVE_INFINITY);
+            assertEquals(expected, hit.map(Intersection::getT).orElse(Double.POSITIVE_INFINITY), 1e-9);
+            if (hit.isPresent() && hit.get().getShape() == mesh) {
+                assertEquals(hit.get().getT(), mesh.intersectTriangle(hit.get().getPrimitiveIndex(), ray));
+            }
+            assertEquals(expected < 20.0, bvh.isOccluded(ray, 0.0, 20.0));
+        }
+    }
+
+    @Test
+    void testWatertightMatchesMollerTrumbore() {
+        List<Shape> shapes = BVHBuilderTest.randomShapes(600, 19L);
+        LinearBVH mt = LinearBVH.build(shapes, BVHBuilder.sah());
+        LinearBVH wt = LinearBVH.build(shapes, BVHBuilder.sah().withTriangleTest(BVHBuilder.TriangleTest.WATERTIGHT));
+        Random rnd = new Random(21L);
+        for (int i = 0; i < 2000; i++) {
+            Point origin = new Point(rnd.nextDouble() * 30 - 15, rnd.nextDouble() * 30 - 15, rnd.nextBoolean() ? -30 : 30);
+            Vector dir = new Vector(rnd.nextDouble() - 0.5, rnd.nextDouble() - 0.5, origin.getZ() < 0 ? 1.0 : -1.0);
+            Ray ray = new Ray(origin, dir);
+            double expected = mt.intersect(ray, Double.POSITIVE_INFINITY).map(Intersection::getT).orElse(Double.POSITIVE_INFINITY);
+            double t = wt.intersect(ray, Double.POSITIVE_INFINITY).map(Intersection::getT).orElse(Double.POSITIVE_INFINITY);
+            assertEquals(expected, t, 1e-9);
+        }
+    }
+
+    @Test
+    void testWatertightHasNoCracksOnSharedEdges() {
+        // Grille de 8x8 carrés coupés en deux, rayons visant exactement les arêtes et sommets
+        int n = 8;
+        double[] vertices = new double[(n + 1) * (n + 1) * 3];
+        int[] indices = new int[n * n * 6];
+        for (int y = 0; y <= n; y++) {
+            for (int x = 0; x <= n; x++) {
+                int v = (y * (n + 1) + x) * 3;
+                vertices[v] = x * 0.1;
+                vertices[v + 1] = y * 0.1;
+                vertices[v + 2] = 0.0;
+            }
+        }
+        int k = 0;
+        for (int y = 0; y < n; y++) {
+            for (int x = 0; x < n; x++) {
+                int v0 = y * (n + 1) + x;
+                int v1 = v0 + 1;
+                int v2 = v0 + n + 2;
+                int v3 = v0 + n + 1;
+                indices[k++] = v0; indices[k++] = v1; indices[k++] = v2;
+                indices[k++] = v0; indices[k++] = v2; indices[k++] = v3;
+            }
+        }
+        List<Shape> shapes = new ArrayList<>();
+        shapes.add(new TriangleMesh(vertices, indices, n * n * 2, null, null, 1f));
+        LinearBVH wt = LinearBVH.build(shapes, BVHBuilder.sah().withTriangleTest(BVHBuilder.TriangleTest.WATERTIGHT));
+
+        Random rnd = new Random(2L);
+        for (int i = 0; i < 2000; i++) {
+            // Point cible sur une arête horizontale, verticale ou diagonale intérieure
+            double s = 0.1 + rnd.nextInt(n - 1) * 0.1;
+            double r = 0.05 + rnd.nextDouble() * 0.7;
+            double tx, ty;
+            switch (i % 3) {
+                case 0: tx = s; ty = r; break;
+                case 1: tx = r; ty = s; break;
+                default: tx = r; ty = r; break;
+            }
+            Point origin = new Point(tx + rnd.nextDouble() - 0.5, ty + rnd.nextDouble() - 0.5, 1.0 + rnd.nextDouble());
+            Vector dir = new Vector(tx - origin.getX(), ty - origin.getY(), -origin.getZ());
+            assertTrue(wt.intersect(new Ray(origin, dir), Double.POSITIVE_INFINITY).isPresent(),
+                "Le rayon visant (" + tx + ", " + ty + ") traverse le maillage");
+        }
+    }
+
+    @Test
+    void testWideTraversalMatchesBruteForce() {
+        List<Shape> shapes = BVHBuilderTest.randomShapes(800, 11L);
+        for (int width : new int[] {4, 8}) {
+            BVHBuilder[] builders = {
+                BVHBuilder.median().withBranchingFactor(width), BVHBuilder.sah().withBranchingFactor(width),
+                BVHBuilder.sah().withMaxLeafSize(1).withBranchingFactor(width)
+            };
+            for (BVHBuilder builder : builders) {
+                LinearBVH bvh = LinearBVH.build(shapes, builder);
+                assertEquals(width, bvh.getBranchingFactor());
+                assertTrue(bvh.getWideNodeCount() > 0 && bvh.getWideNodeCount() < bvh.getNodeCount() / 2);
+                Random rnd = new Random(5L);
+                for (int i = 0; i < 2000; i++) {
+                    Point origin = new Point(rnd.nextDouble() * 30 - 15, rnd.nextDouble() * 30 - 15, -30);
+                    Ray ray = new Ray(origin, new Vector(rnd.nextDouble() - 0.5, rnd.nextDouble() - 0.5, 1.0));
+                    double expected = BVHBuilderTest.bruteForce(shapes, ray);
+                    double t = bvh.intersect(ray, Double.POSITIVE_INFINITY).map(Intersection::getT)
+                        .orElse(Double.POSITIVE_INFINITY);
+                    assertEquals(expected, t, 1e-9);
+                    double tMax = rnd.nextDouble() * 60.0;
+                    assertEquals(expected < tMax, bvh.isOccluded(ray, 0.0, tMax));
+                }
+            }
+        }
+    }
+
+    // Rayons visant les sommets d'une grille de triangles : plusieurs triangles à la même distance
+    @Test
+    void testEqualDistanceTiesDoNotDependOnTraversal() {
+        Color c = new Color(0.5f, 0.5f, 0.5f);
+        List<Shape> shapes = new ArrayList<>();
+        for (int x = 0; x < 16; x++) {
+            for (int y = 0; y < 16; y++) {
+                Point a = new Point(x, y, 0);
+                Point b = new Point(x + 1, y, 0);
+                Point d = new Point(x, y + 1, 0);
+                Point e = new Point(x + 1, y + 1, 0);
+                shapes.add(new Triangle(a, b, e, c, c, 1f));
+                shapes.add(new Triangle(a, e, d, c, c, 1f));
+            }
+        }
+        Point origin = new Point(-1, -1, -10);
+        for (BVHBuilder builder : new BVHBuilder[] {BVHBuilder.median(), BVHBuilder.sah().withMaxLeafSize(1)}) {
+            LinearBVH binary = LinearBVH.build(shapes, builder);
+            LinearBVH wide4 = LinearBVH.build(shapes, builder.withBranchingFactor(4));
+            LinearBVH wide8 = LinearBVH.build(shapes, builder.withBranchingFactor(8));
+            RayPacket packet = new RayPacket();
+            for (int x = 1; x < 16; x++) {
+                packet.size = 0;
+                for (int y = 1; y < 16; y++) {
+                    packet.rays[packet.size++] = new Ray(origin, new Vector(x + 1, y + 1, 10));
+                }
+                binary.intersect(packet, null);
+                for (int k = 0; k < packet.size; k++) {
+                    Ray ray = packet.rays[k];
+                    HitRecord expected = new HitRecord();
+                    assertTrue(binary.intersect(ray, Double.POSITIVE_INFINITY, expected));
+                    for (LinearBVH bvh : new LinearBVH[] {wide4, wide8}) {
+                        HitRecord actual = new HitRecord();
+                        assertTrue(bvh.intersect(ray, Double.POSITIVE_INFINITY, actual));
+                        assertSame(expected.getShape(), actual.getShape());
+                        assertEquals(expected.getT(), actual.getT());
+                    }
+                    assertSame(expected.getShape(), packet.hits[k].getShape());
+                }
+            }
+        }
+    }
+
+    @Test
+    void testWideTreeWithSingleLeaf() {
+        List<Shape> shapes = BVHBuilderTest.randomShapes(3, 4L);
+        LinearBVH bvh = LinearBVH.build(shapes, BVHBuilder.median().withBranchingFactor(4));
+        assertEquals(1, bvh.getNodeCount());
+        assertEquals(1, bvh.getWideNodeCount());
+        Random rnd = new Random(6L);
+        for (int i = 0; i < 500; i++) {
+            Ray ray = new Ray(new Point(0, 0, -30), new Vector(rnd.nextDouble() - 0.5, rnd.nextDouble() - 0.5, 1.0));
+            double t = bvh.intersect(ray, Double.POSITIVE_INFINITY).map(Intersection::getT)
+                .orElse(Double.POSITIVE_INFINITY);
+            assertEquals(BVHBuilderTest.bruteForce(shapes, ray), t, 1e-9);
+        }
+    }
+
+    @Test
+    void testWideTraversalVisitsFewerNodes() {
+        List<Shape> shapes = BVHBuilderTest.randomShapes(2000, 17L);
+        LinearBVH binary = LinearBVH.build(shapes, BVHBuilder.sah());
+        LinearBVH wide = LinearBVH.build(shapes, BVHBuilder.sah().withBranchingFactor(4));
+        assertEquals(2, binary.getBranchingFactor());
+        assertEquals(0, binary.getWideNodeCount());
+        long[] binaryCounters = new long[RayStats.Counter.values().length];
+        long[] wideCounters = new long[RayStats.Counter.values().length];
+        Random rnd = new Random(3L);
+        for (int i = 0; i < 2000; i++) {
+            Ray ray = new Ray(new Point(0, 0, -30), new Vector(rnd.nextDouble() - 0.5, rnd.nextDouble() - 0.5, 1.0));
+            HitRecord expected = new HitRecord();
+            HitRecord actual = new HitRecord();
+            assertEquals(binary.intersect(ray, Double.POSITIVE_INFINITY, expected, binaryCounters),
+                wide.intersect(ray, Double.POSITIVE_INFINITY, actual, wideCounters));
+            assertEquals(expected.getT(), actual.getT());
+        }
+        // Jusqu'à deux niveaux binaires par noeud large, et les fils lointains écartés
+        assertTrue(wideCounters[RayStats.NODES_VISITED] * 5 < binaryCounters[RayStats.NODES_VISITED] * 3);
+        assertTrue(wideCounters[RayStats.LEAVES_VISITED] <= binaryCounters[RayStats.LEAVES_VISITED]);
+    }
+
+    @Test
+    void testNearChildIsVisitedFirstInBothDirections() {
+        // 64 plaques parallèles (deux triangles chacune) empilées le long de z
+        Color c = new Color(0.5f, 0.5f, 0.5f);
+        List<Shape> shapes = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            shapes.add(new Triangle(new Point(-5, -5, i), new Point(5, -5, i), new Point(5, 5, i), c, c, 1f));
+            shapes.add(new Triangle(new Point(-5, -5, i), new Point(5, 5, i), new Point(-5, 5, i), c, c, 1f));
+        }
+        LinearBVH bvh = LinearBVH.build(shapes, BVHBuilder.sah());
+        Random rnd = new Random(12L);
+        for (int direction : new int[] {1, -1}) {
+            long[] counters = new long[RayStats.Counter.values().length];
+            int rays = 500;
+            for (int i = 0; i < rays; i++) {
+                Point origin = new Point(rnd.nextDouble() * 4 - 2, rnd.nextDouble() * 4 - 2, direction > 0 ? -10 : 80);
+                Ray ray = new Ray(origin, new Vector(rnd.nextDouble() * 0.1 - 0.05, rnd.nextDouble() * 0.1 - 0.05, direction));
+                HitRecord hit = new HitRecord();
+                assertTrue(bvh.intersect(ray, Double.POSITIVE_INFINITY, hit, counters));
+                assertEquals(BVHBuilderTest.bruteForce(shapes, ray), hit.getT(), 1e-9);
+            }
+            // Première plaque touchée dans la première feuille visitée : les autres sont écartées
+            assertTrue(counters[RayStats.LEAVES_VISITED] < 2L * rays,
+                "Feuilles visitées dans le sens " + direction + " : " + counters[RayStats.LEAVES_VISITED]);
+        }
+    }
+
+    @Test
+    void testEmptyTreeFlattensToNull() {
+        assertNull(LinearBVH.flatten(null));
+    }
+}
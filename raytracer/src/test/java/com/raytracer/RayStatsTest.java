@@ -0,0 +1,80 @@
+package com.raytracer;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RayStatsTest {
+
+    private static RayTracer rayTracer() throws IOException {
+        String content = """
+            size 40 30
+            output stats.png
+            maxdepth 2
+            camera 0 0 -5   0 0 0   0 1 0   45
+            ambient 0.1 0.1 0.1
+            directional 0.3 0.2 -1 1 1 1
+            diffuse 0.5 0.2 0.2
+            specular 0.4 0.4 0.4
+            sphere 0 0 0 1
+            specular 0 0 0
+            sphere 1.2 0.6 -0.5 0.4
+            diffuse 0.6 0.6 0.6
+            plane 0 0 3   0 0 -1
+        """;
+        return TestScenes.rayTracer(content);
+    }
+
+    @Test
+    void testCountersDescribeTheRender() throws IOException {
+        RayTracer rayTracer = rayTracer();
+        assertNull(rayTracer.getStats(), "Comptage désactivé par défaut");
+        int[] reference = new int[40 * 30];
+        new TileRenderer(8, TileRenderer.Order.SCANLINE).render(rayTracer, 40, 30, reference, null);
+
+        RayStats stats = new RayStats();
+        rayTracer.setStats(stats);
+        int[] pixels = new int[40 * 30];
+        new TileRenderer(8, TileRenderer.Order.HILBERT).render(rayTracer, 40, 30, pixels, null);
+        assertArrayEquals(reference, pixels, "Le comptage ne change pas l'image");
+
+        Map<RayStats.Counter, Long> v = stats.snapshot();
+        // Le plan du fond est derrière tout : chaque rayon primaire touche une forme
+        assertEquals(40 * 30, v.get(RayStats.Counter.PRIMARY_RAYS));
+        assertEquals(40 * 30, v.get(RayStats.Counter.PRIMARY_HITS));
+        assertTrue(v.get(RayStats.Counter.SHADOW_RAYS) > 0);
+        assertTrue(v.get(RayStats.Counter.SHADOW_OCCLUDED) > 0, "Ombre des sphères sur le plan");
+        assertTrue(v.get(RayStats.Counter.SHADOW_OCCLUDED) < v.get(RayStats.Counter.SHADOW_RAYS));
+        assertTrue(v.get(RayStats.Counter.REFLECTION_RAYS) > 0, "Sphère spéculaire");
+        assertTrue(v.get(RayStats.Counter.REFLECTION_HITS) <= v.get(RayStats.Counter.REFLECTION_RAYS));
+        assertEquals(stats.getTotalRays(), v.get(RayStats.Counter.PRIMARY_RAYS)
+            + v.get(RayStats.Counter.SHADOW_RAYS) + v.get(RayStats.Counter.REFLECTION_RAYS));
+
+        // Le plan, hors BVH, est testé par chaque recherche de l'intersection la plus proche
+        assertTrue(v.get(RayStats.Counter.PLANE_TESTS)
+            >= v.get(RayStats.Counter.PRIMARY_RAYS) + v.get(RayStats.Counter.REFLECTION_RAYS));
+        assertTrue(v.get(RayStats.Counter.SPHERE_TESTS) > 0);
+        assertEquals(0L, v.get(RayStats.Counter.TRIANGLE_TESTS));
+        assertTrue(v.get(RayStats.Counter.AABB_TESTS) >= v.get(RayStats.Counter.NODES_VISITED));
+        assertTrue(v.get(RayStats.Counter.NODES_VISITED) >= v.get(RayStats.Counter.LEAVES_VISITED));
+        assertTrue(v.get(RayStats.Counter.LEAVES_VISITED) > 0);
+        assertTrue(stats.toString().startsWith("Rayons : " + stats.getTotalRays()));
+
+        // Le rendu pixel par pixel, sur un seul thread, compte la même chose
+        stats.reset();
+        assertEquals(0L, stats.getTotalRays());
+        for (int j = 0; j < 30; j++) {
+            for (int i = 0; i < 40; i++) {
+                rayTracer.getPixelRGB(i, j);
+            }
+        }
+        assertEquals(v, stats.snapshot());
+
+        rayTracer.setStats(null);
+        rayTracer.getPixelRGB(0, 0);
+        assertEquals(40 * 30, stats.get(RayStats.Counter.PRIMARY_RAYS));
+    }
+}
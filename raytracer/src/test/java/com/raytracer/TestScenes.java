@@ -0,0 +1,41 @@
+package com.raytracer;
+
+import com.parsing.SceneFileParser;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Scènes de test décrites en texte, au format des fichiers de scène.
+ */
+final class TestScenes {
+
+    private TestScenes() {
+    }
+
+    /**
+     * Analyse une scène écrite dans un fichier temporaire.
+     * @param content texte de la scène
+     * @return la scène chargée
+     */
+    static Scene parse(String content) throws IOException {
+        Path temp = Files.createTempFile("scene", ".test");
+        try {
+            Files.writeString(temp, content);
+            Scene scene = new Scene();
+            new SceneFileParser(scene).parse(temp.toString());
+            return scene;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * @param content texte de la scène
+     * @return un ray tracer de la scène, BVH médiane
+     */
+    static RayTracer rayTracer(String content) throws IOException {
+        return new RayTracer(parse(content));
+    }
+}
@@ -0,0 +1,203 @@
+package com.raytracer;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TileRendererTest {
+
+    @Test
+    void testTilesCoverImageOnceInEveryOrder() {
+        int width = 100;
+        int height = 37;
+        for (TileRenderer.Order order : TileRenderer.Order.values()) {
+            TileRenderer.Tile[] tiles = new TileRenderer(16, order).tiles(width, height);
+            assertEquals(7 * 3, tiles.length);
+            int[] covered = new int[width * height];
+            for (TileRenderer.Tile t : tiles) {
+                for (int y = t.getY(); y < t.getY() + t.getHeight(); y++) {
+                    for (int x = t.getX(); x < t.getX() + t.getWidth(); x++) {
+                        covered[y * width + x]++;
+                    }
+                }
+            }
+            for (int c : covered) {
+                assertEquals(1, c, "Chaque pixel appartient à une seule tuile (" + order + ")");
+            }
+        }
+    }
+
+    @Test
+    void testSpaceFillingOrdersVisitNeighbours() {
+        // Sur une grille 4x4, deux tuiles consécutives de Hilbert sont toujours adjacentes
+        TileRenderer.Tile[] tiles = new TileRenderer(1, TileRenderer.Order.HILBERT).tiles(4, 4);
+        for (int i = 1; i < tiles.length; i++) {
+            int dx = Math.abs(tiles[i].getX() - tiles[i - 1].getX());
+            int dy = Math.abs(tiles[i].getY() - tiles[i - 1].getY());
+            assertEquals(1, dx + dy);
+        }
+        assertEquals(0b0111L, TileRenderer.morton(3, 1)); // x = 11, y = 01
+        // La spirale commence au centre de l'image
+        TileRenderer.Tile first = new TileRenderer(1, TileRenderer.Order.SPIRAL).tiles(5, 5)[0];
+        assertEquals(2, first.getX());
+        assertEquals(2, first.getY());
+    }
+
+    @Test
+    void testTiledRenderMatchesPixelByPixel() throws IOException {
+        String content = """
+            size 45 30
+            output tuiles.png
+            camera 0 0 -5   0 0 0   0 1 0   45
+            ambient 0.1 0.1 0.1
+            diffuse 0.5 0.2 0.2
+            specular 0.3 0.3 0.3
+            shininess 20
+            directional 1 1 -1 1 1 1
+            sphere 0 0 0 1
+            sphere 1.5 0.5 1 0.7
+        """;
+        RayTracer rayTracer = TestScenes.rayTracer(content);
+
+        int[] pixels = new int[45 * 30];
+        TileRenderStats stats = new TileRenderer(8, TileRenderer.Order.SPIRAL).render(rayTracer, 45, 30, pixels, null);
+        assertEquals(6 * 4, stats.getTileCount());
+        for (int j = 0; j < 30; j++) {
+            for (int i = 0; i < 45; i++) {
+                assertEquals(rayTracer.getPixelColor(i, j).toRGB(), pixels[j * 45 + i]);
+            }
+        }
+        assertTrue(stats.getPercentileMillis(100) >= stats.getPercentileMillis(0));
+
+        // Rendu direct dans le raster de l'image
+        BufferedImage image = new BufferedImage(45, 30, BufferedImage.TYPE_INT_RGB);
+        new TileRenderer(7, TileRenderer.Order.MORTON).render(rayTracer, image, null);
+        for (int j = 0; j < 30; j++) {
+            for (int i = 0; i < 45; i++) {
+                assertEquals(pixels[j * 45 + i], image.getRGB(i, j) & 0xffffff);
+            }
+        }
+    }
+
+    @Test
+    void testPacketRenderMatchesPixelByPixel() throws IOException {
+        String content = """
+            size 37 29
+            output paquets.png
+            maxdepth 1
+            camera 0.3 0.4 -5   0 0 0   0 1 0   50
+            ambient 0.1 0.1 0.1
+            point 2 3 -4 1 1 1
+            diffuse 0.5 0.2 0.2
+            specular 0.3 0.3 0.3
+            sphere 0 0 0 1
+            maxverts 4
+            vertex -2 -1 -1
+            vertex 2 -1 -1
+            vertex 2 1.5 2
+            vertex -2 1.5 2
+            diffuse 0.2 0.6 0.2
+            tri 0 1 2
+            tri 0 2 3
+            specular 0 0 0
+            plane 0 -1.2 0   0 1 0
+        """;
+        RayTracer rayTracer = TestScenes.rayTracer(content);
+        RayStats stats = new RayStats();
+        rayTracer.setStats(stats);
+
+        int[] reference = new int[37 * 29];
+        new TileRenderer(16, TileRenderer.Order.SCANLINE).render(rayTracer, 37, 29, reference, null);
+        long nodes = stats.get(RayStats.Counter.NODES_VISITED);
+        long triangleTests = stats.get(RayStats.Counter.TRIANGLE_TESTS);
+        assertEquals(0L, stats.get(RayStats.Counter.PACKET_TESTS));
+
+        for (int size = 2; size <= TileRenderer.MAX_PACKET_SIZE; size++) {
+            stats.reset();
+            TileRenderer renderer = new TileRenderer(13, TileRenderer.Order.HILBERT).withPacketSize(size);
+            assertEquals(size, renderer.getPacketSize());
+            int[] pixels = new int[37 * 29];
+            renderer.render(rayTracer, 37, 29, pixels, null);
+            assertArrayEquals(reference, pixels, "Paquets de " + size + "x" + size);
+            // Chaque rayon parcourt les mêmes noeuds et teste les mêmes triangles qu'isolé
+            assertEquals(nodes, stats.get(RayStats.Counter.NODES_VISITED));
+            assertEquals(triangleTests, stats.get(RayStats.Counter.TRIANGLE_TESTS));
+            assertTrue(stats.get(RayStats.Counter.PACKET_TESTS) > 0);
+        }
+    }
+
+    @Test
+    void testWavefrontRenderMatchesPixelByPixel() throws IOException {
+        // Miroirs face à face : plusieurs rebonds, deux lumières, ombres portées
+        String content = """
+            size 41 27
+            output front.png
+            maxdepth 4
+            camera 0.5 1.5 -7   0 0 0   0 1 0   55
+            ambient 0.05 0.05 0.1
+            point 3 4 -5 0.8 0.8 0.8
+            directional -1 -2 1 0.3 0.3 0.2
+            diffuse 0.3 0.1 0.1
+            specular 0.6 0.6 0.6
+            shininess 20
+            sphere -1 0 0 1
+            sphere 1.5 0.5 1 0.8
+            diffuse 0.1 0.3 0.1
+            specular 0.4 0.4 0.4
+            maxverts 3
+            vertex -3 -1 3
+            vertex 3 -1 3
+            vertex 0 3 3
+            tri 0 1 2
+            specular 0.2 0.2 0.2
+            plane 0 -1 0   0 1 0
+        """;
+        RayTracer rayTracer = TestScenes.rayTracer(content);
+        RayStats stats = new RayStats();
+        rayTracer.setStats(stats);
+
+        int[] reference = new int[41 * 27];
+        new TileRenderer(16, TileRenderer.Order.SCANLINE).render(rayTracer, 41, 27, reference, null);
+        long[] expected = new long[RayStats.Counter.values().length];
+        for (RayStats.Counter counter : RayStats.Counter.values()) {
+            expected[counter.ordinal()] = stats.get(counter);
+        }
+        assertTrue(expected[RayStats.Counter.REFLECTION_HITS.ordinal()] > 0);
+
+        stats.reset();
+        TileRenderer renderer = new TileRenderer(13, TileRenderer.Order.HILBERT).withWavefront(true);
+        assertTrue(renderer.isWavefront());
+        int[] pixels = new int[41 * 27];
+        renderer.render(rayTracer, 41, 27, pixels, null);
+        assertArrayEquals(reference, pixels);
+        // Mêmes rayons, seul l'ordre de lancement change
+        for (RayStats.Counter counter : new RayStats.Counter[] {RayStats.Counter.PRIMARY_RAYS,
+                RayStats.Counter.PRIMARY_HITS, RayStats.Counter.SHADOW_RAYS, RayStats.Counter.SHADOW_OCCLUDED,
+                RayStats.Counter.REFLECTION_RAYS, RayStats.Counter.REFLECTION_HITS}) {
+            assertEquals(expected[counter.ordinal()], stats.get(counter), counter.toString());
+        }
+    }
+
+    @Test
+    void testInvalidPacketSizeThrows() {
+        TileRenderer renderer = new TileRenderer();
+        assertEquals(0, renderer.getPacketSize());
+        assertThrows(IllegalArgumentException.class, () -> renderer.withPacketSize(1));
+        assertThrows(IllegalArgumentException.class, () -> renderer.withPacketSize(TileRenderer.MAX_PACKET_SIZE + 1));
+        assertThrows(IllegalArgumentException.class, () -> renderer.withPacketSize(-4));
+    }
+
+    @Test
+    void testRejectsNonIntRgbImage() {
+        BufferedImage image = new BufferedImage(4, 4, BufferedImage.TYPE_3BYTE_BGR);
+        assertThrows(IllegalArgumentException.class, () -> new TileRenderer().render(null, image, null));
+    }
+
+    @Test
+    void testInvalidTileSizeThrows() {
+        assertThrows(IllegalArgumentException.class, () -> new TileRenderer(0, TileRenderer.Order.SCANLINE));
+    }
+}